@@ -0,0 +1,54 @@
+package model;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * BenchmarkRunner runs the benchmarks of the model and writes their results
+ * as JSON, so the results of two versions can be compared. It takes the
+ * usual JMH options: for example, "-p size=1000,10000 Scan" runs only the
+ * scan benchmarks on the two smallest libraries, and "-rff results.json"
+ * picks the results file, which is otherwise bench-results.json. The rename
+ * log of the benchmarks is kept in a temporary file, not the working
+ * directory.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class BenchmarkRunner {
+    /**
+     * The file results are written to if none is given.
+     */
+    private static final String RESULTS_PATH = "bench-results.json";
+
+    public static void main(String[] args) throws RunnerException,
+            CommandLineOptionException, IOException {
+        CommandLineOptions options = new CommandLineOptions(args);
+        File log = Files.createTempFile("tyi-bench", ".log").toFile();
+        log.deleteOnExit();
+        ChainedOptionsBuilder builder = new OptionsBuilder()
+                .parent(options)
+                .jvmArgsAppend("-Dtagyoureit.log=" + log);
+        if (options.getIncludes().isEmpty()) {
+            builder.include(BenchmarkRunner.class.getPackage().getName() +
+                    "\\..*Benchmark");
+        }
+        if (!options.getResultFormat().hasValue()) {
+            builder.resultFormat(ResultFormatType.JSON);
+        }
+        if (!options.getResult().hasValue()) {
+            builder.result(RESULTS_PATH);
+        }
+        new Runner(builder.build()).run();
+    }
+}
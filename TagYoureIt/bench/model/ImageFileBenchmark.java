@@ -0,0 +1,117 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of renaming and moving an image in a Model, over libraries of
+ * 1k to 1M images. Each rename also updates the indexes of the model, and
+ * is written to the log, the journal and the history. The library is only
+ * in the catalog, apart from the one image on disk that is renamed.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ImageFileBenchmark {
+    /**
+     * The number of images in the library.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * The directory the library and the data of the model are kept in.
+     */
+    private Path dataDirectory;
+
+    /**
+     * The model of the library.
+     */
+    private Model model;
+
+    /**
+     * The image renamed and moved.
+     */
+    private ImageFile imageFile;
+
+    /**
+     * The two directories the image is moved between.
+     */
+    private File[] directories;
+
+    /**
+     * The two sets of tags the image is given in turn.
+     */
+    private ArrayList<ArrayList<Tag>> tags;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDirectory = Files.createTempDirectory("tyi-bench");
+        Path root = Files.createDirectory(dataDirectory.resolve("root"));
+        Library.writeCatalog(dataDirectory.resolve("catalog.tyi"), root,
+                size);
+        directories = new File[]{
+                Files.createDirectory(root.resolve("a")).toFile(),
+                Files.createDirectory(root.resolve("b")).toFile()};
+        File file = new File(directories[0], "photo.jpg");
+        Files.createFile(file.toPath());
+        model = new Model(root.toFile(), ImageScanner.Mode.PARALLEL,
+                dataDirectory);
+        imageFile = model.getImageFile(file);
+        tags = new ArrayList<>();
+        tags.add(new ArrayList<>());
+        tags.add(new ArrayList<>());
+        tags.get(1).add(model.getExistingTags().findTag(Library.tagName(0)));
+        tags.get(1).add(model.getExistingTags().findTag(Library.tagName(1)));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        model.close();
+        Library.delete(dataDirectory);
+    }
+
+    /**
+     * Adds two tags to the image, or removes them again.
+     */
+    @Benchmark
+    public void editTags() throws IOException {
+        imageFile.editTags(tags.get(imageFile.getCurrentTags().isEmpty() ?
+                1 : 0));
+    }
+
+    /**
+     * Moves the image to the other directory.
+     */
+    @Benchmark
+    public void moveTo() throws IOException {
+        File directory = directories[directories[0].equals(
+                imageFile.getFile().getParentFile()) ? 1 : 0];
+        imageFile.moveTo(new File(directory, imageFile.getFile().getName()));
+    }
+}
@@ -0,0 +1,192 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A Library builds the synthetic image libraries the benchmarks run
+ * against. Image i is named "img[i] @tag[a] @tag[b] ...": its tags are
+ * drawn from TAG_COUNT tags so that a few are common and most are rare, as
+ * in a real library. Images are spread over directories of DIRECTORY_SIZE.
+ * The same size always gives the same library.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+final class Library {
+    /**
+     * The number of distinct tags in a library.
+     */
+    static final int TAG_COUNT = 1000;
+
+    /**
+     * The most tags an image has.
+     */
+    static final int MAX_TAGS = 4;
+
+    /**
+     * The number of images in each directory of a library.
+     */
+    static final int DIRECTORY_SIZE = 1000;
+
+    /**
+     * The seed the tags of every library are drawn with.
+     */
+    private static final long SEED = 42;
+
+    private Library() {
+    }
+
+    /**
+     * Returns the name of tag i.
+     *
+     * @param i the number of the tag
+     * @return the name of tag i
+     */
+    static String tagName(int i) {
+        return "tag" + i;
+    }
+
+    /**
+     * Returns the files of a library of size images under root. The files
+     * are not created.
+     *
+     * @param root the root of the library
+     * @param size the number of images
+     * @return the files of the images, in order
+     */
+    static File[] files(Path root, int size) {
+        Random random = new Random(SEED);
+        File[] files = new File[size];
+        for (int i = 0; i < size; i++) {
+            StringBuilder name = new StringBuilder("img").append(i);
+            for (int tag : tags(random)) {
+                name.append(" @").append(tagName(tag));
+            }
+            files[i] = root.resolve("dir" + i / DIRECTORY_SIZE)
+                    .resolve(name.append(".jpg").toString()).toFile();
+        }
+        return files;
+    }
+
+    /**
+     * Returns the ImageFiles of a library of size images under root, as
+     * they would be read back from a catalog. The files are not created.
+     *
+     * @param root the root of the library
+     * @param size the number of images
+     * @return the ImageFiles of the library, with ids from 1
+     */
+    static List<ImageFile> imageFiles(Path root, int size) {
+        List<ImageFile> imageFiles = new ArrayList<>(size);
+        File[] files = files(root, size);
+        for (int i = 0; i < size; i++) {
+            String name = files[i].getName();
+            ArrayList<Tag> tags = new ArrayList<>();
+            String[] parts = name.substring(0, name.lastIndexOf('.'))
+                    .split(" @");
+            for (int j = 1; j < parts.length; j++) {
+                tags.add(new Tag(parts[j]));
+            }
+            ImageFile im = new ImageFile(files[i], parts[0], ".jpg", tags,
+                    new ArrayList<>());
+            im.setId(i + 1);
+            imageFiles.add(im);
+        }
+        return imageFiles;
+    }
+
+    /**
+     * Returns the existing tags of every library.
+     *
+     * @return the existing tags
+     */
+    static ExistingTags existingTags() {
+        ExistingTags existingTags = new ExistingTags();
+        for (int i = 0; i < TAG_COUNT; i++) {
+            existingTags.addTag(new Tag(tagName(i)));
+        }
+        return existingTags;
+    }
+
+    /**
+     * Writes the catalog of a library of size images under root to
+     * catalog.
+     *
+     * @param catalog the catalog file
+     * @param root    the root of the library
+     * @param size    the number of images
+     * @throws IOException if the catalog could not be written
+     */
+    static void writeCatalog(Path catalog, Path root, int size)
+            throws IOException {
+        new Catalog(catalog).write(imageFiles(root, size), existingTags());
+    }
+
+    /**
+     * Creates the empty image files of a library of size images under
+     * root.
+     *
+     * @param root the root of the library
+     * @param size the number of images
+     * @throws IOException if a file could not be created
+     */
+    static void createFiles(Path root, int size) throws IOException {
+        for (File file : files(root, size)) {
+            Files.createDirectories(file.getParentFile().toPath());
+            Files.createFile(file.toPath());
+        }
+    }
+
+    /**
+     * Deletes directory and everything in it.
+     *
+     * @param directory the directory to delete
+     * @throws IOException if a file could not be deleted
+     */
+    static void delete(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file,
+                                             BasicFileAttributes attrs)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir,
+                                                      IOException e)
+                    throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Draws the tags of one image: none to MAX_TAGS distinct tags, skewed
+     * towards the low numbered ones.
+     *
+     * @param random the source of the draw
+     * @return the numbers of the tags, in ascending order
+     */
+    private static int[] tags(Random random) {
+        int count = random.nextInt(MAX_TAGS + 1);
+        return random.ints(0, TAG_COUNT)
+                .map(i -> i * i / TAG_COUNT)
+                .distinct().limit(count).sorted().toArray();
+    }
+}
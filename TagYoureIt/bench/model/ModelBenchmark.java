@@ -0,0 +1,179 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the lookups of a Model, and of saving and loading its
+ * catalog, over libraries of 1k to 1M images. The images are only in the
+ * catalog, not on disk, so the size of the library is not limited by how
+ * fast files can be created.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+    /**
+     * The number of images in the library.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * The directory the catalog, journal and history are kept in.
+     */
+    private Path dataDirectory;
+
+    /**
+     * The root of the library, which has no files on disk.
+     */
+    private Path root;
+
+    /**
+     * The model of the library.
+     */
+    private Model model;
+
+    /**
+     * The files of the images, in a shuffled order to look up.
+     */
+    private File[] files;
+
+    /**
+     * The names of the tags, in a shuffled order to look up.
+     */
+    private String[] tagNames;
+
+    /**
+     * A query for the most common tag.
+     */
+    private TagQuery commonTag;
+
+    /**
+     * A query combining common and rare tags.
+     */
+    private TagQuery query;
+
+    /**
+     * The number of lookups done, which picks the next file or tag.
+     */
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        dataDirectory = Files.createTempDirectory("tyi-bench");
+        root = Files.createDirectory(dataDirectory.resolve("root"));
+        Library.writeCatalog(dataDirectory.resolve("catalog.tyi"), root,
+                size);
+        model = new Model(root.toFile(), ImageScanner.Mode.PARALLEL,
+                dataDirectory);
+        files = Library.files(root, size);
+        Collections.shuffle(Arrays.asList(files), new Random(size));
+        tagNames = new String[Library.TAG_COUNT];
+        for (int i = 0; i < tagNames.length; i++) {
+            tagNames[i] = Library.tagName((i * 7919) % Library.TAG_COUNT);
+        }
+        commonTag = TagQuery.parse("tag0");
+        query = TagQuery.parse("(tag1 OR tag2 OR tag500) AND NOT tag0");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        model.close();
+        Library.delete(dataDirectory);
+    }
+
+    /**
+     * Looks up an image by its file.
+     */
+    @Benchmark
+    public ImageFile getImageFile() {
+        return model.getImageFile(files[next++ % files.length]);
+    }
+
+    /**
+     * Looks up an existing tag by its name.
+     */
+    @Benchmark
+    public Tag findTag() {
+        return model.getExistingTags().findTag(
+                tagNames[next++ % tagNames.length]);
+    }
+
+    /**
+     * Searches for a common tag.
+     */
+    @Benchmark
+    public List<ImageFile> searchCommonTag() {
+        return model.search(commonTag);
+    }
+
+    /**
+     * Searches with a query combining common and rare tags.
+     */
+    @Benchmark
+    public List<ImageFile> searchQuery() {
+        return model.search(query);
+    }
+
+    /**
+     * Opens the library: loads the catalog, indexes every image, and scans
+     * the (empty) root.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Model openModel() throws IOException {
+        Model opened = new Model(root.toFile(), ImageScanner.Mode.PARALLEL,
+                dataDirectory);
+        opened.close();
+        return opened;
+    }
+
+    /**
+     * Writes the catalog of the library.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void saveAll() {
+        model.saveAll();
+    }
+
+    /**
+     * Reads the catalog of the library back.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Catalog.Contents loadCatalog() throws IOException {
+        return new Catalog(dataDirectory.resolve("catalog.tyi")).read();
+    }
+}
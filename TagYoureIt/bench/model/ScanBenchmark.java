@@ -0,0 +1,94 @@
+package model;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of walking a library on disk, and of creating a Model for a
+ * library seen for the first time, over libraries of 1k to 1M images.
+ * Creating the files of the largest libraries takes a while, and as many
+ * inodes; pick the sizes to run with -p size=....
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ScanBenchmark {
+    /**
+     * The number of images in the library.
+     */
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    /**
+     * How the library is walked.
+     */
+    @Param({"PARALLEL", "SEQUENTIAL"})
+    public ImageScanner.Mode mode;
+
+    /**
+     * The directory the library and the data of the model are kept in.
+     */
+    private Path directory;
+
+    /**
+     * The root of the library.
+     */
+    private Path root;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tyi-bench");
+        root = directory.resolve("root");
+        Library.createFiles(root, size);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Library.delete(directory);
+    }
+
+    /**
+     * Walks the library.
+     */
+    @Benchmark
+    public List<Path> scan() throws IOException {
+        return new ImageScanner(mode).scan(root);
+    }
+
+    /**
+     * Creates a Model for the library with no catalog, so every image is
+     * found by the scan.
+     */
+    @Benchmark
+    public Model newModel() throws IOException {
+        Path dataDirectory = Files.createTempDirectory(directory, "data");
+        Model model = new Model(root.toFile(), mode, dataDirectory);
+        model.close();
+        Library.delete(dataDirectory);
+        return model;
+    }
+}
@@ -0,0 +1,412 @@
+package controller;
+
+import model.BatchResult;
+import model.ImageFile;
+import model.Metrics;
+import model.Model;
+import model.Tag;
+import model.TagEdit;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CommandLine runs the application without a window, for batch jobs and
+ * scripts. It opens a Model at a root directory, and carries out the
+ * commands read from a file, or from standard input, one per line:
+ *
+ * <pre>
+ *   scan                    list every image under the root
+ *   tag   TAG[,TAG...] PATH add tags to the image at PATH
+ *   untag TAG[,TAG...] PATH remove tags from the image at PATH
+ *   move  DIR PATH          move the image at PATH to DIR
+ *   query QUERY             list the images matching QUERY
+ * </pre>
+ *
+ * Fields are separated by tabs if the line has any, or by spaces otherwise,
+ * in which case the last field is the rest of the line. Relative paths are
+ * resolved against the root. Blank lines and lines starting with # are
+ * skipped.
+ *
+ * Consecutive tag or untag commands with the same tags are carried out as
+ * one batch, so a job of many thousands of lines costs a few large edits of
+ * the Model rather than one edit per line. The new path of every image
+ * changed, and every image listed, is written to standard output as soon as
+ * its batch or command is done; errors are written to standard error with
+ * the line they came from. The exit status is 0 if every command succeeded,
+ * 1 if any failed, and 2 if the arguments were wrong or the root could not
+ * be opened.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class CommandLine {
+    /**
+     * The exit status when every command succeeded.
+     */
+    static final int OK = 0;
+
+    /**
+     * The exit status when any command failed.
+     */
+    static final int FAILED = 1;
+
+    /**
+     * The exit status when the arguments were wrong, or the root could not
+     * be opened.
+     */
+    static final int USAGE = 2;
+
+    /**
+     * The most images edited in one batch.
+     */
+    static final int BATCH_SIZE = 10_000;
+
+    /**
+     * The usage message.
+     */
+    private static final String USAGE_MESSAGE =
+            "usage: CommandLine ROOT [COMMAND_FILE | -]";
+
+    /**
+     * The service the commands are carried out by.
+     */
+    private final TaggingService service;
+
+    /**
+     * Where the paths of images changed and listed are written.
+     */
+    private final PrintWriter out;
+
+    /**
+     * Where errors are written.
+     */
+    private final PrintWriter err;
+
+    /**
+     * The edit of the batch waiting to be carried out, or null if there is
+     * none.
+     */
+    private TagEdit pendingEdit;
+
+    /**
+     * The tags of the batch waiting to be carried out.
+     */
+    private List<Tag> pendingTags;
+
+    /**
+     * The images of the batch waiting to be carried out, with the line each
+     * was named on.
+     */
+    private final Map<ImageFile, Integer> pending = new IdentityHashMap<>();
+
+    /**
+     * Whether any command has failed.
+     */
+    private boolean failed;
+
+    /**
+     * Constructs a CommandLine carrying out commands with service.
+     *
+     * @param service the service the commands are carried out by
+     * @param out     where the paths of images are written
+     * @param err     where errors are written
+     */
+    CommandLine(TaggingService service, PrintWriter out, PrintWriter err) {
+        this.service = service;
+        this.out = out;
+        this.err = err;
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args, System.in, System.out, System.err));
+    }
+
+    /**
+     * Runs the commands named by args, as main does, and returns the exit
+     * status.
+     *
+     * @param args   the root, then optionally the command file
+     * @param stdin  where commands are read from if there is no command file
+     * @param stdout where the paths of images are written
+     * @param stderr where errors are written
+     * @return the exit status
+     */
+    static int run(String[] args, InputStream stdin, OutputStream stdout,
+                   OutputStream stderr) {
+        PrintWriter out = new PrintWriter(new BufferedWriter(
+                new OutputStreamWriter(stdout)));
+        PrintWriter err = new PrintWriter(new OutputStreamWriter(stderr),
+                true);
+        if (args.length < 1 || args.length > 2 ||
+                !new File(args[0]).isDirectory()) {
+            err.println(USAGE_MESSAGE);
+            return USAGE;
+        }
+        InputStream in = stdin;
+        try {
+            if (args.length == 2 && !args[1].equals("-")) {
+                in = new FileInputStream(args[1]);
+            }
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            return USAGE;
+        }
+        Model model;
+        try {
+            // Scanned paths are built on the root, so it must be normalized
+            // like the paths looked up in it
+            model = new Model(new File(args[0]).toPath().toAbsolutePath()
+                    .normalize().toFile());
+        } catch (IOException e) {
+            err.println("error: could not open " + args[0] + ": " +
+                    e.getMessage());
+            return USAGE;
+        }
+        Metrics.start(model.getDataDirectory());
+        TaggingService service = new TaggingService(model);
+        CommandLine commandLine = new CommandLine(service, out, err);
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(in))) {
+            commandLine.runAll(reader);
+        } catch (IOException e) {
+            err.println("error: " + e.getMessage());
+            commandLine.failed = true;
+        } finally {
+            service.save();
+            out.flush();
+            Metrics.stop();
+        }
+        return commandLine.failed ? FAILED : OK;
+    }
+
+    /**
+     * Carries out every command read by reader, then the last batch.
+     *
+     * @param reader the reader of the commands
+     * @throws IOException if the commands could not be read
+     */
+    void runAll(BufferedReader reader) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            String trimmed = line.trim();
+            if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                runCommand(line, lineNumber);
+            }
+        }
+        flushBatch();
+    }
+
+    /**
+     * Carries out the command on line, or adds it to the pending batch.
+     *
+     * @param line       the command
+     * @param lineNumber the number of the line, for errors
+     */
+    void runCommand(String line, int lineNumber) {
+        String[] fields = split(line);
+        String command = fields[0];
+        switch (command) {
+            case "tag":
+            case "untag":
+                if (fields.length != 3) {
+                    error(lineNumber, "usage: " + command + " TAGS PATH");
+                } else {
+                    TagEdit edit = command.equals("tag") ? TagEdit.ADD :
+                            TagEdit.REMOVE;
+                    queueEdit(edit, fields[1], resolve(fields[2]),
+                            lineNumber);
+                }
+                break;
+            case "move":
+                flushBatch();
+                if (fields.length != 3) {
+                    error(lineNumber, "usage: move DIR PATH");
+                } else {
+                    move(resolve(fields[1]), resolve(fields[2]), lineNumber);
+                }
+                break;
+            case "query":
+                flushBatch();
+                query(fields.length > 1 ? fields[1] : "", lineNumber);
+                break;
+            case "scan":
+                flushBatch();
+                Model model = service.getModel();
+                for (ImageFile imageFile :
+                        model.underRoot(model.getImageFiles())) {
+                    out.println(imageFile.getFile());
+                }
+                out.flush();
+                break;
+            default:
+                error(lineNumber, "unknown command: " + command);
+        }
+    }
+
+    /**
+     * Splits line into its command and arguments. The command is followed
+     * by at most two arguments, the last taking the rest of the line.
+     *
+     * @param line the command
+     * @return the command, then its arguments
+     */
+    static String[] split(String line) {
+        String trimmed = line.trim();
+        String command = trimmed.split("\\s+", 2)[0];
+        int limit = command.equals("tag") || command.equals("untag") ||
+                command.equals("move") ? 3 : 2;
+        String[] fields = trimmed.contains("\t") ?
+                trimmed.split("\t", limit) : trimmed.split(" +", limit);
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = fields[i].trim();
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the file at path, resolved against the root if it is
+     * relative.
+     *
+     * @param path the path of a file
+     * @return the absolute file at path
+     */
+    private File resolve(String path) {
+        File file = new File(path);
+        if (!file.isAbsolute()) {
+            file = new File(service.getModel().getRoot(), path);
+        }
+        return file.toPath().normalize().toFile();
+    }
+
+    /**
+     * Adds the image at file to the pending batch, carrying out the pending
+     * batch first if it has a different edit or tags, or is full.
+     *
+     * @param edit       whether the tags are added or removed
+     * @param tagNames   the names of the tags, separated by commas
+     * @param file       the image to edit
+     * @param lineNumber the number of the line, for errors
+     */
+    private void queueEdit(TagEdit edit, String tagNames, File file,
+                           int lineNumber) {
+        ImageFile imageFile = service.getImageFile(file);
+        if (imageFile == null && !pending.isEmpty()) {
+            // The image may be named by the path the pending batch gives it
+            flushBatch();
+            imageFile = service.getImageFile(file);
+        }
+        if (imageFile == null) {
+            error(lineNumber, "not an image under the root: " + file);
+            return;
+        }
+        // Tags become existing tags only once a file is given them
+        List<Tag> tags = new ArrayList<>();
+        for (String name : tagNames.split(",")) {
+            if (!name.trim().isEmpty()) {
+                tags.add(new Tag(name.trim()));
+            }
+        }
+        if (tags.isEmpty()) {
+            error(lineNumber, "no tags given");
+            return;
+        }
+        if (edit != pendingEdit || !tags.equals(pendingTags) ||
+                pending.size() >= BATCH_SIZE) {
+            flushBatch();
+            pendingEdit = edit;
+            pendingTags = tags;
+        }
+        pending.put(imageFile, lineNumber);
+    }
+
+    /**
+     * Carries out the pending batch, if any, and writes out its results.
+     */
+    private void flushBatch() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        BatchResult result = service.editTags(pending.keySet(), pendingEdit,
+                pendingTags);
+        for (ImageFile imageFile : result.getChanged()) {
+            out.println(imageFile.getFile());
+        }
+        out.flush();
+        for (Map.Entry<ImageFile, IOException> failure :
+                result.getFailures().entrySet()) {
+            error(pending.get(failure.getKey()), failure.getKey().getFile() +
+                    ": " + failure.getValue().getMessage());
+        }
+        pending.clear();
+        pendingEdit = null;
+        pendingTags = null;
+    }
+
+    /**
+     * Moves the image at file to directory, and writes out its new path.
+     *
+     * @param directory  the directory to move the image to
+     * @param file       the image to move
+     * @param lineNumber the number of the line, for errors
+     */
+    private void move(File directory, File file, int lineNumber) {
+        ImageFile imageFile = service.getImageFile(file);
+        if (imageFile == null) {
+            error(lineNumber, "not an image under the root: " + file);
+            return;
+        }
+        try {
+            service.moveFile(imageFile, directory);
+            out.println(imageFile.getFile());
+            out.flush();
+        } catch (TaggingException | IOException e) {
+            error(lineNumber, file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes out the paths of the images matching query.
+     *
+     * @param query      the query
+     * @param lineNumber the number of the line, for errors
+     */
+    private void query(String query, int lineNumber) {
+        try {
+            for (ImageFile imageFile : service.query(query)) {
+                out.println(imageFile.getFile());
+            }
+            out.flush();
+        } catch (ParseException e) {
+            error(lineNumber, "invalid query: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes out an error with the line it came from, and records that a
+     * command failed.
+     *
+     * @param lineNumber the number of the line
+     * @param message    the error
+     */
+    private void error(int lineNumber, String message) {
+        failed = true;
+        err.println("error: line " + lineNumber + ": " + message);
+    }
+}
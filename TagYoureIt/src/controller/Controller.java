@@ -1,13 +1,19 @@
 package controller;
 
+import javafx.application.Platform;
+import model.BatchResult;
 import model.ImageFile;
+import model.Metrics;
 import model.Model;
 import model.Tag;
+import model.TagEdit;
 import view.*;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * The Controller class is responsible for relaying any changes made by the user
@@ -20,11 +26,27 @@ import java.util.ArrayList;
  */
 
 public class Controller {
+    /**
+     * The most files listed when asking the user to confirm a change to
+     * them.
+     */
+    private static final int LISTED_FILES = 20;
+
     /**
      * The Model that this controller interacts with.
      */
     private Model model;
 
+    /**
+     * The service that carries out the changes the user makes.
+     */
+    private TaggingService service;
+
+    /**
+     * The loader that decodes the thumbnails shown in every view.
+     */
+    private ThumbnailLoader thumbnails;
+
     /**
      * Creates a new controller for model.
      *
@@ -32,15 +54,27 @@ public class Controller {
      */
     public Controller(Model model) {
         this.model = model;
+        this.service = new TaggingService(model);
     }
 
     /**
-     * Initialize a new ImageGalleryView for the model.
+     * Initialize a new ImageGalleryView for the model, start watching the
+     * model's root for changes made by other programs, and start publishing
+     * the Metrics of the application.
      */
     public void init() {
-        ImageGalleryView view = new ImageGalleryView(model, this);
-        for (ImageFile f : model.getImageFiles()) {
-            f.addObserver(view);
+        Metrics.start(model.getDataDirectory());
+        thumbnails = new ThumbnailLoader(
+                model.getDataDirectory().resolve("thumbnails"),
+                Platform::runLater);
+        ImageGalleryView view = new ImageGalleryView(model, this,
+                thumbnails);
+        model.addObserver(view);
+        try {
+            model.startWatching(Platform::runLater);
+        } catch (IOException e) {
+            // The gallery still works, it just won't see outside changes.
+            e.printStackTrace();
         }
         view.display();
     }
@@ -53,32 +87,57 @@ public class Controller {
      * @param destDirectory the destination directory to move imageFile to
      */
     public void moveFile(ImageFile imageFile, File destDirectory) {
-        // Verify no files in destDirectory have the same name or original
-        // name as imageFile
-        boolean validMove = true;
-        for (File child : destDirectory.listFiles()) {
-            if (child.isFile() && model.getImageFile(child) != null &&
-                    imageFile.getOriginalName().equals(
-                            model.getImageFile(child).getOriginalName())) {
-                AlertBox ab = new AlertBox("Error",
-                        "A file with the same original name already " +
-                                "exists");
-                ab.display();
-                validMove = false;
-                break;
-            }
+        try {
+            service.moveFile(imageFile, destDirectory);
+        } catch (TaggingException e) {
+            AlertBox ab = new AlertBox("Error", e.getMessage());
+            ab.display();
+        } catch (IOException e) {
+            AlertBox ab = new AlertBox("Error",
+                    "Error occurred while attempting to move file");
+            ab.display();
         }
-        // Move the file (only if it is a valid move)
-        if (validMove) {
-            File destFile = new File(destDirectory.getAbsolutePath() +
-                    File.separator + imageFile.getFile().getName());
-            try {
-                imageFile.moveTo(destFile);
-            } catch (IOException e) {
+    }
+
+    /**
+     * Move every ImageFile of imageFiles to destDirectory at once, after
+     * the user confirms. Nothing is moved if any of them has the same
+     * original name as a file in destDirectory, or as another of them; if
+     * any file cannot be moved, the files already moved are moved back, and
+     * the user is shown which failed.
+     *
+     * @param imageFiles    the imageFiles to move to destDirectory
+     * @param destDirectory the destination directory to move them to
+     */
+    public void moveFiles(List<ImageFile> imageFiles, File destDirectory) {
+        if (imageFiles.isEmpty()) {
+            return;
+        }
+        ConfirmBox cb = new ConfirmBox("Move Files", "Move " +
+                imageFiles.size() + " files to " + destDirectory + "?");
+        if (!cb.display()) {
+            return;
+        }
+        try {
+            BatchResult result = service.moveFiles(imageFiles,
+                    destDirectory);
+            if (result.hasFailures()) {
+                StringBuilder sb = new StringBuilder();
+                for (ImageFile f : result.getFailures().keySet()) {
+                    sb.append(" - ").append(f.getFile().toString())
+                            .append("\n");
+                }
+                String moved = result.getChanged().isEmpty() ?
+                        "No files were moved." : result.getChanged().size() +
+                        " files could not be moved back.";
                 AlertBox ab = new AlertBox("Error",
-                        "Error occurred while attempting to move file");
+                        "Error occurred while attempting to move these " +
+                                "files:\n" + sb.toString() + moved);
                 ab.display();
             }
+        } catch (TaggingException e) {
+            AlertBox ab = new AlertBox("Error", e.getMessage());
+            ab.display();
         }
     }
 
@@ -89,21 +148,10 @@ public class Controller {
      * @param name the name of the tag to be added
      */
     public void addTag(String name) {
-        if (!name.trim().equals("") &&
-                model.getExistingTags().findTag(name) == null) {
-            model.getExistingTags().addTag(new Tag(name));
-        } else if (name.trim().equals("")) {
-            AlertBox ab = new AlertBox("Error",
-                    "Cannot add an empty tag");
-            ab.display();
-        } else if (model.getExistingTags().findTag(name) != null) {
-            AlertBox ab = new AlertBox("Error",
-                    "A tag with the same name already exists");
-            ab.display();
-        } else {
-            AlertBox ab = new AlertBox("Error",
-                    "An unknown error occurred while " +
-                            "attempting to make this tag");
+        try {
+            service.addTag(name);
+        } catch (TaggingException e) {
+            AlertBox ab = new AlertBox("Error", e.getMessage());
             ab.display();
         }
     }
@@ -111,63 +159,51 @@ public class Controller {
     /**
      * Remove a tag from the current set of existing tags.  If any file has
      * any tag in tags, the user will be prompted to confirm removal of those
-     * tags.
+     * tags, and the files are renamed in the background while a
+     * ProgressBox shows how far along it is. The tags are only removed from
+     * the set of existing tags if every file was renamed.
      *
      * @param tags the tags to be removed from the current set of existing tags
      */
     public void removeTags(ArrayList<Tag> tags) {
         if (tags != null) {
             // Find any images that have a tag being removed.
-            ArrayList<ImageFile> warningFiles = new ArrayList<>();
-            for (Tag selectedTag : tags) {
-                for (ImageFile imageFile : model.getImageFiles()) {
-                    if (imageFile.getFile().toString().startsWith(
-                            model.getRoot().toString()) &&
-                            imageFile.getCurrentTags().contains(selectedTag)) {
-                        if (!warningFiles.contains(imageFile)) {
-                            warningFiles.add(imageFile);
-                        }
-                    }
-                }
-            }
+            List<ImageFile> warningFiles = service.filesWithTags(tags);
             // Confirm with the user to remove tags from images files.
-            boolean confirm = true;
             if (!warningFiles.isEmpty()) {
                 StringBuilder sb = new StringBuilder();
-                for (ImageFile f : warningFiles) {
+                for (ImageFile f : warningFiles.subList(0, Math.min(
+                        warningFiles.size(), LISTED_FILES))) {
                     sb.append(" - ");
                     sb.append(f.getFile().toString());
                     sb.append("\n");
                 }
+                if (warningFiles.size() > LISTED_FILES) {
+                    sb.append(" ... and ").append(warningFiles.size() -
+                            LISTED_FILES).append(" more\n");
+                }
                 ConfirmBox cb = new ConfirmBox("Warning",
                         "The selected tags will be removed from " +
                                 "these Files:\n" + sb.toString() +
                                 "Do you wish to continue?");
-                confirm = cb.display();
-                // Remove tags from any image files that have a tag in tags
-                if (confirm) {
-                    for (ImageFile f : warningFiles) {
-                        ArrayList<Tag> newTags = f.getCurrentTags();
-                        newTags.removeAll(tags);
-                        try {
-                            f.editTags(newTags);
-                        } catch (IOException e) {
-                            AlertBox ab = new AlertBox("Error",
-                                    "Error occurred while attempting" +
-                                            " to rename file");
-                            ab.display();
-                            confirm = false;
-                            break;
-                        }
-                    }
+                if (!cb.display()) {
+                    return;
                 }
             }
-            // Remove the tag(s) from ExistingTags.
-            if (confirm) {
-                for (Tag tag : tags) {
-                    model.getExistingTags().removeTag(tag);
-                }
+            Model.EditJob job = service.planRemoval(warningFiles, tags);
+            EditTagsTask task = new EditTagsTask(service, job, tags);
+            Thread thread = new Thread(task, "TagYoureIt tag removal");
+            thread.setDaemon(true);
+            thread.start();
+            new ProgressBox("Removing tags", task, task::stop).display();
+            BatchResult result = task.finish();
+            if (task.isStopped() && !job.isRenamed()) {
+                AlertBox ab = new AlertBox("Alert", "Removal cancelled " +
+                        "after " + job.getRenamed() + " of " + job.size() +
+                        " files. The tags were kept.");
+                ab.display();
             }
+            showFailures(result);
         }
     }
 
@@ -178,24 +214,8 @@ public class Controller {
      * @param name      the new name of imageFile
      */
     public void revertToName(ImageFile imageFile, String name) {
-        // tags: Tags found in String name
-        ArrayList<Tag> tags = new ArrayList<>();
-        // missingTags: Tags found in name, but not in existingTags
-        ArrayList<Tag> missingTags = new ArrayList<>();
-        if (name.contains("@")) {
-            // Populate tags and missingTags.
-            for (String tagName : name.substring(
-                    name.indexOf('@') + 1).split("@")) {
-                if (model.getExistingTags().findTag(tagName.trim()) == null) {
-                    Tag newTag = new Tag(tagName.trim());
-                    missingTags.add(newTag);
-                    model.getExistingTags().addTag(newTag);
-                }
-                tags.add(model.getExistingTags().findTag(tagName.trim()));
-            }
-        }
         try {
-            imageFile.editTags(tags);
+            List<Tag> missingTags = service.revertToName(imageFile, name);
             if (!missingTags.isEmpty()) {
                 // Notify user of any new tags created.
                 StringBuilder sb = new StringBuilder();
@@ -223,7 +243,7 @@ public class Controller {
      */
     public void setTags(ImageFile imageFile, ArrayList<Tag> tags) {
         try {
-            imageFile.editTags(tags);
+            service.setTags(imageFile, tags);
         } catch (IOException e) {
             AlertBox ab = new AlertBox("Error",
                     "Error occurred while attempting to rename file");
@@ -231,6 +251,41 @@ public class Controller {
         }
     }
 
+    /**
+     * Add, remove or set tags on every ImageFile in imageFiles at once. If
+     * any files could not be renamed, the user is shown which; the other
+     * files are still renamed.
+     *
+     * @param imageFiles the imageFiles to edit the tags of
+     * @param edit       whether tags are added, removed or set
+     * @param tags       the tags to add, remove or set
+     * @return the outcome of the edit
+     */
+    public BatchResult editTags(Collection<ImageFile> imageFiles,
+                                TagEdit edit, ArrayList<Tag> tags) {
+        return showFailures(service.editTags(imageFiles, edit, tags));
+    }
+
+    /**
+     * Show the user which files of result could not be renamed, if any.
+     *
+     * @param result the outcome of an edit
+     * @return result
+     */
+    private BatchResult showFailures(BatchResult result) {
+        if (result.hasFailures()) {
+            StringBuilder sb = new StringBuilder();
+            for (ImageFile f : result.getFailures().keySet()) {
+                sb.append(" - ").append(f.getFile().toString()).append("\n");
+            }
+            AlertBox ab = new AlertBox("Error",
+                    "Error occurred while attempting to rename these " +
+                            "files:\n" + sb.toString());
+            ab.display();
+        }
+        return result;
+    }
+
     /**
      * Initialize and display a new ImageFileView for imageFile
      *
@@ -238,7 +293,7 @@ public class Controller {
      */
     public void openImageFileView(ImageFile imageFile) {
         ImageFileView view = new ImageFileView(imageFile,
-                model.getExistingTags(), this);
+                model.getExistingTags(), this, thumbnails);
         imageFile.addObserver(view);
         view.display();
     }
@@ -253,9 +308,15 @@ public class Controller {
     }
 
     /**
-     * Notify Model to serialize all data.
+     * Stop watching the model's root and decoding thumbnails, notify Model
+     * to serialize all data, and write a last snapshot of the Metrics.
      */
     public void close() {
-        this.model.saveAll();
+        this.model.stopWatching();
+        if (thumbnails != null) {
+            thumbnails.shutdown();
+        }
+        service.save();
+        Metrics.stop();
     }
 }
@@ -0,0 +1,125 @@
+package controller;
+
+import javafx.concurrent.Task;
+import model.BatchResult;
+import model.Model;
+import model.Tag;
+
+import java.util.List;
+
+/**
+ * An EditTagsTask carries out the renames of a planned tag removal on a
+ * background thread, CHUNK_SIZE files at a time, reporting its progress as
+ * it goes. The task can be asked to stop, and does so once the chunk it is
+ * renaming is done. Once no rename is under way, however the task ended,
+ * the renames carried out are committed to the model and the existing tags
+ * in one step, on the JavaFX application thread, so a stopped or failed
+ * removal never leaves them partly updated.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class EditTagsTask extends Task<Void> {
+    /**
+     * The number of files renamed between checks for a stop request.
+     */
+    static final int CHUNK_SIZE = 256;
+
+    /**
+     * The service the removal is finished by.
+     */
+    private final TaggingService service;
+
+    /**
+     * The job whose renames are carried out.
+     */
+    private final Model.EditJob job;
+
+    /**
+     * The tags removed.
+     */
+    private final List<Tag> tags;
+
+    /**
+     * The outcome of the removal, once it has been finished.
+     */
+    private BatchResult result;
+
+    /**
+     * Whether the task has been asked to stop.
+     */
+    private volatile boolean stopped;
+
+    /**
+     * Constructs a task carrying out the renames of job, which removes tags
+     * as planned by service.
+     *
+     * @param service the service that planned job
+     * @param job     the job to carry out
+     * @param tags    the tags removed
+     */
+    EditTagsTask(TaggingService service, Model.EditJob job, List<Tag> tags) {
+        this.service = service;
+        this.job = job;
+        this.tags = tags;
+    }
+
+    /**
+     * Asks the task to stop once the chunk it is renaming is done.
+     */
+    void stop() {
+        stopped = true;
+    }
+
+    /**
+     * Returns whether the task was asked to stop.
+     *
+     * @return true if stop was called
+     */
+    boolean isStopped() {
+        return stopped;
+    }
+
+    @Override
+    protected Void call() {
+        updateProgress(0, job.size());
+        while (!stopped && !job.isRenamed()) {
+            job.renameNext(CHUNK_SIZE);
+            updateProgress(job.getRenamed(), job.size());
+            updateMessage("Renamed " + job.getRenamed() + " of " +
+                    job.size() + " files");
+        }
+        return null;
+    }
+
+    @Override
+    protected void succeeded() {
+        finish();
+    }
+
+    @Override
+    protected void cancelled() {
+        finish();
+    }
+
+    @Override
+    protected void failed() {
+        getException().printStackTrace();
+        finish();
+    }
+
+    /**
+     * Commits the renames carried out and, if all of them were, removes the
+     * tags from the existing tags, the first time it is called. Must be
+     * called on the JavaFX application thread once the task has ended.
+     *
+     * @return the outcome of the removal
+     */
+    BatchResult finish() {
+        if (result == null) {
+            result = service.finishRemoval(job, tags);
+        }
+        return result;
+    }
+}
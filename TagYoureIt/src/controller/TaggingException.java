@@ -0,0 +1,26 @@
+package controller;
+
+/**
+ * A TaggingException is thrown by the TaggingService when a request cannot
+ * be carried out, such as adding a tag that already exists. Its message is
+ * meant to be shown to the user as it is.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class TaggingException extends Exception {
+    /**
+     * The version of the serialized form of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructs a TaggingException with the message provided.
+     *
+     * @param message why the request could not be carried out
+     */
+    public TaggingException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,351 @@
+package controller;
+
+import model.BatchResult;
+import model.ImageFile;
+import model.Metrics;
+import model.Model;
+import model.Tag;
+import model.TagEdit;
+import model.Timer;
+
+import java.io.File;
+import java.io.IOException;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A TaggingService carries out the tagging operations of the application on
+ * a Model: moving files, adding and removing tags, and searching. It shows
+ * no dialogs and knows nothing of JavaFX; requests it refuses throw a
+ * TaggingException, and failed renames are reported in their result. The
+ * Controller uses it behind the views, and the CommandLine uses it in batch
+ * jobs.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class TaggingService {
+    /**
+     * The most clashing files named when a batch move is refused.
+     */
+    private static final int LISTED_CLASHES = 10;
+
+    /**
+     * The time taken to check and carry out a move.
+     */
+    private static final Timer MOVE_TIMER = Metrics.timer("service.move");
+
+    /**
+     * The time taken to run a query.
+     */
+    private static final Timer QUERY_TIMER = Metrics.timer("service.query");
+
+    /**
+     * The Model this service operates on.
+     */
+    private final Model model;
+
+    /**
+     * Creates a new service for model.
+     *
+     * @param model the model to operate on
+     */
+    public TaggingService(Model model) {
+        this.model = model;
+    }
+
+    /**
+     * Returns the Model this service operates on.
+     *
+     * @return the model
+     */
+    public Model getModel() {
+        return model;
+    }
+
+    /**
+     * Returns the ImageFile of the model at file. The file is made absolute
+     * and normalized first, as the paths of the model are.
+     *
+     * @param file the system file of an image
+     * @return the ImageFile at file, or null if the model has none there
+     */
+    public ImageFile getImageFile(File file) {
+        return model.getImageFile(
+                file.toPath().toAbsolutePath().normalize().toFile());
+    }
+
+    /**
+     * Move imageFile to destDirectory if no file in destDirectory has the
+     * same original name.
+     *
+     * @param imageFile     the imageFile to move to destDirectory
+     * @param destDirectory the destination directory to move imageFile to
+     * @throws TaggingException if destDirectory is not a directory, or has
+     *                          a file with the same original name
+     * @throws IOException      if the file could not be moved
+     */
+    public void moveFile(ImageFile imageFile, File destDirectory)
+            throws TaggingException, IOException {
+        long start = Timer.start();
+        if (!destDirectory.isDirectory()) {
+            throw new TaggingException(destDirectory +
+                    " is not a directory");
+        }
+        // Verify no files in destDirectory have the same name or original
+        // name as imageFile
+        if (model.hasOriginalName(destDirectory,
+                imageFile.getOriginalName())) {
+            throw new TaggingException("A file with the same original " +
+                    "name already exists");
+        }
+        imageFile.moveTo(new File(destDirectory.getAbsolutePath() +
+                File.separator + imageFile.getFile().getName()));
+        MOVE_TIMER.stop(start);
+    }
+
+    /**
+     * Move every ImageFile of imageFiles to destDirectory at once. Every
+     * move is checked before any file is moved: none of imageFiles may have
+     * the same original name as a file in destDirectory, or as another of
+     * imageFiles. If any file then cannot be moved, the files already moved
+     * are moved back.
+     *
+     * @param imageFiles    the ImageFiles to move to destDirectory
+     * @param destDirectory the destination directory to move them to
+     * @return the ImageFiles moved, and those that could not be
+     * @throws TaggingException if destDirectory is not a directory, or any
+     *                          of imageFiles clashes with another file
+     */
+    public BatchResult moveFiles(Collection<ImageFile> imageFiles,
+                                 File destDirectory)
+            throws TaggingException {
+        if (!destDirectory.isDirectory()) {
+            throw new TaggingException(destDirectory +
+                    " is not a directory");
+        }
+        Set<ImageFile> seen =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<String> names = new HashSet<>();
+        List<String> clashes = new ArrayList<>();
+        for (ImageFile imageFile : imageFiles) {
+            String name = imageFile.getOriginalName();
+            if (!seen.add(imageFile)) {
+                continue;
+            }
+            if (model.hasOriginalName(destDirectory, name) ||
+                    !names.add(name)) {
+                clashes.add(imageFile.getFile().getName());
+            }
+        }
+        if (!clashes.isEmpty()) {
+            StringBuilder sb = new StringBuilder();
+            for (String clash : clashes.subList(0,
+                    Math.min(clashes.size(), LISTED_CLASHES))) {
+                sb.append("\n - ").append(clash);
+            }
+            if (clashes.size() > LISTED_CLASHES) {
+                sb.append("\n ... and ").append(
+                        clashes.size() - LISTED_CLASHES).append(" more");
+            }
+            throw new TaggingException(clashes.size() + " files would " +
+                    "clash with a file of the same original name:" + sb);
+        }
+        return model.moveFiles(imageFiles, destDirectory);
+    }
+
+    /**
+     * Add a tag to the current set of existing tags.
+     *
+     * @param name the name of the tag to be added
+     * @return the tag added
+     * @throws TaggingException if name is empty, or a tag with the same
+     *                          name already exists
+     */
+    public Tag addTag(String name) throws TaggingException {
+        if (name.trim().equals("")) {
+            throw new TaggingException("Cannot add an empty tag");
+        }
+        if (model.getExistingTags().findTag(name) != null) {
+            throw new TaggingException(
+                    "A tag with the same name already exists");
+        }
+        Tag tag = new Tag(name);
+        model.getExistingTags().addTag(tag);
+        return tag;
+    }
+
+    /**
+     * Returns the existing tag named name, adding it to the existing tags
+     * if there is none.
+     *
+     * @param name the name of the tag
+     * @return the tag named name
+     */
+    public Tag findOrAddTag(String name) {
+        Tag tag = model.getExistingTags().findTag(name);
+        if (tag == null) {
+            tag = new Tag(name);
+            model.getExistingTags().addTag(tag);
+        }
+        return tag;
+    }
+
+    /**
+     * Returns the ImageFiles under the root of the model that have any of
+     * tags, found through the model's tag index. In a lazily loaded model,
+     * the files are picked by number, and only those returned are built,
+     * as they are asked for.
+     *
+     * @param tags the tags to look for
+     * @return the ImageFiles with any of tags, each once
+     */
+    public List<ImageFile> filesWithTags(Collection<Tag> tags) {
+        return model.underRoot(model.findWithAnyTag(tags));
+    }
+
+    /**
+     * Removes tags from every ImageFile under the root that has them, then
+     * from the existing tags. If any file could not be renamed, the tags
+     * stay in the existing tags.
+     *
+     * @param tags the tags to remove
+     * @return the outcome of removing the tags from the files
+     */
+    public BatchResult removeTags(List<Tag> tags) {
+        return removeTags(filesWithTags(tags), tags);
+    }
+
+    /**
+     * Removes tags from imageFiles, then from the existing tags. If any
+     * file could not be renamed, the tags stay in the existing tags.
+     *
+     * @param imageFiles the ImageFiles with any of tags, as found by
+     *                   filesWithTags
+     * @param tags       the tags to remove
+     * @return the outcome of removing the tags from imageFiles
+     */
+    public BatchResult removeTags(Collection<ImageFile> imageFiles,
+                                  List<Tag> tags) {
+        Model.EditJob job = planRemoval(imageFiles, tags);
+        job.renameNext(job.size());
+        return finishRemoval(job, tags);
+    }
+
+    /**
+     * Plans to remove tags from imageFiles. The job returned can rename the
+     * files a part at a time on a background thread; finishRemoval then
+     * completes the removal.
+     *
+     * @param imageFiles the ImageFiles with any of tags, as found by
+     *                   filesWithTags
+     * @param tags       the tags to remove
+     * @return the planned removal
+     */
+    public Model.EditJob planRemoval(Collection<ImageFile> imageFiles,
+                                     List<Tag> tags) {
+        return model.newEdit(imageFiles, TagEdit.REMOVE, tags);
+    }
+
+    /**
+     * Commits the renames job has carried out, then, if it carried out all
+     * of them without a failure, removes tags from the existing tags in one
+     * change. If the job was stopped part way, or any file could not be
+     * renamed, the existing tags are left as they were. Must be called on
+     * the thread that owns the model, once job is no longer renaming.
+     *
+     * @param job  the removal planned by planRemoval
+     * @param tags the tags removed
+     * @return the outcome of the renames carried out
+     */
+    public BatchResult finishRemoval(Model.EditJob job, List<Tag> tags) {
+        BatchResult result = job.commit();
+        if (job.isRenamed() && !result.hasFailures()) {
+            model.getExistingTags().removeTags(tags);
+        }
+        return result;
+    }
+
+    /**
+     * Add, remove or set tags on every ImageFile in imageFiles at once. A
+     * file that could not be renamed does not stop the others.
+     *
+     * @param imageFiles the imageFiles to edit the tags of
+     * @param edit       whether tags are added, removed or set
+     * @param tags       the tags to add, remove or set
+     * @return the outcome of the edit
+     */
+    public BatchResult editTags(Collection<ImageFile> imageFiles,
+                                TagEdit edit, List<Tag> tags) {
+        return model.editTags(imageFiles, edit, tags);
+    }
+
+    /**
+     * Set the tags of this imageFile to tags.
+     *
+     * @param imageFile the imageFile to set the tags of
+     * @param tags      the new set of tags for imageFile
+     * @throws IOException if the file could not be renamed
+     */
+    public void setTags(ImageFile imageFile, ArrayList<Tag> tags)
+            throws IOException {
+        imageFile.editTags(tags);
+    }
+
+    /**
+     * Revert this imageFile's name to a previous name. Tags in name that
+     * are not existing tags are added to them.
+     *
+     * @param imageFile the ImageFile to revert
+     * @param name      the new name of imageFile
+     * @return the tags that had to be added to the existing tags
+     * @throws IOException if the file could not be renamed
+     */
+    public List<Tag> revertToName(ImageFile imageFile, String name)
+            throws IOException {
+        // tags: Tags found in String name
+        ArrayList<Tag> tags = new ArrayList<>();
+        // missingTags: Tags found in name, but not in existingTags
+        List<Tag> missingTags = new ArrayList<>();
+        if (name.contains("@")) {
+            for (String tagName : name.substring(
+                    name.indexOf('@') + 1).split("@")) {
+                if (model.getExistingTags().findTag(tagName.trim()) == null) {
+                    missingTags.add(new Tag(tagName.trim()));
+                }
+                tags.add(findOrAddTag(tagName.trim()));
+            }
+        }
+        imageFile.editTags(tags);
+        return missingTags;
+    }
+
+    /**
+     * Returns the ImageFiles matching query, such as
+     * "hawaii AND beach AND NOT blurry". An empty query matches nothing.
+     *
+     * @param query the query
+     * @return the matching ImageFiles
+     * @throws ParseException if query is not a valid query
+     */
+    public List<ImageFile> query(String query) throws ParseException {
+        long start = Timer.start();
+        List<ImageFile> found = model.search(query);
+        QUERY_TIMER.stop(start);
+        return found;
+    }
+
+    /**
+     * Saves the model.
+     */
+    public void save() {
+        model.saveAll();
+    }
+}
@@ -0,0 +1,78 @@
+package model;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A BatchResult reports the outcome of an operation on many image files at
+ * once: which image files were changed, and which could not be, with the
+ * exception that stopped each of them. A failure only affects its own image
+ * file; the rest of the batch still goes ahead.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class BatchResult {
+    /**
+     * The image files that were changed.
+     */
+    private final List<ImageFile> changed = new ArrayList<>();
+
+    /**
+     * The image files that could not be changed, and why.
+     */
+    private final Map<ImageFile, IOException> failures =
+            new LinkedHashMap<>();
+
+    /**
+     * Records that imageFile was changed.
+     *
+     * @param imageFile the image file that was changed
+     */
+    void addChanged(ImageFile imageFile) {
+        changed.add(imageFile);
+    }
+
+    /**
+     * Records that imageFile could not be changed.
+     *
+     * @param imageFile the image file that could not be changed
+     * @param cause     the exception that stopped it
+     */
+    void addFailure(ImageFile imageFile, IOException cause) {
+        failures.put(imageFile, cause);
+    }
+
+    /**
+     * Returns the image files that were changed. Image files the operation
+     * would have left as they were are not included.
+     *
+     * @return the image files that were changed
+     */
+    public List<ImageFile> getChanged() {
+        return new ArrayList<>(changed);
+    }
+
+    /**
+     * Returns the image files that could not be changed, each with the
+     * exception that stopped it.
+     *
+     * @return the image files that could not be changed
+     */
+    public Map<ImageFile, IOException> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * Returns whether any image file could not be changed.
+     *
+     * @return true if any image file could not be changed
+     */
+    public boolean hasFailures() {
+        return !failures.isEmpty();
+    }
+}
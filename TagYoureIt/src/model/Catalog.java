@@ -0,0 +1,823 @@
+package model;
+
+import java.io.*;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * A Catalog stores a collection of ImageFiles and the existing tags in a
+ * compact, versioned binary file. The file is laid out as:
+ * <pre>
+ *   header       magic, version, the counts of each section below, and
+ *                the id the next new ImageFile will be given
+ *   strings      an offset table followed by UTF-8 data; every path,
+ *                name, tag and past name is stored once
+ *   records      one fixed-width record per ImageFile, made of its id,
+ *                string ids and ranges into the pool
+ *   pool         string ids of the tags and past names of each ImageFile
+ *   tags         string ids of the existing tags
+ *   checksum     CRC32 of everything above
+ * </pre>
+ * Catalogs are read through a memory-mapped FileChannel and written to a
+ * temporary file that then becomes the catalog, so a failed save never
+ * leaves a half written catalog behind. A catalog can also be mapped rather
+ * than read, so its ImageFiles are only built when they are asked for.
+ * Since a mapped file cannot be replaced on every platform, a catalog is
+ * never saved over the file it was read from: saves alternate between the
+ * catalog path and numbered files beside it, and a small pointer file,
+ * replaced on each save, names the current one.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class Catalog {
+    /**
+     * The first four bytes of every catalog file, "TYIC".
+     */
+    private static final int MAGIC = 0x54594943;
+
+    /**
+     * The version of the catalog format written by this class.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 9 * 4;
+
+    /**
+     * The number of ints in the record of each ImageFile.
+     */
+    private static final int RECORD_INTS = 10;
+
+    /**
+     * The number of files a catalog is saved to in turn. More than two are
+     * only used while an old file is still mapped and cannot be replaced.
+     */
+    private static final int MAX_FILES = 8;
+
+    /**
+     * The path of the first catalog file; the others are numbered after it.
+     */
+    private final Path path;
+
+    /**
+     * The path of the file naming the current catalog file.
+     */
+    private final Path pointer;
+
+    /**
+     * The contents of a catalog: its ImageFiles and existing tags.
+     */
+    static class Contents {
+        /**
+         * The ImageFiles stored in the catalog.
+         */
+        final ArrayList<ImageFile> imageFiles;
+
+        /**
+         * The existing tags stored in the catalog.
+         */
+        final ExistingTags existingTags;
+
+        /**
+         * The id the next new ImageFile will be given.
+         */
+        final long nextFileId;
+
+        /**
+         * Constructs the contents of a catalog.
+         *
+         * @param imageFiles   the ImageFiles stored in the catalog
+         * @param existingTags the existing tags stored in the catalog
+         * @param nextFileId   the id the next new ImageFile will be given
+         */
+        Contents(ArrayList<ImageFile> imageFiles, ExistingTags existingTags,
+                 long nextFileId) {
+            this.imageFiles = imageFiles;
+            this.existingTags = existingTags;
+            this.nextFileId = nextFileId;
+        }
+    }
+
+    /**
+     * Constructs a catalog stored at path.
+     *
+     * @param path the path of the catalog file
+     */
+    Catalog(Path path) {
+        this.path = path;
+        this.pointer = path.resolveSibling(path.getFileName() + ".current");
+    }
+
+    /**
+     * Returns the path of the current catalog file, which may not exist.
+     *
+     * @return the path of the current catalog file
+     * @throws IOException if the pointer to the catalog file could not be
+     *                     read
+     */
+    Path getPath() throws IOException {
+        if (!Files.exists(pointer)) {
+            return path;
+        }
+        return path.resolveSibling(new String(Files.readAllBytes(pointer),
+                StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns whether the current catalog file exists.
+     *
+     * @return true if the catalog file exists
+     * @throws IOException if the pointer to the catalog file could not be
+     *                     read
+     */
+    boolean exists() throws IOException {
+        return Files.exists(getPath());
+    }
+
+    /**
+     * Returns the path of the catalog file numbered n.
+     *
+     * @param n the number of the file, from 0 to MAX_FILES - 1
+     * @return the path of the catalog file numbered n
+     */
+    private Path file(int n) {
+        return n == 0 ? path :
+                path.resolveSibling(path.getFileName() + "." + n);
+    }
+
+    /**
+     * Writes imageFiles and existingTags to the catalog file, replacing its
+     * previous contents. The next new ImageFile will be given an id after
+     * the largest stored.
+     *
+     * @param imageFiles   the ImageFiles to store
+     * @param existingTags the existing tags to store
+     * @throws IOException if the catalog could not be written
+     */
+    void write(Collection<ImageFile> imageFiles, ExistingTags existingTags)
+            throws IOException {
+        long nextFileId = 1;
+        for (ImageFile im : imageFiles) {
+            nextFileId = Math.max(nextFileId, im.getId() + 1);
+        }
+        write(imageFiles, existingTags, nextFileId);
+    }
+
+    /**
+     * Writes imageFiles and existingTags to the catalog file, replacing its
+     * previous contents. They are written to a file other than the current
+     * one, which then becomes current, so the old file may still be mapped.
+     *
+     * @param imageFiles   the ImageFiles to store
+     * @param existingTags the existing tags to store
+     * @param nextFileId   the id the next new ImageFile will be given
+     * @throws IOException if the catalog could not be written
+     */
+    void write(Collection<ImageFile> imageFiles, ExistingTags existingTags,
+               long nextFileId) throws IOException {
+        StringTable strings = new StringTable();
+        int[] records = new int[imageFiles.size() * RECORD_INTS];
+        IntList pool = new IntList();
+        int r = 0;
+        for (ImageFile im : imageFiles) {
+            File file = im.getFile();
+            int[] tags = im.getTagIds();
+            ArrayList<String> pastNames = im.getPastImageNames();
+            // Files without a parent are stored with an empty one.
+            records[r++] = strings.id(file.getParent() == null ?
+                    "" : file.getParent());
+            records[r++] = strings.id(file.getName());
+            records[r++] = strings.id(im.getOriginalName());
+            records[r++] = strings.id(im.getFileExtension());
+            records[r++] = pool.size();
+            records[r++] = tags.length;
+            for (int tag : tags) {
+                pool.add(strings.id(TagDictionary.tag(tag).getTag()));
+            }
+            records[r++] = pool.size();
+            records[r++] = pastNames.size();
+            for (String name : pastNames) {
+                pool.add(strings.id(name));
+            }
+            records[r++] = (int) (im.getId() >>> 32);
+            records[r++] = (int) im.getId();
+        }
+        ArrayList<Tag> tags = existingTags.getExistingTags();
+        int[] tagIds = new int[tags.size()];
+        for (int i = 0; i < tagIds.length; i++) {
+            tagIds[i] = strings.id(tags.get(i).getTag());
+        }
+
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        CRC32 crc = new CRC32();
+        try (FileOutputStream file = new FileOutputStream(temp.toFile())) {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(
+                            new CheckedOutputStream(file, crc), 1 << 16));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(strings.size());
+            out.writeInt(strings.byteSize());
+            out.writeInt(imageFiles.size());
+            out.writeInt(pool.size());
+            out.writeInt(tagIds.length);
+            out.writeLong(nextFileId);
+            strings.writeTo(out);
+            for (int value : records) {
+                out.writeInt(value);
+            }
+            for (int i = 0; i < pool.size(); i++) {
+                out.writeInt(pool.get(i));
+            }
+            for (int id : tagIds) {
+                out.writeInt(id);
+            }
+            out.flush();
+            new DataOutputStream(file).writeInt((int) crc.getValue());
+            file.getFD().sync();
+        }
+        Path current = getPath();
+        Path saved = null;
+        for (int n = 0; saved == null; n++) {
+            Path target = file(n);
+            if (target.equals(current) && Files.exists(current)) {
+                continue;
+            }
+            try {
+                replace(temp, target);
+                saved = target;
+            } catch (IOException e) {
+                // The file may still be mapped; try the next one
+                if (n == MAX_FILES - 1) {
+                    throw e;
+                }
+            }
+        }
+
+        Path tempPointer = pointer.resolveSibling(pointer.getFileName() +
+                ".tmp");
+        try (FileOutputStream file = new FileOutputStream(
+                tempPointer.toFile())) {
+            file.write(saved.getFileName().toString()
+                    .getBytes(StandardCharsets.UTF_8));
+            file.getFD().sync();
+        }
+        replace(tempPointer, pointer);
+        for (int n = 0; n < MAX_FILES; n++) {
+            if (!file(n).equals(saved)) {
+                try {
+                    Files.deleteIfExists(file(n));
+                } catch (IOException e) {
+                    // Still mapped; it is deleted by a later save
+                }
+            }
+        }
+    }
+
+    /**
+     * Moves source over target, atomically where the file system allows.
+     *
+     * @param source the file to move
+     * @param target the file to replace
+     * @throws IOException if source could not be moved
+     */
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the ImageFiles and existing tags stored in the catalog file.
+     *
+     * @return the contents of the catalog
+     * @throws IOException if the catalog could not be read, or is corrupted
+     */
+    Contents read() throws IOException {
+        Path file = getPath();
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        try {
+            return read(buffer, file);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException |
+                IllegalArgumentException | NegativeArraySizeException e) {
+            throw new IOException("Corrupted catalog " + file, e);
+        }
+    }
+
+    /**
+     * Maps the catalog file, checking it is whole, without building any of
+     * its ImageFiles.
+     *
+     * @return the mapped catalog
+     * @throws IOException if the catalog could not be mapped, or is
+     *                     corrupted
+     */
+    Mapping map() throws IOException {
+        Path file = getPath();
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0,
+                    channel.size());
+        }
+        try {
+            checkHeader(buffer, file);
+            return new Mapping(buffer);
+        } catch (BufferUnderflowException | IndexOutOfBoundsException |
+                IllegalArgumentException e) {
+            throw new IOException("Corrupted catalog " + file, e);
+        }
+    }
+
+    /**
+     * Checks that buffer holds a whole catalog of a known version.
+     *
+     * @param buffer the contents of the catalog file
+     * @param file   the catalog file
+     * @throws IOException if the catalog is corrupted or of an unknown
+     *                     version
+     */
+    private void checkHeader(ByteBuffer buffer, Path file)
+            throws IOException {
+        if (buffer.limit() < 8 || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a catalog: " + file);
+        }
+        int version = buffer.getInt(4);
+        if (version != VERSION) {
+            throw new IOException("Unsupported catalog version " + version);
+        }
+        if (buffer.limit() < HEADER_SIZE + 4) {
+            throw new IOException("Corrupted catalog " + file);
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = buffer.duplicate();
+        body.limit(buffer.limit() - 4);
+        crc.update(body);
+        if ((int) crc.getValue() != buffer.getInt(buffer.limit() - 4)) {
+            throw new IOException("Corrupted catalog " + file);
+        }
+    }
+
+    /**
+     * Reads the contents of a catalog from buffer.
+     *
+     * @param buffer the contents of the catalog file
+     * @param path   the path of the catalog file
+     * @return the contents of the catalog
+     * @throws IOException if the catalog is corrupted or of an unknown
+     *                     version
+     */
+    private Contents read(ByteBuffer buffer, Path path) throws IOException {
+        checkHeader(buffer, path);
+
+        buffer.position(8);
+        int stringCount = buffer.getInt();
+        int stringBytes = buffer.getInt();
+        int imageCount = buffer.getInt();
+        int poolSize = buffer.getInt();
+        int tagCount = buffer.getInt();
+        long nextFileId = buffer.getLong();
+        String[] strings = readStrings(buffer, stringCount, stringBytes);
+        // The TagDictionary id of each string naming a tag, plus one, so
+        // each name is interned once.
+        int[] tagIds = new int[stringCount];
+
+        int[] records = new int[imageCount * RECORD_INTS];
+        buffer.asIntBuffer().get(records);
+        buffer.position(buffer.position() + records.length * 4);
+        int[] pool = new int[poolSize];
+        buffer.asIntBuffer().get(pool);
+        buffer.position(buffer.position() + pool.length * 4);
+
+        ArrayList<ImageFile> imageFiles = new ArrayList<>(imageCount);
+        for (int r = 0; r < records.length; r += RECORD_INTS) {
+            String parent = strings[records[r]];
+            String name = strings[records[r + 1]];
+            File file = parent.isEmpty() ? new File(name) :
+                    new File(parent, name);
+            int[] tags = records[r + 5] == 0 ? TagDictionary.NO_TAGS :
+                    new int[records[r + 5]];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = tagId(tagIds, strings, pool[records[r + 4] + i]);
+            }
+            ArrayList<String> pastNames = new ArrayList<>(records[r + 7]);
+            for (int i = 0; i < records[r + 7]; i++) {
+                pastNames.add(strings[pool[records[r + 6] + i]]);
+            }
+            ImageFile im = new ImageFile(file, strings[records[r + 2]],
+                    strings[records[r + 3]], tags, pastNames);
+            im.setId(((long) records[r + 8] << 32) |
+                    (records[r + 9] & 0xFFFFFFFFL));
+            imageFiles.add(im);
+        }
+
+        ExistingTags existingTags = new ExistingTags();
+        for (int i = 0; i < tagCount; i++) {
+            existingTags.addTag(TagDictionary.tag(
+                    tagId(tagIds, strings, buffer.getInt())));
+        }
+        return new Contents(imageFiles, existingTags, nextFileId);
+    }
+
+    /**
+     * Returns the TagDictionary id of the tag named by string id, interning
+     * it on first use.
+     *
+     * @param tagIds  the ids interned so far plus one, by string id
+     * @param strings the string table of the catalog
+     * @param id      the string id of the name of the tag
+     * @return the TagDictionary id of the tag
+     */
+    private static int tagId(int[] tagIds, String[] strings, int id) {
+        if (tagIds[id] == 0) {
+            tagIds[id] = TagDictionary.intern(strings[id]) + 1;
+        }
+        return tagIds[id] - 1;
+    }
+
+    /**
+     * Reads the string table at the position of buffer, and moves the
+     * position past it.
+     *
+     * @param buffer the contents of the catalog file
+     * @param count  the number of strings in the table
+     * @param bytes  the size of the UTF-8 data of the table
+     * @return the strings in the table, by id
+     */
+    private static String[] readStrings(ByteBuffer buffer, int count,
+                                        int bytes) {
+        int[] offsets = new int[count + 1];
+        buffer.asIntBuffer().get(offsets);
+        buffer.position(buffer.position() + offsets.length * 4);
+        byte[] data = new byte[bytes];
+        buffer.get(data);
+        String[] strings = new String[count];
+        for (int i = 0; i < count; i++) {
+            strings[i] = new String(data, offsets[i],
+                    offsets[i + 1] - offsets[i], StandardCharsets.UTF_8);
+        }
+        return strings;
+    }
+
+    /**
+     * A Mapping is a catalog file mapped into memory. The strings,
+     * records and pool stay in the mapping, and each ImageFile, path or
+     * name is decoded from them only when it is asked for, so a Mapping
+     * takes little heap however many ImageFiles the catalog holds. The
+     * existing tags are read straight away. A Mapping is not safe for use
+     * by several threads at once.
+     */
+    static class Mapping {
+        /**
+         * The contents of the catalog file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * The number of strings in the string table.
+         */
+        private final int stringCount;
+
+        /**
+         * The position of the offset table of the strings.
+         */
+        private final int offsetsStart;
+
+        /**
+         * The position of the UTF-8 data of the strings.
+         */
+        private final int dataStart;
+
+        /**
+         * The number of ImageFiles stored.
+         */
+        private final int imageCount;
+
+        /**
+         * The position of the records of the ImageFiles.
+         */
+        private final int recordsStart;
+
+        /**
+         * The position of the pool of tags and past names.
+         */
+        private final int poolStart;
+
+        /**
+         * The id the next new ImageFile will be given.
+         */
+        private final long nextFileId;
+
+        /**
+         * The existing tags stored in the catalog.
+         */
+        private final ExistingTags existingTags;
+
+        /**
+         * The TagDictionary id of each string naming a tag, by string id.
+         */
+        private final HashMap<Integer, Integer> tagIds = new HashMap<>();
+
+        /**
+         * Maps the catalog in buffer, which has been checked to be a whole
+         * catalog.
+         *
+         * @param buffer the contents of the catalog file
+         */
+        private Mapping(ByteBuffer buffer) {
+            this.buffer = buffer;
+            stringCount = buffer.getInt(8);
+            int stringBytes = buffer.getInt(12);
+            imageCount = buffer.getInt(16);
+            int poolSize = buffer.getInt(20);
+            int tagCount = buffer.getInt(24);
+            nextFileId = buffer.getLong(28);
+            offsetsStart = HEADER_SIZE;
+            dataStart = offsetsStart + (stringCount + 1) * 4;
+            recordsStart = dataStart + stringBytes;
+            poolStart = recordsStart + imageCount * RECORD_INTS * 4;
+            int tagsStart = poolStart + poolSize * 4;
+            if (tagsStart + tagCount * 4 + 4 != buffer.limit()) {
+                throw new IllegalArgumentException("Wrong section sizes");
+            }
+            existingTags = new ExistingTags();
+            for (int i = 0; i < tagCount; i++) {
+                existingTags.addTag(TagDictionary.tag(
+                        tagId(buffer.getInt(tagsStart + i * 4))));
+            }
+        }
+
+        /**
+         * Returns the number of ImageFiles stored.
+         *
+         * @return the number of records in the catalog
+         */
+        int size() {
+            return imageCount;
+        }
+
+        /**
+         * Returns the id the next new ImageFile will be given.
+         *
+         * @return the next ImageFile id
+         */
+        long getNextFileId() {
+            return nextFileId;
+        }
+
+        /**
+         * Returns the existing tags stored in the catalog.
+         *
+         * @return the existing tags
+         */
+        ExistingTags getExistingTags() {
+            return existingTags;
+        }
+
+        /**
+         * Returns the file of the ImageFile stored in record r.
+         *
+         * @param r the number of the record
+         * @return the file the ImageFile was at when the catalog was saved
+         */
+        File file(int r) {
+            String parent = string(field(r, 0));
+            String name = string(field(r, 1));
+            return parent.isEmpty() ? new File(name) : new File(parent, name);
+        }
+
+        /**
+         * Returns the original name of the ImageFile stored in record r.
+         *
+         * @param r the number of the record
+         * @return the original name of the ImageFile
+         */
+        String originalName(int r) {
+            return string(field(r, 2));
+        }
+
+        /**
+         * Returns the TagDictionary ids of the tags of the ImageFile stored
+         * in record r.
+         *
+         * @param r the number of the record
+         * @return the ids of the tags of the ImageFile
+         */
+        int[] tagIds(int r) {
+            int start = field(r, 4);
+            int count = field(r, 5);
+            if (count == 0) {
+                return TagDictionary.NO_TAGS;
+            }
+            int[] tags = new int[count];
+            for (int i = 0; i < count; i++) {
+                tags[i] = tagId(buffer.getInt(poolStart + (start + i) * 4));
+            }
+            return tags;
+        }
+
+        /**
+         * Builds the ImageFile stored in record r.
+         *
+         * @param r the number of the record
+         * @return a new ImageFile with the state stored in record r
+         */
+        ImageFile imageFile(int r) {
+            int start = field(r, 6);
+            int count = field(r, 7);
+            ArrayList<String> pastNames = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                pastNames.add(string(
+                        buffer.getInt(poolStart + (start + i) * 4)));
+            }
+            ImageFile im = new ImageFile(file(r), originalName(r),
+                    string(field(r, 3)), tagIds(r), pastNames);
+            im.setId(((long) field(r, 8) << 32) |
+                    (field(r, 9) & 0xFFFFFFFFL));
+            return im;
+        }
+
+        /**
+         * Returns field i of record r.
+         *
+         * @param r the number of the record
+         * @param i the index of the field in the record
+         * @return the value of the field
+         */
+        private int field(int r, int i) {
+            if (r < 0 || r >= imageCount) {
+                throw new IndexOutOfBoundsException("No record " + r);
+            }
+            return buffer.getInt(recordsStart + (r * RECORD_INTS + i) * 4);
+        }
+
+        /**
+         * Decodes the string with the id provided.
+         *
+         * @param id the id of the string
+         * @return the string
+         */
+        private String string(int id) {
+            int start = buffer.getInt(offsetsStart + id * 4);
+            int end = buffer.getInt(offsetsStart + (id + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            buffer.get(dataStart + start, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Returns the TagDictionary id of the tag named by the string with
+         * the id provided, interning it on first use.
+         *
+         * @param id the string id of the name of the tag
+         * @return the TagDictionary id of the tag
+         */
+        private int tagId(int id) {
+            return tagIds.computeIfAbsent(id,
+                    i -> TagDictionary.intern(string(i)));
+        }
+    }
+
+    /**
+     * A StringTable assigns each distinct string written to a catalog an
+     * id, in order of first use.
+     */
+    private static class StringTable {
+        /**
+         * The id of each string in this table.
+         */
+        private final HashMap<String, Integer> ids = new HashMap<>();
+
+        /**
+         * The UTF-8 encoding of each string in this table, by id.
+         */
+        private final ArrayList<byte[]> encoded = new ArrayList<>();
+
+        /**
+         * The total size of the encoded strings.
+         */
+        private int byteSize;
+
+        /**
+         * Returns the id of string, adding it to this table if needed.
+         *
+         * @param string the string to look up
+         * @return the id of string
+         */
+        int id(String string) {
+            Integer id = ids.get(string);
+            if (id == null) {
+                id = encoded.size();
+                ids.put(string, id);
+                byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                byteSize += bytes.length;
+            }
+            return id;
+        }
+
+        /**
+         * Returns the number of strings in this table.
+         *
+         * @return the number of strings in this table
+         */
+        int size() {
+            return encoded.size();
+        }
+
+        /**
+         * Returns the total size of the encoded strings in this table.
+         *
+         * @return the size of the UTF-8 data of this table, in bytes
+         */
+        int byteSize() {
+            return byteSize;
+        }
+
+        /**
+         * Writes the offset table and the UTF-8 data of this table to out.
+         *
+         * @param out the stream to write to
+         * @throws IOException if the table could not be written
+         */
+        void writeTo(DataOutputStream out) throws IOException {
+            int offset = 0;
+            for (byte[] bytes : encoded) {
+                out.writeInt(offset);
+                offset += bytes.length;
+            }
+            out.writeInt(offset);
+            for (byte[] bytes : encoded) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * An IntList is a growable list of primitive ints.
+     */
+    private static class IntList {
+        /**
+         * The ints in this list.
+         */
+        private int[] values = new int[64];
+
+        /**
+         * The number of ints in this list.
+         */
+        private int size;
+
+        /**
+         * Appends value to this list.
+         *
+         * @param value the int to append
+         */
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        /**
+         * Returns the int at index i.
+         *
+         * @param i the index of the int
+         * @return the int at index i
+         */
+        int get(int i) {
+            return values[i];
+        }
+
+        /**
+         * Returns the number of ints in this list.
+         *
+         * @return the number of ints in this list
+         */
+        int size() {
+            return size;
+        }
+    }
+}
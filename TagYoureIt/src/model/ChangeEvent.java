@@ -0,0 +1,212 @@
+package model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A ChangeEvent describes one change to the model: an image added, removed,
+ * moved or re-tagged, or a tag added to or removed from the existing tags.
+ * ImageFiles and ExistingTags pass a ChangeEvent to their observers, and the
+ * Model passes the events it observes on to its own observers as a list, so
+ * a view can update only what changed.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class ChangeEvent {
+    /**
+     * The kinds of change a ChangeEvent can describe.
+     */
+    public enum Type {
+        /**
+         * An image file was added to the model.
+         */
+        IMAGE_ADDED,
+
+        /**
+         * An image file was removed from the model.
+         */
+        IMAGE_REMOVED,
+
+        /**
+         * An image file was renamed or moved to another directory.
+         */
+        IMAGE_MOVED,
+
+        /**
+         * The tags of an image file were edited.
+         */
+        TAGS_CHANGED,
+
+        /**
+         * A tag was added to the existing tags.
+         */
+        TAG_ADDED,
+
+        /**
+         * A tag was removed from the existing tags.
+         */
+        TAG_REMOVED
+    }
+
+    /**
+     * The kind of change this event describes.
+     */
+    private final Type type;
+
+    /**
+     * The image file that changed, or null if a tag changed.
+     */
+    private final ImageFile imageFile;
+
+    /**
+     * The file the image was at before it moved, or null.
+     */
+    private final File oldFile;
+
+    /**
+     * The tags the image had before they were edited, or null.
+     */
+    private final List<Tag> oldTags;
+
+    /**
+     * The tag that was added or removed, or null if an image changed.
+     */
+    private final Tag tag;
+
+    /**
+     * Creates a change event.
+     *
+     * @param type      the kind of change
+     * @param imageFile the image file that changed, or null
+     * @param oldFile   the file the image was at before it moved, or null
+     * @param oldTags   the tags the image had before they were edited, or
+     *                  null
+     * @param tag       the tag that was added or removed, or null
+     */
+    private ChangeEvent(Type type, ImageFile imageFile, File oldFile,
+                        List<Tag> oldTags, Tag tag) {
+        this.type = type;
+        this.imageFile = imageFile;
+        this.oldFile = oldFile;
+        this.oldTags = oldTags;
+        this.tag = tag;
+    }
+
+    /**
+     * Returns an event describing imageFile being added to the model.
+     *
+     * @param imageFile the image file that was added
+     * @return the event
+     */
+    static ChangeEvent imageAdded(ImageFile imageFile) {
+        return new ChangeEvent(Type.IMAGE_ADDED, imageFile, null, null, null);
+    }
+
+    /**
+     * Returns an event describing imageFile being removed from the model.
+     *
+     * @param imageFile the image file that was removed
+     * @return the event
+     */
+    static ChangeEvent imageRemoved(ImageFile imageFile) {
+        return new ChangeEvent(Type.IMAGE_REMOVED, imageFile, null, null,
+                null);
+    }
+
+    /**
+     * Returns an event describing imageFile being moved from oldFile.
+     *
+     * @param imageFile the image file that was moved
+     * @param oldFile   the file it was moved from
+     * @return the event
+     */
+    static ChangeEvent imageMoved(ImageFile imageFile, File oldFile) {
+        return new ChangeEvent(Type.IMAGE_MOVED, imageFile, oldFile, null,
+                null);
+    }
+
+    /**
+     * Returns an event describing the tags of imageFile being edited.
+     *
+     * @param imageFile the image file whose tags were edited
+     * @param oldTags   the tags it had before
+     * @return the event
+     */
+    static ChangeEvent tagsChanged(ImageFile imageFile, List<Tag> oldTags) {
+        return new ChangeEvent(Type.TAGS_CHANGED, imageFile, null,
+                new ArrayList<>(oldTags), null);
+    }
+
+    /**
+     * Returns an event describing tag being added to the existing tags.
+     *
+     * @param tag the tag that was added
+     * @return the event
+     */
+    static ChangeEvent tagAdded(Tag tag) {
+        return new ChangeEvent(Type.TAG_ADDED, null, null, null, tag);
+    }
+
+    /**
+     * Returns an event describing tag being removed from the existing tags.
+     *
+     * @param tag the tag that was removed
+     * @return the event
+     */
+    static ChangeEvent tagRemoved(Tag tag) {
+        return new ChangeEvent(Type.TAG_REMOVED, null, null, null, tag);
+    }
+
+    /**
+     * Returns the kind of change this event describes.
+     *
+     * @return the kind of change
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the image file that changed.
+     *
+     * @return the image file that changed, or null if a tag changed
+     */
+    public ImageFile getImageFile() {
+        return imageFile;
+    }
+
+    /**
+     * Returns the file the image was at before it moved.
+     *
+     * @return the old file, or null if this is not an IMAGE_MOVED event
+     */
+    public File getOldFile() {
+        return oldFile;
+    }
+
+    /**
+     * Returns the tags the image had before they were edited.
+     *
+     * @return the old tags, or null if this is not a TAGS_CHANGED event
+     */
+    public List<Tag> getOldTags() {
+        return oldTags == null ? null : new ArrayList<>(oldTags);
+    }
+
+    /**
+     * Returns the tag that was added or removed.
+     *
+     * @return the tag, or null if an image changed
+     */
+    public Tag getTag() {
+        return tag;
+    }
+
+    @Override
+    public String toString() {
+        return type + " " + (imageFile != null ? imageFile.getFile() : tag);
+    }
+}
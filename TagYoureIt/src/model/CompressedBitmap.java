@@ -0,0 +1,656 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+/**
+ * A CompressedBitmap is a set of non-negative ints, stored in the style of a
+ * Roaring bitmap. The ints are split into chunks by their upper 16 bits, and
+ * each chunk stores its lower 16 bits either as a sorted array, when the
+ * chunk is sparse, or as a 65536 bit bitmap, when it is dense. Set operations
+ * work chunk by chunk, so their cost depends on the number of values stored
+ * rather than on the largest value.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class CompressedBitmap {
+    /**
+     * The largest number of values a chunk stores as a sorted array.
+     */
+    private static final int ARRAY_MAX = 4096;
+
+    /**
+     * The number of longs in the bitmap of a dense chunk.
+     */
+    private static final int WORDS = 1024;
+
+    /**
+     * The upper 16 bits of the values in each chunk, in increasing order.
+     */
+    private char[] keys;
+
+    /**
+     * The chunks of this bitmap, parallel to keys.
+     */
+    private Chunk[] chunks;
+
+    /**
+     * The number of chunks in this bitmap.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty bitmap.
+     */
+    CompressedBitmap() {
+        this(4);
+    }
+
+    /**
+     * Constructs an empty bitmap with room for capacity chunks.
+     *
+     * @param capacity the initial number of chunks
+     */
+    private CompressedBitmap(int capacity) {
+        keys = new char[Math.max(capacity, 1)];
+        chunks = new Chunk[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Adds value to this bitmap.
+     *
+     * @param value the non-negative int to add
+     * @return true if value was not already in this bitmap
+     */
+    boolean add(int value) {
+        char key = (char) (value >>> 16);
+        int i = findKey(key);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, key, new Chunk());
+        }
+        return chunks[i].add((char) value);
+    }
+
+    /**
+     * Removes value from this bitmap.
+     *
+     * @param value the int to remove
+     * @return true if value was in this bitmap
+     */
+    boolean remove(int value) {
+        int i = findKey((char) (value >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        boolean removed = chunks[i].remove((char) value);
+        if (chunks[i].cardinality == 0) {
+            System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+            System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+            chunks[--size] = null;
+        }
+        return removed;
+    }
+
+    /**
+     * Returns whether value is in this bitmap.
+     *
+     * @param value the int to look for
+     * @return true if value is in this bitmap
+     */
+    boolean contains(int value) {
+        int i = findKey((char) (value >>> 16));
+        return i >= 0 && chunks[i].contains((char) value);
+    }
+
+    /**
+     * Returns the number of values in this bitmap.
+     *
+     * @return the number of values in this bitmap
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (int i = 0; i < size; i++) {
+            cardinality += chunks[i].cardinality;
+        }
+        return cardinality;
+    }
+
+    /**
+     * Returns whether this bitmap holds no values.
+     *
+     * @return true if this bitmap is empty
+     */
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Passes each value in this bitmap, in increasing order, to action.
+     *
+     * @param action the action to perform on each value
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the values of this bitmap as a sorted array.
+     *
+     * @return the values in this bitmap, in increasing order
+     */
+    int[] toArray() {
+        int[] values = new int[cardinality()];
+        int[] next = new int[1];
+        forEach(v -> values[next[0]++] = v);
+        return values;
+    }
+
+    /**
+     * Returns a copy of this bitmap.
+     *
+     * @return a bitmap holding the same values as this one
+     */
+    CompressedBitmap copy() {
+        CompressedBitmap copy = new CompressedBitmap(size);
+        for (int i = 0; i < size; i++) {
+            copy.keys[i] = keys[i];
+            copy.chunks[i] = chunks[i].copy();
+        }
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Returns a new bitmap holding the values that are in both a and b.
+     *
+     * @param a a bitmap
+     * @param b another bitmap
+     * @return the intersection of a and b
+     */
+    static CompressedBitmap and(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(
+                Math.min(a.size, b.size));
+        int i = 0;
+        int j = 0;
+        while (i < a.size && j < b.size) {
+            if (a.keys[i] < b.keys[j]) {
+                i++;
+            } else if (a.keys[i] > b.keys[j]) {
+                j++;
+            } else {
+                Chunk chunk = Chunk.and(a.chunks[i], b.chunks[j]);
+                if (chunk.cardinality > 0) {
+                    result.appendChunk(a.keys[i], chunk);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new bitmap holding the values that are in a or b.
+     *
+     * @param a a bitmap
+     * @param b another bitmap
+     * @return the union of a and b
+     */
+    static CompressedBitmap or(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(a.size + b.size);
+        int i = 0;
+        int j = 0;
+        while (i < a.size || j < b.size) {
+            if (j == b.size || (i < a.size && a.keys[i] < b.keys[j])) {
+                result.appendChunk(a.keys[i], a.chunks[i].copy());
+                i++;
+            } else if (i == a.size || a.keys[i] > b.keys[j]) {
+                result.appendChunk(b.keys[j], b.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(a.keys[i],
+                        Chunk.or(a.chunks[i], b.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new bitmap holding the values that are in any of bitmaps.
+     * Each chunk of the result is built once, by setting the bits of every
+     * matching chunk in a single word array, rather than merging the
+     * bitmaps two at a time.
+     *
+     * @param bitmaps the bitmaps to merge
+     * @return the union of bitmaps
+     */
+    static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        CompressedBitmap result = new CompressedBitmap();
+        int[] next = new int[bitmaps.size()];
+        while (true) {
+            // Find the smallest key not yet merged.
+            int key = Integer.MAX_VALUE;
+            for (int b = 0; b < next.length; b++) {
+                CompressedBitmap bitmap = bitmaps.get(b);
+                if (next[b] < bitmap.size) {
+                    key = Math.min(key, bitmap.keys[next[b]]);
+                }
+            }
+            if (key == Integer.MAX_VALUE) {
+                return result;
+            }
+            Chunk chunk = new Chunk();
+            chunk.array = null;
+            chunk.bits = new long[WORDS];
+            for (int b = 0; b < next.length; b++) {
+                CompressedBitmap bitmap = bitmaps.get(b);
+                if (next[b] < bitmap.size && bitmap.keys[next[b]] == key) {
+                    chunk.setAll(bitmap.chunks[next[b]]);
+                    next[b]++;
+                }
+            }
+            chunk.cardinality = 0;
+            for (long word : chunk.bits) {
+                chunk.cardinality += Long.bitCount(word);
+            }
+            chunk.compact();
+            result.appendChunk((char) key, chunk);
+        }
+    }
+
+    /**
+     * Returns a new bitmap holding the values that are in a but not in b.
+     *
+     * @param a a bitmap
+     * @param b the bitmap of values to leave out
+     * @return the difference of a and b
+     */
+    static CompressedBitmap andNot(CompressedBitmap a, CompressedBitmap b) {
+        CompressedBitmap result = new CompressedBitmap(a.size);
+        int j = 0;
+        for (int i = 0; i < a.size; i++) {
+            while (j < b.size && b.keys[j] < a.keys[i]) {
+                j++;
+            }
+            Chunk chunk;
+            if (j < b.size && b.keys[j] == a.keys[i]) {
+                chunk = Chunk.andNot(a.chunks[i], b.chunks[j]);
+            } else {
+                chunk = a.chunks[i].copy();
+            }
+            if (chunk.cardinality > 0) {
+                result.appendChunk(a.keys[i], chunk);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns a new bitmap holding every int from 0 up to, but excluding,
+     * end.
+     *
+     * @param end one more than the largest value in the range
+     * @return a bitmap holding the range [0, end)
+     */
+    static CompressedBitmap range(int end) {
+        CompressedBitmap result = new CompressedBitmap((end >>> 16) + 1);
+        for (int start = 0; start < end; start += 1 << 16) {
+            Chunk chunk = Chunk.range(Math.min(end - start, 1 << 16));
+            result.appendChunk((char) (start >>> 16), chunk);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the index of key in keys, or (-(insertion point) - 1) if key
+     * is not present.
+     *
+     * @param key the upper 16 bits of a value
+     * @return the index of the chunk for key
+     */
+    private int findKey(char key) {
+        // Values are usually added in increasing order.
+        if (size > 0 && keys[size - 1] == key) {
+            return size - 1;
+        }
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Inserts chunk with key at index i.
+     *
+     * @param i     the index to insert at
+     * @param key   the upper 16 bits of the values in chunk
+     * @param chunk the chunk to insert
+     */
+    private void insertChunk(int i, char key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        size++;
+    }
+
+    /**
+     * Appends chunk with a key larger than every key in this bitmap.
+     *
+     * @param key   the upper 16 bits of the values in chunk
+     * @param chunk the chunk to append
+     */
+    private void appendChunk(char key, Chunk chunk) {
+        insertChunk(size, key, chunk);
+    }
+
+    /**
+     * A Chunk holds the lower 16 bits of the values in a bitmap that share
+     * the same upper 16 bits.
+     */
+    private static class Chunk {
+        /**
+         * The number of values in this chunk.
+         */
+        private int cardinality;
+
+        /**
+         * The sorted values of a sparse chunk, null if this chunk is dense.
+         */
+        private char[] array;
+
+        /**
+         * The bitmap of a dense chunk, null if this chunk is sparse.
+         */
+        private long[] bits;
+
+        /**
+         * Constructs an empty, sparse chunk.
+         */
+        Chunk() {
+            array = new char[4];
+        }
+
+        /**
+         * Returns a chunk holding every value below end.
+         *
+         * @param end one more than the largest value in this chunk
+         * @return a chunk holding the range [0, end)
+         */
+        static Chunk range(int end) {
+            Chunk chunk = new Chunk();
+            chunk.array = null;
+            chunk.bits = new long[WORDS];
+            Arrays.fill(chunk.bits, 0, end >>> 6, -1L);
+            if ((end & 63) != 0) {
+                chunk.bits[end >>> 6] = (1L << end) - 1;
+            }
+            chunk.cardinality = end;
+            chunk.compact();
+            return chunk;
+        }
+
+        /**
+         * Adds value to this chunk.
+         *
+         * @param value the lower 16 bits of a value
+         * @return true if value was not already in this chunk
+         */
+        boolean add(char value) {
+            if (bits != null) {
+                long word = bits[value >>> 6];
+                long updated = word | (1L << value);
+                bits[value >>> 6] = updated;
+                if (updated != word) {
+                    cardinality++;
+                    return true;
+                }
+                return false;
+            }
+            int i = Arrays.binarySearch(array, 0, cardinality, value);
+            if (i >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBits();
+                return add(value);
+            }
+            i = -i - 1;
+            if (cardinality == array.length) {
+                array = Arrays.copyOf(array,
+                        Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(array, i, array, i + 1, cardinality - i);
+            array[i] = value;
+            cardinality++;
+            return true;
+        }
+
+        /**
+         * Removes value from this chunk.
+         *
+         * @param value the lower 16 bits of a value
+         * @return true if value was in this chunk
+         */
+        boolean remove(char value) {
+            if (bits != null) {
+                long word = bits[value >>> 6];
+                long updated = word & ~(1L << value);
+                if (updated == word) {
+                    return false;
+                }
+                bits[value >>> 6] = updated;
+                cardinality--;
+                compact();
+                return true;
+            }
+            int i = Arrays.binarySearch(array, 0, cardinality, value);
+            if (i < 0) {
+                return false;
+            }
+            System.arraycopy(array, i + 1, array, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        /**
+         * Returns whether value is in this chunk.
+         *
+         * @param value the lower 16 bits of a value
+         * @return true if value is in this chunk
+         */
+        boolean contains(char value) {
+            if (bits != null) {
+                return (bits[value >>> 6] & (1L << value)) != 0;
+            }
+            return Arrays.binarySearch(array, 0, cardinality, value) >= 0;
+        }
+
+        /**
+         * Passes each value in this chunk, in increasing order, to action.
+         *
+         * @param high   the upper 16 bits of the values, already shifted
+         * @param action the action to perform on each value
+         */
+        void forEach(int high, IntConsumer action) {
+            if (bits != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    long word = bits[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) |
+                                Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                for (int i = 0; i < cardinality; i++) {
+                    action.accept(high | array[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns a copy of this chunk.
+         *
+         * @return a chunk holding the same values as this one
+         */
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            copy.cardinality = cardinality;
+            if (bits != null) {
+                copy.array = null;
+                copy.bits = bits.clone();
+            } else {
+                copy.array = Arrays.copyOf(array, Math.max(cardinality, 1));
+            }
+            return copy;
+        }
+
+        /**
+         * Sets the bits of the values in other, in a chunk that is a bitmap,
+         * without updating its cardinality.
+         *
+         * @param other the chunk whose values are set
+         */
+        private void setAll(Chunk other) {
+            if (other.bits != null) {
+                for (int w = 0; w < WORDS; w++) {
+                    bits[w] |= other.bits[w];
+                }
+            } else {
+                for (int i = 0; i < other.cardinality; i++) {
+                    bits[other.array[i] >>> 6] |= 1L << other.array[i];
+                }
+            }
+        }
+
+        /**
+         * Converts this chunk to a bitmap.
+         */
+        private void toBits() {
+            bits = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                bits[array[i] >>> 6] |= 1L << array[i];
+            }
+            array = null;
+        }
+
+        /**
+         * Converts this chunk back to a sorted array, if it has become
+         * sparse.
+         */
+        private void compact() {
+            if (bits == null || cardinality > ARRAY_MAX) {
+                return;
+            }
+            char[] values = new char[Math.max(cardinality, 1)];
+            int n = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    values[n++] = (char) ((w << 6) |
+                            Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            array = values;
+            bits = null;
+        }
+
+        /**
+         * Returns a chunk holding the values in both a and b.
+         *
+         * @param a a chunk
+         * @param b another chunk
+         * @return the intersection of a and b
+         */
+        static Chunk and(Chunk a, Chunk b) {
+            Chunk result = new Chunk();
+            if (a.bits != null && b.bits != null) {
+                result.array = null;
+                result.bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    result.bits[w] = a.bits[w] & b.bits[w];
+                    result.cardinality += Long.bitCount(result.bits[w]);
+                }
+                result.compact();
+                return result;
+            }
+            if (a.bits != null) {
+                Chunk swap = a;
+                a = b;
+                b = swap;
+            }
+            // a is sparse: keep the values of a that are also in b.
+            result.array = new char[Math.max(a.cardinality, 1)];
+            for (int i = 0; i < a.cardinality; i++) {
+                if (b.contains(a.array[i])) {
+                    result.array[result.cardinality++] = a.array[i];
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns a chunk holding the values in a or b.
+         *
+         * @param a a chunk
+         * @param b another chunk
+         * @return the union of a and b
+         */
+        static Chunk or(Chunk a, Chunk b) {
+            Chunk result;
+            if (a.bits != null) {
+                result = a.copy();
+                b.forEach(0, v -> result.add((char) v));
+            } else {
+                result = b.copy();
+                a.forEach(0, v -> result.add((char) v));
+            }
+            return result;
+        }
+
+        /**
+         * Returns a chunk holding the values in a that are not in b.
+         *
+         * @param a a chunk
+         * @param b the chunk of values to leave out
+         * @return the difference of a and b
+         */
+        static Chunk andNot(Chunk a, Chunk b) {
+            Chunk result = new Chunk();
+            if (a.bits != null && b.bits != null) {
+                result.array = null;
+                result.bits = new long[WORDS];
+                for (int w = 0; w < WORDS; w++) {
+                    result.bits[w] = a.bits[w] & ~b.bits[w];
+                    result.cardinality += Long.bitCount(result.bits[w]);
+                }
+                result.compact();
+                return result;
+            }
+            if (a.bits != null) {
+                Chunk dense = a.copy();
+                b.forEach(0, v -> dense.remove((char) v));
+                return dense;
+            }
+            result.array = new char[Math.max(a.cardinality, 1)];
+            for (int i = 0; i < a.cardinality; i++) {
+                if (!b.contains(a.array[i])) {
+                    result.array[result.cardinality++] = a.array[i];
+                }
+            }
+            return result;
+        }
+    }
+}
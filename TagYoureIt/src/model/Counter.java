@@ -0,0 +1,51 @@
+package model;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Counter counts events, such as images renamed. It can be incremented
+ * from many threads at once without them contending for it. Counters are
+ * registered by name with Metrics.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class Counter {
+    /**
+     * The count.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * Constructs a counter at zero. Use Metrics.counter to get a registered
+     * counter.
+     */
+    Counter() {
+    }
+
+    /**
+     * Adds one to this counter.
+     */
+    public void increment() {
+        count.increment();
+    }
+
+    /**
+     * Adds n to this counter.
+     *
+     * @param n the number to add
+     */
+    public void add(long n) {
+        count.add(n);
+    }
+
+    /**
+     * Returns the count.
+     *
+     * @return the count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+}
@@ -0,0 +1,213 @@
+package model;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * A DirectoryWatcher watches every directory below a root for files being
+ * created, deleted or modified, and reports the paths involved in batches.
+ * Events are collected until the tree has been quiet for a short while, so a
+ * bulk copy of many files is reported as a single batch. Batches are handed
+ * to a consumer on the watcher's own thread. If the watch service loses
+ * events, the root itself is reported along with every file below it.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class DirectoryWatcher implements Runnable {
+    /**
+     * How long the tree must be quiet before a batch is reported.
+     */
+    private static final long QUIET_MILLIS = 250;
+
+    /**
+     * The longest a path waits before being reported, even while events keep
+     * arriving.
+     */
+    private static final long MAX_DELAY_MILLIS = 2000;
+
+    /**
+     * The root of the watched directory tree.
+     */
+    private final Path root;
+
+    /**
+     * The consumer batches of changed paths are reported to.
+     */
+    private final Consumer<Set<Path>> consumer;
+
+    /**
+     * The watch service the directories are registered with.
+     */
+    private final WatchService watchService;
+
+    /**
+     * The directory each registered watch key belongs to.
+     */
+    private final HashMap<WatchKey, Path> directories = new HashMap<>();
+
+    /**
+     * The thread this watcher runs on.
+     */
+    private final Thread thread;
+
+    /**
+     * Constructs a watcher for the directory tree rooted at root, and
+     * registers every directory in it.
+     *
+     * @param root     the root of the tree to watch
+     * @param consumer the consumer to report batches of changed paths to
+     * @throws IOException if the tree could not be registered
+     */
+    DirectoryWatcher(Path root, Consumer<Set<Path>> consumer)
+            throws IOException {
+        this.root = root;
+        this.consumer = consumer;
+        this.watchService = root.getFileSystem().newWatchService();
+        registerTree(root, null);
+        this.thread = new Thread(this, "TagYoureIt directory watcher");
+        this.thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching the tree in the background.
+     */
+    void start() {
+        thread.start();
+    }
+
+    /**
+     * Stops watching the tree. Changes not yet reported are discarded.
+     */
+    void close() {
+        thread.interrupt();
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Registers dir and every directory below it. If found is not null, the
+     * files already in the tree are added to it, since they may have been
+     * created before the directories were registered.
+     *
+     * @param dir   the root of the tree to register
+     * @param found the set to add existing files to, or null
+     * @throws IOException if a directory could not be registered
+     */
+    private void registerTree(Path dir, Set<Path> found) throws IOException {
+        Files.walkFileTree(dir, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                    Path d, BasicFileAttributes attrs) throws IOException {
+                if (ImageScanner.isDataDirectory(d)) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = d.register(watchService,
+                        ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                directories.put(key, d);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                                             BasicFileAttributes attrs) {
+                if (found != null) {
+                    found.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // The file may already be gone again.
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Collects events from the watch service and reports them in batches
+     * until this watcher is closed.
+     */
+    @Override
+    public void run() {
+        Set<Path> pending = new LinkedHashSet<>();
+        long firstPending = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                WatchKey key;
+                if (pending.isEmpty()) {
+                    key = watchService.take();
+                } else {
+                    key = watchService.poll(QUIET_MILLIS,
+                            TimeUnit.MILLISECONDS);
+                }
+                if (key != null) {
+                    if (pending.isEmpty()) {
+                        firstPending = System.currentTimeMillis();
+                    }
+                    collect(key, pending);
+                }
+                if (!pending.isEmpty() && (key == null ||
+                        System.currentTimeMillis() - firstPending >=
+                                MAX_DELAY_MILLIS)) {
+                    consumer.accept(pending);
+                    pending = new LinkedHashSet<>();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // This watcher was closed.
+        }
+    }
+
+    /**
+     * Adds the paths of the events queued on key to pending, and registers
+     * any directories that were created.
+     *
+     * @param key     a signalled watch key
+     * @param pending the set of changed paths not yet reported
+     */
+    private void collect(WatchKey key, Set<Path> pending) {
+        Path dir = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were lost, so the whole tree has to be checked.
+                pending.add(root);
+                try {
+                    registerTree(root, pending);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+                continue;
+            }
+            if (dir == null) {
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            pending.add(path);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(
+                    path, LinkOption.NOFOLLOW_LINKS)) {
+                try {
+                    registerTree(path, pending);
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        }
+        if (!key.reset()) {
+            directories.remove(key);
+        }
+    }
+}
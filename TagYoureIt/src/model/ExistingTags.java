@@ -1,13 +1,25 @@
 package model;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Observable;
+import java.util.TreeMap;
 
 /**
  * An ExistingTags object is a list of currently existing tags.
  * This class provides methods to create the list and add and
- * remove tags from it.
+ * remove tags from it. Tags are kept in a hash map by name, in the order
+ * they were added, for constant time lookup, and in a sorted map, to list
+ * the tags whose names start with a prefix.
  *
  * @author David C., Felix L., Helen J., Alex T.
  * @version 1.8
@@ -15,15 +27,41 @@ import java.util.Observable;
 
 public class ExistingTags extends Observable implements Serializable {
     /**
-     * The list of currently existing tags
+     * The version of the serialized form of this class, which is still read
+     * when migrating old existingTags.ser files.
      */
-    private ArrayList<Tag> existingTags;
+    private static final long serialVersionUID = -7989059130681540185L;
+
+    /**
+     * The fields of the serialized form of this class, which stores the
+     * tags as a list, as it always has.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("existingTags", ArrayList.class)
+    };
+
+    /**
+     * The currently existing tags by name, in the order they were added
+     */
+    private transient LinkedHashMap<String, Tag> existingTags;
+
+    /**
+     * The currently existing tags by name, in order of name
+     */
+    private transient TreeMap<String, Tag> sortedTags;
+
+    /**
+     * The journal additions and removals of tags are recorded in, null if
+     * they are not journaled.
+     */
+    private transient Journal journal;
 
     /**
      * Constructs an empty list of existing tags.
      */
     ExistingTags() {
-        existingTags = new ArrayList<>();
+        existingTags = new LinkedHashMap<>();
+        sortedTags = new TreeMap<>();
     }
 
     /**
@@ -33,7 +71,7 @@ public class ExistingTags extends Observable implements Serializable {
      * @return a shallow copy of the current collection of existing tags.
      */
     public ArrayList<Tag> getExistingTags() {
-        return new ArrayList<>(existingTags);
+        return new ArrayList<>(existingTags.values());
     }
 
     /**
@@ -45,12 +83,27 @@ public class ExistingTags extends Observable implements Serializable {
      * @return the Tag with name tagName, null if none is found.
      */
     public Tag findTag(String tagName) {
-        for (Tag tag : this.getExistingTags()) {
-            if (tag.getTag().equals(tagName)) {
-                return tag;
+        return existingTags.get(tagName);
+    }
+
+    /**
+     * Returns the existing tags whose names start with prefix, in order of
+     * name, at most limit of them.
+     *
+     * @param prefix the start of the tag names being searched for
+     * @param limit  the largest number of tags to return
+     * @return the Tags whose names start with prefix
+     */
+    public ArrayList<Tag> findTagsStartingWith(String prefix, int limit) {
+        ArrayList<Tag> found = new ArrayList<>();
+        for (Map.Entry<String, Tag> entry :
+                sortedTags.tailMap(prefix, true).entrySet()) {
+            if (found.size() >= limit || !entry.getKey().startsWith(prefix)) {
+                break;
             }
+            found.add(entry.getValue());
         }
-        return null;
+        return found;
     }
 
     /**
@@ -60,10 +113,16 @@ public class ExistingTags extends Observable implements Serializable {
      * @param tag the tag that is added to the collection of existing tags.
      */
     public void addTag(Tag tag) {
-        if (!this.existingTags.contains(tag)) {
-            this.existingTags.add(tag);
+        if (!this.existingTags.containsKey(tag.getTag())) {
+            // Keep the canonical Tag, shared with every ImageFile.
+            tag = TagDictionary.canonical(tag);
+            this.existingTags.put(tag.getTag(), tag);
+            this.sortedTags.put(tag.getTag(), tag);
+            if (journal != null) {
+                journal.logAddTag(tag);
+            }
             setChanged();
-            notifyObservers();
+            notifyObservers(ChangeEvent.tagAdded(tag));
         }
     }
 
@@ -73,10 +132,83 @@ public class ExistingTags extends Observable implements Serializable {
      * @param tag the tag to be removed from the currently list of existing tags
      */
     public void removeTag(Tag tag) {
-        this.existingTags.remove(tag);
-        setChanged();
-        notifyObservers();
+        if (this.existingTags.remove(tag.getTag()) != null) {
+            this.sortedTags.remove(tag.getTag());
+            if (journal != null) {
+                journal.logRemoveTag(tag);
+            }
+            setChanged();
+            notifyObservers(ChangeEvent.tagRemoved(tag));
+        }
     }
 
-}
+    /**
+     * Removes every Tag in tags from the collection of existing tags at
+     * once. Observers are notified a single time, with the list of
+     * ChangeEvents for the tags that were removed.
+     *
+     * @param tags the tags to be removed from the current list of existing
+     *             tags
+     */
+    public void removeTags(Collection<Tag> tags) {
+        List<ChangeEvent> events = new ArrayList<>();
+        for (Tag tag : tags) {
+            if (this.existingTags.remove(tag.getTag()) != null) {
+                this.sortedTags.remove(tag.getTag());
+                if (journal != null) {
+                    journal.logRemoveTag(tag);
+                }
+                events.add(ChangeEvent.tagRemoved(tag));
+            }
+        }
+        if (!events.isEmpty()) {
+            setChanged();
+            notifyObservers(Collections.unmodifiableList(events));
+        }
+    }
 
+    /**
+     * Sets the journal additions and removals of tags are recorded in.
+     *
+     * @param journal the journal, or null to stop journaling
+     */
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Writes these existing tags in their serialized form.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream could not be written to
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("existingTags", getExistingTags());
+        out.writeFields();
+    }
+
+    /**
+     * Reads existing tags from their serialized form.
+     *
+     * @param in the stream to read from
+     * @throws IOException            if the stream could not be read from
+     * @throws ClassNotFoundException if a class in the stream is not found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        ArrayList<Tag> tags = (ArrayList<Tag>) fields.get("existingTags",
+                null);
+        existingTags = new LinkedHashMap<>();
+        sortedTags = new TreeMap<>();
+        if (tags != null) {
+            for (Tag tag : tags) {
+                tag = TagDictionary.canonical(tag);
+                existingTags.put(tag.getTag(), tag);
+                sortedTags.put(tag.getTag(), tag);
+            }
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A Histogram records the distribution of non-negative values, such as
+ * latencies in nanoseconds or sizes of batches, in a fixed amount of
+ * memory. Each power of two is split into SUB_BUCKETS buckets, so a
+ * percentile is reported to within 1/SUB_BUCKETS of the true value.
+ * Recording is lock-free, and may happen on many threads at once.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class Histogram {
+    /**
+     * The log base 2 of the number of buckets each power of two is split
+     * into.
+     */
+    private static final int SUB_BITS = 3;
+
+    /**
+     * The number of buckets each power of two is split into.
+     */
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * The number of buckets, enough for every non-negative long.
+     */
+    private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * The number of values recorded in each bucket.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * The number of values recorded.
+     */
+    private final LongAdder count = new LongAdder();
+
+    /**
+     * The sum of the values recorded.
+     */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * The largest value recorded.
+     */
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Constructs an empty histogram. Use Metrics.histogram to get a
+     * registered histogram.
+     */
+    Histogram() {
+    }
+
+    /**
+     * Records value. Negative values are recorded as 0.
+     *
+     * @param value the value to record
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        buckets.incrementAndGet(bucket(value));
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Returns the number of values recorded.
+     *
+     * @return the number of values recorded
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Returns the sum of the values recorded.
+     *
+     * @return the sum of the values recorded
+     */
+    public long getSum() {
+        return sum.sum();
+    }
+
+    /**
+     * Returns the largest value recorded.
+     *
+     * @return the largest value, or 0 if none were recorded
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Returns the mean of the values recorded.
+     *
+     * @return the mean, or 0 if none were recorded
+     */
+    public double getMean() {
+        long n = getCount();
+        return n == 0 ? 0 : (double) getSum() / n;
+    }
+
+    /**
+     * Returns the value that fraction of the values recorded are at or
+     * below, such as 0.99 for the 99th percentile. The value is the upper
+     * end of the bucket it falls in, and never more than the largest value
+     * recorded.
+     *
+     * @param fraction the fraction of the values, from 0 to 1
+     * @return the percentile, or 0 if no values were recorded
+     */
+    public long getPercentile(double fraction) {
+        long total = 0;
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets.get(i);
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(fraction * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long upper = i + 1 < BUCKETS ? lowerBound(i + 1) - 1 :
+                        Long.MAX_VALUE;
+                return Math.min(upper, getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Returns the bucket value is recorded in. Values below SUB_BUCKETS
+     * have a bucket each; above that, each power of two is split into
+     * SUB_BUCKETS buckets by the bits after its leading one.
+     *
+     * @param value a non-negative value
+     * @return the index of its bucket
+     */
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * Returns the smallest value recorded in bucket i.
+     *
+     * @param i the index of a bucket
+     * @return the smallest value in bucket i
+     */
+    static long lowerBound(int i) {
+        if (i < SUB_BUCKETS) {
+            return i;
+        }
+        int exponent = i / SUB_BUCKETS + SUB_BITS - 1;
+        long sub = i % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BITS);
+    }
+}
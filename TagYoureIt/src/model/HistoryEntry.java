@@ -0,0 +1,125 @@
+package model;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A HistoryEntry records one rename of an image file: when it happened,
+ * which image file it was, the paths before and after, and the tags added
+ * and removed. HistoryEntries are kept in a HistoryStore.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class HistoryEntry {
+    /**
+     * The time of the rename, in milliseconds since the epoch.
+     */
+    private final long time;
+
+    /**
+     * The id of the image file renamed.
+     */
+    private final long fileId;
+
+    /**
+     * The file the image was at before the rename.
+     */
+    private final File oldFile;
+
+    /**
+     * The file the image was at after the rename.
+     */
+    private final File newFile;
+
+    /**
+     * The tags the rename added.
+     */
+    private final List<Tag> addedTags;
+
+    /**
+     * The tags the rename removed.
+     */
+    private final List<Tag> removedTags;
+
+    /**
+     * Constructs a history entry.
+     *
+     * @param time        the time of the rename
+     * @param fileId      the id of the image file renamed
+     * @param oldFile     the file the image was at before
+     * @param newFile     the file the image was at after
+     * @param addedTags   the tags the rename added
+     * @param removedTags the tags the rename removed
+     */
+    HistoryEntry(long time, long fileId, File oldFile, File newFile,
+                 List<Tag> addedTags, List<Tag> removedTags) {
+        this.time = time;
+        this.fileId = fileId;
+        this.oldFile = oldFile;
+        this.newFile = newFile;
+        this.addedTags = addedTags;
+        this.removedTags = removedTags;
+    }
+
+    /**
+     * Returns the time of the rename.
+     *
+     * @return the time of the rename, in milliseconds since the epoch
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the id of the image file renamed.
+     *
+     * @return the id of the image file
+     */
+    public long getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Returns the file the image was at before the rename.
+     *
+     * @return the old file
+     */
+    public File getOldFile() {
+        return oldFile;
+    }
+
+    /**
+     * Returns the file the image was at after the rename.
+     *
+     * @return the new file
+     */
+    public File getNewFile() {
+        return newFile;
+    }
+
+    /**
+     * Returns the tags the rename added.
+     *
+     * @return the tags added
+     */
+    public List<Tag> getAddedTags() {
+        return new ArrayList<>(addedTags);
+    }
+
+    /**
+     * Returns the tags the rename removed.
+     *
+     * @return the tags removed
+     */
+    public List<Tag> getRemovedTags() {
+        return new ArrayList<>(removedTags);
+    }
+
+    @Override
+    public String toString() {
+        return "Move file [" + oldFile + "] to [" + newFile + "]";
+    }
+}
@@ -0,0 +1,713 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+/**
+ * A HistoryStore keeps the rename history of every image file, as
+ * HistoryEntries appended to a directory of segment files. Each entry is
+ * framed by its length and a CRC32, as in a Journal, so an entry torn by a
+ * crash is detected and dropped. Once a segment is full it is sealed: an
+ * index of the file id, time and offset of each of its entries is written
+ * beside it, and a new segment is started.
+ *
+ * The indexes are held in memory, so the history of one image file, or the
+ * entries between two times, are found without reading any other entries.
+ * Times never go backwards within a store, so entries are in time order.
+ *
+ * If a write fails the store stops writing. History is secondary to the
+ * renames it records, so a rename is never failed for it: later entries
+ * are dropped, and counted as history.dropped, while every read, sync and
+ * close throws, so the failure is still reported.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class HistoryStore {
+    /**
+     * The number of entries dropped because the store had failed.
+     */
+    private static final Counter DROPPED = Metrics.counter("history.dropped");
+
+    /**
+     * The size a segment may grow to before it is sealed.
+     */
+    private static final long SEGMENT_BYTES = 16 << 20;
+
+    /**
+     * The number of bytes appended before they are written to the segment
+     * file.
+     */
+    private static final int BUFFER_BYTES = 1 << 16;
+
+    /**
+     * The size of each entry of a segment index: file id, time and offset.
+     */
+    private static final int INDEX_ENTRY_BYTES = 8 + 8 + 4;
+
+    /**
+     * The directory the segments are stored in.
+     */
+    private final Path directory;
+
+    /**
+     * The segments of this store, oldest first. The last is the one
+     * appended to.
+     */
+    private final ArrayList<Segment> segments = new ArrayList<>();
+
+    /**
+     * The channel of the segment appended to.
+     */
+    private FileChannel channel;
+
+    /**
+     * Framed entries appended but not yet written to the segment file.
+     */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+
+    /**
+     * The size of the segment appended to, including pending entries.
+     */
+    private long size;
+
+    /**
+     * The time of the latest entry.
+     */
+    private long lastTime;
+
+    /**
+     * The error that stopped entries being written, or null if there has
+     * been none.
+     */
+    private IOException failure;
+
+    /**
+     * Opens the store in directory, creating it if needed.
+     *
+     * @param directory the directory the segments are stored in
+     * @throws IOException if the store could not be opened
+     */
+    HistoryStore(Path directory) throws IOException {
+        this.directory = directory;
+        Files.createDirectories(directory);
+        ArrayList<Integer> numbers = new ArrayList<>();
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory, "*.seg")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    numbers.add(Integer.parseInt(
+                            name.substring(0, name.length() - 4)));
+                } catch (NumberFormatException e) {
+                    // Not a segment of this store.
+                }
+            }
+        }
+        Collections.sort(numbers);
+        for (int i = 0; i < numbers.size(); i++) {
+            boolean last = i == numbers.size() - 1;
+            Segment segment = new Segment(numbers.get(i));
+            if (last || !segment.loadIndex()) {
+                segment.scan(!last);
+            }
+            segments.add(segment);
+        }
+        if (segments.isEmpty()) {
+            segments.add(new Segment(1));
+        }
+        Segment active = segments.get(segments.size() - 1);
+        channel = FileChannel.open(active.path(), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        size = active.end;
+        // Drop an entry torn by a crash.
+        channel.truncate(size);
+        for (int i = segments.size() - 1; i >= 0 && lastTime == 0; i--) {
+            lastTime = segments.get(i).lastTime();
+        }
+    }
+
+    /**
+     * Appends an entry recording that the image file with id fileId was
+     * renamed from oldFile to newFile, and its tags changed from oldTags to
+     * newTags.
+     *
+     * @param fileId  the id of the image file
+     * @param oldFile the file the image was at before
+     * @param newFile the file the image is at now
+     * @param oldTags the tags the image had before
+     * @param newTags the tags the image has now
+     */
+    synchronized void append(long fileId, File oldFile, File newFile,
+                             List<Tag> oldTags, List<Tag> newTags) {
+        if (failure != null) {
+            // Reported by the next read, sync or close
+            DROPPED.increment();
+            return;
+        }
+        lastTime = Math.max(lastTime, System.currentTimeMillis());
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeLong(lastTime);
+            out.writeLong(fileId);
+            out.writeUTF(oldFile.getPath());
+            out.writeUTF(newFile.getPath());
+            writeTags(out, difference(newTags, oldTags));
+            writeTags(out, difference(oldTags, newTags));
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to a byte array cannot fail.
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(pending);
+        try {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Segment active = segments.get(segments.size() - 1);
+        active.add(fileId, lastTime, size);
+        size += payload.length + 8;
+        active.end = size;
+        if (pending.size() >= BUFFER_BYTES || size >= SEGMENT_BYTES) {
+            try {
+                write();
+            } catch (IOException e) {
+                // Recorded by write, and thrown by the next read, sync or
+                // close.
+            }
+        }
+    }
+
+    /**
+     * Returns the history of the image file with id fileId, oldest first.
+     *
+     * @param fileId the id of the image file
+     * @return the entries of the image file
+     * @throws IOException if the entries could not be read
+     */
+    synchronized List<HistoryEntry> forFile(long fileId) throws IOException {
+        write();
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            int[] found = segment.find(fileId);
+            if (found.length > 0) {
+                segment.read(found, entries);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Returns the entries from time from up to, but not including, time to,
+     * oldest first.
+     *
+     * @param from the earliest time, in milliseconds since the epoch
+     * @param to   the time after the latest, in milliseconds since the epoch
+     * @return the entries between from and to
+     * @throws IOException if the entries could not be read
+     */
+    synchronized List<HistoryEntry> between(long from, long to)
+            throws IOException {
+        write();
+        List<HistoryEntry> entries = new ArrayList<>();
+        for (Segment segment : segments) {
+            int first = segment.firstAtOrAfter(from);
+            int end = segment.firstAtOrAfter(to);
+            if (first < end) {
+                segment.readRange(first, end, entries);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Writes every entry appended so far to disk, and fsyncs it.
+     *
+     * @throws IOException if the entries could not be written
+     */
+    synchronized void sync() throws IOException {
+        write();
+        channel.force(false);
+    }
+
+    /**
+     * Writes every entry appended so far to disk, and closes this store.
+     *
+     * @throws IOException if the entries could not be written, now or
+     *                     before
+     */
+    synchronized void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Writes the pending entries to the segment file, and seals the segment
+     * if it is full. If they cannot be written, the store stops accepting
+     * entries.
+     *
+     * @throws IOException if the entries could not be written, now or
+     *                     before
+     */
+    private void write() throws IOException {
+        if (failure != null) {
+            throw new IOException("The history could not be written",
+                    failure);
+        }
+        try {
+            writePending();
+        } catch (IOException e) {
+            failure = e;
+            throw e;
+        }
+    }
+
+    /**
+     * Writes the pending entries to the segment file, and seals the segment
+     * if it is full.
+     *
+     * @throws IOException if the entries could not be written
+     */
+    private void writePending() throws IOException {
+        if (pending.size() > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            pending.reset();
+            long position = size - buffer.remaining();
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        }
+        if (size >= SEGMENT_BYTES) {
+            Segment full = segments.get(segments.size() - 1);
+            channel.force(false);
+            channel.close();
+            full.writeIndex();
+            Segment next = new Segment(full.number + 1);
+            segments.add(next);
+            channel = FileChannel.open(next.path(),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            size = 0;
+        }
+    }
+
+    /**
+     * Returns the tags in a that are not in b.
+     *
+     * @param a a list of tags
+     * @param b another list of tags
+     * @return the tags of a missing from b
+     */
+    private static List<Tag> difference(List<Tag> a, List<Tag> b) {
+        Set<Tag> excluded = new HashSet<>(b);
+        List<Tag> result = new ArrayList<>();
+        for (Tag tag : a) {
+            if (!excluded.contains(tag)) {
+                result.add(tag);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Writes the names of tags to out, preceded by how many there are.
+     *
+     * @param out  the stream to write to
+     * @param tags the tags to write
+     * @throws IOException if the tags could not be written
+     */
+    private static void writeTags(DataOutputStream out, List<Tag> tags)
+            throws IOException {
+        out.writeShort(tags.size());
+        for (Tag tag : tags) {
+            out.writeUTF(tag.getTag());
+        }
+    }
+
+    /**
+     * Reads a list of tag names, preceded by how many there are.
+     *
+     * @param in the stream to read from
+     * @return the tags read
+     * @throws IOException if the tags could not be read
+     */
+    private static List<Tag> readTags(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        List<Tag> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            tags.add(TagDictionary.canonical(new Tag(in.readUTF())));
+        }
+        return tags;
+    }
+
+    /**
+     * Parses the payload of an entry.
+     *
+     * @param bytes  the bytes holding the payload
+     * @param offset the offset of the payload in bytes
+     * @param length the length of the payload
+     * @return the entry
+     * @throws IOException if the payload is malformed
+     */
+    private static HistoryEntry parse(byte[] bytes, int offset, int length)
+            throws IOException {
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(bytes, offset, length));
+        long time = in.readLong();
+        long fileId = in.readLong();
+        File oldFile = new File(in.readUTF());
+        File newFile = new File(in.readUTF());
+        List<Tag> added = readTags(in);
+        List<Tag> removed = readTags(in);
+        return new HistoryEntry(time, fileId, oldFile, newFile, added,
+                removed);
+    }
+
+    /**
+     * Reads from source at position until buffer is full.
+     *
+     * @param source   the channel to read from
+     * @param buffer   the buffer to fill
+     * @param position the position to read from
+     * @throws IOException if the channel ends before buffer is full
+     */
+    private static void readFully(FileChannel source, ByteBuffer buffer,
+                                  long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int n = source.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException();
+            }
+            position += n;
+        }
+    }
+
+    /**
+     * A Segment is one file of entries, and the index of its entries.
+     */
+    private class Segment {
+        /**
+         * The number of this segment, which names its files.
+         */
+        private final int number;
+
+        /**
+         * The file id of each entry, in the order they were appended.
+         */
+        private long[] fileIds = new long[64];
+
+        /**
+         * The time of each entry, in the order they were appended.
+         */
+        private long[] times = new long[64];
+
+        /**
+         * The offset of each entry in the segment file.
+         */
+        private int[] offsets = new int[64];
+
+        /**
+         * The number of entries in this segment.
+         */
+        private int count;
+
+        /**
+         * The offset just past the last entry in this segment.
+         */
+        private long end;
+
+        /**
+         * The index of the previous entry of the same image file as each
+         * entry, or -1 if it is the first in this segment.
+         */
+        private int[] previous = new int[64];
+
+        /**
+         * The index of the last entry of each image file in this segment,
+         * by file id.
+         */
+        private final HashMap<Long, Integer> lastOf = new HashMap<>();
+
+        /**
+         * Constructs an empty segment with the number provided.
+         *
+         * @param number the number of the segment
+         */
+        Segment(int number) {
+            this.number = number;
+        }
+
+        /**
+         * Returns the path of the segment file.
+         *
+         * @return the path of the segment file
+         */
+        Path path() {
+            return directory.resolve(String.format("%06d.seg", number));
+        }
+
+        /**
+         * Returns the path of the index file of this segment.
+         *
+         * @return the path of the index file
+         */
+        Path indexPath() {
+            return directory.resolve(String.format("%06d.idx", number));
+        }
+
+        /**
+         * Returns the time of the last entry in this segment.
+         *
+         * @return the time of the last entry, or 0 if there is none
+         */
+        long lastTime() {
+            return count == 0 ? 0 : times[count - 1];
+        }
+
+        /**
+         * Adds an entry to the index of this segment.
+         *
+         * @param fileId the id of the image file of the entry
+         * @param time   the time of the entry
+         * @param offset the offset of the entry in the segment file
+         */
+        void add(long fileId, long time, long offset) {
+            if (count == fileIds.length) {
+                fileIds = Arrays.copyOf(fileIds, count * 2);
+                times = Arrays.copyOf(times, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                previous = Arrays.copyOf(previous, count * 2);
+            }
+            fileIds[count] = fileId;
+            times[count] = time;
+            offsets[count] = (int) offset;
+            Integer last = lastOf.put(fileId, count);
+            previous[count] = last == null ? -1 : last;
+            count++;
+        }
+
+        /**
+         * Returns the indexes of the entries of the image file with id
+         * fileId, in the order they were appended.
+         *
+         * @param fileId the id of the image file
+         * @return the indexes of its entries
+         */
+        int[] find(long fileId) {
+            Integer last = lastOf.get(fileId);
+            int found = 0;
+            for (int i = last == null ? -1 : last; i >= 0; i = previous[i]) {
+                found++;
+            }
+            int[] records = new int[found];
+            for (int i = last == null ? -1 : last; i >= 0; i = previous[i]) {
+                records[--found] = i;
+            }
+            return records;
+        }
+
+        /**
+         * Returns the index of the first entry at or after time.
+         *
+         * @param time a time, in milliseconds since the epoch
+         * @return the index of the first entry at or after time, or the
+         * number of entries if there is none
+         */
+        int firstAtOrAfter(long time) {
+            int low = 0;
+            int high = count;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (times[mid] < time) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Reads the entries with the indexes provided and adds them to
+         * entries.
+         *
+         * @param records the indexes of the entries, in increasing order
+         * @param entries the list to add the entries to
+         * @throws IOException if the entries could not be read
+         */
+        void read(int[] records, List<HistoryEntry> entries)
+                throws IOException {
+            if (this == segments.get(segments.size() - 1)) {
+                for (int record : records) {
+                    entries.add(readEntry(channel, offsets[record]));
+                }
+                return;
+            }
+            try (FileChannel in = FileChannel.open(path(),
+                    StandardOpenOption.READ)) {
+                for (int record : records) {
+                    entries.add(readEntry(in, offsets[record]));
+                }
+            }
+        }
+
+        /**
+         * Reads the entries from index first up to, but not including,
+         * index last, with one read, and adds them to entries.
+         *
+         * @param first   the index of the first entry
+         * @param last    the index after the last entry
+         * @param entries the list to add the entries to
+         * @throws IOException if the entries could not be read
+         */
+        void readRange(int first, int last, List<HistoryEntry> entries)
+                throws IOException {
+            long start = offsets[first];
+            long stop = last < count ? offsets[last] : end;
+            ByteBuffer bytes = ByteBuffer.allocate((int) (stop - start));
+            if (this == segments.get(segments.size() - 1)) {
+                readFully(channel, bytes, start);
+            } else {
+                try (FileChannel in = FileChannel.open(path(),
+                        StandardOpenOption.READ)) {
+                    readFully(in, bytes, start);
+                }
+            }
+            for (int i = first; i < last; i++) {
+                int position = (int) (offsets[i] - start);
+                entries.add(parse(bytes.array(), position + 4,
+                        bytes.getInt(position)));
+            }
+        }
+
+        /**
+         * Reads the entry at offset in the segment file.
+         *
+         * @param source the channel of the segment file
+         * @param offset the offset of the entry
+         * @return the entry
+         * @throws IOException if the entry could not be read
+         */
+        private HistoryEntry readEntry(FileChannel source, long offset)
+                throws IOException {
+            ByteBuffer length = ByteBuffer.allocate(4);
+            readFully(source, length, offset);
+            ByteBuffer payload = ByteBuffer.allocate(length.getInt(0));
+            readFully(source, payload, offset + 4);
+            return parse(payload.array(), 0, payload.capacity());
+        }
+
+        /**
+         * Rebuilds the index of this segment by reading every entry in its
+         * file, stopping at the first torn or corrupted entry.
+         *
+         * @param save whether to write the rebuilt index to the index file
+         * @throws IOException if the segment file could not be read
+         */
+        void scan(boolean save) throws IOException {
+            if (Files.exists(path())) {
+                try (DataInputStream in = new DataInputStream(
+                        new BufferedInputStream(
+                                Files.newInputStream(path()), 1 << 16))) {
+                    while (true) {
+                        int length = in.readInt();
+                        if (length < 16) {
+                            break;
+                        }
+                        byte[] payload = new byte[length];
+                        in.readFully(payload);
+                        CRC32 crc = new CRC32();
+                        crc.update(payload);
+                        if (in.readInt() != (int) crc.getValue()) {
+                            break;
+                        }
+                        ByteBuffer fields = ByteBuffer.wrap(payload);
+                        long time = fields.getLong();
+                        add(fields.getLong(), time, end);
+                        end += length + 8;
+                    }
+                } catch (EOFException e) {
+                    // The last entry was torn, or there are no more.
+                }
+            }
+            if (save) {
+                writeIndex();
+            }
+        }
+
+        /**
+         * Writes the index of this segment to its index file.
+         *
+         * @throws IOException if the index could not be written
+         */
+        void writeIndex() throws IOException {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(
+                            indexPath()), 1 << 16))) {
+                out.writeInt(count);
+                out.writeLong(end);
+                for (int i = 0; i < count; i++) {
+                    out.writeLong(fileIds[i]);
+                    out.writeLong(times[i]);
+                    out.writeInt(offsets[i]);
+                }
+            }
+        }
+
+        /**
+         * Loads the index of this segment from its index file.
+         *
+         * @return true if the index was loaded, false if it is missing or
+         * does not match the segment file
+         * @throws IOException if the index file could not be read
+         */
+        boolean loadIndex() throws IOException {
+            if (!Files.exists(indexPath())) {
+                return false;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(
+                    Files.readAllBytes(indexPath()));
+            if (buffer.remaining() < 12) {
+                return false;
+            }
+            int entries = buffer.getInt();
+            long fileEnd = buffer.getLong();
+            if (entries < 0 || buffer.remaining() !=
+                    (long) entries * INDEX_ENTRY_BYTES ||
+                    fileEnd != Files.size(path())) {
+                return false;
+            }
+            for (int i = 0; i < entries; i++) {
+                long fileId = buffer.getLong();
+                long time = buffer.getLong();
+                add(fileId, time, buffer.getInt());
+            }
+            end = fileEnd;
+            return true;
+        }
+    }
+}
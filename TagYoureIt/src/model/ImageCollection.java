@@ -0,0 +1,166 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An ImageCollection holds the ImageFiles of a Model, and indexes them by
+ * file, original name and tags. An ImageIndex keeps every ImageFile in
+ * memory; an ImageStore leaves them in the mapped catalog, and builds each
+ * only when it is asked for. The Model does the same through either, so it
+ * need not know how its catalog was loaded. Like the Model, a collection is
+ * used by one thread.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+interface ImageCollection {
+    /**
+     * Loads the ImageFiles saved in catalog into this empty collection.
+     * ImageFiles it cannot hold without adding them one at a time are
+     * returned with the contents, for the caller to add.
+     *
+     * @param catalog the catalog to load
+     * @return the contents of catalog, with the ImageFiles still to add
+     * @throws IOException if the catalog could not be read, or is corrupted
+     */
+    Catalog.Contents load(Catalog catalog) throws IOException;
+
+    /**
+     * Saves the ImageFiles of this collection, with existingTags, to
+     * catalog.
+     *
+     * @param catalog      the catalog to save to
+     * @param existingTags the existing tags to save
+     * @param nextFileId   the id the next new ImageFile will be given
+     * @throws IOException if the catalog could not be written
+     */
+    void save(Catalog catalog, ExistingTags existingTags, long nextFileId)
+            throws IOException;
+
+    /**
+     * Adds imageFile, which has an id, to this collection.
+     *
+     * @param imageFile the ImageFile to add
+     */
+    void add(ImageFile imageFile);
+
+    /**
+     * Removes the ImageFiles provided from this collection.
+     *
+     * @param removed ImageFiles of this collection
+     */
+    void remove(Set<ImageFile> removed);
+
+    /**
+     * Brings the indexes of imageFile up to date with its current file and
+     * tags.
+     *
+     * @param imageFile the ImageFile that has changed
+     */
+    void update(ImageFile imageFile);
+
+    /**
+     * Returns the ImageFile at file.
+     *
+     * @param file the file of the ImageFile
+     * @return the ImageFile at file, or null if there is none
+     */
+    ImageFile getImageFile(File file);
+
+    /**
+     * Returns whether an ImageFile is at file, without building it.
+     *
+     * @param file the file to look for
+     * @return true if an ImageFile of this collection is at file
+     */
+    boolean contains(File file);
+
+    /**
+     * Returns whether an ImageFile in directory has the original name
+     * provided.
+     *
+     * @param directory    the directory to look in
+     * @param originalName the original name, without any tags
+     * @return true if an ImageFile in directory has originalName
+     */
+    boolean hasOriginalName(File directory, String originalName);
+
+    /**
+     * Returns every ImageFile of this collection.
+     *
+     * @return the ImageFiles of this collection
+     */
+    List<ImageFile> getImageFiles();
+
+    /**
+     * Returns the ImageFiles matching query.
+     *
+     * @param query the query
+     * @return the ImageFiles matching query
+     */
+    List<ImageFile> search(TagQuery query);
+
+    /**
+     * Returns the ImageFiles with any of tags, each once.
+     *
+     * @param tags the tags
+     * @return the ImageFiles with any of tags
+     */
+    List<ImageFile> findWithAnyTag(Collection<Tag> tags);
+
+    /**
+     * Returns the ImageFiles whose files no longer exist, and were under
+     * one of the directories provided.
+     *
+     * @param goneDirectories directories that were deleted
+     * @return the ImageFiles removed with goneDirectories
+     */
+    List<ImageFile> findGone(Set<Path> goneDirectories);
+
+    /**
+     * Returns the names of the tags some ImageFile of this collection has,
+     * in order of name.
+     *
+     * @return the names of the tags in use
+     */
+    NavigableSet<String> getTagNames();
+
+    /**
+     * Calls action on every ImageFile of this collection that is in
+     * memory.
+     *
+     * @param action the action to call
+     */
+    void forEachLive(Consumer<ImageFile> action);
+
+    /**
+     * Returns the number of ImageFiles of this collection in memory.
+     *
+     * @return the number of ImageFiles in memory
+     */
+    int getLiveCount();
+
+    /**
+     * Returns whether file no longer exists, and was under one of the
+     * directories provided.
+     *
+     * @param file            the file of an ImageFile
+     * @param goneDirectories directories that were deleted
+     * @return true if file was removed with one of goneDirectories
+     */
+    static boolean isGone(File file, Set<Path> goneDirectories) {
+        Path parent = file.toPath().getParent();
+        while (parent != null && !goneDirectories.contains(parent)) {
+            parent = parent.getParent();
+        }
+        return parent != null && !file.exists();
+    }
+}
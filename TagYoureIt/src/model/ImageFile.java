@@ -2,9 +2,14 @@ package model;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Observable;
 
 /**
@@ -18,6 +23,39 @@ import java.util.Observable;
  */
 
 public class ImageFile extends Observable implements Serializable {
+    /**
+     * The version of the serialized form of this class, which is still read
+     * when migrating old imageData.ser files.
+     */
+    private static final long serialVersionUID = 8425374069153557884L;
+
+    /**
+     * The fields of the serialized form of this class. Tags are serialized
+     * as a list of Tags, as they always have been, although they are held
+     * in memory as tag ids.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = {
+            new ObjectStreamField("originalName", String.class),
+            new ObjectStreamField("fileExtension", String.class),
+            new ObjectStreamField("currentTags", ArrayList.class),
+            new ObjectStreamField("pastImageNames", ArrayList.class),
+            new ObjectStreamField("file", File.class)
+    };
+
+    /**
+     * The time taken to move an image file with moveTo.
+     */
+    private static final Timer MOVE_TIMER = Metrics.timer("image.move");
+
+    /**
+     * The time taken to rename an image file with editTags.
+     */
+    private static final Timer RENAME_TIMER = Metrics.timer("image.rename");
+
+    /**
+     * The number of image files renamed.
+     */
+    private static final Counter RENAMES = Metrics.counter("image.renames");
 
     /**
      * The log file that records any file renaming.
@@ -25,26 +63,33 @@ public class ImageFile extends Observable implements Serializable {
     private static Log log;
     static {
         try {
-            log = new Log("renameLog.txt");
+            log = new Log(System.getProperty("tagyoureit.log",
+                    "renameLog.txt"), Log.Durability.parse(
+                    System.getProperty("tagyoureit.logDurability",
+                            "buffered")));
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
     /**
-     * The original name of this file without any tags.
+     * The original name of this file without any tags. Only assigned when
+     * this image file is constructed or deserialized.
      */
-    private final String originalName;
+    private String originalName;
 
     /**
-     * The file extension of this file (including the '.' delimiter).
+     * The file extension of this file (including the '.' delimiter). Only
+     * assigned when this image file is constructed or deserialized.
      */
-    private final String fileExtension;
+    private String fileExtension;
 
     /**
-     * The list of tags that is the current name of the image.
+     * The ids in the TagDictionary of the tags that are the current name of
+     * the image, in the order they appear in it. The array is replaced, never
+     * modified.
      */
-    private ArrayList<Tag> currentTags;
+    private int[] tagIds;
 
     /**
      * The list of all the names this image has had in the past.
@@ -56,6 +101,31 @@ public class ImageFile extends Observable implements Serializable {
      */
     private File file;
 
+    /**
+     * The journal renames and tag edits of this image file are recorded in,
+     * null if they are not journaled.
+     */
+    private transient Journal journal;
+
+    /**
+     * The id of this image file, which stays the same as it is renamed and
+     * moved, or 0 if it has not been given one. Not part of the serialized
+     * form; ids are stored in the catalog.
+     */
+    private transient long id;
+
+    /**
+     * The store the rename history of this image file is kept in, null if
+     * its history is not kept.
+     */
+    private transient HistoryStore history;
+
+    /**
+     * The number of this image file in the ImageStore of a lazily loaded
+     * Model, or -1 if it is not in one.
+     */
+    private transient int storeIndex = -1;
+
     /**
      * Constructs an image file object from the system file object provided.
      *
@@ -67,17 +137,63 @@ public class ImageFile extends Observable implements Serializable {
                 0, file.getName().lastIndexOf('.'));
         this.fileExtension = file.getName().substring(
                 file.getName().lastIndexOf('.'));
-        currentTags = new ArrayList<>();
+        tagIds = TagDictionary.NO_TAGS;
         pastImageNames = new ArrayList<>();
     }
 
     /**
-     * Returns the contents of the log file.
+     * Constructs an image file object with the state provided, as read back
+     * from a catalog.
+     *
+     * @param file           the system file object
+     * @param originalName   the original name of the file, without any tags
+     * @param fileExtension  the file extension, including the '.' delimiter
+     * @param currentTags    the tags in the current name of the file
+     * @param pastImageNames the names the file has had in the past
+     */
+    ImageFile(File file, String originalName, String fileExtension,
+              ArrayList<Tag> currentTags, ArrayList<String> pastImageNames) {
+        this(file, originalName, fileExtension,
+                TagDictionary.ids(currentTags), pastImageNames);
+    }
+
+    /**
+     * Constructs an image file object with the state provided, its tags
+     * given by their ids in the TagDictionary.
+     *
+     * @param file           the system file object
+     * @param originalName   the original name of the file, without any tags
+     * @param fileExtension  the file extension, including the '.' delimiter
+     * @param tagIds         the ids of the tags in the current name of the
+     *                       file, which the image file takes ownership of
+     * @param pastImageNames the names the file has had in the past
+     */
+    ImageFile(File file, String originalName, String fileExtension,
+              int[] tagIds, ArrayList<String> pastImageNames) {
+        this.file = file;
+        this.originalName = originalName;
+        this.fileExtension = fileExtension;
+        this.tagIds = tagIds;
+        this.pastImageNames = pastImageNames;
+    }
+
+    /**
+     * Returns a reader of the log file, with every entry written so far in
+     * the file. Call refresh on it to index the newest entries.
      *
-     * @return the contents of the log file
+     * @return a reader of the log file
      */
-    public static String readLog() {
-        return log.readLog();
+    public static LogReader getLogReader() {
+        return log.getReader();
+    }
+
+    /**
+     * Writes message to the log file as one entry.
+     *
+     * @param message the message to be written
+     */
+    static void writeLog(String message) {
+        log.writeLog(message);
     }
 
     /**
@@ -95,7 +211,38 @@ public class ImageFile extends Observable implements Serializable {
      * @return the name of the file as a list of tags
      */
     public ArrayList<Tag> getCurrentTags() {
-        return new ArrayList<>(currentTags);
+        ArrayList<Tag> tags = new ArrayList<>(tagIds.length);
+        for (int id : tagIds) {
+            tags.add(TagDictionary.tag(id));
+        }
+        return tags;
+    }
+
+    /**
+     * Returns the ids in the TagDictionary of the current tags of this
+     * image file, in the order they appear in its name. The array must not
+     * be modified.
+     *
+     * @return the ids of the current tags
+     */
+    int[] getTagIds() {
+        return tagIds;
+    }
+
+    /**
+     * Returns whether tag is one of the current tags of this image file.
+     *
+     * @param tag the tag to look for
+     * @return true if this image file has tag
+     */
+    public boolean hasTag(Tag tag) {
+        int id = TagDictionary.lookup(tag.getTag());
+        for (int tagId : tagIds) {
+            if (tagId == id) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -114,7 +261,7 @@ public class ImageFile extends Observable implements Serializable {
      * @param tags the list of tags to be encoded
      * @return a string with format " @tag_1 @tag2 ... @tag_n"
      */
-    private String encodeToString(ArrayList<Tag> tags) {
+    private String encodeToString(List<Tag> tags) {
         StringBuilder buffer = new StringBuilder();
         for (Tag t : tags) {
             buffer.append(" ").append("@").append(t.getTag());
@@ -124,34 +271,337 @@ public class ImageFile extends Observable implements Serializable {
 
     /**
      * Renames this image file with the list of tags provided, and records
-     * the previous name of this image file.
+     * the previous name of this image file. Observers are notified of the
+     * rename, then with a TAGS_CHANGED ChangeEvent.
      *
      * @param tags the new set of tags for this ImageFile
-     * @throws IOException if the system file object could not be renamed
+     * @throws IOException          if the system file object could not be
+     *                              renamed
+     * @throws UncheckedIOException if the log is SYNCHRONOUS and the rename
+     *                              could not be logged; it is made all the
+     *                              same
      */
     public void editTags(ArrayList<Tag> tags) throws IOException {
-        String newPath = file.getParent() + File.separator +
-                originalName + encodeToString(tags) + fileExtension;
-        this.moveTo(new File(newPath));
-        this.pastImageNames.add(originalName + encodeToString(currentTags));
-        this.currentTags = tags;
+        long start = Timer.start();
+        File oldFile = this.file;
+        ArrayList<Tag> oldTags = getCurrentTags();
+        move(fileWithTags(tags), tags);
+        recordHistory(oldFile, oldTags);
+        setChanged();
+        notifyObservers(ChangeEvent.tagsChanged(this, oldTags));
+        RENAMES.increment();
+        RENAME_TIMER.stop(start);
+        logMove(oldFile);
+    }
+
+    /**
+     * Returns the file this image file is renamed to when its tags are set
+     * to the list provided.
+     *
+     * @param tags the new set of tags for this ImageFile
+     * @return the file named with tags, in the same directory
+     */
+    File fileWithTags(List<Tag> tags) {
+        return new File(file.getParent() + File.separator + originalName +
+                encodeToString(tags) + fileExtension);
+    }
+
+    /**
+     * Points this image file at dest and sets its tags to the list
+     * provided, once the system file has already been renamed to dest. The
+     * change is journaled and observers are notified, as by editTags, but
+     * nothing is written to the log file; the caller logs the whole batch.
+     *
+     * @param dest the file the system file was renamed to
+     * @param tags the new set of tags for this ImageFile
+     * @throws UncheckedIOException if the change could not be journaled;
+     *                              this image file is brought up to date,
+     *                              and observers notified, all the same
+     */
+    void commitEdit(File dest, ArrayList<Tag> tags) {
+        File oldFile = this.file;
+        ArrayList<Tag> oldTags = getCurrentTags();
+        UncheckedIOException unjournaled = null;
+        if (journal != null) {
+            try {
+                journal.logMove(oldFile, dest);
+                journal.logTags(dest, tags);
+            } catch (UncheckedIOException e) {
+                // The file is renamed, so this image file must follow it
+                unjournaled = e;
+            }
+        }
+        this.file = dest;
+        replayTags(tags);
+        setChanged();
+        notifyObservers(ChangeEvent.imageMoved(this, oldFile));
+        recordHistory(oldFile, oldTags);
+        setChanged();
+        notifyObservers(ChangeEvent.tagsChanged(this, oldTags));
+        if (unjournaled != null) {
+            throw unjournaled;
+        }
+    }
+
+    /**
+     * Brings this image file up to date with a move of its system file to
+     * dest, made by a batch move: the move is journaled and recorded in its
+     * history, and observers are notified with an IMAGE_MOVED ChangeEvent.
+     * The batch writes the log.
+     *
+     * @param dest the file the system file was moved to
+     * @throws UncheckedIOException if the move could not be journaled;
+     *                              this image file is brought up to date,
+     *                              and observers notified, all the same
+     */
+    void commitMove(File dest) {
+        File oldFile = this.file;
+        UncheckedIOException unjournaled = null;
+        if (journal != null) {
+            try {
+                journal.logMove(oldFile, dest);
+            } catch (UncheckedIOException e) {
+                // The file is moved, so this image file must follow it
+                unjournaled = e;
+            }
+        }
+        this.file = dest;
         setChanged();
-        notifyObservers();
+        notifyObservers(ChangeEvent.imageMoved(this, oldFile));
+        recordHistory(oldFile, getCurrentTags());
+        if (unjournaled != null) {
+            throw unjournaled;
+        }
     }
 
     /**
-     * Moves this image file to the file destination provided.
+     * Records the previous name of this image file, and sets its tags to the
+     * list provided, without renaming the system file. Used to redo an edit
+     * from the journal, whose rename has already happened.
+     *
+     * @param tags the new set of tags for this ImageFile
+     */
+    void replayTags(ArrayList<Tag> tags) {
+        this.pastImageNames.add(originalName +
+                encodeToString(getCurrentTags()));
+        this.tagIds = TagDictionary.ids(tags);
+    }
+
+    /**
+     * Points this image file at dest, without moving the system file. Used
+     * to redo a move from the journal, which has already happened.
      *
      * @param dest the file destination
-     * @throws IOException if the associated file object could not be moved
+     */
+    void replayMove(File dest) {
+        this.file = dest;
+    }
+
+    /**
+     * Sets the journal renames and tag edits of this image file are recorded
+     * in.
+     *
+     * @param journal the journal, or null to stop journaling
+     */
+    void setJournal(Journal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Returns the id of this image file, which stays the same as it is
+     * renamed and moved.
+     *
+     * @return the id of this image file, or 0 if it has none yet
+     */
+    long getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of this image file.
+     *
+     * @param id the id of this image file
+     */
+    void setId(long id) {
+        this.id = id;
+    }
+
+    /**
+     * Returns the number of this image file in the ImageStore of a lazily
+     * loaded Model. An image file removed from the store keeps its number,
+     * which is never given to another.
+     *
+     * @return the number of this image file, or -1 if it was never in a
+     * store
+     */
+    int getStoreIndex() {
+        return storeIndex;
+    }
+
+    /**
+     * Sets the number of this image file in the ImageStore of a lazily
+     * loaded Model.
+     *
+     * @param storeIndex the number of this image file, or -1 if none
+     */
+    void setStoreIndex(int storeIndex) {
+        this.storeIndex = storeIndex;
+    }
+
+    /**
+     * Sets the store the rename history of this image file is kept in.
+     *
+     * @param history the history store, or null to stop keeping history
+     */
+    void setHistory(HistoryStore history) {
+        this.history = history;
+    }
+
+    /**
+     * Returns the renames of this image file, oldest first, as kept in its
+     * history store.
+     *
+     * @return the history of this image file, empty if it is not kept
+     * @throws IOException if the history could not be read
+     */
+    public List<HistoryEntry> getHistory() throws IOException {
+        if (history == null || id == 0) {
+            return new ArrayList<>();
+        }
+        return history.forFile(id);
+    }
+
+    /**
+     * Adds an entry to the history of this image file, for a rename from
+     * oldFile to its current file that changed its tags from oldTags.
+     *
+     * @param oldFile the file this image file was at before
+     * @param oldTags the tags it had before
+     */
+    private void recordHistory(File oldFile, List<Tag> oldTags) {
+        if (history != null && id != 0) {
+            history.append(id, oldFile, file, oldTags, getCurrentTags());
+        }
+    }
+
+    /**
+     * Adds the past names of this image file, as kept by older versions, to
+     * its history store: one entry for each rename from a past name to the
+     * next, ending with its current name. Past names do not record where
+     * the file was, or when it was renamed, so every entry is placed in its
+     * current directory, at the time of the import.
+     */
+    void importPastNames() {
+        if (history == null || id == 0 || pastImageNames.isEmpty()) {
+            return;
+        }
+        File directory = file.getParentFile();
+        List<String> names = new ArrayList<>(pastImageNames);
+        names.add(originalName + encodeToString(getCurrentTags()));
+        for (int i = 0; i + 1 < names.size(); i++) {
+            history.append(id,
+                    new File(directory, names.get(i) + fileExtension),
+                    new File(directory, names.get(i + 1) + fileExtension),
+                    tagsOfName(names.get(i)), tagsOfName(names.get(i + 1)));
+        }
+    }
+
+    /**
+     * Returns the tags in a name of this image file, such as
+     * "beach @sun @sea".
+     *
+     * @param name a name of this image file, without its extension
+     * @return the tags in the name
+     */
+    private List<Tag> tagsOfName(String name) {
+        List<Tag> tags = new ArrayList<>();
+        if (!name.startsWith(originalName)) {
+            return tags;
+        }
+        for (String tag : name.substring(originalName.length())
+                .split(" @")) {
+            if (!tag.isEmpty()) {
+                tags.add(TagDictionary.canonical(new Tag(tag)));
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Moves this image file to the file destination provided, records the
+     * move in its history, and notifies observers with an IMAGE_MOVED
+     * ChangeEvent.
+     *
+     * @param dest the file destination
+     * @throws IOException          if the associated file object could not
+     *                              be moved
+     * @throws UncheckedIOException if the log is SYNCHRONOUS and the move
+     *                              could not be logged; it is made all the
+     *                              same
      */
     public void moveTo(File dest) throws IOException {
-        Files.move(this.file.toPath(), dest.toPath());
-        log.writeLog("Move file [" + this.file.getAbsolutePath() +
-                "] to [" + dest.getAbsolutePath() + "]");
+        long start = Timer.start();
+        File oldFile = this.file;
+        move(dest, null);
+        recordHistory(oldFile, getCurrentTags());
+        MOVE_TIMER.stop(start);
+        logMove(oldFile);
+    }
+
+    /**
+     * Writes the move of this image file from oldFile to its current file
+     * to the log file. It is written once this image file is up to date, as
+     * a SYNCHRONOUS log throws if it cannot be written.
+     *
+     * @param oldFile the file this image file was at before
+     */
+    private void logMove(File oldFile) {
+        log.writeLog("Move file [" + oldFile.getAbsolutePath() +
+                "] to [" + this.file.getAbsolutePath() + "]");
+    }
+
+    /**
+     * Moves the system file to dest, journals the move, sets the new tags if
+     * there are any, and notifies observers with an IMAGE_MOVED ChangeEvent.
+     * The intent to move is journaled and synced before the file is moved,
+     * and aborted if it could not be.
+     *
+     * @param dest the file destination
+     * @param tags the tags the file has once moved, or null if they are
+     *             unchanged
+     * @throws IOException if the associated file object could not be moved,
+     *                     or the intent to could not be journaled
+     */
+    private void move(File dest, List<Tag> tags) throws IOException {
+        if (journal != null) {
+            if (tags == null) {
+                journal.logIntent(this.file, dest);
+            } else {
+                journal.logIntent(this.file, dest, tags);
+            }
+            journal.sync();
+            try {
+                Files.move(this.file.toPath(), dest.toPath());
+            } catch (IOException e) {
+                journal.logAbort(this.file, dest);
+                throw e;
+            }
+        } else {
+            Files.move(this.file.toPath(), dest.toPath());
+        }
+        if (journal != null) {
+            journal.logMove(this.file, dest);
+            if (tags != null) {
+                journal.logTags(dest, tags);
+            }
+        }
+        File oldFile = this.file;
         this.file = dest;
+        if (tags != null) {
+            replayTags(new ArrayList<>(tags));
+        }
         setChanged();
-        notifyObservers();
+        notifyObservers(ChangeEvent.imageMoved(this, oldFile));
     }
 
     /**
@@ -162,4 +612,53 @@ public class ImageFile extends Observable implements Serializable {
     public String getOriginalName() {
         return this.originalName;
     }
+
+    /**
+     * Returns the file extension of this file, including the '.' delimiter
+     *
+     * @return the file extension of this file
+     */
+    String getFileExtension() {
+        return this.fileExtension;
+    }
+
+    /**
+     * Writes this image file in its serialized form.
+     *
+     * @param out the stream to write to
+     * @throws IOException if the stream could not be written to
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("originalName", originalName);
+        fields.put("fileExtension", fileExtension);
+        fields.put("currentTags", getCurrentTags());
+        fields.put("pastImageNames", pastImageNames);
+        fields.put("file", file);
+        out.writeFields();
+    }
+
+    /**
+     * Reads an image file from its serialized form, interning its tags.
+     *
+     * @param in the stream to read from
+     * @throws IOException            if the stream could not be read from
+     * @throws ClassNotFoundException if a class in the stream is not found
+     */
+    @SuppressWarnings("unchecked")
+    private void readObject(ObjectInputStream in)
+            throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = in.readFields();
+        originalName = (String) fields.get("originalName", null);
+        fileExtension = (String) fields.get("fileExtension", null);
+        ArrayList<Tag> tags = (ArrayList<Tag>) fields.get("currentTags",
+                null);
+        tagIds = tags == null ? TagDictionary.NO_TAGS :
+                TagDictionary.ids(tags);
+        pastImageNames = (ArrayList<String>) fields.get("pastImageNames",
+                null);
+        file = (File) fields.get("file", null);
+        // Field initializers are not run for a deserialized object
+        storeIndex = -1;
+    }
 }
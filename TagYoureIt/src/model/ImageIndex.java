@@ -0,0 +1,195 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * An ImageIndex holds the ImageFiles of an eagerly loaded Model. Every
+ * ImageFile is read from the catalog when the Model is created and kept in
+ * memory, in a list indexed by the file each is at, by the original names
+ * in each directory, and by tags.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class ImageIndex implements ImageCollection {
+    /**
+     * The ImageFiles of this index, in the order they were added.
+     */
+    private final ArrayList<ImageFile> imageFiles = new ArrayList<>();
+
+    /**
+     * Index of imageFiles by the system file each ImageFile is currently at
+     */
+    private final HashMap<File, ImageFile> fileIndex = new HashMap<>();
+
+    /**
+     * The key each ImageFile is stored under in fileIndex, so its entry can
+     * be found again after the ImageFile has moved
+     */
+    private final IdentityHashMap<ImageFile, File> indexedFiles =
+            new IdentityHashMap<>();
+
+    /**
+     * Index of the original names of imageFiles by the absolute directory
+     * each ImageFile is currently in, with the number of ImageFiles there
+     * that have each original name
+     */
+    private final HashMap<File, HashMap<String, Integer>> originalNames =
+            new HashMap<>();
+
+    /**
+     * Index of imageFiles by the tags they have
+     */
+    private final TagIndex tagIndex = new TagIndex();
+
+    @Override
+    public Catalog.Contents load(Catalog catalog) throws IOException {
+        return catalog.read();
+    }
+
+    @Override
+    public void save(Catalog catalog, ExistingTags existingTags,
+                     long nextFileId) throws IOException {
+        catalog.write(imageFiles, existingTags, nextFileId);
+    }
+
+    @Override
+    public void add(ImageFile imageFile) {
+        imageFiles.add(imageFile);
+        fileIndex.putIfAbsent(imageFile.getFile(), imageFile);
+        indexedFiles.put(imageFile, imageFile.getFile());
+        indexOriginalName(imageFile, imageFile.getFile().getParentFile());
+        tagIndex.add(imageFile);
+    }
+
+    @Override
+    public void remove(Set<ImageFile> removed) {
+        imageFiles.removeIf(removed::contains);
+        for (ImageFile imageFile : removed) {
+            File oldFile = indexedFiles.remove(imageFile);
+            fileIndex.remove(oldFile);
+            unindexOriginalName(imageFile, oldFile.getParentFile());
+            tagIndex.remove(imageFile);
+        }
+    }
+
+    @Override
+    public void update(ImageFile imageFile) {
+        File oldFile = indexedFiles.get(imageFile);
+        if (oldFile != null && !oldFile.equals(imageFile.getFile())) {
+            fileIndex.remove(oldFile);
+            fileIndex.put(imageFile.getFile(), imageFile);
+            indexedFiles.put(imageFile, imageFile.getFile());
+            File oldDirectory = oldFile.getParentFile();
+            File newDirectory = imageFile.getFile().getParentFile();
+            if (!Objects.equals(oldDirectory, newDirectory)) {
+                unindexOriginalName(imageFile, oldDirectory);
+                indexOriginalName(imageFile, newDirectory);
+            }
+        }
+        tagIndex.update(imageFile);
+    }
+
+    @Override
+    public ImageFile getImageFile(File file) {
+        return fileIndex.get(file);
+    }
+
+    @Override
+    public boolean contains(File file) {
+        return fileIndex.containsKey(file);
+    }
+
+    @Override
+    public boolean hasOriginalName(File directory, String originalName) {
+        HashMap<String, Integer> names =
+                originalNames.get(directory.getAbsoluteFile());
+        return names != null && names.containsKey(originalName);
+    }
+
+    @Override
+    public List<ImageFile> getImageFiles() {
+        return new ArrayList<>(imageFiles);
+    }
+
+    @Override
+    public List<ImageFile> search(TagQuery query) {
+        return tagIndex.find(query);
+    }
+
+    @Override
+    public List<ImageFile> findWithAnyTag(Collection<Tag> tags) {
+        return tagIndex.findAny(tags);
+    }
+
+    @Override
+    public List<ImageFile> findGone(Set<Path> goneDirectories) {
+        List<ImageFile> gone = new ArrayList<>();
+        for (ImageFile f : imageFiles) {
+            if (ImageCollection.isGone(f.getFile(), goneDirectories)) {
+                gone.add(f);
+            }
+        }
+        return gone;
+    }
+
+    @Override
+    public NavigableSet<String> getTagNames() {
+        return tagIndex.getTagNames("");
+    }
+
+    @Override
+    public void forEachLive(Consumer<ImageFile> action) {
+        imageFiles.forEach(action);
+    }
+
+    @Override
+    public int getLiveCount() {
+        return imageFiles.size();
+    }
+
+    /**
+     * Records that imageFile is in directory, in the index of original
+     * names.
+     *
+     * @param imageFile the ImageFile
+     * @param directory the directory it is in
+     */
+    private void indexOriginalName(ImageFile imageFile, File directory) {
+        originalNames.computeIfAbsent(directory.getAbsoluteFile(),
+                d -> new HashMap<>())
+                .merge(imageFile.getOriginalName(), 1, Integer::sum);
+    }
+
+    /**
+     * Records that imageFile is no longer in directory, in the index of
+     * original names.
+     *
+     * @param imageFile the ImageFile
+     * @param directory the directory it was in
+     */
+    private void unindexOriginalName(ImageFile imageFile, File directory) {
+        File key = directory.getAbsoluteFile();
+        HashMap<String, Integer> names = originalNames.get(key);
+        if (names == null) {
+            return;
+        }
+        names.computeIfPresent(imageFile.getOriginalName(),
+                (name, count) -> count == 1 ? null : count - 1);
+        if (names.isEmpty()) {
+            originalNames.remove(key);
+        }
+    }
+}
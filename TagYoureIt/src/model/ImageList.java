@@ -0,0 +1,156 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.RandomAccess;
+import java.util.function.IntPredicate;
+
+/**
+ * An ImageList is a read-only list of ImageFiles of an ImageStore, held as
+ * their numbers. Each ImageFile is got from the store only when the list is
+ * asked for it, so a list of a million ImageFiles takes four bytes for
+ * each, and a view showing part of it builds only the ImageFiles it shows.
+ * A view can also keep its list up to date by splicing numbers in and out,
+ * without getting any ImageFile.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class ImageList extends AbstractList<ImageFile>
+        implements RandomAccess {
+    /**
+     * The store the ImageFiles are got from.
+     */
+    private final ImageStore store;
+
+    /**
+     * The numbers of the ImageFiles in the list, in increasing order.
+     */
+    private final int[] numbers;
+
+    /**
+     * Creates a list of the ImageFiles of store with the numbers provided.
+     *
+     * @param store   the store the ImageFiles are got from
+     * @param numbers the numbers of the ImageFiles, in increasing order
+     */
+    ImageList(ImageStore store, int[] numbers) {
+        this.store = store;
+        this.numbers = numbers;
+    }
+
+    @Override
+    public ImageFile get(int index) {
+        return store.get(numbers[index]);
+    }
+
+    @Override
+    public int size() {
+        return numbers.length;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof ImageFile) || !store.contains((ImageFile) o)) {
+            return -1;
+        }
+        int index = Arrays.binarySearch(numbers,
+                ((ImageFile) o).getStoreIndex());
+        return index < 0 ? -1 : index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    /**
+     * Returns the ImageFiles of this list whose numbers keep accepts,
+     * without getting any ImageFile.
+     *
+     * @param keep tests the number of each ImageFile
+     * @return a list of the ImageFiles kept, in the same order
+     */
+    ImageList filter(IntPredicate keep) {
+        return new ImageList(store,
+                Arrays.stream(numbers).filter(keep).toArray());
+    }
+
+    /**
+     * Returns a list of the ImageFiles of this list and imageFile, in order
+     * of number, without getting any ImageFile.
+     *
+     * @param imageFile an ImageFile of the same store, in use
+     * @return the list with imageFile, or this list if imageFile is in it
+     * already or is not in the store
+     */
+    public ImageList with(ImageFile imageFile) {
+        if (!store.contains(imageFile)) {
+            return this;
+        }
+        int index = Arrays.binarySearch(numbers, imageFile.getStoreIndex());
+        if (index >= 0) {
+            return this;
+        }
+        index = -index - 1;
+        int[] spliced = new int[numbers.length + 1];
+        System.arraycopy(numbers, 0, spliced, 0, index);
+        spliced[index] = imageFile.getStoreIndex();
+        System.arraycopy(numbers, index, spliced, index + 1,
+                numbers.length - index);
+        return new ImageList(store, spliced);
+    }
+
+    /**
+     * Returns a list of the ImageFiles of this list that are not in
+     * imageFiles, in the same order, without getting any ImageFile.
+     * ImageFiles removed from the store are dropped all the same, by the
+     * number they kept.
+     *
+     * @param imageFiles the ImageFiles to leave out
+     * @return the list without imageFiles, or this list if none of them
+     * is in it
+     */
+    public ImageList without(Collection<ImageFile> imageFiles) {
+        int[] dropped = new int[imageFiles.size()];
+        int count = 0;
+        for (ImageFile imageFile : imageFiles) {
+            if (imageFile.getStoreIndex() >= 0) {
+                dropped[count++] = imageFile.getStoreIndex();
+            }
+        }
+        Arrays.sort(dropped, 0, count);
+        int[] kept = new int[numbers.length];
+        int size = 0;
+        int d = 0;
+        for (int n : numbers) {
+            while (d < count && dropped[d] < n) {
+                d++;
+            }
+            if (d == count || dropped[d] != n) {
+                kept[size++] = n;
+            }
+        }
+        if (size == numbers.length) {
+            return this;
+        }
+        return new ImageList(store, Arrays.copyOf(kept, size));
+    }
+
+    /**
+     * Returns the ImageFiles of this list that are under the root of the
+     * Model, without getting any ImageFile.
+     *
+     * @return a list of the ImageFiles under the root, in the same order
+     */
+    ImageList underRoot() {
+        return filter(store::isUnderRoot);
+    }
+}
@@ -0,0 +1,311 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * An ImageScanner walks the directory tree below a root and collects the
+ * paths of every image file found. The tree can be walked either on a single
+ * thread with Files.walkFileTree, or in parallel by splitting subdirectories
+ * across a fork-join pool. Both modes return the same paths, sorted in
+ * natural path order.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class ImageScanner {
+    /**
+     * The ways an ImageScanner can walk a directory tree.
+     */
+    public enum Mode {
+        /**
+         * Subdirectories are scanned concurrently on a fork-join pool.
+         */
+        PARALLEL,
+        /**
+         * The tree is walked on the calling thread with Files.walkFileTree.
+         */
+        SEQUENTIAL
+    }
+
+    /**
+     * List of accepted image file extensions
+     */
+    private static final List<String> EXTENSIONS =
+            Collections.unmodifiableList(
+                    Arrays.asList("jpg", "png", "bmp", "jpeg", "gif"));
+
+    /**
+     * The mode this scanner walks directory trees in.
+     */
+    private final Mode mode;
+
+    /**
+     * The number of threads used by a parallel scan.
+     */
+    private final int parallelism;
+
+    /**
+     * The number of regular files visited during the last scan.
+     */
+    private final LongAdder filesVisited = new LongAdder();
+
+    /**
+     * The number of image files found during the last scan.
+     */
+    private long imagesFound;
+
+    /**
+     * The duration of the last scan, in nanoseconds.
+     */
+    private long elapsedNanos;
+
+    /**
+     * Constructs a scanner that walks directory trees in the mode provided,
+     * using two threads per available processor for parallel scans.
+     *
+     * @param mode the mode to walk directory trees in
+     */
+    public ImageScanner(Mode mode) {
+        this(mode, 2 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructs a scanner that walks directory trees in the mode provided.
+     *
+     * @param mode        the mode to walk directory trees in
+     * @param parallelism the number of threads used by a parallel scan
+     */
+    public ImageScanner(Mode mode, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException(
+                    "parallelism must be positive: " + parallelism);
+        }
+        this.mode = mode;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns whether the path provided names the directory a Model keeps
+     * its catalog and history in, which holds no images of the root.
+     *
+     * @param path the path to check
+     * @return true if path is named like a Model's data directory
+     */
+    static boolean isDataDirectory(Path path) {
+        Path name = path.getFileName();
+        return name != null && name.toString().equals(Model.DATA_DIRECTORY);
+    }
+
+    /**
+     * Returns whether the path provided names an image file, judging by its
+     * extension.
+     *
+     * @param path the path to check
+     * @return true if path has one of the accepted image extensions
+     */
+    static boolean isImage(Path path) {
+        String name = path.toString();
+        String fileExtension = name.substring(
+                name.lastIndexOf('.') + 1).toLowerCase();
+        return EXTENSIONS.contains(fileExtension);
+    }
+
+    /**
+     * Walks the directory tree rooted at root and returns the paths of every
+     * image file in it. Symbolic links are not followed.
+     *
+     * @param root the root of the directory tree to scan
+     * @return the paths of all image files below root, in sorted order
+     * @throws IOException if a directory in the tree could not be read
+     */
+    public List<Path> scan(Path root) throws IOException {
+        filesVisited.reset();
+        long start = System.nanoTime();
+        List<Path> images;
+        if (mode == Mode.PARALLEL) {
+            images = scanParallel(root);
+        } else {
+            images = scanSequential(root);
+        }
+        // Directory listings come back in no particular order.
+        Collections.sort(images);
+        elapsedNanos = System.nanoTime() - start;
+        imagesFound = images.size();
+        return images;
+    }
+
+    /**
+     * Walks the tree rooted at root on the calling thread.
+     *
+     * @param root the root of the directory tree to scan
+     * @return the paths of all image files below root
+     * @throws IOException if a directory in the tree could not be read
+     */
+    private List<Path> scanSequential(Path root) throws IOException {
+        List<Path> images = new ArrayList<>();
+        FileVisitor<Path> fv = new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(
+                    Path dir, BasicFileAttributes attrs) {
+                return isDataDirectory(dir) ? FileVisitResult.SKIP_SUBTREE :
+                        FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file,
+                                             BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    filesVisited.increment();
+                    if (isImage(file)) {
+                        images.add(file);
+                    }
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        };
+        Files.walkFileTree(root, fv);
+        return images;
+    }
+
+    /**
+     * Walks the tree rooted at root on a fork-join pool, one task per
+     * directory.
+     *
+     * @param root the root of the directory tree to scan
+     * @return the paths of all image files below root
+     * @throws IOException if a directory in the tree could not be read
+     */
+    private List<Path> scanParallel(Path root) throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            return pool.invoke(new DirectoryTask(root));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the number of regular files visited during the last scan.
+     *
+     * @return the number of regular files visited during the last scan
+     */
+    public long getFilesVisited() {
+        return filesVisited.sum();
+    }
+
+    /**
+     * Returns the number of image files found during the last scan.
+     *
+     * @return the number of image files found during the last scan
+     */
+    public long getImagesFound() {
+        return imagesFound;
+    }
+
+    /**
+     * Returns the duration of the last scan in milliseconds.
+     *
+     * @return the duration of the last scan in milliseconds
+     */
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000;
+    }
+
+    /**
+     * Returns the number of files visited per second during the last scan.
+     *
+     * @return the scan rate of the last scan, in files per second
+     */
+    public double getFilesPerSecond() {
+        if (elapsedNanos == 0) {
+            return 0;
+        }
+        return getFilesVisited() * 1e9 / elapsedNanos;
+    }
+
+    /**
+     * Returns a one line summary of the last scan.
+     *
+     * @return a summary of the last scan
+     */
+    @Override
+    public String toString() {
+        return String.format("%s scan: %d files, %d images in %d ms " +
+                        "(%.0f files/s)", mode, getFilesVisited(),
+                getImagesFound(), getElapsedMillis(), getFilesPerSecond());
+    }
+
+    /**
+     * A DirectoryTask collects the images in one directory, and forks a new
+     * task for each of its subdirectories.
+     */
+    private class DirectoryTask extends RecursiveTask<List<Path>> {
+        /**
+         * The version of the serialized form of this class. Tasks are never
+         * serialized, but RecursiveTask is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The directory scanned by this task.
+         */
+        private final Path dir;
+
+        /**
+         * Constructs a task that scans dir.
+         *
+         * @param dir the directory to scan
+         */
+        DirectoryTask(Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected List<Path> compute() {
+            List<Path> files = new ArrayList<>();
+            List<Path> dirs = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path child : stream) {
+                    BasicFileAttributes attrs = Files.readAttributes(child,
+                            BasicFileAttributes.class,
+                            LinkOption.NOFOLLOW_LINKS);
+                    if (attrs.isDirectory()) {
+                        if (!isDataDirectory(child)) {
+                            dirs.add(child);
+                        }
+                    } else if (attrs.isRegularFile()) {
+                        filesVisited.increment();
+                        if (isImage(child)) {
+                            files.add(child);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            List<DirectoryTask> tasks = new ArrayList<>();
+            for (Path sub : dirs) {
+                DirectoryTask task = new DirectoryTask(sub);
+                task.fork();
+                tasks.add(task);
+            }
+            for (DirectoryTask task : tasks) {
+                files.addAll(task.join());
+            }
+            return files;
+        }
+    }
+}
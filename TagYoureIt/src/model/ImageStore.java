@@ -0,0 +1,713 @@
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.nio.file.Path;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+
+/**
+ * An ImageStore holds the ImageFiles of a lazily loaded Model. Their state
+ * stays in the mapped catalog, and only the number of each ImageFile and
+ * the hashes of its file and original name are kept in memory, so lookups
+ * need not build it. An ImageFile is built the first time it is asked for,
+ * and kept only while something else refers to it; asking again while it
+ * is in use returns the same ImageFile. ImageFiles that have changed since
+ * the catalog was mapped, and those that are not in it at all, are held
+ * until the catalog is saved and mapped again.
+ * <p>
+ * Each ImageFile is known by its number in the store, which it keeps until
+ * it is removed, and which is never given to another. The numbers are the
+ * ids of the ImageFiles in the tag index of the store, and the lists it
+ * returns are ImageLists of numbers. Like the Model, a store is used by one
+ * thread.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class ImageStore implements ImageCollection {
+    /**
+     * The number of ImageFiles built from the catalog.
+     */
+    private static final Counter BUILT = Metrics.counter("store.built");
+
+    /**
+     * The absolute path of the root of the Model, ending with a separator.
+     */
+    private final String rootPrefix;
+
+    /**
+     * Called on each ImageFile built from the catalog, before it is
+     * returned.
+     */
+    private final Consumer<ImageFile> attach;
+
+    /**
+     * The mapped catalog, null if there is none yet.
+     */
+    private Catalog.Mapping mapping;
+
+    /**
+     * The record of each ImageFile in the mapped catalog, by number, or -1
+     * if it is not in it.
+     */
+    private int[] records = new int[64];
+
+    /**
+     * The hash each ImageFile is indexed under in byFile, by number.
+     */
+    private int[] fileHashes = new int[64];
+
+    /**
+     * The hash each ImageFile is indexed under in byName, by number.
+     */
+    private int[] nameHashes = new int[64];
+
+    /**
+     * The number of numbers given out.
+     */
+    private int size;
+
+    /**
+     * The numbers of the ImageFiles removed.
+     */
+    private final CompressedBitmap removed = new CompressedBitmap();
+
+    /**
+     * The numbers of the ImageFiles that are not under the root.
+     */
+    private final CompressedBitmap outside = new CompressedBitmap();
+
+    /**
+     * The numbers of the ImageFiles, by the hash of their file.
+     */
+    private final IntMultiMap byFile = new IntMultiMap();
+
+    /**
+     * The numbers of the ImageFiles, by the hash of their directory and
+     * original name.
+     */
+    private final IntMultiMap byName = new IntMultiMap();
+
+    /**
+     * Index of the ImageFiles by the tags they have, by number.
+     */
+    private final TagIndex tagIndex = new TagIndex();
+
+    /**
+     * The ImageFiles built, by number, while they are in use.
+     */
+    private final HashMap<Integer, Handle> handles = new HashMap<>();
+
+    /**
+     * The queue handles are put on once their ImageFile is no longer used.
+     */
+    private final ReferenceQueue<ImageFile> dropped = new ReferenceQueue<>();
+
+    /**
+     * The ImageFiles whose state is not the one in the mapped catalog, by
+     * number.
+     */
+    private final HashMap<Integer, ImageFile> pinned = new HashMap<>();
+
+    /**
+     * Creates an empty store for a Model rooted at root.
+     *
+     * @param root   the root of the Model
+     * @param attach called on each ImageFile built from the catalog, before
+     *               it is returned
+     */
+    ImageStore(File root, Consumer<ImageFile> attach) {
+        String rootPath = root.getAbsolutePath();
+        this.rootPrefix = rootPath.endsWith(File.separator) ? rootPath :
+                rootPath + File.separator;
+        this.attach = attach;
+    }
+
+    /**
+     * Maps catalog, and adds every ImageFile in it to this empty store,
+     * numbered in the order of their records, without building any of
+     * them.
+     *
+     * @param catalog the catalog to load
+     * @return the contents of catalog, with no ImageFiles
+     * @throws IOException if the catalog could not be read, or is corrupted
+     */
+    @Override
+    public Catalog.Contents load(Catalog catalog) throws IOException {
+        Catalog.Mapping mapping = catalog.map();
+        this.mapping = mapping;
+        for (int r = 0; r < mapping.size(); r++) {
+            int n = next();
+            records[n] = r;
+            index(n, mapping.file(r), mapping.originalName(r));
+            tagIndex.set(n, mapping.tagIds(r));
+        }
+        return new Catalog.Contents(new ArrayList<>(),
+                mapping.getExistingTags(), mapping.getNextFileId());
+    }
+
+    /**
+     * Saves every ImageFile of this store to catalog, then switches to the
+     * catalog just saved, mapped, and stops holding the ImageFiles that had
+     * changed, since their state is now the one in the catalog.
+     *
+     * @param catalog      the catalog to save to
+     * @param existingTags the existing tags to save
+     * @param nextFileId   the id the next new ImageFile will be given
+     * @throws IOException if the catalog could not be written or mapped
+     */
+    @Override
+    public void save(Catalog catalog, ExistingTags existingTags,
+                     long nextFileId) throws IOException {
+        catalog.write(snapshot(), existingTags, nextFileId);
+        Catalog.Mapping saved = catalog.map();
+        int r = 0;
+        for (int n = 0; n < size; n++) {
+            records[n] = removed.contains(n) ? -1 : r++;
+        }
+        this.mapping = saved;
+        pinned.clear();
+    }
+
+    /**
+     * Adds imageFile, which is not in the catalog, to this store. It is held
+     * until the catalog is saved.
+     *
+     * @param imageFile the ImageFile to add
+     */
+    @Override
+    public void add(ImageFile imageFile) {
+        int n = next();
+        imageFile.setStoreIndex(n);
+        handles.put(n, new Handle(imageFile, n, dropped));
+        pinned.put(n, imageFile);
+        index(n, imageFile.getFile(), imageFile.getOriginalName());
+        tagIndex.set(n, imageFile.getTagIds());
+    }
+
+    /**
+     * Removes the ImageFiles provided from this store. They keep their
+     * numbers, so lists of numbers can still drop them, but the numbers
+     * are not used again.
+     *
+     * @param imageFiles ImageFiles of this store
+     */
+    @Override
+    public void remove(Set<ImageFile> imageFiles) {
+        for (ImageFile imageFile : imageFiles) {
+            int n = imageFile.getStoreIndex();
+            tagIndex.clear(n);
+            byFile.remove(fileHashes[n], n);
+            byName.remove(nameHashes[n], n);
+            removed.add(n);
+            outside.remove(n);
+            handles.remove(n);
+            pinned.remove(n);
+        }
+    }
+
+    /**
+     * Brings this store up to date with a change to imageFile, which is then
+     * held until the catalog is saved. An ImageFile no longer in use with
+     * its number, or removed, is left alone.
+     *
+     * @param imageFile an ImageFile of this store that has changed
+     */
+    @Override
+    public void update(ImageFile imageFile) {
+        if (!contains(imageFile)) {
+            return;
+        }
+        int n = imageFile.getStoreIndex();
+        pinned.put(n, imageFile);
+        byFile.remove(fileHashes[n], n);
+        byName.remove(nameHashes[n], n);
+        index(n, imageFile.getFile(), imageFile.getOriginalName());
+        tagIndex.set(n, imageFile.getTagIds());
+    }
+
+    @Override
+    public ImageFile getImageFile(File file) {
+        int n = find(file);
+        return n < 0 ? null : get(n);
+    }
+
+    @Override
+    public boolean contains(File file) {
+        return find(file) >= 0;
+    }
+
+    /**
+     * Returns every ImageFile of this store, as a list that builds each
+     * ImageFile only when it is got.
+     *
+     * @return the ImageFiles of this store
+     */
+    @Override
+    public List<ImageFile> getImageFiles() {
+        return new ImageList(this, tagIndex.getAll().toArray());
+    }
+
+    @Override
+    public List<ImageFile> search(TagQuery query) {
+        return new ImageList(this, query.evaluate(tagIndex).toArray());
+    }
+
+    @Override
+    public List<ImageFile> findWithAnyTag(Collection<Tag> tags) {
+        return new ImageList(this, tagIndex.getAnyPosting(tags).toArray());
+    }
+
+    /**
+     * Returns the ImageFiles whose files no longer exist, and were under
+     * one of the directories provided. Only the ImageFiles found gone are
+     * built.
+     *
+     * @param goneDirectories directories that were deleted
+     * @return the ImageFiles removed with goneDirectories
+     */
+    @Override
+    public List<ImageFile> findGone(Set<Path> goneDirectories) {
+        List<ImageFile> gone = new ArrayList<>();
+        for (int n : tagIndex.getAll().toArray()) {
+            if (ImageCollection.isGone(file(n), goneDirectories)) {
+                gone.add(get(n));
+            }
+        }
+        return gone;
+    }
+
+    @Override
+    public NavigableSet<String> getTagNames() {
+        return tagIndex.getTagNames("");
+    }
+
+    /**
+     * Returns the ImageFile with number n, building it from the catalog if
+     * it is not in use.
+     *
+     * @param n the number of an ImageFile of this store
+     * @return the ImageFile with number n
+     */
+    ImageFile get(int n) {
+        ImageFile imageFile = live(n);
+        if (imageFile == null) {
+            imageFile = mapping.imageFile(records[n]);
+            imageFile.setStoreIndex(n);
+            attach.accept(imageFile);
+            handles.put(n, new Handle(imageFile, n, dropped));
+            BUILT.increment();
+        }
+        return imageFile;
+    }
+
+    /**
+     * Returns whether imageFile is the ImageFile in use with its number in
+     * this store.
+     *
+     * @param imageFile the ImageFile to look for
+     * @return true if imageFile is in this store
+     */
+    boolean contains(ImageFile imageFile) {
+        int n = imageFile.getStoreIndex();
+        return n >= 0 && n < size && live(n) == imageFile;
+    }
+
+    /**
+     * Returns the number of the ImageFile at file, without building it.
+     *
+     * @param file the file of the ImageFile
+     * @return the number of the ImageFile at file, or -1 if there is none
+     */
+    int find(File file) {
+        return byFile.find(file.hashCode(), n -> file.equals(file(n)));
+    }
+
+    /**
+     * Returns whether an ImageFile in directory has the original name
+     * provided, without building any ImageFile.
+     *
+     * @param directory    the directory to look in
+     * @param originalName the original name, without any tags
+     * @return true if an ImageFile in directory has originalName
+     */
+    @Override
+    public boolean hasOriginalName(File directory, String originalName) {
+        File absolute = directory.getAbsoluteFile();
+        return byName.find(nameHash(absolute, originalName),
+                n -> originalName.equals(originalName(n)) &&
+                        absolute.equals(directory(file(n)))) >= 0;
+    }
+
+    /**
+     * Returns whether the ImageFile with number n is under the root.
+     *
+     * @param n the number of an ImageFile of this store
+     * @return true if its file is under the root
+     */
+    boolean isUnderRoot(int n) {
+        return !outside.contains(n);
+    }
+
+    /**
+     * Returns the file of the ImageFile with number n, without building it.
+     *
+     * @param n the number of an ImageFile of this store
+     * @return the file of the ImageFile
+     */
+    File file(int n) {
+        ImageFile imageFile = live(n);
+        return imageFile != null ? imageFile.getFile() :
+                mapping.file(records[n]);
+    }
+
+    /**
+     * Returns the number of ImageFiles built and still in use.
+     *
+     * @return the number of ImageFiles in memory
+     */
+    @Override
+    public int getLiveCount() {
+        expunge();
+        int count = 0;
+        for (Handle handle : handles.values()) {
+            if (handle.get() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Calls action on every ImageFile built and still in use.
+     *
+     * @param action the action to call
+     */
+    @Override
+    public void forEachLive(Consumer<ImageFile> action) {
+        expunge();
+        for (Handle handle : handles.values()) {
+            ImageFile imageFile = handle.get();
+            if (imageFile != null) {
+                action.accept(imageFile);
+            }
+        }
+    }
+
+    /**
+     * Returns every ImageFile of this store, in order of number, to be
+     * saved. ImageFiles not in use are built as they are iterated over, and
+     * are not kept.
+     *
+     * @return the ImageFiles of this store
+     */
+    private Collection<ImageFile> snapshot() {
+        return new AbstractCollection<ImageFile>() {
+            @Override
+            public Iterator<ImageFile> iterator() {
+                return new Iterator<ImageFile>() {
+                    private int n = skipRemoved(0);
+
+                    @Override
+                    public boolean hasNext() {
+                        return n < size;
+                    }
+
+                    @Override
+                    public ImageFile next() {
+                        if (n >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        ImageFile imageFile = live(n);
+                        if (imageFile == null) {
+                            imageFile = mapping.imageFile(records[n]);
+                        }
+                        n = skipRemoved(n + 1);
+                        return imageFile;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size - removed.cardinality();
+            }
+        };
+    }
+
+    /**
+     * Returns the first number from n on that has not been removed.
+     *
+     * @param n the number to start from
+     * @return the first number not removed, or size if there is none
+     */
+    private int skipRemoved(int n) {
+        while (n < size && removed.contains(n)) {
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Returns the ImageFile with number n if it is in use.
+     *
+     * @param n the number of an ImageFile of this store
+     * @return the ImageFile, or null if it would have to be built
+     */
+    private ImageFile live(int n) {
+        expunge();
+        ImageFile imageFile = pinned.get(n);
+        if (imageFile == null) {
+            Handle handle = handles.get(n);
+            imageFile = handle == null ? null : handle.get();
+        }
+        return imageFile;
+    }
+
+    /**
+     * Returns the original name of the ImageFile with number n, without
+     * building it.
+     *
+     * @param n the number of an ImageFile of this store
+     * @return the original name of the ImageFile
+     */
+    private String originalName(int n) {
+        ImageFile imageFile = live(n);
+        return imageFile != null ? imageFile.getOriginalName() :
+                mapping.originalName(records[n]);
+    }
+
+    /**
+     * Gives out the next number, making room for it.
+     *
+     * @return the new number
+     */
+    private int next() {
+        if (size == records.length) {
+            records = Arrays.copyOf(records, size * 2);
+            fileHashes = Arrays.copyOf(fileHashes, size * 2);
+            nameHashes = Arrays.copyOf(nameHashes, size * 2);
+        }
+        records[size] = -1;
+        return size++;
+    }
+
+    /**
+     * Indexes the ImageFile with number n by its file and original name.
+     *
+     * @param n            the number of the ImageFile
+     * @param file         its file
+     * @param originalName its original name
+     */
+    private void index(int n, File file, String originalName) {
+        fileHashes[n] = file.hashCode();
+        byFile.put(fileHashes[n], n);
+        nameHashes[n] = nameHash(directory(file), originalName);
+        byName.put(nameHashes[n], n);
+        if (file.getAbsolutePath().startsWith(rootPrefix)) {
+            outside.remove(n);
+        } else {
+            outside.add(n);
+        }
+    }
+
+    /**
+     * Returns the absolute directory file is in.
+     *
+     * @param file a file
+     * @return the absolute directory of file
+     */
+    private static File directory(File file) {
+        return file.getAbsoluteFile().getParentFile();
+    }
+
+    /**
+     * Returns the hash an ImageFile is indexed under in byName.
+     *
+     * @param directory    the absolute directory it is in, or null
+     * @param originalName its original name
+     * @return the hash of directory and originalName
+     */
+    private static int nameHash(File directory, String originalName) {
+        return 31 * (directory == null ? 0 : directory.hashCode()) +
+                originalName.hashCode();
+    }
+
+    /**
+     * Drops the handles of the ImageFiles no longer in use.
+     */
+    private void expunge() {
+        Reference<? extends ImageFile> reference;
+        while ((reference = dropped.poll()) != null) {
+            Handle handle = (Handle) reference;
+            handles.remove(handle.n, handle);
+        }
+    }
+
+    /**
+     * A Handle refers to an ImageFile built by the store without keeping it
+     * in memory.
+     */
+    private static class Handle extends WeakReference<ImageFile> {
+        /**
+         * The number of the ImageFile.
+         */
+        private final int n;
+
+        /**
+         * Creates a handle to imageFile.
+         *
+         * @param imageFile the ImageFile
+         * @param n         its number
+         * @param queue     the queue the handle is put on once imageFile is
+         *                  no longer used
+         */
+        private Handle(ImageFile imageFile, int n,
+                       ReferenceQueue<ImageFile> queue) {
+            super(imageFile, queue);
+            this.n = n;
+        }
+    }
+
+    /**
+     * An IntMultiMap maps int hashes to int values, several values per hash,
+     * in two arrays probed linearly, so it takes no object for each entry.
+     * Values must not be negative. The caller checks that a value found for
+     * a hash is one it is looking for.
+     */
+    private static class IntMultiMap {
+        /**
+         * The hash of each slot.
+         */
+        private int[] keys = new int[16];
+
+        /**
+         * The value of each slot, -1 if the slot is empty.
+         */
+        private int[] values = emptySlots(16);
+
+        /**
+         * The number of values in this map.
+         */
+        private int count;
+
+        /**
+         * Adds value under key.
+         *
+         * @param key   the hash
+         * @param value the value, at least 0
+         */
+        void put(int key, int value) {
+            if (2 * (count + 1) > values.length) {
+                resize();
+            }
+            int i = home(key);
+            while (values[i] != -1) {
+                i = (i + 1) & (values.length - 1);
+            }
+            keys[i] = key;
+            values[i] = value;
+            count++;
+        }
+
+        /**
+         * Returns the first value under key that match accepts.
+         *
+         * @param key   the hash
+         * @param match tests whether a value is the one looked for
+         * @return the value found, or -1 if there is none
+         */
+        int find(int key, IntPredicate match) {
+            int mask = values.length - 1;
+            for (int i = home(key); values[i] != -1; i = (i + 1) & mask) {
+                if (keys[i] == key && match.test(values[i])) {
+                    return values[i];
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Removes value from under key, if it is there.
+         *
+         * @param key   the hash
+         * @param value the value
+         */
+        void remove(int key, int value) {
+            int mask = values.length - 1;
+            int hole = home(key);
+            while (values[hole] != -1 &&
+                    (keys[hole] != key || values[hole] != value)) {
+                hole = (hole + 1) & mask;
+            }
+            if (values[hole] == -1) {
+                return;
+            }
+            // Shift back the entries after the hole that may fill it
+            for (int i = (hole + 1) & mask; values[i] != -1;
+                 i = (i + 1) & mask) {
+                if (((i - home(keys[i])) & mask) >= ((i - hole) & mask)) {
+                    keys[hole] = keys[i];
+                    values[hole] = values[i];
+                    hole = i;
+                }
+            }
+            values[hole] = -1;
+            count--;
+        }
+
+        /**
+         * Returns the slot key is first looked for in.
+         *
+         * @param key the hash
+         * @return the index of its first slot
+         */
+        private int home(int key) {
+            int h = key * 0x9E3779B9;
+            return (h ^ (h >>> 16)) & (values.length - 1);
+        }
+
+        /**
+         * Doubles the number of slots.
+         */
+        private void resize() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = emptySlots(oldValues.length * 2);
+            count = 0;
+            for (int i = 0; i < oldValues.length; i++) {
+                if (oldValues[i] != -1) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        /**
+         * Returns an array of length empty slots.
+         *
+         * @param length the number of slots
+         * @return an array of length -1s
+         */
+        private static int[] emptySlots(int length) {
+            int[] slots = new int[length];
+            Arrays.fill(slots, -1);
+            return slots;
+        }
+    }
+}
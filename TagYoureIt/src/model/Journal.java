@@ -0,0 +1,547 @@
+package model;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A Journal is an append-only write-ahead log of the changes made to a
+ * catalog since it was last saved: files moved, tags edited, and tags added
+ * to or removed from the existing tags. Appending a record only copies it
+ * to memory; a background thread writes and fsyncs whatever has accumulated
+ * every few milliseconds, so many edits share one fsync (group commit).
+ * Each record is framed by its length and a CRC32, so a record torn by a
+ * crash is detected and dropped when the journal is replayed.
+ * <p>
+ * A rename is journaled ahead of time: its intent is appended and synced
+ * before the file is renamed, and a MOVE record, or an abort, follows once
+ * the outcome is known. An intent with no outcome is resolved against the
+ * disk when the journal is replayed.
+ * <p>
+ * If a write fails, the journal stops accepting records: every later
+ * append throws, and so do sync and close, so the failure is never silent.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class Journal {
+    /**
+     * The type of a record of a file moved from one path to another.
+     */
+    static final byte MOVE = 1;
+
+    /**
+     * The type of a record of the tags of a file being replaced.
+     */
+    static final byte TAGS = 2;
+
+    /**
+     * The type of a record of a tag added to the existing tags.
+     */
+    static final byte ADD_TAG = 3;
+
+    /**
+     * The type of a record of a tag removed from the existing tags.
+     */
+    static final byte REMOVE_TAG = 4;
+
+    /**
+     * The type of a record of a file about to be moved, its tags unchanged.
+     */
+    static final byte MOVE_INTENT = 5;
+
+    /**
+     * The type of a record of a file about to be renamed for new tags.
+     */
+    static final byte EDIT_INTENT = 6;
+
+    /**
+     * The type of a record of a rename that was not made after all.
+     */
+    static final byte ABORT = 7;
+
+    /**
+     * How long the flusher waits for more records before each fsync.
+     */
+    private static final long GROUP_COMMIT_MILLIS = 10;
+
+    /**
+     * A change recorded in a journal.
+     */
+    static class Record {
+        /**
+         * The type of this record.
+         */
+        final byte type;
+
+        /**
+         * The paths and tag names this record holds.
+         */
+        final String[] fields;
+
+        /**
+         * Constructs a record.
+         *
+         * @param type   the type of the record
+         * @param fields the paths and tag names the record holds
+         */
+        Record(byte type, String... fields) {
+            this.type = type;
+            this.fields = fields;
+        }
+    }
+
+    /**
+     * The channel of the journal file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Framed records appended but not yet handed to the flusher.
+     */
+    private final ByteArrayOutputStream pending =
+            new ByteArrayOutputStream();
+
+    /**
+     * The size of the journal, including records not yet on disk.
+     */
+    private long size;
+
+    /**
+     * Held while writing to or truncating the journal file, so a reset
+     * cannot interleave with a write in progress.
+     */
+    private final Object ioLock = new Object();
+
+    /**
+     * Whether this journal has been closed.
+     */
+    private boolean closed;
+
+    /**
+     * The error that stopped records being written, or null if there has
+     * been none.
+     */
+    private IOException failure;
+
+    /**
+     * The intents appended whose outcome has not been, by the path of the
+     * file to be renamed. They are kept across a reset.
+     */
+    private final Map<String, Record> intents = new LinkedHashMap<>();
+
+    /**
+     * The thread writing appended records to disk.
+     */
+    private final Thread flusher;
+
+    /**
+     * Opens the journal at path, creating it if needed.
+     *
+     * @param path the path of the journal file
+     * @throws IOException if the journal could not be opened
+     */
+    Journal(Path path) throws IOException {
+        this(FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+    }
+
+    /**
+     * Opens the journal written to channel.
+     *
+     * @param channel the channel of the journal file
+     * @throws IOException if the size of the journal could not be read
+     */
+    Journal(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+        flusher = new Thread(this::flushLoop, "TagYoureIt journal flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Records that a file was moved from one path to another. This is the
+     * outcome of any intent to move it.
+     *
+     * @param from the path the file was moved from
+     * @param to   the path the file was moved to
+     */
+    void logMove(File from, File to) {
+        synchronized (this) {
+            intents.remove(from.getPath());
+        }
+        append(new Record(MOVE, from.getPath(), to.getPath()));
+    }
+
+    /**
+     * Records that a file is about to be moved from one path to another,
+     * keeping its tags. Call sync before moving it.
+     *
+     * @param from the path the file is at
+     * @param to   the path it is to be moved to
+     */
+    void logIntent(File from, File to) {
+        appendIntent(new Record(MOVE_INTENT, from.getPath(), to.getPath()));
+    }
+
+    /**
+     * Records that a file is about to be renamed from one path to another
+     * for the tags provided. Call sync before renaming it.
+     *
+     * @param from the path the file is at
+     * @param to   the path it is to be renamed to
+     * @param tags the tags it has once renamed
+     */
+    void logIntent(File from, File to, List<Tag> tags) {
+        String[] fields = new String[tags.size() + 2];
+        fields[0] = from.getPath();
+        fields[1] = to.getPath();
+        for (int i = 0; i < tags.size(); i++) {
+            fields[i + 2] = tags.get(i).getTag();
+        }
+        appendIntent(new Record(EDIT_INTENT, fields));
+    }
+
+    /**
+     * Records that the rename of a file, whose intent was journaled, was
+     * not made, or was undone. Since an intent with no outcome is resolved
+     * against the disk, an abort need not be durable, and is dropped if the
+     * journal has failed.
+     *
+     * @param from the path the file is at
+     * @param to   the path it was to be renamed to
+     */
+    void logAbort(File from, File to) {
+        synchronized (this) {
+            intents.remove(from.getPath());
+            if (failure != null) {
+                return;
+            }
+        }
+        append(new Record(ABORT, from.getPath(), to.getPath()));
+    }
+
+    /**
+     * Appends intent, keeping it until its outcome is appended.
+     *
+     * @param intent the intent to append
+     */
+    private void appendIntent(Record intent) {
+        append(intent);
+        synchronized (this) {
+            intents.put(intent.fields[0], intent);
+        }
+    }
+
+    /**
+     * Records that the tags of the file at path were replaced by tags.
+     *
+     * @param file the path of the file
+     * @param tags the new tags of the file
+     */
+    void logTags(File file, List<Tag> tags) {
+        String[] fields = new String[tags.size() + 1];
+        fields[0] = file.getPath();
+        for (int i = 0; i < tags.size(); i++) {
+            fields[i + 1] = tags.get(i).getTag();
+        }
+        append(new Record(TAGS, fields));
+    }
+
+    /**
+     * Records that tag was added to the existing tags.
+     *
+     * @param tag the tag that was added
+     */
+    void logAddTag(Tag tag) {
+        append(new Record(ADD_TAG, tag.getTag()));
+    }
+
+    /**
+     * Records that tag was removed from the existing tags.
+     *
+     * @param tag the tag that was removed
+     */
+    void logRemoveTag(Tag tag) {
+        append(new Record(REMOVE_TAG, tag.getTag()));
+    }
+
+    /**
+     * Appends record to this journal. The record reaches the disk at the
+     * next group commit.
+     *
+     * @param record the record to append
+     * @throws UncheckedIOException if an earlier write to the journal
+     *                              failed
+     */
+    private void append(Record record) {
+        synchronized (this) {
+            checkFailure();
+            frame(record);
+            notifyAll();
+        }
+    }
+
+    /**
+     * Adds record, framed, to the records pending. Must be called while
+     * holding the lock of this journal.
+     *
+     * @param record the record to add
+     */
+    private void frame(Record record) {
+        byte[] payload;
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(record.type);
+            out.writeShort(record.fields.length);
+            for (String field : record.fields) {
+                out.writeUTF(field);
+            }
+            payload = bytes.toByteArray();
+        } catch (IOException e) {
+            // Writing to a byte array cannot fail.
+            throw new UncheckedIOException(e);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        DataOutputStream out = new DataOutputStream(pending);
+        try {
+            out.writeInt(payload.length);
+            out.write(payload);
+            out.writeInt((int) crc.getValue());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        size += payload.length + 8;
+    }
+
+    /**
+     * Throws the error that stopped records being written, if there was
+     * one. Must be called while holding the lock of this journal.
+     *
+     * @throws UncheckedIOException if a write to the journal failed
+     */
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("The journal could not be " +
+                    "written", failure);
+        }
+    }
+
+    /**
+     * Writes appended records to disk until this journal is closed.
+     */
+    private void flushLoop() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    if (closed && pending.size() == 0) {
+                        return;
+                    }
+                }
+                // Let more records arrive, so they share the fsync.
+                Thread.sleep(GROUP_COMMIT_MILLIS);
+                flush();
+            }
+        } catch (InterruptedException e) {
+            // The journal was closed.
+        } catch (IOException e) {
+            // Recorded by flush, and thrown to the next caller.
+        }
+    }
+
+    /**
+     * Writes and fsyncs the records appended so far. If they cannot be
+     * written, the journal stops accepting records.
+     *
+     * @throws IOException if the records could not be written, now or
+     *                     before
+     */
+    private void flush() throws IOException {
+        synchronized (ioLock) {
+            byte[] batch;
+            synchronized (this) {
+                if (failure != null) {
+                    throw new IOException("The journal could not be " +
+                            "written", failure);
+                }
+                batch = pending.toByteArray();
+                pending.reset();
+            }
+            try {
+                if (batch.length > 0) {
+                    ByteBuffer buffer = ByteBuffer.wrap(batch);
+                    long position = channel.size();
+                    while (buffer.hasRemaining()) {
+                        position += channel.write(buffer, position);
+                    }
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Blocks until every record appended so far is on disk.
+     *
+     * @throws IOException if the records could not be written
+     */
+    void sync() throws IOException {
+        flush();
+    }
+
+    /**
+     * Returns the size of this journal in bytes, including records not yet
+     * on disk.
+     *
+     * @return the size of this journal
+     */
+    synchronized long size() {
+        return size;
+    }
+
+    /**
+     * Empties this journal, once the changes it records have been saved in
+     * the catalog. Records not yet on disk are discarded, but the intents
+     * whose outcome is not known yet are written again straight away.
+     *
+     * @throws IOException if the journal file could not be truncated, or
+     *                     has failed
+     */
+    void reset() throws IOException {
+        synchronized (ioLock) {
+            synchronized (this) {
+                if (failure != null) {
+                    throw new IOException("The journal could not be " +
+                            "written", failure);
+                }
+                pending.reset();
+                size = 0;
+            }
+            try {
+                channel.truncate(0);
+                channel.force(true);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+            synchronized (this) {
+                for (Record intent : intents.values()) {
+                    frame(intent);
+                }
+            }
+            flush();
+        }
+    }
+
+    /**
+     * Reads every intact record in this journal, in the order they were
+     * appended. A torn or corrupted record ends the journal; it and anything
+     * after it are cut off.
+     *
+     * @return the records in this journal
+     * @throws IOException if the journal could not be read
+     */
+    List<Record> readRecords() throws IOException {
+        List<Record> records = new ArrayList<>();
+        synchronized (ioLock) {
+            long length = channel.size();
+            ByteBuffer buffer = ByteBuffer.allocate((int) length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, buffer.position()) < 0) {
+                    break;
+                }
+            }
+            buffer.flip();
+            long valid = 0;
+            while (buffer.remaining() >= 8) {
+                int payloadLength = buffer.getInt();
+                if (payloadLength < 0 ||
+                        payloadLength + 4 > buffer.remaining()) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                buffer.get(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != buffer.getInt()) {
+                    break;
+                }
+                try {
+                    records.add(decode(payload));
+                } catch (IOException e) {
+                    break;
+                }
+                valid = buffer.position();
+            }
+            if (valid < length) {
+                channel.truncate(valid);
+            }
+            synchronized (this) {
+                size = valid;
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Decodes the payload of a record.
+     *
+     * @param payload the payload of a record
+     * @return the record
+     * @throws IOException if the payload is malformed
+     */
+    private static Record decode(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(payload));
+        byte type = in.readByte();
+        String[] fields = new String[in.readUnsignedShort()];
+        for (int i = 0; i < fields.length; i++) {
+            fields[i] = in.readUTF();
+        }
+        return new Record(type, fields);
+    }
+
+    /**
+     * Writes any pending records, and closes this journal.
+     *
+     * @throws IOException if the pending records could not be written, or
+     *                     the journal had failed before
+     */
+    void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            synchronized (this) {
+                closed = true;
+                notifyAll();
+            }
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            channel.close();
+        }
+    }
+}
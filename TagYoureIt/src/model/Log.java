@@ -1,106 +1,475 @@
 package model;
 
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.text.DateFormat;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Scanner;
-import java.util.logging.FileHandler;
-import java.util.logging.Formatter;
-import java.util.logging.LogRecord;
-import java.util.logging.Logger;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A Log records all file renaming done by the application.
  *
+ * Writing to the log does not touch the disk. Each message is placed in a
+ * ring buffer that any number of threads may write to without locking, and
+ * a single background thread drains the buffer, formats every message
+ * waiting there and appends them to the file in one write, so a bulk
+ * operation pays for one write per batch rather than one per file. How soon
+ * a message is safely on disk depends on the Durability of the log.
+ *
+ * As with a Journal, if a batch cannot be written the log stops writing:
+ * later messages are dropped, and counted as log.dropped, and flush and
+ * close throw. A SYNCHRONOUS writer whose message is not written throws.
+ *
  * @author David C., Felix L., Helen J., Alex T.
  * @version 1.8
  */
 
 class Log {
     /**
-     * The log.
+     * How far a message must get before writeLog returns.
+     */
+    enum Durability {
+        /**
+         * Return at once; the message is written with the next batch and
+         * left to the operating system to put on disk.
+         */
+        BUFFERED,
+
+        /**
+         * Return at once; each batch is forced to disk after it is written.
+         */
+        FORCED,
+
+        /**
+         * Wait until the batch holding the message has been forced to disk.
+         */
+        SYNCHRONOUS;
+
+        /**
+         * Returns the durability named by value, ignoring case. An unknown
+         * name is warned of, and the log BUFFERED.
+         *
+         * @param value the name of a durability
+         * @return the durability named, or BUFFERED if there is none
+         */
+        static Durability parse(String value) {
+            for (Durability durability : values()) {
+                if (durability.name().equalsIgnoreCase(value)) {
+                    return durability;
+                }
+            }
+            System.err.println("Unknown log durability \"" + value +
+                    "\"; buffering the log");
+            return BUFFERED;
+        }
+    }
+
+    /**
+     * The format of the date at the start of each entry. Unlike a
+     * SimpleDateFormat, it may be shared between threads.
+     */
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy hh:mm:ss");
+
+    /**
+     * The number of messages the ring buffer holds. A power of two.
      */
-    private Logger logger = Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+    private static final int CAPACITY = 1 << 13;
+
+    /**
+     * How long the flusher sleeps when there is nothing to write, in
+     * nanoseconds, before checking again.
+     */
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * The time writers take to hand a message to the log.
+     */
+    private static final Timer WRITE_TIMER = Metrics.timer("log.write");
+
+    /**
+     * The time the flusher takes to write a batch to the file.
+     */
+    private static final Timer FLUSH_TIMER = Metrics.timer("log.flush");
+
+    /**
+     * The number of messages in each batch the flusher writes.
+     */
+    private static final Histogram BATCH_SIZES =
+            Metrics.histogram("log.batch");
+
+    /**
+     * The number of messages dropped because the log had failed.
+     */
+    private static final Counter DROPPED = Metrics.counter("log.dropped");
 
     /**
      * The name of the file that stores the log.
      */
-    private String fileName;
+    private final String fileName;
+
+    /**
+     * The file the log is appended to.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The messages waiting to be written. The message with sequence number
+     * n is in slot n % CAPACITY.
+     */
+    private final AtomicReferenceArray<Entry> ring =
+            new AtomicReferenceArray<>(CAPACITY);
 
     /**
-     * Constructs a log with the file name provided.
+     * The sequence number the next message written will be given.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The sequence number of the next message the flusher will take from
+     * the ring buffer. Only the flusher writes it.
+     */
+    private volatile long head;
+
+    /**
+     * The number of messages written to the file so far, and forced to disk
+     * unless the durability is BUFFERED.
+     */
+    private volatile long written;
+
+    /**
+     * The error that stopped batches being written, or null if there has
+     * been none.
+     */
+    private volatile IOException failure;
+
+    /**
+     * Whether the flusher is sleeping, and needs waking for new messages.
+     */
+    private volatile boolean idle;
+
+    /**
+     * Whether the log has been closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * How far a message must get before writeLog returns.
+     */
+    private volatile Durability durability;
+
+    /**
+     * The thread that writes batches of messages to the file.
+     */
+    private final Thread flusher;
+
+    /**
+     * The reader of the log file, created when first asked for.
+     */
+    private LogReader reader;
+
+    /**
+     * The second the last date was formatted for. Only the flusher uses it.
+     */
+    private long lastSecond = -1;
+
+    /**
+     * The last date formatted, reused for entries in the same second.
+     */
+    private String lastDate;
+
+    /**
+     * Constructs a BUFFERED log with the file name provided.
      *
      * @param fileName the name of the file where the log is to be stored
      * @throws IOException if the system file object associated with the log could not be opened.
      */
-    Log(String fileName) throws IOException{
+    Log(String fileName) throws IOException {
+        this(fileName, Durability.BUFFERED);
+    }
+
+    /**
+     * Constructs a log with the file name and durability provided.
+     *
+     * @param fileName   the name of the file where the log is to be stored
+     * @param durability how far a message must get before writeLog returns
+     * @throws IOException if the system file object associated with the log could not be opened.
+     */
+    Log(String fileName, Durability durability) throws IOException {
         this.fileName = fileName;
+        this.durability = durability;
+        this.channel = FileChannel.open(new File(fileName).toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        this.flusher = new Thread(this::flushLoop, "rename-log");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }));
+    }
 
-        this.logger.setUseParentHandlers(false);
-        File file = new File(fileName);
-        if (!file.exists()) {
-            Files.createFile(file.toPath());
-        }
-        FileHandler fh = new FileHandler(fileName, true);
-        logger.addHandler(fh);
-        Formatter formatter = new LogFormatter();
-        fh.setFormatter(formatter);
+    /**
+     * Sets how far a message must get before writeLog returns.
+     *
+     * @param durability the new durability
+     */
+    void setDurability(Durability durability) {
+        this.durability = durability;
     }
 
     /**
      * Write message to logger
      *
      * @param message the message to be written to logger
+     * @throws UncheckedIOException if the log is SYNCHRONOUS and the
+     *                              message could not be written
      */
     void writeLog(String message) {
-        this.logger.info(message);
+        if (closed) {
+            return;
+        }
+        if (failure != null) {
+            DROPPED.increment();
+            if (durability == Durability.SYNCHRONOUS) {
+                throw new UncheckedIOException("The log could not be " +
+                        "written", failure);
+            }
+            return;
+        }
+        long start = Timer.start();
+        long sequence = tail.getAndIncrement();
+        // Wait for the flusher to make room if the buffer is full.
+        while (sequence - head >= CAPACITY) {
+            if (closed) {
+                return;
+            }
+            wakeFlusher();
+            Thread.yield();
+        }
+        ring.set((int) sequence & (CAPACITY - 1),
+                new Entry(System.currentTimeMillis(), message));
+        wakeFlusher();
+        if (durability == Durability.SYNCHRONOUS) {
+            awaitWritten(sequence + 1);
+            if (written <= sequence && failure != null) {
+                throw new UncheckedIOException("The log could not be " +
+                        "written", failure);
+            }
+        }
+        WRITE_TIMER.stop(start);
     }
 
     /**
-     * Returns the contents of the log.
+     * Waits until every message written so far is in the file.
      *
-     * @return the contents of the log
+     * @throws IOException if a batch could not be written, now or before
      */
-    String readLog() {
-        StringBuilder stringBuilder = new StringBuilder();
+    void flush() throws IOException {
+        awaitWritten(tail.get());
+        if (failure != null) {
+            throw new IOException("The log could not be written", failure);
+        }
+    }
+
+    /**
+     * Writes every message waiting, and stops the flusher. Messages
+     * written after the log is closed are dropped.
+     *
+     * @throws IOException if the messages waiting could not be written, or
+     *                     the log had failed before
+     */
+    void close() throws IOException {
+        if (closed) {
+            return;
+        }
         try {
-            Scanner sc = new Scanner(new File(this.fileName));
-            while (sc.hasNextLine()) {
-                stringBuilder.append(sc.nextLine());
-                stringBuilder.append(System.getProperty("line.separator"));
+            flush();
+        } finally {
+            closed = true;
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
             }
-            sc.close();
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+            channel.close();
         }
-        return stringBuilder.toString();
     }
-}
 
-/**
- * A LogFormatter object formats a Log object.
- */
-//Adapted from https://kodejava.org/how-do-i-create-a-custom-logger-formatter/
-class LogFormatter extends Formatter {
     /**
-     * The date format.
+     * Returns a reader of the log, after writing every message waiting.
+     *
+     * @return a reader of the log file
      */
-    private static final DateFormat df =
-            new SimpleDateFormat("dd/MM/yyyy hh:mm:ss");
+    LogReader getReader() {
+        // The reader shows what reached the file, even if the log failed
+        awaitWritten(tail.get());
+        synchronized (this) {
+            if (reader == null) {
+                reader = new LogReader(new File(fileName).toPath());
+            }
+            return reader;
+        }
+    }
 
     /**
-     * Returns the record provided formatted as a string to be added to a Log.
+     * Wakes the flusher if it is sleeping.
+     */
+    private void wakeFlusher() {
+        if (idle) {
+            LockSupport.unpark(flusher);
+        }
+    }
+
+    /**
+     * Waits until count messages have been written to the file, or the log
+     * has failed or is closed.
+     *
+     * @param count the number of messages to wait for
+     */
+    private void awaitWritten(long count) {
+        if (written >= count || Thread.currentThread() == flusher) {
+            return;
+        }
+        synchronized (this) {
+            while (written < count && failure == null &&
+                    flusher.isAlive()) {
+                LockSupport.unpark(flusher);
+                try {
+                    wait(IDLE_NANOS / 1000000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes every message waiting in the ring buffer and writes them to the
+     * file as one batch, until the log is closed. Once a batch could not
+     * be written, the messages are taken and dropped.
+     */
+    private void flushLoop() {
+        StringBuilder batch = new StringBuilder();
+        while (true) {
+            long begin = head;
+            long end = begin;
+            Entry entry;
+            while ((entry = ring.get((int) end & (CAPACITY - 1))) != null) {
+                ring.set((int) end & (CAPACITY - 1), null);
+                format(entry, batch);
+                end++;
+                // Free the slots as we go so writers are not held up.
+                head = end;
+            }
+            if (batch.length() > 0) {
+                if (failure == null) {
+                    BATCH_SIZES.record(end - begin);
+                    long start = Timer.start();
+                    try {
+                        write(batch);
+                        written = end;
+                    } catch (IOException e) {
+                        // Thrown to the writers waiting, and by flush
+                        failure = e;
+                        DROPPED.add(end - begin);
+                    }
+                    FLUSH_TIMER.stop(start);
+                } else {
+                    DROPPED.add(end - begin);
+                }
+                batch.setLength(0);
+                synchronized (this) {
+                    notifyAll();
+                }
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            idle = true;
+            if (ring.get((int) end & (CAPACITY - 1)) == null) {
+                LockSupport.parkNanos(this, IDLE_NANOS);
+            }
+            idle = false;
+        }
+    }
+
+    /**
+     * Appends entry to batch, in the format "[date] - message", followed by
+     * a blank line.
      *
-     * @param record the recorded to be added
-     * @return a formatted record
+     * @param entry the entry to format
+     * @param batch the text of the batch being written
      */
-    @Override
-    public String format(LogRecord record) {
-        return "[" + df.format(new Date()) + "] - " + formatMessage(record) +
-                "\n\n";
+    private void format(Entry entry, StringBuilder batch) {
+        long second = entry.time / 1000;
+        if (second != lastSecond) {
+            lastSecond = second;
+            lastDate = DATE_FORMAT.format(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(entry.time), ZoneId.systemDefault()));
+        }
+        batch.append('[').append(lastDate).append("] - ")
+                .append(entry.message).append("\n\n");
+    }
+
+    /**
+     * Writes batch to the file, forcing it to disk unless the durability is
+     * BUFFERED.
+     *
+     * @param batch the text to write
+     * @throws IOException if the batch could not be written or forced
+     */
+    private void write(StringBuilder batch) throws IOException {
+        ByteBuffer bytes = Charset.defaultCharset().encode(batch.toString());
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        if (durability != Durability.BUFFERED) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * An Entry is a message waiting in the ring buffer, with the time it was
+     * written.
+     */
+    private static class Entry {
+        /**
+         * The time the message was written, in milliseconds since the epoch.
+         */
+        private final long time;
+
+        /**
+         * The message.
+         */
+        private final String message;
+
+        /**
+         * Creates an entry.
+         *
+         * @param time    the time the message was written
+         * @param message the message
+         */
+        Entry(long time, String message) {
+            this.time = time;
+            this.message = message;
+        }
     }
 }
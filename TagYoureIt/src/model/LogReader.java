@@ -0,0 +1,266 @@
+package model;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A LogReader reads the lines of a log file that is only ever appended to,
+ * without reading the whole file into memory. The file is memory-mapped,
+ * and the offset of the start of every line is kept in an index. Each
+ * refresh scans only the bytes appended since the last one, and lines are
+ * decoded a page at a time, when they are asked for, keeping the most
+ * recently used pages.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class LogReader {
+    /**
+     * The number of lines decoded together.
+     */
+    static final int PAGE_SIZE = 256;
+
+    /**
+     * The number of decoded pages kept.
+     */
+    private static final int CACHED_PAGES = 64;
+
+    /**
+     * The size of each memory-mapped region of the file.
+     */
+    private static final long SEGMENT_SIZE = 1L << 26;
+
+    /**
+     * The log file.
+     */
+    private final Path path;
+
+    /**
+     * The mapped regions of the file. Region k covers the bytes from
+     * k * SEGMENT_SIZE up to the end of the file or the next region; only
+     * the last region is ever remapped, as the file grows.
+     */
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    /**
+     * The offset of the start of each line; lineStarts[lineCount] is the
+     * offset just after the last complete line.
+     */
+    private long[] lineStarts = new long[1024];
+
+    /**
+     * The number of complete lines indexed.
+     */
+    private int lineCount;
+
+    /**
+     * The number of bytes of the file mapped so far.
+     */
+    private long mappedSize;
+
+    /**
+     * The most recently used pages of decoded lines, by page number.
+     */
+    private final LinkedHashMap<Integer, String[]> pages =
+            new LinkedHashMap<Integer, String[]>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        Map.Entry<Integer, String[]> eldest) {
+                    return size() > CACHED_PAGES;
+                }
+            };
+
+    /**
+     * Constructs a reader of the log file at path. Nothing is read until
+     * the first refresh.
+     *
+     * @param path the log file
+     */
+    public LogReader(Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Indexes the lines appended to the file since the last refresh. If the
+     * file has become shorter, it is indexed again from the start.
+     *
+     * @return the number of complete lines in the file
+     * @throws IOException if the file could not be read
+     */
+    public synchronized int refresh() throws IOException {
+        if (!Files.exists(path)) {
+            reset();
+            return 0;
+        }
+        long size = Files.size(path);
+        if (size < mappedSize) {
+            reset();
+        }
+        if (size == mappedSize) {
+            return lineCount;
+        }
+        long scanned = mappedSize;
+        map(size);
+        // The last page may have been partly decoded; it will grow.
+        pages.remove(lineCount / PAGE_SIZE);
+        // Copy the new bytes out in blocks, which is quicker to search than
+        // reading the mapping a byte at a time.
+        byte[] block = new byte[1 << 16];
+        for (long offset = scanned; offset < size; offset += block.length) {
+            int length = (int) Math.min(block.length, size - offset);
+            read(offset, block, length);
+            for (int i = 0; i < length; i++) {
+                if (block[i] == '\n') {
+                    addLine(offset + i + 1);
+                }
+            }
+        }
+        return lineCount;
+    }
+
+    /**
+     * Returns the number of complete lines indexed by the last refresh.
+     *
+     * @return the number of lines
+     */
+    public synchronized int getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * Returns a line of the file, without its line terminator.
+     *
+     * @param index the number of the line, from 0
+     * @return the line
+     * @throws IndexOutOfBoundsException if index is not below the number of
+     *                                   lines
+     */
+    public synchronized String getLine(int index) {
+        if (index < 0 || index >= lineCount) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " +
+                    lineCount);
+        }
+        return getPage(index / PAGE_SIZE)[index % PAGE_SIZE];
+    }
+
+    /**
+     * Returns count lines of the file, starting with line from.
+     *
+     * @param from  the number of the first line
+     * @param count the greatest number of lines returned
+     * @return the lines, fewer than count at the end of the file
+     */
+    public synchronized List<String> getLines(int from, int count) {
+        List<String> lines = new ArrayList<>();
+        for (int i = from; i < Math.min(lineCount, from + count); i++) {
+            lines.add(getLine(i));
+        }
+        return lines;
+    }
+
+    /**
+     * Returns a page of decoded lines, decoding it if it is not cached.
+     *
+     * @param page the number of the page
+     * @return the lines of the page
+     */
+    private String[] getPage(int page) {
+        String[] lines = pages.get(page);
+        if (lines != null) {
+            return lines;
+        }
+        int first = page * PAGE_SIZE;
+        int end = Math.min(lineCount, first + PAGE_SIZE);
+        long start = lineStarts[first];
+        byte[] bytes = new byte[(int) (lineStarts[end] - start)];
+        read(start, bytes, bytes.length);
+        Charset charset = Charset.defaultCharset();
+        lines = new String[end - first];
+        for (int i = first; i < end; i++) {
+            int offset = (int) (lineStarts[i] - start);
+            int length = (int) (lineStarts[i + 1] - lineStarts[i]) - 1;
+            if (length > 0 && bytes[offset + length - 1] == '\r') {
+                length--;
+            }
+            lines[i - first] = new String(bytes, offset, length, charset);
+        }
+        pages.put(page, lines);
+        return lines;
+    }
+
+    /**
+     * Maps the file up to size bytes, remapping the last region if it has
+     * grown.
+     *
+     * @param size the size of the file
+     * @throws IOException if the file could not be mapped
+     */
+    private void map(long size) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            int segment = (int) (mappedSize / SEGMENT_SIZE);
+            if (segment < segments.size()) {
+                segments.remove(segment);
+            }
+            for (long start = segment * SEGMENT_SIZE; start < size;
+                 start += SEGMENT_SIZE) {
+                segments.add(channel.map(FileChannel.MapMode.READ_ONLY, start,
+                        Math.min(SEGMENT_SIZE, size - start)));
+            }
+        }
+        mappedSize = size;
+    }
+
+    /**
+     * Adds a line ending just before offset to the index.
+     *
+     * @param offset the offset just after the line terminator
+     */
+    private void addLine(long offset) {
+        if (lineCount + 1 == lineStarts.length) {
+            lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+        }
+        lineStarts[++lineCount] = offset;
+    }
+
+    /**
+     * Copies length bytes of the file, starting at offset, into bytes.
+     *
+     * @param offset the offset of the first byte
+     * @param bytes  the array to copy into
+     * @param length the number of bytes
+     */
+    private void read(long offset, byte[] bytes, int length) {
+        int done = 0;
+        while (done < length) {
+            long position = offset + done;
+            MappedByteBuffer segment =
+                    segments.get((int) (position / SEGMENT_SIZE));
+            int start = (int) (position % SEGMENT_SIZE);
+            int n = Math.min(length - done, segment.limit() - start);
+            segment.get(start, bytes, done, n);
+            done += n;
+        }
+    }
+
+    /**
+     * Forgets everything indexed, so the file is read again from the start.
+     */
+    private void reset() {
+        segments.clear();
+        pages.clear();
+        lineCount = 0;
+        mappedSize = 0;
+    }
+}
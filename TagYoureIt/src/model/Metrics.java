@@ -0,0 +1,261 @@
+package model;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Metrics is the registry of the counters, timers and histograms the
+ * application keeps about itself: how long scans, renames, log writes,
+ * saves and thumbnail decodes take, and how many there have been. Each is
+ * registered under a dotted name, such as "model.save", the first time it
+ * is asked for.
+ *
+ * Once started, the metrics can be read over JMX, as the attributes of
+ * the MBean named OBJECT_NAME, and a snapshot of them is written every
+ * SNAPSHOT_SECONDS to the file named by the tagyoureit.metrics system
+ * property, or by default to metrics.txt in the data directory of the
+ * root, beside its catalog. Timings are reported in milliseconds.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public final class Metrics {
+    /**
+     * The name the metrics are registered under with JMX.
+     */
+    public static final String OBJECT_NAME = "tagyoureit:type=Metrics";
+
+    /**
+     * How often a snapshot is written, in seconds.
+     */
+    static final long SNAPSHOT_SECONDS = 60;
+
+    /**
+     * The nanoseconds in a millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Every counter, timer and histogram, by name.
+     */
+    private static final ConcurrentMap<String, Object> REGISTRY =
+            new ConcurrentSkipListMap<>();
+
+    /**
+     * The thread writing snapshots, or null if they are not being written.
+     */
+    private static ScheduledExecutorService snapshots;
+
+    /**
+     * The file snapshots are written to.
+     */
+    private static Path snapshotFile;
+
+    private Metrics() {
+    }
+
+    /**
+     * Returns the counter registered as name, registering a new one if
+     * there is none.
+     *
+     * @param name the name of the counter
+     * @return the counter
+     */
+    public static Counter counter(String name) {
+        return get(name, Counter.class, Counter::new);
+    }
+
+    /**
+     * Returns the timer registered as name, registering a new one if there
+     * is none.
+     *
+     * @param name the name of the timer
+     * @return the timer
+     */
+    public static Timer timer(String name) {
+        return get(name, Timer.class, Timer::new);
+    }
+
+    /**
+     * Returns the histogram registered as name, registering a new one if
+     * there is none.
+     *
+     * @param name the name of the histogram
+     * @return the histogram
+     */
+    public static Histogram histogram(String name) {
+        return get(name, Histogram.class, Histogram::new);
+    }
+
+    /**
+     * Returns the metric registered as name, registering a new one made by
+     * factory if there is none.
+     *
+     * @param name    the name of the metric
+     * @param type    the type of the metric
+     * @param factory makes a new metric
+     * @param <T>     the type of the metric
+     * @return the metric
+     * @throws IllegalArgumentException if a metric of another type is
+     *                                  registered as name
+     */
+    private static <T> T get(String name, Class<T> type,
+                             Supplier<T> factory) {
+        Object metric = REGISTRY.computeIfAbsent(name, key -> factory.get());
+        if (!type.isInstance(metric)) {
+            throw new IllegalArgumentException(name + " is a " +
+                    metric.getClass().getSimpleName() + ", not a " +
+                    type.getSimpleName());
+        }
+        return type.cast(metric);
+    }
+
+    /**
+     * Returns the current value of every metric, by name. A counter is one
+     * value, its count. A timer or histogram is several, with the name
+     * followed by ".count", ".mean", ".p50", ".p99" and ".max"; those of a
+     * timer are in milliseconds, and it also has ".total".
+     *
+     * @return the values, sorted by name
+     */
+    public static Map<String, Number> snapshot() {
+        Map<String, Number> values = new TreeMap<>();
+        for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+            String name = entry.getKey();
+            Object metric = entry.getValue();
+            if (metric instanceof Counter) {
+                values.put(name, ((Counter) metric).getCount());
+            } else if (metric instanceof Timer) {
+                Histogram durations = ((Timer) metric).getDurations();
+                values.put(name + ".count", durations.getCount());
+                values.put(name + ".total",
+                        durations.getSum() / NANOS_PER_MILLI);
+                put(values, name, durations, NANOS_PER_MILLI);
+            } else if (metric instanceof Histogram) {
+                Histogram histogram = (Histogram) metric;
+                values.put(name + ".count", histogram.getCount());
+                put(values, name, histogram, 1);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Puts the mean, median, 99th percentile and maximum of histogram in
+     * values, divided by unit.
+     *
+     * @param values    the values of the snapshot
+     * @param name      the name of the histogram
+     * @param histogram the histogram
+     * @param unit      the size of the unit the values are reported in
+     */
+    private static void put(Map<String, Number> values, String name,
+                            Histogram histogram, double unit) {
+        values.put(name + ".mean", histogram.getMean() / unit);
+        values.put(name + ".p50", histogram.getPercentile(0.5) / unit);
+        values.put(name + ".p99", histogram.getPercentile(0.99) / unit);
+        values.put(name + ".max", histogram.getMax() / unit);
+    }
+
+    /**
+     * Writes a snapshot of every metric to file, one "name=value" per
+     * line, after a comment with the time it was taken. The file is
+     * replaced in one step, so a reader never sees half a snapshot.
+     *
+     * @param file the file to write to
+     * @throws IOException if the file could not be written
+     */
+    public static void writeSnapshot(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, "metrics", ".tmp");
+        try (Writer out = Files.newBufferedWriter(temp,
+                StandardCharsets.UTF_8)) {
+            out.write("# " + Instant.now() + "\n");
+            for (Map.Entry<String, Number> value : snapshot().entrySet()) {
+                out.write(value.getKey() + "=" + value.getValue() + "\n");
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Registers the metrics with JMX, and starts writing a snapshot of them
+     * every SNAPSHOT_SECONDS. Does nothing if they have been started
+     * already.
+     *
+     * @param dataDirectory the directory the snapshot is written to, unless
+     *                      the tagyoureit.metrics property names a file
+     */
+    public static synchronized void start(Path dataDirectory) {
+        if (snapshots != null) {
+            return;
+        }
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new MetricsBean(), name);
+            }
+        } catch (JMException e) {
+            // The metrics are still written to the snapshot file.
+            e.printStackTrace();
+        }
+        String property = System.getProperty("tagyoureit.metrics");
+        snapshotFile = property != null ? Paths.get(property) :
+                dataDirectory.resolve("metrics.txt");
+        snapshots = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleAtFixedRate(Metrics::writeSnapshotFile,
+                SNAPSHOT_SECONDS, SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Stops writing snapshots, and writes a last one.
+     */
+    public static synchronized void stop() {
+        if (snapshots == null) {
+            return;
+        }
+        snapshots.shutdownNow();
+        snapshots = null;
+        writeSnapshotFile();
+    }
+
+    /**
+     * Writes a snapshot to the snapshot file, reporting any error rather
+     * than throwing it.
+     */
+    private static void writeSnapshotFile() {
+        try {
+            writeSnapshot(snapshotFile);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
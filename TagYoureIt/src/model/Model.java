@@ -1,11 +1,14 @@
 package model;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Observable;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.ParseException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
 
 /**
  * The class represents the Model. The Model is responsible for
@@ -18,27 +21,147 @@ import java.util.Observable;
  * @version 1.8
  */
 
-public class Model extends Observable implements Serializable {
+public class Model extends Observable implements Observer, Serializable {
     /**
-     * List of accepted image file extensions
+     * The name of the directory under each root that the catalog, journal
+     * and history of that root are kept in
      */
-    private static final ArrayList<String> EXTENSIONS = new ArrayList<>(
-            Arrays.asList("jpg", "png", "bmp", "jpeg", "gif"));
+    static final String DATA_DIRECTORY = ".tagyoureit";
 
     /**
-     * The String representation of the path to the imageData file
+     * The ways a Model can load its catalog.
+     */
+    public enum CatalogMode {
+        /**
+         * Every ImageFile is read from the catalog when the model is
+         * created, and kept in memory.
+         */
+        EAGER,
+        /**
+         * The catalog is mapped, and each ImageFile is built from it only
+         * when it is asked for, and kept only while it is in use.
+         */
+        LAZY;
+
+        /**
+         * Returns the catalog mode named by value, ignoring case. An
+         * unknown name is warned of, and the catalog loaded eagerly.
+         *
+         * @param value the name of a catalog mode
+         * @return the catalog mode named, or EAGER if there is none
+         */
+        static CatalogMode parse(String value) {
+            for (CatalogMode mode : values()) {
+                if (mode.name().equalsIgnoreCase(value)) {
+                    return mode;
+                }
+            }
+            System.err.println("Unknown catalog mode \"" + value +
+                    "\"; loading the catalog eagerly");
+            return EAGER;
+        }
+    }
+
+    /**
+     * The String representation of the path to the catalog file
+     */
+    private static final String CATALOG_PATH = "catalog.tyi";
+
+    /**
+     * The String representation of the path to the journal of changes made
+     * since the catalog was last saved
+     */
+    private static final String JOURNAL_PATH = "catalog.journal";
+
+    /**
+     * The String representation of the path to the directory the rename
+     * history of every ImageFile is stored in
+     */
+    private static final String HISTORY_PATH = "history";
+
+    /**
+     * The size the journal may grow to before this model is checkpointed
+     * into the catalog
+     */
+    private static final long CHECKPOINT_BYTES = 4 << 20;
+
+    /**
+     * The String representation of the path to the imageData file, which
+     * older versions serialized imageFiles to
      */
     private static final String IMAGE_DATA_PATH = "imageData.ser";
 
     /**
-     * The String representation of the path to the existingTags file
+     * The String representation of the path to the existingTags file, which
+     * older versions serialized existingTags to
      */
     private static final String EXISTING_TAGS_PATH = "existingTags.ser";
 
     /**
-     * The ArrayList of all ImageFiles
+     * The time taken to walk the file tree when a Model is created
+     */
+    private static final Timer SCAN_TIMER = Metrics.timer("model.scan");
+
+    /**
+     * The number of images found by walking the file tree
      */
-    private ArrayList<ImageFile> imageFiles;
+    private static final Counter SCANNED_IMAGES =
+            Metrics.counter("model.scan.images");
+
+    /**
+     * The time taken to load the catalog
+     */
+    private static final Timer LOAD_TIMER = Metrics.timer("model.load");
+
+    /**
+     * The rate of each scan, in files visited per second
+     */
+    private static final Histogram SCAN_RATE =
+            Metrics.histogram("model.scan.filesPerSecond");
+
+    /**
+     * The time taken to save the catalog and history
+     */
+    private static final Timer SAVE_TIMER = Metrics.timer("model.save");
+
+    /**
+     * The time taken by each batch edit of tags
+     */
+    private static final Timer EDIT_TIMER = Metrics.timer("model.editTags");
+
+    /**
+     * The number of image files renamed
+     */
+    private static final Counter RENAMES = Metrics.counter("image.renames");
+
+    /**
+     * The number of image files that could not be renamed
+     */
+    private static final Counter RENAME_FAILURES =
+            Metrics.counter("image.renames.failed");
+
+    /**
+     * The time taken by each batch move of image files
+     */
+    private static final Timer MOVE_TIMER = Metrics.timer("model.moveFiles");
+
+    /**
+     * The number of image files moved in batches
+     */
+    private static final Counter MOVES = Metrics.counter("image.moves");
+
+    /**
+     * The number of batch moves that were rolled back
+     */
+    private static final Counter MOVE_ROLLBACKS =
+            Metrics.counter("image.moves.rolledBack");
+
+    /**
+     * The ImageFiles of this model: an ImageIndex holding every one if the
+     * catalog is loaded eagerly, or an ImageStore building each from the
+     * mapped catalog when it is asked for if it is loaded lazily
+     */
+    private transient ImageCollection images;
 
     /**
      * The root directory this program is running in.
@@ -50,67 +173,1171 @@ public class Model extends Observable implements Serializable {
      */
     private ExistingTags existingTags;
 
+    /**
+     * The scanner that walked the file tree when this Model was created.
+     */
+    private transient ImageScanner scanner;
+
+    /**
+     * The watcher reporting changes made to the file tree by other programs,
+     * null if the tree is not being watched.
+     */
+    private transient DirectoryWatcher watcher;
+
+    /**
+     * The catalog imageFiles and existingTags are loaded from and saved to
+     */
+    private transient Catalog catalog;
+
+    /**
+     * The journal of changes made since the catalog was last saved
+     */
+    private transient Journal journal;
+
+    /**
+     * The store the rename history of every ImageFile is kept in
+     */
+    private transient HistoryStore history;
+
+    /**
+     * The id the next ImageFile without one will be given
+     */
+    private transient long nextFileId = 1;
+
+    /**
+     * The directory the catalog, journal and history of this model are kept
+     * in
+     */
+    private transient Path dataDirectory;
+
+    /**
+     * How the catalog of this model is loaded
+     */
+    private transient CatalogMode catalogMode;
+
+    /**
+     * The files being renamed by EditJobs whose renames have not been
+     * committed yet, which changes seen by the watcher leave alone
+     */
+    private transient Set<File> renaming;
+
+    /**
+     * The changes not yet passed on to observers, while a batch is open
+     */
+    private transient List<ChangeEvent> pendingEvents;
+
+    /**
+     * The number of batches currently open
+     */
+    private transient int batchDepth;
+
     /**
      * Creates a new Model for this program, rooted at file.  Walks the
-     * file tree rooted at file, and adds any un-tracked imageFiles to HashMap
-     * imageFiles
+     * file tree rooted at file in parallel, and adds any un-tracked
+     * imageFiles to imageFiles
      *
      * @param file the root directory this program is responsible for.
      */
-    @SuppressWarnings("unchecked")
     public Model(File file) throws IOException {
+        this(file, ImageScanner.Mode.PARALLEL);
+    }
+
+    /**
+     * Creates a new Model for this program, rooted at file.  Walks the
+     * file tree rooted at file in the scan mode provided, and adds any
+     * un-tracked imageFiles to imageFiles. The catalog, journal and history
+     * of the model are kept under file, or under the home directory of the
+     * user if file cannot be written, so only the ImageFiles of this root
+     * are loaded. A root opened for the first time takes its ImageFiles
+     * from the catalog older versions shared between every root in the
+     * working directory, if there is one. The catalog is loaded lazily if
+     * the system property tagyoureit.catalog is "lazy", and eagerly if it
+     * is unset or names no catalog mode.
+     *
+     * @param file     the root directory this program is responsible for.
+     * @param scanMode how the file tree rooted at file is walked
+     */
+    public Model(File file, ImageScanner.Mode scanMode) throws IOException {
+        this(file, scanMode, CatalogMode.parse(System.getProperty(
+                "tagyoureit.catalog", "eager")));
+    }
+
+    /**
+     * Creates a new Model for this program, rooted at file, as above, but
+     * loading its catalog in the catalog mode provided.
+     *
+     * @param file        the root directory this program is responsible
+     *                    for.
+     * @param scanMode    how the file tree rooted at file is walked
+     * @param catalogMode how the catalog is loaded
+     */
+    public Model(File file, ImageScanner.Mode scanMode,
+                 CatalogMode catalogMode) throws IOException {
+        this(file, scanMode, catalogMode, dataDirectoryFor(file,
+                Paths.get(System.getProperty("user.home"))), Paths.get(""));
+    }
+
+    /**
+     * Returns the directory the catalog, journal and history of the root
+     * file are kept in: the data directory under file, or, if that cannot
+     * be written, a directory under home named by a hash of the path of
+     * file, so a read-only root can still be opened.
+     *
+     * @param file the root directory
+     * @param home the directory to keep the data of read-only roots under
+     * @return the data directory of file
+     */
+    static Path dataDirectoryFor(File file, Path home) {
+        Path local = file.toPath().resolve(DATA_DIRECTORY);
+        try {
+            Files.createDirectories(local);
+            if (Files.isWritable(local)) {
+                return local;
+            }
+        } catch (IOException e) {
+            // The root is read-only, or holds a file of that name.
+        }
+        String path = file.getAbsoluteFile().toPath().normalize().toString();
+        StringBuilder key = new StringBuilder();
+        try {
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(
+                    path.getBytes(StandardCharsets.UTF_8))) {
+                key.append(String.format("%02x", b));
+            }
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+        Path fallback = home.resolve(DATA_DIRECTORY).resolve("roots")
+                .resolve(key.toString());
+        System.err.println("Cannot write to " + local + "; keeping the " +
+                "catalog in " + fallback);
+        return fallback;
+    }
+
+    /**
+     * Creates a new Model for this program, rooted at file, keeping its
+     * catalog, journal and history in dataDirectory.
+     *
+     * @param file          the root directory this program is responsible
+     *                      for.
+     * @param scanMode      how the file tree rooted at file is walked
+     * @param dataDirectory the directory the data of this model is kept in
+     */
+    Model(File file, ImageScanner.Mode scanMode, Path dataDirectory)
+            throws IOException {
+        this(file, scanMode, CatalogMode.EAGER, dataDirectory, null);
+    }
+
+    /**
+     * Creates a new Model for this program, rooted at file, keeping its
+     * catalog, journal and history in dataDirectory. If dataDirectory has no
+     * catalog yet, the ImageFiles under file are taken from the catalog
+     * shared by every root in sharedDirectory, which is left as it is.
+     *
+     * @param file            the root directory this program is
+     *                        responsible for.
+     * @param scanMode        how the file tree rooted at file is walked
+     * @param catalogMode     how the catalog is loaded
+     * @param dataDirectory   the directory the data of this model is kept in
+     * @param sharedDirectory the directory of the shared catalog to take
+     *                        ImageFiles from, null if none
+     */
+    Model(File file, ImageScanner.Mode scanMode, CatalogMode catalogMode,
+          Path dataDirectory, Path sharedDirectory) throws IOException {
         this.root = file;
+        this.dataDirectory = dataDirectory;
+        this.catalogMode = catalogMode;
+        Files.createDirectories(dataDirectory);
         existingTags = new ExistingTags();
-        imageFiles = new ArrayList<>();
-        File imageData = new File(IMAGE_DATA_PATH);
+        images = catalogMode == CatalogMode.LAZY ?
+                new ImageStore(file, this::attach) : new ImageIndex();
+        pendingEvents = new ArrayList<>();
+        renaming = ConcurrentHashMap.newKeySet();
+        boolean newHistory =
+                !Files.exists(dataDirectory.resolve(HISTORY_PATH));
+        history = new HistoryStore(dataDirectory.resolve(HISTORY_PATH));
+        catalog = new Catalog(dataDirectory.resolve(CATALOG_PATH));
+        long start = Timer.start();
+        boolean migrated = false;
+        if (!loadCatalog() && !loadLegacyData(dataDirectory) &&
+                sharedDirectory != null) {
+            migrated = migrate(sharedDirectory);
+        }
+        replayJournal(new Journal(dataDirectory.resolve(JOURNAL_PATH)));
+        if (newHistory) {
+            // Bring over the past names kept before there was a history
+            for (ImageFile im : getImageFiles()) {
+                im.importPastNames();
+            }
+            history.sync();
+        }
+        if (migrated) {
+            saveAll();
+        }
+        LOAD_TIMER.stop(start);
+        scanner = new ImageScanner(scanMode);
+        start = Timer.start();
+        List<Path> scanned = scanner.scan(file.toPath());
+        SCAN_TIMER.stop(start);
+        SCANNED_IMAGES.add(scanned.size());
+        SCAN_RATE.record(Math.round(scanner.getFilesPerSecond()));
+        addScanned(scanned);
+    }
+
+    /**
+     * Adds the scanned paths that are not ImageFiles of this model yet,
+     * without building those that are. Tags some ImageFile has that are not
+     * existing tags are then added, from the tag index.
+     *
+     * @param scanned the image files found under the root
+     */
+    private void addScanned(List<Path> scanned) {
+        for (Path path : scanned) {
+            if (!images.contains(path.toFile())) {
+                track(new ImageFile(path.toFile()));
+            }
+        }
+        for (String tagName : images.getTagNames()) {
+            if (existingTags.findTag(tagName) == null) {
+                existingTags.addTag(new Tag(tagName));
+            }
+        }
+    }
+
+    /**
+     * Loads imageFiles and existingTags from the catalog. A corrupted
+     * catalog is set aside, rather than deleted, so it can be recovered.
+     *
+     * @return true if the catalog was loaded
+     * @throws IOException if a corrupted catalog could not be set aside
+     */
+    private boolean loadCatalog() throws IOException {
+        if (!catalog.exists()) {
+            return false;
+        }
+        try {
+            Catalog.Contents contents = images.load(catalog);
+            existingTags = contents.existingTags;
+            nextFileId = contents.nextFileId;
+            for (ImageFile im : contents.imageFiles) {
+                track(im);
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace();
+            Path path = catalog.getPath();
+            Files.move(path, path.resolveSibling(path.getFileName() +
+                    ".corrupt"), StandardCopyOption.REPLACE_EXISTING);
+            return false;
+        }
+    }
+
+    /**
+     * Redoes the changes recorded in journal since the catalog was last
+     * saved, then starts recording further changes in it. If any changes
+     * were redone, they are checkpointed into the catalog straight away.
+     *
+     * @param journal the journal of changes since the catalog was saved
+     * @throws IOException if the journal could not be read
+     */
+    private void replayJournal(Journal journal) throws IOException {
+        List<Journal.Record> records = journal.readRecords();
+        replay(records);
+        this.journal = journal;
+        images.forEachLive(im -> im.setJournal(journal));
+        existingTags.setJournal(journal);
+        existingTags.addObserver(this);
+        if (!records.isEmpty()) {
+            saveAll();
+        }
+    }
+
+    /**
+     * Redoes the changes recorded in records. A rename whose intent was
+     * journaled, but not its outcome, is redone if the disk shows it was
+     * made.
+     *
+     * @param records the changes to redo, oldest first
+     */
+    private void replay(List<Journal.Record> records) {
+        Map<String, Journal.Record> intents = new LinkedHashMap<>();
+        for (Journal.Record record : records) {
+            String[] fields = record.fields;
+            if (record.type == Journal.MOVE_INTENT ||
+                    record.type == Journal.EDIT_INTENT) {
+                intents.put(fields[0], record);
+            } else if (record.type == Journal.ABORT) {
+                intents.remove(fields[0]);
+            } else if (record.type == Journal.MOVE) {
+                intents.remove(fields[0]);
+                File from = new File(fields[0]);
+                File to = new File(fields[1]);
+                ImageFile im = getImageFile(from);
+                if (im == null && getImageFile(to) == null) {
+                    // The file was found after the last save.
+                    im = new ImageFile(from);
+                    track(im);
+                }
+                if (im != null) {
+                    im.replayMove(to);
+                    reindex(im);
+                }
+            } else if (record.type == Journal.TAGS) {
+                ImageFile im = getImageFile(new File(fields[0]));
+                if (im != null) {
+                    im.replayTags(journaledTags(fields, 1));
+                    reindex(im);
+                }
+            } else if (record.type == Journal.ADD_TAG) {
+                existingTags.addTag(new Tag(fields[0]));
+            } else if (record.type == Journal.REMOVE_TAG) {
+                existingTags.removeTag(new Tag(fields[0]));
+            }
+        }
+        for (Journal.Record intent : intents.values()) {
+            File from = new File(intent.fields[0]);
+            File to = new File(intent.fields[1]);
+            ImageFile im = getImageFile(from);
+            if (im != null && !from.exists() && to.exists()) {
+                // Renamed before a crash, which cut off its outcome
+                im.replayMove(to);
+                if (intent.type == Journal.EDIT_INTENT) {
+                    im.replayTags(journaledTags(intent.fields, 2));
+                }
+                reindex(im);
+            }
+        }
+    }
+
+    /**
+     * Returns the tags named by a journal record, from the field first on,
+     * taking existing tags where there are any.
+     *
+     * @param fields the fields of the record
+     * @param first  the index of the first tag name
+     * @return the tags named
+     */
+    private ArrayList<Tag> journaledTags(String[] fields, int first) {
+        ArrayList<Tag> tags = new ArrayList<>();
+        for (int i = first; i < fields.length; i++) {
+            Tag tag = existingTags.findTag(fields[i]);
+            tags.add(tag == null ? new Tag(fields[i]) : tag);
+        }
+        return tags;
+    }
+
+    /**
+     * Journals the intents of renames about to be made, and waits for them
+     * to reach the disk, so no file is renamed before its intent is
+     * durable.
+     *
+     * @param intents appends the intents to the journal
+     * @return null if the intents are on disk, or the error that stopped
+     *         them being written
+     */
+    private IOException journalIntents(Consumer<Journal> intents) {
+        if (journal == null) {
+            return null;
+        }
+        try {
+            intents.accept(journal);
+            journal.sync();
+            return null;
+        } catch (IOException e) {
+            return e;
+        } catch (UncheckedIOException e) {
+            return e.getCause();
+        }
+    }
+
+    /**
+     * Takes the ImageFiles under the root, and every existing tag, from the
+     * catalog and journal shared by every root in sharedDirectory, or from
+     * the files older versions serialized them to there. Nothing in
+     * sharedDirectory is changed.
+     *
+     * @param sharedDirectory the directory of the shared catalog
+     * @return true if any data was found in sharedDirectory
+     * @throws IOException if the shared journal could not be read
+     */
+    private boolean migrate(Path sharedDirectory) throws IOException {
+        Catalog shared = new Catalog(sharedDirectory.resolve(CATALOG_PATH));
+        Path sharedJournal = sharedDirectory.resolve(JOURNAL_PATH);
+        if (shared.exists()) {
+            try {
+                Catalog.Contents contents = shared.read();
+                existingTags = contents.existingTags;
+                nextFileId = contents.nextFileId;
+                for (ImageFile im : contents.imageFiles) {
+                    track(im);
+                }
+            } catch (IOException e) {
+                // The shared catalog was corrupted
+                e.printStackTrace();
+            }
+            if (Files.exists(sharedJournal)) {
+                Journal journal = new Journal(sharedJournal);
+                try {
+                    replay(journal.readRecords());
+                } finally {
+                    journal.close();
+                }
+            }
+        } else if (!loadLegacyData(sharedDirectory)) {
+            return false;
+        }
+        // Keep only the ImageFiles of this root
+        Path rootPath = root.toPath().toAbsolutePath();
+        Set<ImageFile> others =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ImageFile im : getImageFiles()) {
+            if (!im.getFile().toPath().toAbsolutePath().startsWith(rootPath)) {
+                others.add(im);
+            }
+        }
+        untrack(others);
+        return true;
+    }
+
+    /**
+     * Loads imageFiles and existingTags from the files older versions
+     * serialized them to. The files are left in place; the catalog replaces
+     * them the next time this model is saved.
+     *
+     * @param dataDirectory the directory the files are in
+     * @return true if imageFiles were found
+     */
+    @SuppressWarnings("unchecked")
+    private boolean loadLegacyData(Path dataDirectory) {
+        File imageData = dataDirectory.resolve(IMAGE_DATA_PATH).toFile();
+        File existingTagsData =
+                dataDirectory.resolve(EXISTING_TAGS_PATH).toFile();
         if (imageData.exists()) {
             try {
-                imageFiles = (ArrayList<ImageFile>) readObject(IMAGE_DATA_PATH);
+                for (ImageFile im :
+                        (ArrayList<ImageFile>) readObject(imageData)) {
+                    track(im);
+                }
             } catch (ClassNotFoundException | IOException |
                     ClassCastException e) {
                 // imageData.ser was corrupted
-                Files.delete(imageData.toPath());
+                e.printStackTrace();
             }
         }
-        File tagData = new File(EXISTING_TAGS_PATH);
-        if (tagData.exists()) {
+        if (existingTagsData.exists()) {
             try {
-                existingTags = (ExistingTags) readObject(EXISTING_TAGS_PATH);
+                existingTags = (ExistingTags) readObject(existingTagsData);
             } catch (ClassNotFoundException | IOException |
                     ClassCastException e) {
                 // existingTags.ser was corrupted
-                Files.delete(tagData.toPath());
-            }
-        }
-        // The FileVisitor to be used in Files.walkFileTree.
-        FileVisitor<Path> fv = new SimpleFileVisitor<Path>() {
-            @Override
-            public FileVisitResult visitFile(Path file,
-                                             BasicFileAttributes attrs)
-                    throws IOException {
-                if (attrs.isRegularFile()) {
-                    String fileExtension = file.toString().substring(
-                            file.toString().lastIndexOf('.') + 1).toLowerCase();
-                    // Check if the file is a image by checking its extension.
-                    if (EXTENSIONS.contains(fileExtension)) {
-                        if (getImageFile(file.toFile()) == null) {
-                            imageFiles.add(new ImageFile(file.toFile()));
-                        } else {
-                            // Check imageFile for tags not in ExistingTags, and add them
-                            ImageFile im = getImageFile(file.toFile());
-                            if (!existingTags.getExistingTags().containsAll(
-                                    im.getCurrentTags())) {
-                                for (Tag tag : im.getCurrentTags()) {
-                                    existingTags.addTag(tag);
-                                }
-                            }
+                e.printStackTrace();
+            }
+        }
+        return imageData.exists();
+    }
+
+    /**
+     * Adds imageFile to this model's collection of ImageFiles, and keeps
+     * its entry in the file index current as it is renamed or moved.
+     *
+     * @param imageFile the ImageFile to add
+     */
+    private void track(ImageFile imageFile) {
+        if (imageFile.getId() == 0) {
+            imageFile.setId(nextFileId);
+        }
+        nextFileId = Math.max(nextFileId, imageFile.getId() + 1);
+        images.add(imageFile);
+        attach(imageFile);
+    }
+
+    /**
+     * Has changes to imageFile journaled, recorded in the history and
+     * passed on to this model.
+     *
+     * @param imageFile an ImageFile of this model
+     */
+    private void attach(ImageFile imageFile) {
+        imageFile.setJournal(journal);
+        imageFile.setHistory(history);
+        imageFile.addObserver(this);
+    }
+
+    /**
+     * Removes the ImageFiles provided from this model's collection of
+     * ImageFiles and from its indexes.
+     *
+     * @param removed the ImageFiles to remove
+     */
+    private void untrack(Set<ImageFile> removed) {
+        images.remove(removed);
+        for (ImageFile imageFile : removed) {
+            imageFile.setJournal(null);
+            imageFile.setHistory(null);
+            imageFile.deleteObserver(this);
+        }
+    }
+
+    /**
+     * Starts watching the file tree rooted at this model's root, so that
+     * image files created or deleted by other programs are added to or
+     * removed from this model. Changes are applied in batches by the
+     * executor provided, which should run them on the thread that owns this
+     * model, and observers are notified once per batch.
+     *
+     * @param executor the executor that applies batches of changes
+     * @throws IOException if the file tree could not be watched
+     */
+    public void startWatching(Executor executor) throws IOException {
+        stopWatching();
+        watcher = new DirectoryWatcher(root.toPath(),
+                batch -> executor.execute(() -> applyChanges(batch)));
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the file tree rooted at this model's root.
+     */
+    public void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Brings this model up to date with the changed paths provided. New
+     * image files are added, and ImageFiles whose files no longer exist are
+     * removed. Renames and moves made through this model have already been
+     * applied, and cause no change.
+     *
+     * @param paths the paths that were created, deleted or modified
+     */
+    void applyChanges(Collection<Path> paths) {
+        beginBatch();
+        try {
+            Set<ImageFile> removed =
+                    Collections.newSetFromMap(new IdentityHashMap<>());
+            // Deleted paths that may have been directories
+            Set<Path> goneDirectories = new HashSet<>();
+            for (Path path : paths) {
+                if (renaming.contains(path.toFile())) {
+                    // An EditJob is renaming it; its commit will catch up.
+                    continue;
+                }
+                ImageFile im = getImageFile(path.toFile());
+                if (Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS)) {
+                    if (im == null && ImageScanner.isImage(path)) {
+                        im = new ImageFile(path.toFile());
+                        track(im);
+                        publish(ChangeEvent.imageAdded(im));
+                    }
+                } else if (im != null) {
+                    removed.add(im);
+                } else if (path.equals(root.toPath()) ||
+                        (!ImageScanner.isImage(path) && !Files.exists(path))) {
+                    // The root is reported when events were lost.
+                    goneDirectories.add(path);
+                }
+            }
+            if (!goneDirectories.isEmpty()) {
+                removed.addAll(images.findGone(goneDirectories));
+            }
+            if (!removed.isEmpty()) {
+                untrack(removed);
+                for (ImageFile im : removed) {
+                    publish(ChangeEvent.imageRemoved(im));
+                }
+            }
+        } finally {
+            endBatch();
+        }
+    }
+
+    /**
+     * Applies edit with tags to each of imageFiles. The system files are
+     * renamed first, in parallel across directories; then, on the calling
+     * thread, the ImageFiles renamed are updated, the renames are written to
+     * the log as one entry, and observers are notified once. A file that
+     * could not be renamed is reported in the result, and does not stop the
+     * others. ImageFiles whose tags the edit would not change are left as
+     * they are.
+     *
+     * @param imageFiles the ImageFiles to edit
+     * @param edit       whether tags are added, removed or set
+     * @param tags       the tags to add, remove or set
+     * @return the ImageFiles changed, and those that could not be
+     */
+    public BatchResult editTags(Collection<ImageFile> imageFiles,
+                                TagEdit edit, List<Tag> tags) {
+        EditJob job = newEdit(imageFiles, edit, tags);
+        job.renameNext(job.size());
+        return job.commit();
+    }
+
+    /**
+     * Plans to apply edit with tags to each of imageFiles, without renaming
+     * anything yet. The EditJob returned renames the system files a part at
+     * a time, on any thread, and commits the renames done to this model on
+     * the thread that owns it; editTags does it all at once.
+     *
+     * @param imageFiles the ImageFiles to edit
+     * @param edit       whether tags are added, removed or set
+     * @param tags       the tags to add, remove or set
+     * @return the planned edit
+     */
+    public EditJob newEdit(Collection<ImageFile> imageFiles, TagEdit edit,
+                           List<Tag> tags) {
+        // Plan the renames, grouped by directory
+        Map<File, List<Rename>> byDirectory = new LinkedHashMap<>();
+        Set<ImageFile> seen =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ImageFile im : imageFiles) {
+            ArrayList<Tag> newTags = edit.apply(im.getCurrentTags(), tags);
+            if (seen.add(im) && !newTags.equals(im.getCurrentTags())) {
+                byDirectory.computeIfAbsent(im.getFile().getParentFile(),
+                        directory -> new ArrayList<>()).add(
+                        new Rename(im, newTags));
+            }
+        }
+        List<Rename> renames = new ArrayList<>();
+        for (List<Rename> inDirectory : byDirectory.values()) {
+            renames.addAll(inDirectory);
+        }
+        return new EditJob(edit, tags, renames);
+    }
+
+    /**
+     * Returns the ImageFiles with any of tags, found through the tag index.
+     *
+     * @param tags the tags
+     * @return the ImageFiles with any of tags, each once
+     */
+    public List<ImageFile> findWithAnyTag(Collection<Tag> tags) {
+        return images.findWithAnyTag(tags);
+    }
+
+    /**
+     * An EditJob is a planned edit of the tags of many ImageFiles. Its
+     * system files are renamed a part at a time by renameNext, which may be
+     * called on a background thread, so a large edit can report progress
+     * and be stopped part way. The renames done are applied to the model by
+     * commit, on the thread that owns the model. Until then the model is
+     * unchanged, and the watcher ignores the files being renamed.
+     */
+    public class EditJob {
+        /**
+         * Whether tags are added, removed or set.
+         */
+        private final TagEdit edit;
+
+        /**
+         * The tags added, removed or set.
+         */
+        private final List<Tag> tags;
+
+        /**
+         * The renames planned, grouped by directory.
+         */
+        private final List<Rename> renames;
+
+        /**
+         * The number of renames carried out.
+         */
+        private volatile int renamed;
+
+        /**
+         * The number of renames applied to the model.
+         */
+        private int committed;
+
+        /**
+         * The outcome of the renames applied so far.
+         */
+        private final BatchResult result = new BatchResult();
+
+        /**
+         * The time the job was planned.
+         */
+        private final long start = Timer.start();
+
+        /**
+         * Constructs a job for the renames planned.
+         *
+         * @param edit    whether tags are added, removed or set
+         * @param tags    the tags added, removed or set
+         * @param renames the renames planned
+         */
+        private EditJob(TagEdit edit, List<Tag> tags, List<Rename> renames) {
+            this.edit = edit;
+            this.tags = new ArrayList<>(tags);
+            this.renames = renames;
+        }
+
+        /**
+         * Returns the number of ImageFiles whose tags the edit changes.
+         *
+         * @return the number of renames planned
+         */
+        public int size() {
+            return renames.size();
+        }
+
+        /**
+         * Returns the number of renames carried out so far, including those
+         * that failed.
+         *
+         * @return the number of renames carried out
+         */
+        public int getRenamed() {
+            return renamed;
+        }
+
+        /**
+         * Returns whether every rename planned has been carried out.
+         *
+         * @return true if there are no renames left
+         */
+        public boolean isRenamed() {
+            return renamed == renames.size();
+        }
+
+        /**
+         * Renames the system files of the next count ImageFiles, in
+         * parallel across directories. Must not be called on two threads at
+         * once.
+         *
+         * @param count the most files to rename
+         */
+        public void renameNext(int count) {
+            int from = renamed;
+            int to = Math.min(renames.size(), from + count);
+            if (from == to) {
+                return;
+            }
+            List<Rename> chunk = renames.subList(from, to);
+            Map<File, List<Rename>> byDirectory = new LinkedHashMap<>();
+            for (Rename rename : chunk) {
+                renaming.add(rename.source);
+                renaming.add(rename.dest);
+                byDirectory.computeIfAbsent(rename.source.getParentFile(),
+                        directory -> new ArrayList<>()).add(rename);
+            }
+            IOException failure = journalIntents(journal -> {
+                for (Rename rename : chunk) {
+                    journal.logIntent(rename.source, rename.dest,
+                            rename.tags);
+                }
+            });
+            if (failure == null) {
+                runByDirectory(byDirectory.values(), Rename::run);
+            } else {
+                for (Rename rename : chunk) {
+                    rename.failure = failure;
+                }
+            }
+            renamed = to;
+        }
+
+        /**
+         * Applies the renames carried out since the last commit to the
+         * model: the ImageFiles renamed are updated, the renames are written
+         * to the log as one entry, and observers are notified once. Must be
+         * called on the thread that owns the model. Renames not carried out
+         * yet are left for a later commit, or never done if the job is
+         * abandoned.
+         *
+         * @return the outcome of every rename committed so far
+         * @throws UncheckedIOException if the log is SYNCHRONOUS and the
+         *                              renames could not be logged; they
+         *                              are committed all the same
+         */
+        public BatchResult commit() {
+            int from = committed;
+            int to = renamed;
+            StringBuilder entry = new StringBuilder();
+            int changed = 0;
+            List<Rename> chunk = renames.subList(from, to);
+            beginBatch();
+            try {
+                for (Rename rename : chunk) {
+                    if (!rename.done) {
+                        if (journal != null) {
+                            journal.logAbort(rename.source, rename.dest);
                         }
+                        result.addFailure(rename.imageFile, rename.failure);
+                        RENAME_FAILURES.increment();
+                        continue;
+                    }
+                    // The file is renamed on disk, so it is logged even if
+                    // it cannot be journaled
+                    entry.append("\nMove file [").append(
+                            rename.source.getAbsolutePath())
+                            .append("] to [").append(
+                            rename.dest.getAbsolutePath()).append("]");
+                    changed++;
+                    try {
+                        commitRename(rename);
+                        result.addChanged(rename.imageFile);
+                    } catch (UncheckedIOException e) {
+                        result.addFailure(rename.imageFile, e.getCause());
+                        RENAME_FAILURES.increment();
+                    }
+                }
+            } finally {
+                committed = to;
+                for (Rename rename : chunk) {
+                    renaming.remove(rename.source);
+                    renaming.remove(rename.dest);
+                }
+                endBatch();
+            }
+            if (from < to && isRenamed()) {
+                EDIT_TIMER.stop(start);
+            }
+            if (changed > 0) {
+                RENAMES.add(changed);
+                ImageFile.writeLog("Edit tags of " + changed + " files:" +
+                        entry);
+            }
+            return result;
+        }
+
+        /**
+         * Applies a rename carried out to the model. The ImageFile is
+         * brought up to date even if the change cannot be journaled.
+         *
+         * @param rename the rename carried out
+         * @throws UncheckedIOException if the change could not be journaled
+         */
+        private void commitRename(Rename rename) {
+            if (edit != TagEdit.REMOVE) {
+                // Only tags some file was given become existing tags
+                for (Tag tag : tags) {
+                    if (rename.tags.contains(tag)) {
+                        existingTags.addTag(tag);
                     }
                 }
-                return FileVisitResult.CONTINUE;
             }
-        };
-        Files.walkFileTree(file.toPath(), fv);
+            rename.imageFile.commitEdit(rename.dest, rename.tags);
+        }
+    }
+
+    /**
+     * A Rename is the renaming of one system file in a batch edit.
+     */
+    private static class Rename {
+        /**
+         * The ImageFile whose system file is renamed.
+         */
+        private final ImageFile imageFile;
+
+        /**
+         * The tags the ImageFile has after the rename.
+         */
+        private final ArrayList<Tag> tags;
+
+        /**
+         * The file the system file is renamed from.
+         */
+        private final File source;
+
+        /**
+         * The file the system file is renamed to.
+         */
+        private final File dest;
+
+        /**
+         * Whether the system file was renamed.
+         */
+        private boolean done;
+
+        /**
+         * The exception that stopped the rename, if it failed.
+         */
+        private IOException failure;
+
+        /**
+         * Plans to rename the system file of imageFile for tags.
+         *
+         * @param imageFile the ImageFile to rename
+         * @param tags      the tags it has after the rename
+         */
+        private Rename(ImageFile imageFile, ArrayList<Tag> tags) {
+            this.imageFile = imageFile;
+            this.tags = tags;
+            this.source = imageFile.getFile();
+            this.dest = imageFile.fileWithTags(tags);
+        }
+
+        /**
+         * Renames the system file, recording any failure.
+         */
+        private void run() {
+            try {
+                Files.move(source.toPath(), dest.toPath());
+                done = true;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Moves every ImageFile of imageFiles into destDirectory, keeping its
+     * name. The system files are moved first, in parallel across the
+     * directories they are in. If any of them could not be moved, those
+     * already moved are moved back, so that either every ImageFile is moved
+     * or none is. Then, on the calling thread, the ImageFiles moved are
+     * updated, the moves are written to the log as one entry, and observers
+     * are notified once. Clashes with files already in destDirectory should
+     * be checked for beforehand; a move onto an existing file fails.
+     *
+     * @param imageFiles    the ImageFiles to move
+     * @param destDirectory the directory to move them into
+     * @return the ImageFiles moved, and those that could not be. If any
+     *         could not be, the ImageFiles moved are only those that could
+     *         not be moved back.
+     * @throws UncheckedIOException if the log is SYNCHRONOUS and the moves
+     *                              could not be logged; they are made all
+     *                              the same
+     */
+    public BatchResult moveFiles(Collection<ImageFile> imageFiles,
+                                 File destDirectory) {
+        long start = Timer.start();
+        File directory = destDirectory.getAbsoluteFile();
+        Map<File, List<Move>> byDirectory = new LinkedHashMap<>();
+        List<Move> moves = new ArrayList<>();
+        Set<ImageFile> seen =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ImageFile im : imageFiles) {
+            if (seen.add(im)) {
+                Move move = new Move(im, new File(directory,
+                        im.getFile().getName()));
+                moves.add(move);
+                renaming.add(move.source);
+                renaming.add(move.dest);
+                byDirectory.computeIfAbsent(move.source.getParentFile(),
+                        d -> new ArrayList<>()).add(move);
+            }
+        }
+        IOException failure = journalIntents(journal -> {
+            for (Move move : moves) {
+                journal.logIntent(move.source, move.dest);
+            }
+        });
+        if (failure == null) {
+            runByDirectory(byDirectory.values(), Move::run);
+        } else {
+            for (Move move : moves) {
+                move.failure = failure;
+            }
+        }
+        BatchResult result = new BatchResult();
+        for (Move move : moves) {
+            if (move.failure != null) {
+                result.addFailure(move.imageFile, move.failure);
+            }
+        }
+        if (result.hasFailures()) {
+            // Roll back, so the catalog and the disk agree
+            runByDirectory(byDirectory.values(), Move::undo);
+            MOVE_ROLLBACKS.increment();
+        }
+        StringBuilder entry = new StringBuilder();
+        int moved = 0;
+        beginBatch();
+        try {
+            for (Move move : moves) {
+                if (!move.done) {
+                    if (journal != null) {
+                        journal.logAbort(move.source, move.dest);
+                    }
+                    continue;
+                }
+                entry.append("\nMove file [").append(
+                        move.source.getAbsolutePath()).append("] to [")
+                        .append(move.dest.getAbsolutePath()).append("]");
+                moved++;
+                try {
+                    move.imageFile.commitMove(move.dest);
+                    result.addChanged(move.imageFile);
+                } catch (UncheckedIOException e) {
+                    // Moved all the same; only the journal failed
+                    result.addFailure(move.imageFile, e.getCause());
+                }
+            }
+        } finally {
+            for (Move move : moves) {
+                renaming.remove(move.source);
+                renaming.remove(move.dest);
+            }
+            endBatch();
+        }
+        MOVE_TIMER.stop(start);
+        if (moved > 0) {
+            MOVES.add(moved);
+            ImageFile.writeLog("Move " + moved +
+                    " files to [" + directory.getAbsolutePath() + "]:" +
+                    entry);
+        }
+        return result;
+    }
+
+    /**
+     * Applies action to every item of groups, in parallel across groups
+     * and in order within each group. Returns once every action started has
+     * finished, even if the calling thread is interrupted, in which case
+     * its interrupt status is set again.
+     *
+     * @param groups the items, grouped by the directory they touch
+     * @param action the action to apply to each item
+     * @param <T>    the type of the items
+     */
+    private static <T> void runByDirectory(Collection<List<T>> groups,
+                                           Consumer<T> action) {
+        if (groups.size() == 1) {
+            groups.iterator().next().forEach(action);
+            return;
+        }
+        int threads = Math.min(groups.size(),
+                2 * Runtime.getRuntime().availableProcessors());
+        if (threads == 0) {
+            return;
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (List<T> group : groups) {
+            pool.execute(() -> group.forEach(action));
+        }
+        pool.shutdown();
+        boolean interrupted = false;
+        while (!pool.isTerminated()) {
+            try {
+                pool.awaitTermination(1, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * A Move is the moving of one system file in a batch move.
+     */
+    private static class Move {
+        /**
+         * The ImageFile whose system file is moved.
+         */
+        private final ImageFile imageFile;
+
+        /**
+         * The file the system file is moved from.
+         */
+        private final File source;
+
+        /**
+         * The file the system file is moved to.
+         */
+        private final File dest;
+
+        /**
+         * Whether the system file is at dest.
+         */
+        private boolean done;
+
+        /**
+         * The exception that stopped the move, if it failed.
+         */
+        private IOException failure;
+
+        /**
+         * Plans to move the system file of imageFile to dest.
+         *
+         * @param imageFile the ImageFile to move
+         * @param dest      the file to move it to
+         */
+        private Move(ImageFile imageFile, File dest) {
+            this.imageFile = imageFile;
+            this.source = imageFile.getFile();
+            this.dest = dest;
+        }
+
+        /**
+         * Moves the system file, recording any failure.
+         */
+        private void run() {
+            try {
+                Files.move(source.toPath(), dest.toPath());
+                done = true;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * Moves the system file back, if it was moved. If it cannot be
+         * moved back, it is left at dest.
+         */
+        private void undo() {
+            if (!done) {
+                return;
+            }
+            try {
+                Files.move(dest.toPath(), source.toPath());
+                done = false;
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Opens a batch of changes. Until the batch is closed, changes are
+     * collected rather than passed on to observers. Batches may be nested.
+     */
+    private void beginBatch() {
+        batchDepth++;
+    }
+
+    /**
+     * Closes a batch of changes. Once the outermost batch is closed, the
+     * changes collected are passed on to observers in one notification,
+     * and if enough changes have been journaled, this model is
+     * checkpointed into the catalog. A batch commit is thus never
+     * checkpointed half applied.
+     */
+    private void endBatch() {
+        batchDepth--;
+        if (batchDepth > 0) {
+            return;
+        }
+        if (!pendingEvents.isEmpty()) {
+            List<ChangeEvent> events = pendingEvents;
+            pendingEvents = new ArrayList<>();
+            setChanged();
+            notifyObservers(Collections.unmodifiableList(events));
+        }
+        if (journal != null && journal.size() > CHECKPOINT_BYTES) {
+            saveAll();
+        }
+    }
+
+    /**
+     * Passes event on to observers, as a list of one ChangeEvent, or holds
+     * it until the open batch is closed.
+     *
+     * @param event the change to pass on
+     */
+    private void publish(ChangeEvent event) {
+        beginBatch();
+        try {
+            pendingEvents.add(event);
+        } finally {
+            endBatch();
+        }
     }
 
     /**
@@ -123,7 +1350,7 @@ public class Model extends Observable implements Serializable {
      * @throws ClassNotFoundException Class definition of a serialized object
      *                                cannot be found.
      */
-    private Object readObject(String path)
+    private Object readObject(File path)
             throws IOException, ClassNotFoundException {
         InputStream file = new FileInputStream(path);
         InputStream buffer = new BufferedInputStream(file);
@@ -134,31 +1361,38 @@ public class Model extends Observable implements Serializable {
     }
 
     /**
-     * Writes obj to file at filePath.
+     * Search this model's collection of ImageFiles for file.
      *
-     * @param filePath the file to write the records to
+     * @param file the file being searched for in imageFiles
+     * @return the ImageFile corresponding to file, null if no imageFile exists
      */
-    private void writeObject(String filePath, Object obj) throws IOException {
-        OutputStream file = new FileOutputStream(filePath);
-        OutputStream buffer = new BufferedOutputStream(file);
-        ObjectOutput output = new ObjectOutputStream(buffer);
-        output.writeObject(obj);
-        output.close();
+    public ImageFile getImageFile(File file) {
+        return images.getImageFile(file);
     }
 
     /**
-     * Search this model's collection of ImageFiles for file.
+     * Return the ImageFiles in this model that match query, such as
+     * "hawaii AND beach AND NOT blurry". An empty query matches nothing.
      *
-     * @param file the file being searched for in imageFiles
-     * @return the ImageFile corresponding to file, null if no imageFile exists
+     * @param query the text of the query, as parsed by TagQuery
+     * @return the ImageFiles matching query
+     * @throws ParseException if query is not a valid query
      */
-    public ImageFile getImageFile(File file) {
-        for (ImageFile i : this.imageFiles) {
-            if (i.getFile().equals(file)) {
-                return i;
-            }
+    public List<ImageFile> search(String query) throws ParseException {
+        if (query.trim().isEmpty()) {
+            return new ArrayList<>();
         }
-        return null;
+        return search(TagQuery.parse(query));
+    }
+
+    /**
+     * Return the ImageFiles in this model that match query.
+     *
+     * @param query the query
+     * @return the ImageFiles matching query
+     */
+    public List<ImageFile> search(TagQuery query) {
+        return images.search(query);
     }
 
     /**
@@ -171,12 +1405,75 @@ public class Model extends Observable implements Serializable {
     }
 
     /**
-     * Return the collection of ImageFiles for this Model.
+     * Return the collection of ImageFiles for this Model. If the catalog is
+     * loaded lazily, the list builds each ImageFile only when it is got.
      *
      * @return the collection of ImageFiles for this Model.
      */
-    public ArrayList<ImageFile> getImageFiles() {
-        return new ArrayList<>(imageFiles);
+    public List<ImageFile> getImageFiles() {
+        return images.getImageFiles();
+    }
+
+    /**
+     * Returns the ImageFiles in imageFiles that are under the root. A list
+     * from this lazily loaded model is filtered without building any
+     * ImageFile.
+     *
+     * @param imageFiles ImageFiles of this model
+     * @return the ImageFiles under the root, in the same order
+     */
+    public List<ImageFile> underRoot(List<ImageFile> imageFiles) {
+        if (imageFiles instanceof ImageList) {
+            return ((ImageList) imageFiles).underRoot();
+        }
+        ArrayList<ImageFile> result = new ArrayList<>();
+        for (ImageFile im : imageFiles) {
+            if (isUnderRoot(im)) {
+                result.add(im);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns whether imageFile is under the root. Paths are compared by
+     * name, so /a/bc is not under /a/b.
+     *
+     * @param imageFile an ImageFile of this model
+     * @return true if imageFile is under the root
+     */
+    public boolean isUnderRoot(ImageFile imageFile) {
+        return imageFile.getFile().toPath().toAbsolutePath().startsWith(
+                root.toPath().toAbsolutePath());
+    }
+
+    /**
+     * Returns how the catalog of this model is loaded.
+     *
+     * @return the catalog mode of this model
+     */
+    public CatalogMode getCatalogMode() {
+        return catalogMode;
+    }
+
+    /**
+     * Returns the number of ImageFiles of this lazily loaded model that
+     * have been built and are still in use.
+     *
+     * @return the number of ImageFiles in memory, or every ImageFile if the
+     * catalog was loaded eagerly
+     */
+    int getLiveCount() {
+        return images.getLiveCount();
+    }
+
+    /**
+     * Returns the journal of changes made since the catalog was last saved.
+     *
+     * @return the journal of this model, or null if it could not be opened
+     */
+    Journal getJournal() {
+        return journal;
     }
 
     /**
@@ -189,14 +1486,126 @@ public class Model extends Observable implements Serializable {
     }
 
     /**
-     * Serializes the imageFiles and existingTags
+     * Returns the directory the catalog, journal and history of this model
+     * are kept in.
+     *
+     * @return the data directory of this model
+     */
+    public Path getDataDirectory() {
+        return dataDirectory;
+    }
+
+    /**
+     * Return the scanner that walked the file tree when this model was
+     * created, which reports the duration and rate of the scan.
+     *
+     * @return the scanner used to create this model
+     */
+    public ImageScanner getScanner() {
+        return this.scanner;
+    }
+
+    /**
+     * Re-indexes an ImageFile of this model whenever it is renamed, moved or
+     * has its tags edited, and passes the ChangeEvent on to this model's
+     * observers, as a list of ChangeEvents.
+     *
+     * @param o   the ImageFile or ExistingTags that changed
+     * @param arg the ChangeEvent describing the change, or a list of them
+     */
+    @Override
+    public void update(Observable o, Object arg) {
+        if (o instanceof ImageFile) {
+            reindex((ImageFile) o);
+        }
+        if (arg instanceof ChangeEvent) {
+            publish((ChangeEvent) arg);
+        } else if (arg instanceof List) {
+            beginBatch();
+            try {
+                for (Object event : (List<?>) arg) {
+                    publish((ChangeEvent) event);
+                }
+            } finally {
+                endBatch();
+            }
+        }
+    }
+
+    /**
+     * Brings the indexes of imageFile up to date with its current file and
+     * tags.
+     *
+     * @param imageFile the ImageFile to re-index
+     */
+    private void reindex(ImageFile imageFile) {
+        images.update(imageFile);
+    }
+
+    /**
+     * Returns whether an ImageFile of this model in directory has the
+     * original name provided.
+     *
+     * @param directory    the directory to look in
+     * @param originalName the original name, without any tags
+     * @return true if an ImageFile in directory has originalName
+     */
+    public boolean hasOriginalName(File directory, String originalName) {
+        return images.hasOriginalName(directory, originalName);
+    }
+
+    /**
+     * Returns the renames of every ImageFile from time from up to, but not
+     * including, time to, oldest first.
+     *
+     * @param from the earliest time, in milliseconds since the epoch
+     * @param to   the time after the latest, in milliseconds since the epoch
+     * @return the renames between from and to
+     * @throws IOException if the history could not be read
+     */
+    public List<HistoryEntry> getHistory(long from, long to)
+            throws IOException {
+        return history.between(from, to);
+    }
+
+    /**
+     * Saves the imageFiles and existingTags to the catalog, and empties the
+     * journal of the changes now saved. The rename history is written to
+     * disk too, but the catalog is saved even if it cannot be. A lazily
+     * loaded model then maps the catalog just saved.
      */
     public void saveAll() {
+        long start = Timer.start();
         try {
-            writeObject(IMAGE_DATA_PATH, imageFiles);
-            writeObject(EXISTING_TAGS_PATH, existingTags);
+            history.sync();
         } catch (IOException e) {
-            // e.printStackTrace();
+            e.printStackTrace();
+        }
+        try {
+            images.save(catalog, existingTags, nextFileId);
+            if (journal != null) {
+                journal.reset();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        SAVE_TIMER.stop(start);
+    }
+
+    /**
+     * Stops watching the root, and closes the journal and the history
+     * store. Nothing is saved; call saveAll first to keep the changes.
+     *
+     * @throws IOException if the journal or history could not be closed
+     */
+    void close() throws IOException {
+        stopWatching();
+        try {
+            if (journal != null) {
+                journal.close();
+            }
+        } finally {
+            history.close();
         }
     }
 }
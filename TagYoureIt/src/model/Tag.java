@@ -11,6 +11,12 @@ import java.io.Serializable;
  */
 
 public class Tag implements Serializable {
+    /**
+     * The version of the serialized form of this class, which is still read
+     * when migrating old imageData.ser and existingTags.ser files.
+     */
+    private static final long serialVersionUID = -5039581833578583665L;
+
     /**
      * The name of this tag
      */
@@ -45,6 +51,16 @@ public class Tag implements Serializable {
         return o instanceof Tag && this.tag.equals(((Tag) o).getTag());
     }
 
+    /**
+     * Returns a hash code for this tag, consistent with equals.
+     *
+     * @return the hash code of the name of this tag
+     */
+    @Override
+    public int hashCode() {
+        return this.tag.hashCode();
+    }
+
     /**
      * Returns the name of this tag
      *
@@ -0,0 +1,128 @@
+package model;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TagDictionary interns the name of every tag in use, giving it a dense
+ * int id and one canonical Tag object. ImageFiles store their tags as arrays
+ * of these ids, so a million images with a handful of tags each share one
+ * Tag and one String per distinct tag name, and comparing tags compares
+ * ints. Ids are never reused or forgotten while the program runs; they are
+ * not stored on disk, and may differ between runs.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+final class TagDictionary {
+    /**
+     * An empty array of tag ids.
+     */
+    static final int[] NO_TAGS = new int[0];
+
+    /**
+     * The id of each tag name interned so far.
+     */
+    private static final ConcurrentHashMap<String, Integer> ids =
+            new ConcurrentHashMap<>();
+
+    /**
+     * The canonical Tag of each id. Written only while holding the class
+     * lock, and republished after each write so readers see it.
+     */
+    private static volatile Tag[] tags = new Tag[64];
+
+    /**
+     * The number of ids given out so far.
+     */
+    private static int size;
+
+    /**
+     * The TagDictionary is not instantiated.
+     */
+    private TagDictionary() {
+    }
+
+    /**
+     * Returns the id of the tag named name, giving it a new id if it has
+     * none yet.
+     *
+     * @param name the name of the tag
+     * @return the id of the tag
+     */
+    static int intern(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : add(name);
+    }
+
+    /**
+     * Gives the tag named name a new id, unless another thread just did.
+     *
+     * @param name the name of the tag
+     * @return the id of the tag
+     */
+    private static synchronized int add(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        Tag[] current = tags;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = new Tag(name);
+        tags = current;
+        ids.put(name, size);
+        return size++;
+    }
+
+    /**
+     * Returns the id of the tag named name, without interning it.
+     *
+     * @param name the name of the tag
+     * @return the id of the tag, or -1 if no tag has that name
+     */
+    static int lookup(String name) {
+        Integer id = ids.get(name);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the canonical Tag with id provided.
+     *
+     * @param id the id of a tag
+     * @return the Tag with that id
+     */
+    static Tag tag(int id) {
+        return tags[id];
+    }
+
+    /**
+     * Returns the canonical Tag with the same name as tag, interning it.
+     *
+     * @param tag a tag
+     * @return the canonical Tag with the same name
+     */
+    static Tag canonical(Tag tag) {
+        return tag(intern(tag.getTag()));
+    }
+
+    /**
+     * Returns the ids of the tags provided, in the same order.
+     *
+     * @param tagList the tags
+     * @return the ids of the tags
+     */
+    static int[] ids(List<Tag> tagList) {
+        if (tagList.isEmpty()) {
+            return NO_TAGS;
+        }
+        int[] result = new int[tagList.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = intern(tagList.get(i).getTag());
+        }
+        return result;
+    }
+}
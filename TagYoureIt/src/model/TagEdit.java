@@ -0,0 +1,62 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A TagEdit is a way of changing the tags of many image files at once: by
+ * adding tags to each, removing tags from each, or giving each the same
+ * tags.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public enum TagEdit {
+    /**
+     * Adds the tags each image file does not have yet, after its own tags.
+     */
+    ADD {
+        @Override
+        ArrayList<Tag> apply(List<Tag> current, List<Tag> tags) {
+            ArrayList<Tag> result = new ArrayList<>(current);
+            for (Tag tag : tags) {
+                if (!result.contains(tag)) {
+                    result.add(tag);
+                }
+            }
+            return result;
+        }
+    },
+
+    /**
+     * Removes the tags from each image file that has them.
+     */
+    REMOVE {
+        @Override
+        ArrayList<Tag> apply(List<Tag> current, List<Tag> tags) {
+            ArrayList<Tag> result = new ArrayList<>(current);
+            result.removeAll(tags);
+            return result;
+        }
+    },
+
+    /**
+     * Replaces the tags of each image file.
+     */
+    SET {
+        @Override
+        ArrayList<Tag> apply(List<Tag> current, List<Tag> tags) {
+            return new ArrayList<>(tags);
+        }
+    };
+
+    /**
+     * Returns the tags an image file with tags current has after this edit.
+     *
+     * @param current the tags the image file has now
+     * @param tags    the tags being added, removed or set
+     * @return the tags the image file has after the edit
+     */
+    abstract ArrayList<Tag> apply(List<Tag> current, List<Tag> tags);
+}
@@ -0,0 +1,280 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+
+/**
+ * A TagIndex is an inverted index from each tag to the ImageFiles that
+ * currently have it. Every indexed ImageFile is given a dense int id, and
+ * each tag's posting list is a CompressedBitmap of those ids, kept by the
+ * tag's id in the TagDictionary, so finding the images with a tag costs time
+ * proportional to the number of images found. An index can also be kept
+ * by id alone, with set and clear, for ImageFiles that are not all in
+ * memory; the caller then maps the ids found back to ImageFiles.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class TagIndex {
+    /**
+     * The indexed ImageFiles, by id. Ids of removed ImageFiles are null.
+     */
+    private final ArrayList<ImageFile> images = new ArrayList<>();
+
+    /**
+     * The id of each indexed ImageFile.
+     */
+    private final IdentityHashMap<ImageFile, Integer> ids =
+            new IdentityHashMap<>();
+
+    /**
+     * The ids of the tags each ImageFile was last indexed with, by id.
+     */
+    private final ArrayList<int[]> indexedTags = new ArrayList<>();
+
+    /**
+     * The ids of the ImageFiles with each tag, by tag id. Tags no ImageFile
+     * has have no posting list.
+     */
+    private final ArrayList<CompressedBitmap> postings = new ArrayList<>();
+
+    /**
+     * The names of the tags that have a posting list, in order of name.
+     */
+    private final TreeSet<String> tagNames = new TreeSet<>();
+
+    /**
+     * The ids of the ImageFiles that have been removed.
+     */
+    private final CompressedBitmap removedIds = new CompressedBitmap();
+
+    /**
+     * The number of indexed ImageFiles.
+     */
+    private int count;
+
+    /**
+     * Adds imageFile and its current tags to this index.
+     *
+     * @param imageFile the ImageFile to index
+     */
+    void add(ImageFile imageFile) {
+        if (ids.containsKey(imageFile)) {
+            return;
+        }
+        int id = images.size();
+        images.add(imageFile);
+        ids.put(imageFile, id);
+        set(id, imageFile.getTagIds());
+    }
+
+    /**
+     * Removes imageFile from this index.
+     *
+     * @param imageFile the ImageFile to remove
+     */
+    void remove(ImageFile imageFile) {
+        Integer id = ids.remove(imageFile);
+        if (id != null) {
+            images.set(id, null);
+            clear(id);
+        }
+    }
+
+    /**
+     * Re-indexes imageFile after its tags have changed.
+     *
+     * @param imageFile the ImageFile whose tags changed
+     */
+    void update(ImageFile imageFile) {
+        Integer id = ids.get(imageFile);
+        if (id != null) {
+            set(id, imageFile.getTagIds());
+        }
+    }
+
+    /**
+     * Indexes the ImageFile with the id provided under the tags it has now.
+     * A new id must be the next one after the last id indexed.
+     *
+     * @param id      the id of the ImageFile
+     * @param current the ids of the tags it has now, which must not be
+     *                modified afterwards
+     */
+    void set(int id, int[] current) {
+        if (id == indexedTags.size()) {
+            indexedTags.add(TagDictionary.NO_TAGS);
+            count++;
+        }
+        int[] indexed = indexedTags.get(id);
+        if (current == indexed) {
+            return;
+        }
+        for (int tag : indexed) {
+            removePosting(tag, id);
+        }
+        for (int tag : current) {
+            while (postings.size() <= tag) {
+                postings.add(null);
+            }
+            if (postings.get(tag) == null) {
+                postings.set(tag, new CompressedBitmap());
+                tagNames.add(TagDictionary.tag(tag).getTag());
+            }
+            postings.get(tag).add(id);
+        }
+        // The array is never modified, so it can be kept as it is.
+        indexedTags.set(id, current);
+    }
+
+    /**
+     * Removes the ImageFile with the id provided from this index. Its id is
+     * not used again.
+     *
+     * @param id the id of the ImageFile
+     */
+    void clear(int id) {
+        int[] indexed = indexedTags.get(id);
+        if (indexed == null) {
+            return;
+        }
+        for (int tag : indexed) {
+            removePosting(tag, id);
+        }
+        indexedTags.set(id, null);
+        removedIds.add(id);
+        count--;
+    }
+
+    /**
+     * Removes id from the posting list of tag, dropping the list once it is
+     * empty.
+     *
+     * @param tag the id of the tag
+     * @param id  the id of an ImageFile
+     */
+    private void removePosting(int tag, int id) {
+        CompressedBitmap posting = postings.get(tag);
+        if (posting != null) {
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.set(tag, null);
+                tagNames.remove(TagDictionary.tag(tag).getTag());
+            }
+        }
+    }
+
+    /**
+     * Returns the ids of the ImageFiles with the tag named tagName. The
+     * returned bitmap must not be modified.
+     *
+     * @param tagName the name of the tag
+     * @return the ids of the ImageFiles with tag tagName
+     */
+    CompressedBitmap getPosting(String tagName) {
+        int tag = TagDictionary.lookup(tagName);
+        CompressedBitmap posting = tag >= 0 && tag < postings.size() ?
+                postings.get(tag) : null;
+        return posting == null ? new CompressedBitmap() : posting;
+    }
+
+    /**
+     * Returns the names of the tags some indexed ImageFile has that start
+     * with prefix, in order of name.
+     *
+     * @param prefix the start of the tag names
+     * @return the names of the tags starting with prefix
+     */
+    NavigableSet<String> getTagNames(String prefix) {
+        if (prefix.isEmpty()) {
+            return tagNames;
+        }
+        String end = prefix.substring(0, prefix.length() - 1) +
+                (char) (prefix.charAt(prefix.length() - 1) + 1);
+        return tagNames.subSet(prefix, true, end, false);
+    }
+
+    /**
+     * Returns the ids of every indexed ImageFile.
+     *
+     * @return the ids of every indexed ImageFile
+     */
+    CompressedBitmap getAll() {
+        return CompressedBitmap.andNot(
+                CompressedBitmap.range(indexedTags.size()), removedIds);
+    }
+
+    /**
+     * Returns the number of indexed ImageFiles.
+     *
+     * @return the number of indexed ImageFiles
+     */
+    int size() {
+        return count;
+    }
+
+    /**
+     * Returns the ImageFiles matching query, in the order they were
+     * indexed.
+     *
+     * @param query the query to evaluate
+     * @return the ImageFiles matching query
+     */
+    ArrayList<ImageFile> find(TagQuery query) {
+        return getImageFiles(query.evaluate(this));
+    }
+
+    /**
+     * Returns the ImageFiles whose ids are in the bitmap provided, in id
+     * order.
+     *
+     * @param bitmap the ids of indexed ImageFiles
+     * @return the ImageFiles with those ids
+     */
+    ArrayList<ImageFile> getImageFiles(CompressedBitmap bitmap) {
+        ArrayList<ImageFile> found = new ArrayList<>(bitmap.cardinality());
+        bitmap.forEach(id -> found.add(images.get(id)));
+        return found;
+    }
+
+    /**
+     * Returns the ImageFiles with the tag named tagName, in the order they
+     * were indexed.
+     *
+     * @param tagName the name of the tag
+     * @return the ImageFiles with tag tagName
+     */
+    ArrayList<ImageFile> find(String tagName) {
+        return getImageFiles(getPosting(tagName));
+    }
+
+    /**
+     * Returns the ImageFiles with any of tags, each once, in the order they
+     * were indexed.
+     *
+     * @param tags the tags
+     * @return the ImageFiles with any of tags
+     */
+    ArrayList<ImageFile> findAny(Collection<Tag> tags) {
+        return getImageFiles(getAnyPosting(tags));
+    }
+
+    /**
+     * Returns the ids of the ImageFiles with any of tags.
+     *
+     * @param tags the tags
+     * @return the ids of the ImageFiles with any of tags
+     */
+    CompressedBitmap getAnyPosting(Collection<Tag> tags) {
+        List<CompressedBitmap> postings = new ArrayList<>();
+        for (Tag tag : tags) {
+            postings.add(getPosting(tag.getTag()));
+        }
+        return CompressedBitmap.or(postings);
+    }
+}
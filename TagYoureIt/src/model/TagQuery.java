@@ -0,0 +1,561 @@
+package model;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * A TagQuery is a search for images by their tags, such as
+ * "hawaii AND beach AND NOT @blurry". A query is made of tag names joined by
+ * AND, OR and NOT, grouped with parentheses. A leading '@' on a tag name is
+ * ignored, and a trailing '*' matches every tag starting with the rest of
+ * the name. Terms written side by side are joined by AND, and AND binds
+ * more tightly than OR. A tag name may be put in double quotes, as in
+ * hawaii AND "beach house", and is then taken as it is, so it may hold
+ * spaces, parentheses, '@', '*' or the words AND, OR and NOT; a backslash
+ * in quotes escapes the character after it.
+ *
+ * A query is evaluated against the posting lists of a TagIndex. The terms of
+ * each AND are intersected rarest first, so the intermediate results are
+ * never larger than the smallest posting list, and negated terms are
+ * subtracted last.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class TagQuery {
+    /**
+     * The root of the parsed query.
+     */
+    private final Node root;
+
+    /**
+     * The text this query was parsed from.
+     */
+    private final String text;
+
+    /**
+     * Creates a query with the root provided.
+     *
+     * @param root the root of the parsed query
+     * @param text the text it was parsed from
+     */
+    private TagQuery(Node root, String text) {
+        this.root = root;
+        this.text = text;
+    }
+
+    /**
+     * Parses a query.
+     *
+     * @param text the text of the query
+     * @return the query
+     * @throws ParseException if text is not a valid query; the error offset
+     *                        is the position of the offending token
+     */
+    public static TagQuery parse(String text) throws ParseException {
+        Parser parser = new Parser(text);
+        Node root = parser.parseOr();
+        if (parser.peek() != null) {
+            throw new ParseException("Unexpected \"" + parser.peek() + "\"",
+                    parser.position());
+        }
+        return new TagQuery(root, text);
+    }
+
+    /**
+     * Returns whether imageFile matches this query.
+     *
+     * @param imageFile the ImageFile to test
+     * @return true if the tags of imageFile match this query
+     */
+    public boolean matches(ImageFile imageFile) {
+        return root.matches(imageFile.getCurrentTags());
+    }
+
+    /**
+     * Returns the ids of the ImageFiles in index that match this query.
+     *
+     * @param index the index to evaluate this query against
+     * @return the ids of the matching ImageFiles
+     */
+    CompressedBitmap evaluate(TagIndex index) {
+        return root.evaluate(index);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * A Node is a part of a parsed query.
+     */
+    private abstract static class Node {
+        /**
+         * Returns whether tags match this part of the query.
+         *
+         * @param tags the tags of an image
+         * @return true if tags match
+         */
+        abstract boolean matches(List<Tag> tags);
+
+        /**
+         * Returns the ids of the ImageFiles in index matching this part of
+         * the query. The returned bitmap must not be modified.
+         *
+         * @param index the index to evaluate against
+         * @return the ids of the matching ImageFiles
+         */
+        abstract CompressedBitmap evaluate(TagIndex index);
+
+        /**
+         * Returns an upper bound on the number of ImageFiles in index
+         * matching this part of the query, cheaply.
+         *
+         * @param index the index to estimate against
+         * @return an upper bound on the number of matches
+         */
+        abstract int estimate(TagIndex index);
+    }
+
+    /**
+     * A Term matches images with one tag.
+     */
+    private static class Term extends Node {
+        /**
+         * The name of the tag.
+         */
+        private final String name;
+
+        /**
+         * Creates a term for the tag named name.
+         *
+         * @param name the name of the tag
+         */
+        Term(String name) {
+            this.name = name;
+        }
+
+        @Override
+        boolean matches(List<Tag> tags) {
+            return tags.contains(new Tag(name));
+        }
+
+        @Override
+        CompressedBitmap evaluate(TagIndex index) {
+            return index.getPosting(name);
+        }
+
+        @Override
+        int estimate(TagIndex index) {
+            return index.getPosting(name).cardinality();
+        }
+    }
+
+    /**
+     * A Prefix matches images with any tag starting with a prefix.
+     */
+    private static class Prefix extends Node {
+        /**
+         * The start of the tag names matched.
+         */
+        private final String prefix;
+
+        /**
+         * Creates a term for the tags starting with prefix.
+         *
+         * @param prefix the start of the tag names
+         */
+        Prefix(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        boolean matches(List<Tag> tags) {
+            for (Tag tag : tags) {
+                if (tag.getTag().startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        CompressedBitmap evaluate(TagIndex index) {
+            List<CompressedBitmap> postings = new ArrayList<>();
+            for (String name : index.getTagNames(prefix)) {
+                postings.add(index.getPosting(name));
+            }
+            return CompressedBitmap.or(postings);
+        }
+
+        @Override
+        int estimate(TagIndex index) {
+            int total = 0;
+            for (String name : index.getTagNames(prefix)) {
+                total += index.getPosting(name).cardinality();
+            }
+            return total;
+        }
+    }
+
+    /**
+     * A Not matches images its operand does not match.
+     */
+    private static class Not extends Node {
+        /**
+         * The part of the query being negated.
+         */
+        private final Node operand;
+
+        /**
+         * Creates the negation of operand.
+         *
+         * @param operand the part of the query being negated
+         */
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean matches(List<Tag> tags) {
+            return !operand.matches(tags);
+        }
+
+        @Override
+        CompressedBitmap evaluate(TagIndex index) {
+            return CompressedBitmap.andNot(index.getAll(),
+                    operand.evaluate(index));
+        }
+
+        @Override
+        int estimate(TagIndex index) {
+            return index.size();
+        }
+    }
+
+    /**
+     * An And matches images all of its operands match.
+     */
+    private static class And extends Node {
+        /**
+         * The parts of the query joined.
+         */
+        private final List<Node> operands;
+
+        /**
+         * Creates the conjunction of operands.
+         *
+         * @param operands the parts of the query joined
+         */
+        And(List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(List<Tag> tags) {
+            for (Node operand : operands) {
+                if (!operand.matches(tags)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        CompressedBitmap evaluate(TagIndex index) {
+            List<Node> positive = new ArrayList<>();
+            List<Node> negative = new ArrayList<>();
+            for (Node operand : operands) {
+                if (operand instanceof Not) {
+                    negative.add(((Not) operand).operand);
+                } else {
+                    positive.add(operand);
+                }
+            }
+            // Intersect the rarest operands first, stopping once empty.
+            positive.sort(Comparator.comparingInt(n -> n.estimate(index)));
+            CompressedBitmap result = positive.isEmpty() ?
+                    index.getAll() : positive.get(0).evaluate(index);
+            for (int i = 1; i < positive.size() && !result.isEmpty(); i++) {
+                result = CompressedBitmap.and(result,
+                        positive.get(i).evaluate(index));
+            }
+            for (int i = 0; i < negative.size() && !result.isEmpty(); i++) {
+                result = CompressedBitmap.andNot(result,
+                        negative.get(i).evaluate(index));
+            }
+            return result;
+        }
+
+        @Override
+        int estimate(TagIndex index) {
+            int smallest = index.size();
+            for (Node operand : operands) {
+                smallest = Math.min(smallest, operand.estimate(index));
+            }
+            return smallest;
+        }
+    }
+
+    /**
+     * An Or matches images any of its operands match.
+     */
+    private static class Or extends Node {
+        /**
+         * The parts of the query joined.
+         */
+        private final List<Node> operands;
+
+        /**
+         * Creates the disjunction of operands.
+         *
+         * @param operands the parts of the query joined
+         */
+        Or(List<Node> operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean matches(List<Tag> tags) {
+            for (Node operand : operands) {
+                if (operand.matches(tags)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        CompressedBitmap evaluate(TagIndex index) {
+            List<CompressedBitmap> results = new ArrayList<>();
+            for (Node operand : operands) {
+                results.add(operand.evaluate(index));
+            }
+            return CompressedBitmap.or(results);
+        }
+
+        @Override
+        int estimate(TagIndex index) {
+            long total = 0;
+            for (Node operand : operands) {
+                total += operand.estimate(index);
+            }
+            return (int) Math.min(total, index.size());
+        }
+    }
+
+    /**
+     * A Parser turns the text of a query into a tree of Nodes, by recursive
+     * descent.
+     */
+    private static class Parser {
+        /**
+         * The text being parsed.
+         */
+        private final String text;
+
+        /**
+         * The position of the next character to read.
+         */
+        private int position;
+
+        /**
+         * Creates a parser for text.
+         *
+         * @param text the text to parse
+         */
+        Parser(String text) {
+            this.text = text;
+        }
+
+        /**
+         * Returns the position of the next token.
+         *
+         * @return the position of the next token
+         */
+        int position() {
+            skipSpaces();
+            return position;
+        }
+
+        /**
+         * Returns the next token without consuming it.
+         *
+         * @return the next token, or null at the end of the text
+         */
+        String peek() {
+            skipSpaces();
+            if (position == text.length()) {
+                return null;
+            }
+            char c = text.charAt(position);
+            if (c == '(' || c == ')') {
+                return String.valueOf(c);
+            }
+            if (c == '"') {
+                // A quoted name runs to the next unescaped quote
+                int end = position + 1;
+                while (end < text.length() && text.charAt(end) != '"') {
+                    if (text.charAt(end) == '\\') {
+                        end++;
+                    }
+                    end++;
+                }
+                return text.substring(position,
+                        Math.min(end + 1, text.length()));
+            }
+            int end = position;
+            while (end < text.length() && !isDelimiter(text.charAt(end))) {
+                end++;
+            }
+            return text.substring(position, end);
+        }
+
+        /**
+         * Consumes the next token.
+         *
+         * @return the token consumed
+         */
+        String next() {
+            String token = peek();
+            position += token.length();
+            return token;
+        }
+
+        /**
+         * Parses a disjunction: conjunctions joined by OR.
+         *
+         * @return the parsed node
+         * @throws ParseException if the text is not a valid query
+         */
+        Node parseOr() throws ParseException {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while ("OR".equals(peek())) {
+                next();
+                operands.add(parseAnd());
+            }
+            return operands.size() == 1 ? operands.get(0) : new Or(operands);
+        }
+
+        /**
+         * Parses a conjunction: negations joined by AND, or side by side.
+         *
+         * @return the parsed node
+         * @throws ParseException if the text is not a valid query
+         */
+        Node parseAnd() throws ParseException {
+            List<Node> operands = new ArrayList<>();
+            operands.add(parseNot());
+            while (true) {
+                String token = peek();
+                if ("AND".equals(token)) {
+                    next();
+                } else if (token == null || token.equals(")") ||
+                        token.equals("OR")) {
+                    break;
+                }
+                operands.add(parseNot());
+            }
+            return operands.size() == 1 ? operands.get(0) :
+                    new And(operands);
+        }
+
+        /**
+         * Parses a term, a parenthesized query, or the negation of either.
+         *
+         * @return the parsed node
+         * @throws ParseException if the text is not a valid query
+         */
+        Node parseNot() throws ParseException {
+            String token = peek();
+            if (token == null) {
+                throw new ParseException("Missing tag name", position);
+            }
+            int start = position;
+            if (token.equals("NOT")) {
+                next();
+                return new Not(parseNot());
+            }
+            if (token.equals("(")) {
+                next();
+                Node inner = parseOr();
+                if (!")".equals(peek())) {
+                    throw new ParseException("Missing \")\"", position());
+                }
+                next();
+                return inner;
+            }
+            if (token.equals(")") || token.equals("AND") ||
+                    token.equals("OR")) {
+                throw new ParseException("Unexpected \"" + token + "\"",
+                        start);
+            }
+            next();
+            if (token.startsWith("\"")) {
+                String name = unquote(token, start);
+                if (name.isEmpty()) {
+                    throw new ParseException("Missing tag name", start);
+                }
+                return new Term(name);
+            }
+            String name = token.startsWith("@") ? token.substring(1) : token;
+            if (name.endsWith("*")) {
+                return new Prefix(name.substring(0, name.length() - 1));
+            }
+            if (name.isEmpty()) {
+                throw new ParseException("Missing tag name", start);
+            }
+            return new Term(name);
+        }
+
+        /**
+         * Returns the tag name a quoted token stands for, without its
+         * quotes or escapes.
+         *
+         * @param token the quoted token
+         * @param start the position of the token
+         * @return the tag name
+         * @throws ParseException if the closing quote is missing
+         */
+        private static String unquote(String token, int start)
+                throws ParseException {
+            StringBuilder name = new StringBuilder();
+            for (int i = 1; i < token.length(); i++) {
+                char c = token.charAt(i);
+                if (c == '"') {
+                    return name.toString();
+                }
+                if (c == '\\' && i + 1 < token.length()) {
+                    c = token.charAt(++i);
+                }
+                name.append(c);
+            }
+            throw new ParseException("Missing closing quote", start);
+        }
+
+        /**
+         * Skips whitespace.
+         */
+        private void skipSpaces() {
+            while (position < text.length() &&
+                    Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        /**
+         * Returns whether c ends a tag name.
+         *
+         * @param c a character
+         * @return true if c is whitespace or a parenthesis
+         */
+        private static boolean isDelimiter(char c) {
+            return Character.isWhitespace(c) || c == '(' || c == ')';
+        }
+    }
+}
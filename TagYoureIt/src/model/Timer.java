@@ -0,0 +1,64 @@
+package model;
+
+/**
+ * A Timer records how long an operation takes, such as saving the catalog,
+ * in a Histogram of nanoseconds. An operation is timed by taking
+ * Timer.start() before it and passing that to stop after it. Timers are
+ * registered by name with Metrics.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class Timer {
+    /**
+     * The durations recorded, in nanoseconds.
+     */
+    private final Histogram durations = new Histogram();
+
+    /**
+     * Constructs a timer with nothing recorded. Use Metrics.timer to get a
+     * registered timer.
+     */
+    Timer() {
+    }
+
+    /**
+     * Returns the time an operation starts at, to pass to stop.
+     *
+     * @return the current time, in nanoseconds
+     */
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time since start as the duration of one operation.
+     *
+     * @param start the time the operation started, from start()
+     * @return the duration recorded, in nanoseconds
+     */
+    public long stop(long start) {
+        long nanos = System.nanoTime() - start;
+        durations.record(nanos);
+        return nanos;
+    }
+
+    /**
+     * Returns the number of operations timed.
+     *
+     * @return the number of operations timed
+     */
+    public long getCount() {
+        return durations.getCount();
+    }
+
+    /**
+     * Returns the durations recorded, in nanoseconds.
+     *
+     * @return the histogram of durations
+     */
+    public Histogram getDurations() {
+        return durations;
+    }
+}
@@ -16,12 +16,14 @@ import model.ImageFile;
 import model.Tag;
 
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 
 /**
  * An AddRemoveTagsView displays a list of currently existing tags
  * from which the user can select from to name an image file.
  * This class provides methods to create the graphical interface
- * to display said list.
+ * to display said list. The list can be narrowed to the tags starting with
+ * what the user types in a filter box.
  *
  * @author David C., Felix L., Helen J., Alex T.
  * @version 1.8
@@ -44,6 +46,12 @@ public class AddRemoveTagsView {
      */
     private ArrayList<Tag> selectedTags;
 
+    /**
+     * The tags the user has chosen so far, including any hidden by the
+     * filter, in the order they were chosen.
+     */
+    private LinkedHashSet<Tag> chosenTags;
+
     /**
      * Creates a graphical interface that the user interacts with to select tags
      * from the pool of existing tags provided to rename the image file provided.
@@ -64,9 +72,23 @@ public class AddRemoveTagsView {
         existingTagsView.getItems().addAll(existingTags.getExistingTags());
         existingTagsView.getSelectionModel().setSelectionMode(
                 SelectionMode.MULTIPLE);
-        for (Tag selected : imageFile.getCurrentTags()) {
+        chosenTags = new LinkedHashSet<>(imageFile.getCurrentTags());
+        for (Tag selected : chosenTags) {
             existingTagsView.getSelectionModel().select(selected);
         }
+
+        TextField filterBox = new TextField();
+        filterBox.setPromptText("Filter tags");
+        filterBox.textProperty().addListener((obs, oldText, newText) -> {
+            existingTagsView.getItems().setAll(newText.isEmpty() ?
+                    existingTags.getExistingTags() :
+                    existingTags.findTagsStartingWith(newText,
+                            Integer.MAX_VALUE));
+            existingTagsView.getSelectionModel().clearSelection();
+            for (Tag selected : chosenTags) {
+                existingTagsView.getSelectionModel().select(selected);
+            }
+        });
         //Adapted from https://stackoverflow.com/questions/40900478/
         existingTagsView.addEventFilter(MouseEvent.MOUSE_PRESSED, evt -> {
             Node node = evt.getPickResult().getIntersectedNode();
@@ -85,8 +107,10 @@ public class AddRemoveTagsView {
                     int index = cell.getIndex();
                     if (cell.isSelected()) {
                         lv.getSelectionModel().clearSelection(index);
+                        chosenTags.remove((Tag) cell.getItem());
                     } else {
                         lv.getSelectionModel().select(index);
+                        chosenTags.add((Tag) cell.getItem());
                     }
                 }
             }
@@ -105,9 +129,7 @@ public class AddRemoveTagsView {
 
         Button doneButton = new Button("Done");
         doneButton.setOnAction(e -> {
-            selectedTags = new ArrayList<>();
-            selectedTags.addAll(
-                    existingTagsView.getSelectionModel().getSelectedItems());
+            selectedTags = new ArrayList<>(chosenTags);
             stage.close();
         });
 
@@ -119,7 +141,8 @@ public class AddRemoveTagsView {
         HBox buttons = new HBox(10);
         buttons.setAlignment(Pos.BASELINE_RIGHT);
         buttons.getChildren().addAll(cancelButton, doneButton);
-        layout.getChildren().addAll(label, existingTagsView, buttons);
+        layout.getChildren().addAll(label, filterBox, existingTagsView,
+                buttons);
         layout.setPadding(new Insets(15, 15, 15, 15));
         Scene scene = new Scene(layout);
         stage.setScene(scene);
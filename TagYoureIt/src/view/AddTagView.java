@@ -5,18 +5,24 @@ import javafx.geometry.Pos;
 import javafx.scene.Scene;
 import javafx.scene.control.Button;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListView;
 import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import model.ExistingTags;
+import model.Tag;
+
+import java.util.ArrayList;
 
 /**
  *
  * An AddTagView prompts the user for a new tag that is
  * to be added to the list of currently existing tags.
- * This class provides a method for displaying said prompt.
+ * This class provides a method for displaying said prompt. As the user
+ * types, existing tags starting with what was typed are suggested.
  *
  * @author David C., Felix L., Helen J., Alex T.
  * @version 1.8
@@ -29,6 +35,25 @@ public class AddTagView {
      */
     private String tag;
 
+    /**
+     * The largest number of existing tags suggested at once.
+     */
+    private static final int SUGGESTIONS = 10;
+
+    /**
+     * The collection of existing tags suggestions are taken from.
+     */
+    private ExistingTags existingTags;
+
+    /**
+     * Initializes an AddTagView suggesting tags from existingTags.
+     *
+     * @param existingTags the collection of existing tags
+     */
+    AddTagView(ExistingTags existingTags) {
+        this.existingTags = existingTags;
+    }
+
     /**
      * Returns the tag the user added to the list of currently existing tags
      * through the prompt.
@@ -42,6 +67,21 @@ public class AddTagView {
         window.setTitle("Add Tag");
         Label label1 = new Label("Tag Name:");
         TextField textBox = new TextField();
+        Label label2 = new Label("Existing tags starting with this name:");
+        ListView<Tag> suggestions = new ListView<>();
+        suggestions.setPrefHeight(150);
+        textBox.textProperty().addListener((obs, oldText, newText) ->
+                suggestions.getItems().setAll(newText.isEmpty() ?
+                        new ArrayList<>() :
+                        existingTags.findTagsStartingWith(newText,
+                                SUGGESTIONS)));
+        suggestions.setOnMouseClicked(e -> {
+            Tag selected = suggestions.getSelectionModel().getSelectedItem();
+            if (selected != null) {
+                textBox.setText(selected.getTag());
+                textBox.positionCaret(textBox.getText().length());
+            }
+        });
 
         Button doneButton = new Button("Done");
         doneButton.setOnAction(e -> {
@@ -64,7 +104,8 @@ public class AddTagView {
         HBox buttons = new HBox(15);
         buttons.setAlignment(Pos.BOTTOM_RIGHT);
         buttons.getChildren().addAll(cancelButton, doneButton);
-        layout.getChildren().addAll(label1, textBox, buttons);
+        layout.getChildren().addAll(label1, textBox, label2, suggestions,
+                buttons);
         layout.setPadding(new Insets(15, 15, 15, 15));
         Scene scene = new Scene(layout);
         window.setScene(scene);
@@ -19,9 +19,6 @@ import model.ImageFile;
 import model.Tag;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Observable;
 import java.util.Observer;
@@ -70,6 +67,11 @@ public class ImageFileView implements Observer {
      */
     private Stage stage;
 
+    /**
+     * The loader that decodes the image displayed in this view.
+     */
+    private ThumbnailLoader thumbnails;
+
     /**
      * Creates an interface that displays information of an image file provided.
      * It also displays the list of existing tags provided, and options to move
@@ -80,12 +82,14 @@ public class ImageFileView implements Observer {
      * @param existingTags the collection of existing tags the user can select
      *                     from
      * @param controller   the controller to relay user gestures to
+     * @param thumbnails   the loader to decode the image with
      */
     public ImageFileView(ImageFile imageFile, ExistingTags existingTags,
-                         Controller controller) {
+                         Controller controller, ThumbnailLoader thumbnails) {
         this.imageFile = imageFile;
         this.existingTags = existingTags;
         this.controller = controller;
+        this.thumbnails = thumbnails;
         this.tagsView = new ListView<>();
         this.filePath = new Label();
         this.stage = new Stage();
@@ -97,31 +101,23 @@ public class ImageFileView implements Observer {
      * Displays an interface that displays information of this image file.
      */
     public void display() {
-        ImageView imageView = null;
-        FileInputStream input = null;
-        try {
-            input = new FileInputStream(imageFile.getFile());
-            final Image image = new Image(input,
-                    270, 270, true,
-                    true);
-            if (!image.isError()) {
-                imageView = new ImageView(image);
-            } else {
-                imageView = new ImageView("File:resources/error.png");
-                imageView.setPreserveRatio(true);
-                imageView.setFitHeight(200);
-            }
-        } catch (FileNotFoundException ex) {
-            ex.printStackTrace();
-        } finally {
-            try {
-                if (input != null) {
-                    input.close();
-                }
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-        }
+        // The image is decoded in the background; until then the view holds
+        // its space empty.
+        ImageView imageView = new ImageView();
+        imageView.setPreserveRatio(true);
+        imageView.setFitWidth(270);
+        imageView.setFitHeight(270);
+        ThumbnailLoader.Request request = thumbnails.load(imageFile, 270,
+                true, image -> {
+                    if (image != null && !image.isError()) {
+                        imageView.setImage(image);
+                    } else {
+                        imageView.setImage(
+                                new Image("File:resources/error.png"));
+                        imageView.setFitHeight(200);
+                    }
+                });
+        stage.setOnHidden(e -> request.cancel());
 
         VBox infoBox = new VBox(15);
         Label label = new Label("Current Tags for this Image:");
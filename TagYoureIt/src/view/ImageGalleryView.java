@@ -1,28 +1,35 @@
 package view;
 
 import controller.Controller;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
 import javafx.geometry.Side;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.image.Image;
-import javafx.scene.image.ImageView;
-import javafx.scene.input.MouseButton;
 import javafx.scene.layout.HBox;
-import javafx.scene.layout.TilePane;
+import javafx.scene.layout.Priority;
 import javafx.scene.layout.VBox;
-import javafx.scene.text.Text;
+import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import model.ChangeEvent;
 import model.ImageFile;
+import model.ImageScanner;
 import model.Model;
-import model.Tag;
+import model.TagQuery;
 
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
+import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 import java.util.Observable;
 import java.util.Observer;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * An ImageGalleryView has three parts to it. The first part is
@@ -48,38 +55,47 @@ public class ImageGalleryView implements Observer {
     private Controller controller;
 
     /**
-     * The Log of all file movement to be displayed to the user.
+     * The lines of the Log of all file movement to be displayed to the
+     * user.
      */
-    private Text logText;
+    private LogLines logLines;
 
     /**
-     * The TilePane which contains all Images in the deepFileList.
+     * The ImageGrid which displays all Images under the root.
      */
-    private TilePane imageTile;
+    private ImageGrid imageGrid;
 
     /**
-     * The TilePane which contains all ImageFiles with Tags matching the search
-     * query.
+     * The ImageGrid which displays all ImageFiles with Tags matching the
+     * search query.
      */
-    private TilePane searchTile;
+    private ImageGrid searchGrid;
 
     /**
      * The text field where the user can search for all images with a tag.
      */
     private TextField searchBox;
 
+    /**
+     * The query whose results are displayed in searchGrid, null if none.
+     */
+    private TagQuery query;
+
     /**
      * Initializes a new ImageGalleryView with controller controller.  This
      * ImageGallery view displays all images in shallowFileList and
-     * deepFile list, in separate tabs.
+     * deepFile list, in separate tabs, decoding thumbnails with thumbnails.
      */
-    public ImageGalleryView(Model model, Controller controller) {
+    public ImageGalleryView(Model model, Controller controller,
+                            ThumbnailLoader thumbnails) {
         this.model = model;
         this.controller = controller;
-        this.logText = new Text();
-        this.imageTile = new TilePane();
-        this.searchTile = new TilePane();
+        this.logLines = new LogLines(ImageFile.getLogReader());
         this.searchBox = new TextField();
+        this.imageGrid = new ImageGrid(thumbnails,
+                controller::openImageFileView);
+        this.searchGrid = new ImageGrid(thumbnails,
+                controller::openImageFileView);
         loadView();
     }
 
@@ -89,40 +105,28 @@ public class ImageGalleryView implements Observer {
     //Adapted from https://stackoverflow.com/questions/27182323/
     public void display() {
         Tab allImages = new Tab("All Images");
-        ScrollPane tileScroll = new ScrollPane();
-        imageTile.setPadding(new Insets(15, 15, 15, 15));
-        imageTile.setHgap(15);
-        imageTile.setVgap(15);
-        tileScroll.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        tileScroll.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        tileScroll.setFitToWidth(true);
-        tileScroll.setContent(imageTile);
-        allImages.setContent(tileScroll);
+        allImages.setContent(imageGrid.getNode());
 
         Tab log = new Tab("Rename Log");
-        ScrollPane logScroll = new ScrollPane();
-        logText.setText(ImageFile.readLog());
-        logScroll.setContent(logText);
-        logScroll.setPadding(new Insets(15, 15, 15, 15));
-        log.setContent(logScroll);
+        ListView<String> logList = new ListView<>(logLines);
+        logList.setFixedCellSize(24);
+        logList.setPadding(new Insets(15, 15, 15, 15));
+        log.setContent(logList);
+        refreshLog();
 
         Tab search = new Tab("Search");
         VBox searchLayout = new VBox(15);
         Button searchButton = new Button("Search");
+        Button moveResults = new Button("Move Results To...");
         HBox searchBar = new HBox(15);
         searchBar.setPadding(new Insets(15, 15, 15, 15));
-        searchBar.getChildren().addAll(searchBox, searchButton);
-        ScrollPane searchScroll = new ScrollPane();
-        searchScroll.setHbarPolicy(ScrollPane.ScrollBarPolicy.NEVER);
-        searchScroll.setVbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
-        searchTile.setHgap(15);
-        searchTile.setVgap(15);
-        searchScroll.setContent(searchTile);
-        searchScroll.setPadding(new Insets(15, 15, 15, 15));
-        searchLayout.getChildren().addAll(searchBar, searchScroll);
+        searchBar.getChildren().addAll(searchBox, searchButton, moveResults);
+        VBox.setVgrow(searchGrid.getNode(), Priority.ALWAYS);
+        searchLayout.getChildren().addAll(searchBar, searchGrid.getNode());
         search.setContent(searchLayout);
 
         searchButton.setOnAction(e -> search());
+        moveResults.setOnAction(e -> moveResults());
 
         TabPane root = new TabPane();
         log.setOnSelectionChanged(t -> {
@@ -138,7 +142,13 @@ public class ImageGalleryView implements Observer {
         HBox buttons = new HBox();
         Button manageTags = new Button("Manage Tags");
         manageTags.setOnAction(e -> controller.openManageTagsView());
-        buttons.getChildren().addAll(manageTags);
+        ImageScanner scanner = model.getScanner();
+        Label scanStatus = new Label(String.format(
+                "Scanned %d files in %d ms (%.0f files/s)",
+                scanner.getFilesVisited(), scanner.getElapsedMillis(),
+                scanner.getFilesPerSecond()));
+        scanStatus.setPadding(new Insets(4, 0, 0, 15));
+        buttons.getChildren().addAll(manageTags, scanStatus);
         buttons.setPadding(new Insets(15, 15, 15, 15));
         VBox layout = new VBox();
         layout.getChildren().addAll(buttons, root);
@@ -157,106 +167,128 @@ public class ImageGalleryView implements Observer {
     }
 
     /**
-     * Returns a ImageView for a File imageFile.
-     *
-     * @param imageFile the File to create an ImageView for.
-     * @return          the ImageView for imageFile.
+     * Refreshes the collection of Files displayed in this ImageGalleryView
      */
-    //Adapted from https://stackoverflow.com/questions/27182323/
-    private ImageView createImageView(ImageFile imageFile) {
-        ImageView imageView;
-        FileInputStream input = null;
-        try {
-            input = new FileInputStream(imageFile.getFile());
-            Image image = new Image(input,
-                    150, 150, true,
-                    true);
-            if (!image.isError()) {
-                imageView = new ImageView(image);
-            } else {
-                imageView = new ImageView("File:resources/error.png");
-                imageView.setPreserveRatio(true);
-                imageView.setFitHeight(150);
-            }
-            imageView.maxWidth(150);
-            imageView.maxHeight(150);
-            imageView.setOnMouseClicked(mouseEvent -> {
-                if (mouseEvent.getButton().equals(MouseButton.PRIMARY)) {
-                    controller.openImageFileView(imageFile);
-                }
-            });
-        } catch (FileNotFoundException ex) {
-            imageView = null;
-        } finally {
+    private void loadView() {
+        searchGrid.setImages(query == null ? new ArrayList<>() :
+                model.underRoot(model.search(query)));
+        imageGrid.setImages(model.underRoot(model.getImageFiles()));
+    }
+
+    /**
+     * Refreshes the log displayed in this ImageGalleryView. Only the entries
+     * written since the last refresh are read, off the JavaFX application
+     * thread.
+     */
+    private void refreshLog() {
+        CompletableFuture.supplyAsync(() -> {
             try {
-                if (input != null) {
-                    input.close();
-                }
+                return ImageFile.getLogReader().refresh();
             } catch (IOException e) {
-                e.printStackTrace();
+                throw new UncheckedIOException(e);
             }
-        }
-        return imageView;
+        }).thenAcceptAsync(logLines::update, Platform::runLater)
+                .exceptionally(e -> {
+                    e.printStackTrace();
+                    return null;
+                });
     }
 
     /**
-     * Refreshes the collection of Files displayed in this ImageGalleryView
+     * Update the searchGrid to display all ImageFiles that match the query
+     * in the searchBox, such as "hawaii AND beach AND NOT blurry"
      */
-    private void loadView() {
-        search();
-        imageTile.getChildren().clear();
-        for (ImageFile im : this.model.getImageFiles()) {
-            if (im.getFile().getAbsolutePath().startsWith(
-                    model.getRoot().getAbsolutePath())) {
-                ImageView imageView;
-                imageView = createImageView(im);
-                imageTile.getChildren().addAll(imageView);
-            }
+    private void search() {
+        if (searchBox.getText().trim().isEmpty()) {
+            query = null;
+            searchGrid.setImages(new ArrayList<>());
+            return;
+        }
+        try {
+            query = TagQuery.parse(searchBox.getText());
+            searchGrid.setImages(model.underRoot(model.search(query)));
+        } catch (ParseException e) {
+            AlertBox ab = new AlertBox("Error", "Invalid search: " +
+                    e.getMessage() + " at position " + e.getErrorOffset());
+            ab.display();
         }
     }
 
     /**
-     * Refreshes the log displayed in this ImageGalleryView
+     * Asks the user for a directory, and moves every ImageFile matching the
+     * current query there at once.
      */
-    private void refreshLog() {
-        this.logText.setText(ImageFile.readLog());
+    private void moveResults() {
+        if (query == null) {
+            return;
+        }
+        DirectoryChooser dirChooser = new DirectoryChooser();
+        File selectedDirectory = dirChooser.showDialog(new Stage());
+        if (selectedDirectory != null) {
+            controller.moveFiles(model.underRoot(model.search(query)),
+                    selectedDirectory);
+        }
     }
 
     /**
-     * Update the searchTile to display all ImageFiles that have tag query
+     * Adds imageFile to, or refreshes it in grid, if it should be shown
+     * there, or else adds it to the images to remove from grid once the
+     * whole update is patched.
+     *
+     * @param grid      the ImageGrid to patch.
+     * @param removed   the images to remove from grid.
+     * @param imageFile the ImageFile that changed.
+     * @param shown     whether imageFile should be shown in grid.
      */
-    private void search() {
-        ArrayList<ImageFile> found = new ArrayList<>();
-        for (ImageFile f : model.getImageFiles()) {
-            for (Tag tag : f.getCurrentTags()) {
-                if (tag.getTag().equals(this.searchBox.getText())) {
-                    found.add(f);
-                }
-            }
+    private void patch(ImageGrid grid, Set<ImageFile> removed,
+                       ImageFile imageFile, boolean shown) {
+        if (!shown) {
+            removed.add(imageFile);
+            return;
         }
-        searchTile.getChildren().clear();
-        for (ImageFile im : found) {
-            if (im.getFile().getAbsolutePath().startsWith(
-                    model.getRoot().getAbsolutePath())) {
-                ImageView imageView;
-                imageView = createImageView(im);
-                if (imageView != null) {
-                    searchTile.getChildren().addAll(imageView);
-                }
-            }
+        removed.remove(imageFile);
+        if (grid.contains(imageFile)) {
+            grid.refresh(imageFile);
+        } else {
+            grid.add(imageFile);
         }
     }
 
     /**
      * This method is called whenever the observed object is changed. An
      * application calls an Observable object's notifyObservers method to have
-     * all the object's observers notified of the change.
+     * all the object's observers notified of the change. Only the tiles of
+     * the ImageFiles named by the ChangeEvents passed are updated. If the
+     * catalog is loaded lazily, the grids splice the numbers of those
+     * ImageFiles, so no other ImageFile is built.
      *
      * @param o     The observable object.
-     * @param arg   An argument passed to the notifyObservers method.
+     * @param arg   The list of ChangeEvents describing what changed, or
+     *              null if anything may have changed.
      */
     @Override
     public void update(Observable o, Object arg) {
-        loadView();
+        if (!(arg instanceof List)) {
+            loadView();
+            return;
+        }
+        Set<ImageFile> removed =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<ImageFile> removedFromSearch =
+                Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Object change : (List<?>) arg) {
+            ImageFile im = ((ChangeEvent) change).getImageFile();
+            if (im == null) {
+                continue;
+            }
+            boolean present = ((ChangeEvent) change).getType() !=
+                    ChangeEvent.Type.IMAGE_REMOVED && model.isUnderRoot(im);
+            patch(imageGrid, removed, im, present);
+            patch(searchGrid, removedFromSearch, im, present &&
+                    query != null && query.matches(im));
+        }
+        // Removed together, so each grid closes up once
+        imageGrid.removeAll(removed);
+        searchGrid.removeAll(removedFromSearch);
     }
 }
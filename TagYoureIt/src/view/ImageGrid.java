@@ -0,0 +1,464 @@
+package view;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.PixelWriter;
+import javafx.scene.image.WritableImage;
+import javafx.scene.input.MouseButton;
+import javafx.scene.layout.HBox;
+import javafx.scene.paint.Color;
+import model.ImageFile;
+import model.ImageList;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An ImageGrid displays a list of images as a grid of thumbnails. The grid
+ * is virtualized: it is a ListView of rows, and only the rows in and near
+ * the viewport have cells, which are recycled as the user scrolls. The
+ * number of nodes and decoded thumbnails therefore depends on the size of
+ * the window, not on the number of images. Thumbnails are decoded in the
+ * background; a placeholder is shown until they arrive, and a thumbnail
+ * that scrolls away before it arrives is cancelled. Images can be added,
+ * removed and refreshed one at a time, touching only the tiles affected.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class ImageGrid {
+    /**
+     * The width and height of each thumbnail.
+     */
+    private static final int THUMBNAIL_SIZE = 150;
+
+    /**
+     * The gap between thumbnails, and around the grid.
+     */
+    private static final int GAP = 15;
+
+    /**
+     * The list view whose cells are the rows of this grid.
+     */
+    private final ListView<Integer> rowsView;
+
+    /**
+     * The row numbers of this grid, the items of rowsView.
+     */
+    private final ObservableList<Integer> rows;
+
+    /**
+     * The loader thumbnails are decoded by.
+     */
+    private final ThumbnailLoader thumbnails;
+
+    /**
+     * The image shown in place of a thumbnail until it is decoded.
+     */
+    private final Image placeholder;
+
+    /**
+     * The action run when the user clicks a thumbnail.
+     */
+    private final Consumer<ImageFile> onOpen;
+
+    /**
+     * The images displayed in this grid. The list given is kept as it is,
+     * so a list that builds its images as they are got builds only those
+     * in view. An ImageList is patched by splicing the numbers of its
+     * images, so it stays that way; any other list is copied the first time
+     * an image is added, removed or looked for.
+     */
+    private List<ImageFile> images;
+
+    /**
+     * The position of each image in images, null until an image is added,
+     * removed or looked for.
+     */
+    private IdentityHashMap<ImageFile, Integer> positions;
+
+    /**
+     * The slot each image in view is shown in.
+     */
+    private final IdentityHashMap<ImageFile, Slot> showing;
+
+    /**
+     * The number of thumbnails in each row.
+     */
+    private int columns;
+
+    /**
+     * Creates an empty grid.
+     *
+     * @param thumbnails the loader to decode thumbnails with
+     * @param onOpen     the action to run when the user clicks a thumbnail
+     */
+    ImageGrid(ThumbnailLoader thumbnails, Consumer<ImageFile> onOpen) {
+        this.thumbnails = thumbnails;
+        this.onOpen = onOpen;
+        this.placeholder = createPlaceholder();
+        this.images = new ArrayList<>();
+        this.showing = new IdentityHashMap<>();
+        this.columns = 1;
+        this.rows = FXCollections.observableArrayList();
+        this.rowsView = new ListView<>(rows);
+        rowsView.setFixedCellSize(THUMBNAIL_SIZE + GAP);
+        rowsView.setFocusTraversable(false);
+        rowsView.setStyle("-fx-background-color: transparent;");
+        rowsView.setCellFactory(view -> new RowCell());
+        rowsView.widthProperty().addListener((obs, oldWidth, newWidth) ->
+                layoutRows());
+    }
+
+    /**
+     * Returns the node displaying this grid.
+     *
+     * @return the node displaying this grid
+     */
+    Node getNode() {
+        return rowsView;
+    }
+
+    /**
+     * Replaces the images displayed in this grid. The list must not be
+     * changed afterwards.
+     *
+     * @param images the images to display
+     */
+    void setImages(List<ImageFile> images) {
+        this.images = images;
+        positions = null;
+        resetRows();
+    }
+
+    /**
+     * Adds imageFile to the end of this grid, if it is not already in it.
+     *
+     * @param imageFile the image to add
+     */
+    void add(ImageFile imageFile) {
+        if (images instanceof ImageList) {
+            ImageList spliced = ((ImageList) images).with(imageFile);
+            if (spliced != images) {
+                images = spliced;
+                if (spliced.indexOf(imageFile) == spliced.size() - 1) {
+                    showLast();
+                } else {
+                    resetRows();
+                }
+            }
+            return;
+        }
+        if (positions().containsKey(imageFile)) {
+            return;
+        }
+        positions.put(imageFile, images.size());
+        images.add(imageFile);
+        showLast();
+    }
+
+    /**
+     * Shows the image just added to the end of this grid, touching only
+     * its row.
+     */
+    private void showLast() {
+        int row = (images.size() - 1) / columns;
+        if (row == rows.size()) {
+            rows.add(row);
+        } else {
+            // Replacing a row with itself updates only its cell.
+            rows.set(row, row);
+        }
+    }
+
+    /**
+     * Removes every image of imageFiles that is in this grid. The images
+     * left close up in one pass, and the rows are reset once, however many
+     * images are removed.
+     *
+     * @param imageFiles the images to remove
+     */
+    void removeAll(Collection<ImageFile> imageFiles) {
+        if (images instanceof ImageList) {
+            ImageList kept = ((ImageList) images).without(imageFiles);
+            if (kept != images) {
+                images = kept;
+                resetRows();
+            }
+            return;
+        }
+        boolean removed = false;
+        for (ImageFile imageFile : imageFiles) {
+            removed |= positions().remove(imageFile) != null;
+        }
+        if (!removed) {
+            return;
+        }
+        List<ImageFile> kept = new ArrayList<>(positions.size());
+        for (ImageFile imageFile : images) {
+            if (positions.containsKey(imageFile)) {
+                positions.put(imageFile, kept.size());
+                kept.add(imageFile);
+            }
+        }
+        images = kept;
+        resetRows();
+    }
+
+    /**
+     * Returns whether imageFile is in this grid.
+     *
+     * @param imageFile the image to look for
+     * @return true if imageFile is in this grid
+     */
+    boolean contains(ImageFile imageFile) {
+        if (images instanceof ImageList) {
+            return images.contains(imageFile);
+        }
+        return positions().containsKey(imageFile);
+    }
+
+    /**
+     * Returns the position of each image, copying the images into a list
+     * of this grid's own the first time.
+     *
+     * @return the position of each image in images
+     */
+    private IdentityHashMap<ImageFile, Integer> positions() {
+        if (positions == null) {
+            images = new ArrayList<>(images);
+            positions = new IdentityHashMap<>();
+            for (int i = 0; i < images.size(); i++) {
+                positions.put(images.get(i), i);
+            }
+        }
+        return positions;
+    }
+
+    /**
+     * Reloads the thumbnail of imageFile if it is in view and has moved
+     * since its thumbnail was loaded.
+     *
+     * @param imageFile the image that changed
+     */
+    void refresh(ImageFile imageFile) {
+        Slot slot = showing.get(imageFile);
+        if (slot != null) {
+            show(slot, imageFile);
+        }
+    }
+
+    /**
+     * Returns a light grey square, shown until a thumbnail is decoded.
+     *
+     * @return the placeholder image
+     */
+    private static Image createPlaceholder() {
+        WritableImage image = new WritableImage(THUMBNAIL_SIZE,
+                THUMBNAIL_SIZE);
+        PixelWriter writer = image.getPixelWriter();
+        for (int y = 0; y < THUMBNAIL_SIZE; y++) {
+            for (int x = 0; x < THUMBNAIL_SIZE; x++) {
+                writer.setColor(x, y, Color.gray(0.9));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * A Slot holds what an image view of the grid is showing.
+     */
+    private static class Slot {
+        /**
+         * The image view of this slot.
+         */
+        private final ImageView view;
+
+        /**
+         * The image shown in the image view.
+         */
+        private ImageFile imageFile;
+
+        /**
+         * The path of the image when its thumbnail was requested.
+         */
+        private File file;
+
+        /**
+         * The request for the thumbnail, until it is shown.
+         */
+        private ThumbnailLoader.Request request;
+
+        /**
+         * Creates an empty slot for view.
+         *
+         * @param view the image view of the slot
+         */
+        private Slot(ImageView view) {
+            this.view = view;
+        }
+
+        /**
+         * Cancels the request for the thumbnail, if it has not arrived.
+         */
+        private void cancel() {
+            if (request != null) {
+                request.cancel();
+                request = null;
+            }
+        }
+    }
+
+    /**
+     * Splits the images into rows that fit the current width of the grid.
+     */
+    private void layoutRows() {
+        int width = (int) rowsView.getWidth() - 2 * GAP;
+        int fit = Math.max(1, (width + GAP) / (THUMBNAIL_SIZE + GAP));
+        if (fit != columns) {
+            columns = fit;
+            resetRows();
+        }
+    }
+
+    /**
+     * Replaces every row of the grid. The cells in view are updated, but
+     * keep the thumbnails they already show.
+     */
+    private void resetRows() {
+        int count = (images.size() + columns - 1) / columns;
+        List<Integer> numbers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            numbers.add(i);
+        }
+        rows.setAll(numbers);
+    }
+
+    /**
+     * Shows the thumbnail of imageFile in slot, requesting it if slot is
+     * not already showing it.
+     *
+     * @param slot      the slot to show the thumbnail in
+     * @param imageFile the image to show
+     */
+    private void show(Slot slot, ImageFile imageFile) {
+        if (slot.imageFile == imageFile &&
+                slot.file.equals(imageFile.getFile())) {
+            return;
+        }
+        release(slot);
+        slot.imageFile = imageFile;
+        slot.file = imageFile.getFile();
+        showing.put(imageFile, slot);
+        slot.view.setImage(placeholder);
+        slot.request = thumbnails.load(imageFile, THUMBNAIL_SIZE, false,
+                image -> {
+                    slot.request = null;
+                    if (image == null || image.isError()) {
+                        image = new Image("File:resources/error.png");
+                    }
+                    slot.view.setImage(image);
+                });
+    }
+
+    /**
+     * Cancels the thumbnail slot is waiting for, and forgets the image it
+     * shows.
+     *
+     * @param slot the slot to release
+     */
+    private void release(Slot slot) {
+        slot.cancel();
+        if (slot.imageFile != null) {
+            showing.remove(slot.imageFile, slot);
+            slot.imageFile = null;
+        }
+    }
+
+    /**
+     * A RowCell displays the thumbnails of one row of the grid. Its image
+     * views are reused whenever the cell is given another row.
+     */
+    private class RowCell extends ListCell<Integer> {
+        /**
+         * The thumbnails of the row displayed by this cell.
+         */
+        private final HBox box;
+
+        /**
+         * Creates an empty row cell.
+         */
+        RowCell() {
+            box = new HBox(GAP);
+            box.setPadding(new Insets(0, GAP, 0, GAP));
+            setStyle("-fx-background-color: transparent;");
+        }
+
+        @Override
+        protected void updateItem(Integer row, boolean empty) {
+            super.updateItem(row, empty);
+            if (empty || row == null) {
+                clear(0);
+                setGraphic(null);
+                return;
+            }
+            int start = row * columns;
+            int end = Math.min(images.size(), start + columns);
+            while (box.getChildren().size() < end - start) {
+                box.getChildren().add(createImageView());
+            }
+            clear(end - start);
+            for (int i = start; i < end; i++) {
+                Node view = box.getChildren().get(i - start);
+                show((Slot) view.getUserData(), images.get(i));
+            }
+            setGraphic(box);
+        }
+
+        /**
+         * Removes the image views from index on, cancelling the thumbnails
+         * they are waiting for.
+         *
+         * @param index the index of the first image view to remove
+         */
+        private void clear(int index) {
+            int size = box.getChildren().size();
+            for (int i = index; i < size; i++) {
+                release((Slot) box.getChildren().get(i).getUserData());
+            }
+            box.getChildren().remove(Math.min(index, size), size);
+        }
+
+        /**
+         * Creates an image view for a thumbnail.
+         *
+         * @return an empty image view
+         */
+        private ImageView createImageView() {
+            ImageView view = new ImageView();
+            view.setPreserveRatio(true);
+            view.setFitWidth(THUMBNAIL_SIZE);
+            view.setFitHeight(THUMBNAIL_SIZE);
+            Slot slot = new Slot(view);
+            view.setUserData(slot);
+            view.setOnMouseClicked(mouseEvent -> {
+                if (mouseEvent.getButton().equals(MouseButton.PRIMARY) &&
+                        slot.imageFile != null) {
+                    onOpen.accept(slot.imageFile);
+                }
+            });
+            return view;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package view;
+
+import javafx.collections.ObservableListBase;
+import model.LogReader;
+
+import java.util.Collections;
+
+/**
+ * A LogLines is the list of lines of the rename log shown by a ListView.
+ * It holds no lines itself: the ListView only asks for the lines it is
+ * showing, and the LogReader decodes those a page at a time. When the log
+ * grows, only the new lines are reported as added.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class LogLines extends ObservableListBase<String> {
+    /**
+     * The reader of the log.
+     */
+    private final LogReader reader;
+
+    /**
+     * The number of lines in this list, as of the last update.
+     */
+    private int size;
+
+    /**
+     * Constructs an empty list of the lines read by reader.
+     *
+     * @param reader the reader of the log
+     */
+    LogLines(LogReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Sets the number of lines in this list to lineCount, the result of
+     * the latest refresh of the reader. Must be called on the JavaFX
+     * application thread.
+     *
+     * @param lineCount the number of lines in the log
+     */
+    void update(int lineCount) {
+        if (lineCount == size) {
+            return;
+        }
+        int oldSize = size;
+        size = lineCount;
+        beginChange();
+        if (lineCount > oldSize) {
+            nextAdd(oldSize, lineCount);
+        } else {
+            // The log was replaced; nothing read before is still valid.
+            nextReplace(0, lineCount, Collections.nCopies(oldSize, ""));
+        }
+        endChange();
+    }
+
+    @Override
+    public String get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Line " + index + " of " +
+                    size);
+        }
+        return reader.getLine(index);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+}
@@ -72,7 +72,7 @@ public class ManageTagsView implements Observer {
 
         Button addTagButton = new Button("Add Tag");
         addTagButton.setOnAction(e -> {
-            AddTagView view = new AddTagView();
+            AddTagView view = new AddTagView(existingTags);
             controller.addTag(view.display());
         });
 
@@ -0,0 +1,112 @@
+package view;
+
+import javafx.concurrent.Worker;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.Scene;
+import javafx.scene.control.Button;
+import javafx.scene.control.Label;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.image.Image;
+import javafx.scene.layout.VBox;
+import javafx.stage.Modality;
+import javafx.stage.Stage;
+
+/**
+ * A ProgressBox shows the progress of a long running task in a window,
+ * with a button to cancel it. The window stays open until the task has
+ * finished, even once cancelled, so when display returns the task is no
+ * longer running.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class ProgressBox {
+    /**
+     * The title of the progress window.
+     */
+    private String title;
+
+    /**
+     * The task whose progress is shown.
+     */
+    private Worker<?> task;
+
+    /**
+     * Asks the task to stop, when the user cancels it.
+     */
+    private Runnable onCancel;
+
+    /**
+     * Creates a progress window with the title provided, for task.
+     *
+     * @param title    the title of the progress window
+     * @param task     the task whose progress is shown
+     * @param onCancel asks the task to stop, when the user cancels it
+     */
+    public ProgressBox(String title, Worker<?> task, Runnable onCancel) {
+        this.title = title;
+        this.task = task;
+        this.onCancel = onCancel;
+    }
+
+    /**
+     * Displays this progress window until the task has finished.
+     */
+    public void display() {
+        Stage window = new Stage();
+        window.getIcons().add(new Image("file:resources/logo.png"));
+        window.initModality(Modality.APPLICATION_MODAL);
+        window.setTitle(title);
+        window.setMinWidth(350);
+
+        Label labelMessage = new Label();
+        labelMessage.textProperty().bind(task.messageProperty());
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(300);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Button cancelButton = new Button("Cancel");
+        cancelButton.setOnAction(e -> {
+            cancelButton.setDisable(true);
+            labelMessage.textProperty().unbind();
+            labelMessage.setText("Stopping...");
+            onCancel.run();
+        });
+        // Closing the window cancels the task, but the window stays open
+        // until the task has stopped.
+        window.setOnCloseRequest(e -> {
+            e.consume();
+            cancelButton.fire();
+        });
+        task.runningProperty().addListener((observable, wasRunning,
+                                            running) -> {
+            if (!running && isFinished()) {
+                window.close();
+            }
+        });
+
+        VBox layout = new VBox(10);
+        layout.setPadding(new Insets(15, 15, 15, 15));
+        layout.getChildren().addAll(labelMessage, progressBar, cancelButton);
+        layout.setAlignment(Pos.CENTER);
+
+        Scene scene = new Scene(layout);
+        window.setScene(scene);
+        if (!isFinished()) {
+            window.showAndWait();
+        }
+    }
+
+    /**
+     * Returns whether the task has finished.
+     *
+     * @return true if the task has succeeded, failed or been cancelled
+     */
+    private boolean isFinished() {
+        Worker.State state = task.getState();
+        return state == Worker.State.SUCCEEDED ||
+                state == Worker.State.FAILED ||
+                state == Worker.State.CANCELLED;
+    }
+}
@@ -12,11 +12,24 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
+import model.HistoryEntry;
 import model.ImageFile;
+import model.Tag;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * A TagHistoryView displays a list of previous names of an
- * image file that was chosen from the user. This class is responsible
+ * image file that was chosen from the user, with when it was renamed and
+ * the tags each rename added and removed. Image files renamed before their
+ * history was kept show their past names alone. This class is responsible
  * for creating the graphical interface to display the past names and
  * returns the name that the user wants to revert back to.
  *
@@ -25,6 +38,12 @@ import model.ImageFile;
  */
 
 public class TagHistoryView {
+    /**
+     * The format of the time of each rename.
+     */
+    private static final DateTimeFormatter DATE_FORMAT =
+            DateTimeFormatter.ofPattern("dd/MM/yyyy hh:mm:ss");
+
     /**
      * The ImageFile this TagHistoryView displays information about.
      */
@@ -51,9 +70,11 @@ public class TagHistoryView {
      * @return the past name that was selected by the user
      */
     public String display() {
+        List<String> pastNames = new ArrayList<>();
+        List<String> rows = new ArrayList<>();
+        loadHistory(pastNames, rows);
         ListView<String> pastNamesView = new ListView<>(
-                FXCollections.observableArrayList(
-                        imageFile.getPastImageNames()));
+                FXCollections.observableArrayList(rows));
         Stage stage = new Stage();
         stage.getIcons().add(new Image("file:resources/logo.png"));
         stage.initModality(Modality.APPLICATION_MODAL);
@@ -69,8 +90,9 @@ public class TagHistoryView {
 
         Button doneButton = new Button("Done");
         doneButton.setOnAction(e -> {
-            selectedName =
-                    pastNamesView.getSelectionModel().getSelectedItems().get(0);
+            int selected = pastNamesView.getSelectionModel()
+                    .getSelectedIndex();
+            selectedName = selected < 0 ? null : pastNames.get(selected);
             stage.close();
         });
 
@@ -82,9 +104,55 @@ public class TagHistoryView {
         Scene scene = new Scene(layout);
         layout.setPadding(new Insets(15, 15, 15, 15));
         stage.setScene(scene);
-        stage.setWidth(500);
+        stage.setWidth(700);
         stage.showAndWait();
 
         return selectedName;
     }
+
+    /**
+     * Fills pastNames with the names imageFile has had, and rows with the
+     * text shown for each. Names come from the rename history of imageFile,
+     * or from its past names if it has no history.
+     *
+     * @param pastNames the list of past names to fill
+     * @param rows      the list of rows to fill
+     */
+    private void loadHistory(List<String> pastNames, List<String> rows) {
+        List<HistoryEntry> history = new ArrayList<>();
+        try {
+            history = imageFile.getHistory();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        for (HistoryEntry entry : history) {
+            String name = entry.getOldFile().getName();
+            if (name.lastIndexOf('.') > 0) {
+                name = name.substring(0, name.lastIndexOf('.'));
+            }
+            // Each row shows a past name, and what was changed from it.
+            StringBuilder row = new StringBuilder("[");
+            row.append(DATE_FORMAT.format(LocalDateTime.ofInstant(
+                    Instant.ofEpochMilli(entry.getTime()),
+                    ZoneId.systemDefault())));
+            row.append("]  ").append(name).append("  \u2192");
+            for (Tag tag : entry.getAddedTags()) {
+                row.append(" +").append(tag);
+            }
+            for (Tag tag : entry.getRemovedTags()) {
+                row.append(" -").append(tag);
+            }
+            File oldParent = entry.getOldFile().getParentFile();
+            File newParent = entry.getNewFile().getParentFile();
+            if (oldParent != null && !oldParent.equals(newParent)) {
+                row.append(" moved to ").append(newParent);
+            }
+            pastNames.add(name);
+            rows.add(row.toString());
+        }
+        if (pastNames.isEmpty()) {
+            pastNames.addAll(imageFile.getPastImageNames());
+            rows.addAll(pastNames);
+        }
+    }
 }
@@ -0,0 +1,403 @@
+package view;
+
+import javafx.scene.image.Image;
+import model.Counter;
+import model.ImageFile;
+import model.Metrics;
+import model.Timer;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * A ThumbnailCache keeps small copies of images in a cache directory, so
+ * the gallery does not have to decode full size originals every time it is
+ * shown. Thumbnails are keyed by the identity of the file on disk (its inode
+ * where the file system has one, otherwise its original name) together with
+ * its size and modification time. Renaming or moving an image therefore
+ * keeps its thumbnail, while editing its contents makes a new one, which
+ * replaces the thumbnail of the old contents.
+ *
+ * The cache is kept under a size cap. A thumbnail's modification time is
+ * set whenever it is used, and once the cache grows past the cap, the
+ * least recently used thumbnails are deleted until it is a quarter under.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+class ThumbnailCache {
+    /**
+     * The size the cache may grow to by default, in bytes.
+     */
+    private static final long MAX_BYTES = 256L << 20;
+
+    /**
+     * The time taken to decode, scale and store a thumbnail.
+     */
+    private static final Timer DECODE_TIMER =
+            Metrics.timer("thumbnail.decode");
+
+    /**
+     * The number of thumbnails found in the cache.
+     */
+    private static final Counter HITS = Metrics.counter("thumbnail.hits");
+
+    /**
+     * The number of thumbnails not found in the cache.
+     */
+    private static final Counter MISSES = Metrics.counter("thumbnail.misses");
+
+    /**
+     * The number of thumbnails deleted to keep the cache under its cap.
+     */
+    private static final Counter EVICTIONS =
+            Metrics.counter("thumbnail.evictions");
+
+    /**
+     * The directory thumbnails are stored in.
+     */
+    private final Path directory;
+
+    /**
+     * The size the cache may grow to, in bytes.
+     */
+    private final long maxBytes;
+
+    /**
+     * The size of the cache in bytes, or -1 until it is first measured.
+     */
+    private long bytes = -1;
+
+    /**
+     * Creates a thumbnail cache stored in directory, of the default size.
+     *
+     * @param directory the directory to store thumbnails in
+     */
+    ThumbnailCache(Path directory) {
+        this(directory, MAX_BYTES);
+    }
+
+    /**
+     * Creates a thumbnail cache stored in directory, which may grow to
+     * maxBytes.
+     *
+     * @param directory the directory to store thumbnails in
+     * @param maxBytes  the size the cache may grow to, in bytes
+     */
+    ThumbnailCache(Path directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a thumbnail of imageFile that fits in a square of the size
+     * provided, decoding the original only if no cached thumbnail exists.
+     *
+     * @param imageFile the image to return a thumbnail of
+     * @param size      the width and height of the square to fit in
+     * @return the thumbnail, or null if the image file could not be found
+     */
+    Image get(ImageFile imageFile, int size) {
+        Path original = imageFile.getFile().toPath();
+        Path thumbnail;
+        try {
+            thumbnail = locate(imageFile, size);
+        } catch (IOException e) {
+            return null;
+        }
+        if (Files.exists(thumbnail)) {
+            try (InputStream in = Files.newInputStream(thumbnail)) {
+                Image image = new Image(in);
+                if (!image.isError()) {
+                    HITS.increment();
+                    // Mark it recently used, so it is kept longest
+                    Files.setLastModifiedTime(thumbnail,
+                            FileTime.fromMillis(System.currentTimeMillis()));
+                    return image;
+                }
+            } catch (IOException e) {
+                // Fall through and recreate the thumbnail.
+            }
+        }
+        MISSES.increment();
+        long start = Timer.start();
+        try {
+            BufferedImage scaled = decode(original, size);
+            if (scaled != null) {
+                store(scaled, thumbnail);
+                added(thumbnail);
+                try (InputStream in = Files.newInputStream(thumbnail)) {
+                    return new Image(in);
+                }
+            }
+            // ImageIO could not read it, so let JavaFX try, uncached.
+            try (InputStream in = Files.newInputStream(original)) {
+                return new Image(in, size, size, true, true);
+            }
+        } catch (IOException e) {
+            return null;
+        } finally {
+            DECODE_TIMER.stop(start);
+        }
+    }
+
+    /**
+     * Returns the path the thumbnail of imageFile is cached at. The name of
+     * the thumbnail is the digest of the identity of the file and the size
+     * of the thumbnail, followed by a digest of the version of its
+     * contents, so every version of one image's thumbnail shares a prefix.
+     *
+     * @param imageFile the image the thumbnail is of
+     * @param size      the size of the thumbnail
+     * @return the path of the cached thumbnail
+     * @throws IOException if the attributes of the image file could not be
+     *                     read
+     */
+    Path locate(ImageFile imageFile, int size) throws IOException {
+        BasicFileAttributes attrs = Files.readAttributes(
+                imageFile.getFile().toPath(), BasicFileAttributes.class);
+        Object identity = attrs.fileKey() != null ?
+                attrs.fileKey() : imageFile.getOriginalName();
+        String hash = sha1(identity + "|" + size);
+        String version = sha1(attrs.size() + "|" +
+                attrs.lastModifiedTime().toMillis());
+        return directory.resolve(hash.substring(0, 2)).resolve(
+                hash + "-" + version.substring(0, 16) + ".png");
+    }
+
+    /**
+     * Accounts for a thumbnail just stored: deletes the thumbnails of
+     * older versions of the same image, and sweeps the cache if it has
+     * grown past its cap. If the cache cannot be listed, the cache is
+     * measured again when the next thumbnail is stored.
+     *
+     * @param thumbnail the thumbnail stored
+     */
+    private synchronized void added(Path thumbnail) {
+        try {
+            deleteOldVersions(thumbnail);
+            if (bytes < 0) {
+                bytes = measure(new ArrayList<>());
+            } else {
+                bytes += Files.size(thumbnail);
+            }
+            if (bytes > maxBytes) {
+                sweep();
+            }
+        } catch (IOException e) {
+            bytes = -1;
+        }
+    }
+
+    /**
+     * Deletes the thumbnails of the other versions of the image thumbnail
+     * is of.
+     *
+     * @param thumbnail the thumbnail of the current version
+     * @throws IOException if the thumbnails could not be listed
+     */
+    private void deleteOldVersions(Path thumbnail) throws IOException {
+        String name = thumbnail.getFileName().toString();
+        String prefix = name.substring(0, name.indexOf('-') + 1);
+        try (DirectoryStream<Path> versions = Files.newDirectoryStream(
+                thumbnail.getParent(), prefix + "*.png")) {
+            for (Path old : versions) {
+                if (!old.equals(thumbnail)) {
+                    long length = Files.size(old);
+                    if (Files.deleteIfExists(old) && bytes >= 0) {
+                        bytes -= length;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the least recently used thumbnails until the cache is a
+     * quarter under its cap.
+     *
+     * @throws IOException if the cache could not be listed
+     */
+    private void sweep() throws IOException {
+        List<Path> thumbnails = new ArrayList<>();
+        bytes = measure(thumbnails);
+        thumbnails.sort(Comparator.comparing(ThumbnailCache::lastUsed));
+        long target = maxBytes - maxBytes / 4;
+        for (Path thumbnail : thumbnails) {
+            if (bytes <= target) {
+                break;
+            }
+            long length = Files.size(thumbnail);
+            if (Files.deleteIfExists(thumbnail)) {
+                bytes -= length;
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the total size of the thumbnails in the cache, adding each
+     * to thumbnails. Only the thumbnails are looked at, not the temporary
+     * files being written beside them.
+     *
+     * @param thumbnails the list to add the thumbnails found to
+     * @return the size of the cache in bytes
+     * @throws IOException if the cache could not be listed
+     */
+    private long measure(List<Path> thumbnails) throws IOException {
+        long total = 0;
+        try (DirectoryStream<Path> buckets =
+                     Files.newDirectoryStream(directory, Files::isDirectory)) {
+            for (Path bucket : buckets) {
+                try (DirectoryStream<Path> files =
+                             Files.newDirectoryStream(bucket, "*.png")) {
+                    for (Path file : files) {
+                        thumbnails.add(file);
+                        total += Files.size(file);
+                    }
+                }
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Returns the time a thumbnail was last used, the oldest time possible
+     * if it is already gone.
+     *
+     * @param thumbnail a cached thumbnail
+     * @return the time it was last used
+     */
+    private static FileTime lastUsed(Path thumbnail) {
+        try {
+            return Files.getLastModifiedTime(thumbnail);
+        } catch (IOException e) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    /**
+     * Returns the SHA-1 digest of text, in hexadecimal.
+     *
+     * @param text the text to digest
+     * @return the hexadecimal SHA-1 digest of text
+     */
+    private static String sha1(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(
+                    text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-1.
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Decodes the image at path and scales it to fit in a square of the size
+     * provided. Large images are subsampled while decoding, so they are
+     * never held in memory at full resolution.
+     *
+     * @param path the path of the image
+     * @param size the width and height of the square to fit in
+     * @return the scaled image, or null if ImageIO cannot read it
+     * @throws IOException if the image could not be read
+     */
+    private static BufferedImage decode(Path path, int size)
+            throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(
+                path.toFile())) {
+            if (in == null) {
+                return null;
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                // Keep at least twice the target resolution for smoothing.
+                int step = Math.max(1,
+                        Math.max(width, height) / (2 * size));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param), size);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Scales image to fit in a square of the size provided, preserving its
+     * aspect ratio.
+     *
+     * @param image the image to scale
+     * @param size  the width and height of the square to fit in
+     * @return the scaled image
+     */
+    private static BufferedImage scale(BufferedImage image, int size) {
+        double ratio = Math.min(1.0, Math.min(
+                (double) size / image.getWidth(),
+                (double) size / image.getHeight()));
+        int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int height = Math.max(1,
+                (int) Math.round(image.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+                RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.setRenderingHint(RenderingHints.KEY_RENDERING,
+                RenderingHints.VALUE_RENDER_QUALITY);
+        g.drawImage(image, 0, 0, width, height, null);
+        g.dispose();
+        return scaled;
+    }
+
+    /**
+     * Writes image to the cache at thumbnail. The image is written to a
+     * temporary file first, so a thumbnail is never seen half written.
+     *
+     * @param image     the thumbnail to store
+     * @param thumbnail the path to store it at
+     * @throws IOException if the thumbnail could not be written
+     */
+    private static void store(BufferedImage image, Path thumbnail)
+            throws IOException {
+        Files.createDirectories(thumbnail.getParent());
+        Path temp = Files.createTempFile(thumbnail.getParent(), "thumb",
+                ".tmp");
+        try {
+            ImageIO.write(image, "png", temp.toFile());
+            Files.move(temp, thumbnail, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package view;
+
+import javafx.scene.image.Image;
+import model.ImageFile;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * A ThumbnailLoader decodes thumbnails on a small pool of background
+ * threads, so the JavaFX application thread never waits on the disk.
+ * Pending requests are kept in a priority queue: urgent requests (an image
+ * the user opened) come first, then the most recent requests, which are
+ * the tiles that just scrolled into view. A request can be cancelled at any
+ * time, and is dropped if its image is moved before it is decoded. Decoded
+ * thumbnails are handed back to the application thread in batches, one task
+ * per batch rather than one per image.
+ *
+ * @author David C., Felix L., Helen J., Alex T.
+ * @version 1.8
+ */
+
+public class ThumbnailLoader {
+    /**
+     * The cache thumbnails are loaded from.
+     */
+    private final ThumbnailCache cache;
+
+    /**
+     * The executor that runs tasks on the JavaFX application thread.
+     */
+    private final Executor fxExecutor;
+
+    /**
+     * The worker threads decoding thumbnails.
+     */
+    private final ThreadPoolExecutor workers;
+
+    /**
+     * Requests decoded but not yet handed back to the application thread.
+     */
+    private final Queue<Request> finished = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Whether a task to hand back finished requests has been scheduled.
+     */
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+
+    /**
+     * The number of requests made so far, used to favour recent requests.
+     */
+    private final AtomicLong requestCount = new AtomicLong();
+
+    /**
+     * A Request is a thumbnail waiting to be decoded or handed back.
+     */
+    public class Request implements Runnable, Comparable<Request> {
+        /**
+         * The image to decode a thumbnail of.
+         */
+        private final ImageFile imageFile;
+
+        /**
+         * The path of the image when it was requested.
+         */
+        private final File file;
+
+        /**
+         * The width and height of the square the thumbnail fits in.
+         */
+        private final int size;
+
+        /**
+         * Whether this request goes ahead of every non-urgent request.
+         */
+        private final boolean urgent;
+
+        /**
+         * The order this request was made in.
+         */
+        private final long sequence;
+
+        /**
+         * The action to run on the application thread with the thumbnail.
+         */
+        private final Consumer<Image> onLoaded;
+
+        /**
+         * The decoded thumbnail, or null if it could not be decoded.
+         */
+        private Image image;
+
+        /**
+         * Whether this request has been cancelled.
+         */
+        private volatile boolean cancelled;
+
+        /**
+         * Creates a request.
+         *
+         * @param imageFile the image to decode a thumbnail of
+         * @param size      the size of the thumbnail
+         * @param urgent    whether the request goes ahead of the others
+         * @param onLoaded  the action to run with the thumbnail
+         */
+        private Request(ImageFile imageFile, int size, boolean urgent,
+                        Consumer<Image> onLoaded) {
+            this.imageFile = imageFile;
+            this.file = imageFile.getFile();
+            this.size = size;
+            this.urgent = urgent;
+            this.sequence = requestCount.getAndIncrement();
+            this.onLoaded = onLoaded;
+        }
+
+        /**
+         * Cancels this request. Its action will not be run, and if it has
+         * not been decoded yet it never will be.
+         */
+        public void cancel() {
+            cancelled = true;
+            workers.remove(this);
+        }
+
+        /**
+         * Returns whether the image of this request is still where it was
+         * when the request was made.
+         *
+         * @return whether this request is still wanted
+         */
+        private boolean isWanted() {
+            return !cancelled && file.equals(imageFile.getFile());
+        }
+
+        @Override
+        public void run() {
+            if (!isWanted()) {
+                return;
+            }
+            image = cache.get(imageFile, size);
+            if (isWanted()) {
+                finished.add(this);
+                scheduleDrain();
+            }
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (urgent != other.urgent) {
+                return urgent ? -1 : 1;
+            }
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+
+    /**
+     * Creates a thumbnail loader with a thread per two processors, caching
+     * thumbnails in cacheDirectory.
+     *
+     * @param cacheDirectory the directory to cache thumbnails in
+     * @param fxExecutor     the executor that runs tasks on the JavaFX
+     *                       application thread, such as Platform::runLater
+     */
+    public ThumbnailLoader(Path cacheDirectory, Executor fxExecutor) {
+        this(cacheDirectory, fxExecutor, Math.max(2,
+                Runtime.getRuntime().availableProcessors() / 2));
+    }
+
+    /**
+     * Creates a thumbnail loader with the number of threads provided,
+     * caching thumbnails in cacheDirectory.
+     *
+     * @param cacheDirectory the directory to cache thumbnails in
+     * @param fxExecutor     the executor that runs tasks on the JavaFX
+     *                       application thread, such as Platform::runLater
+     * @param threads        the number of threads decoding thumbnails
+     */
+    public ThumbnailLoader(Path cacheDirectory, Executor fxExecutor,
+                           int threads) {
+        this.cache = new ThumbnailCache(cacheDirectory);
+        this.fxExecutor = fxExecutor;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable,
+                            "TagYoureIt thumbnail loader");
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.NORM_PRIORITY - 1);
+                    return thread;
+                });
+    }
+
+    /**
+     * Requests a thumbnail of imageFile that fits in a square of the size
+     * provided. Once it is decoded, onLoaded is run on the application
+     * thread with the thumbnail, or with null if the image could not be
+     * found.
+     *
+     * @param imageFile the image to load a thumbnail of
+     * @param size      the width and height of the square to fit in
+     * @param urgent    whether the thumbnail goes ahead of every non-urgent
+     *                  request
+     * @param onLoaded  the action to run with the thumbnail
+     * @return the request, which can be cancelled
+     */
+    public Request load(ImageFile imageFile, int size, boolean urgent,
+                        Consumer<Image> onLoaded) {
+        Request request = new Request(imageFile, size, urgent, onLoaded);
+        workers.execute(request);
+        return request;
+    }
+
+    /**
+     * Schedules a task on the application thread to hand back every
+     * finished request, unless one is already scheduled.
+     */
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            fxExecutor.execute(this::drain);
+        }
+    }
+
+    /**
+     * Runs the action of every finished request that has not been
+     * cancelled. Runs on the application thread.
+     */
+    private void drain() {
+        drainScheduled.set(false);
+        Request request;
+        while ((request = finished.poll()) != null) {
+            if (request.isWanted()) {
+                request.onLoaded.accept(request.image);
+            }
+        }
+    }
+
+    /**
+     * Stops decoding thumbnails. Pending requests are dropped.
+     */
+    public void shutdown() {
+        workers.shutdownNow();
+    }
+}
@@ -0,0 +1,109 @@
+package controller;
+
+import model.Model;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CommandLineTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File root;
+
+    private String out;
+
+    private String err;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root");
+        new File(root, "other").mkdir();
+        Files.createFile(new File(root, "beach.jpg").toPath());
+        Files.createFile(new File(root, "other/dune.png").toPath());
+    }
+
+    /**
+     * Runs the commands on a CommandLine at rootPath, keeping what it
+     * writes in out and err.
+     */
+    private int run(String rootPath, String commands) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        int status = CommandLine.run(new String[]{rootPath, "-"},
+                new ByteArrayInputStream(
+                        commands.getBytes(StandardCharsets.UTF_8)),
+                stdout, stderr);
+        out = stdout.toString();
+        err = stderr.toString();
+        return status;
+    }
+
+    @Test
+    public void testScan() {
+        assertEquals(CommandLine.OK, run(root.getPath(), "scan\n"));
+        assertTrue(out.contains(new File(root, "beach.jpg").getPath()));
+        assertTrue(out.contains(new File(root, "other/dune.png").getPath()));
+    }
+
+    @Test
+    public void testTagUntagAndMove() {
+        assertEquals(CommandLine.OK, run(root.getPath(),
+                "tag\tsun,sea\tbeach.jpg\n" +
+                        "untag\tsea\tbeach @sun @sea.jpg\n" +
+                        "move\tother\tbeach @sun.jpg\n" +
+                        "query\tsun\n"));
+        assertEquals("", err);
+        assertTrue(new File(root, "other/beach @sun.jpg").exists());
+        assertTrue(out.endsWith(
+                new File(root, "other/beach @sun.jpg").getPath() + "\n"));
+    }
+
+    @Test
+    public void testRelativeRoot() {
+        String relative = Paths.get("").toAbsolutePath()
+                .relativize(root.toPath()).toString();
+        int status = run(relative, "tag\tsun\tbeach.jpg\n" +
+                "tag\tsand\t" + root + "/./other/dune.png\n" +
+                "move\t.\tother/dune @sand.png\n");
+        assertEquals(err, CommandLine.OK, status);
+        assertTrue(new File(root, "beach @sun.jpg").exists());
+        assertTrue(new File(root, "dune @sand.png").exists());
+    }
+
+    @Test
+    public void testScanOnlyUnderRoot() throws IOException {
+        File sibling = tempFolder.newFolder("rootB");
+        Files.createFile(new File(sibling, "forest.jpg").toPath());
+        assertEquals(CommandLine.OK, run(sibling.getPath(),
+                "move\t" + root + "\tforest.jpg\n"));
+        assertEquals(CommandLine.OK, run(sibling.getPath(), "scan\n"));
+        assertFalse(out.contains("forest.jpg"));
+    }
+
+    @Test
+    public void testErrors() throws IOException {
+        assertEquals(CommandLine.FAILED, run(root.getPath(),
+                "tag\tsun\tmissing.jpg\nfrobnicate\n"));
+        assertTrue(err.contains("line 1: not an image under the root"));
+        assertTrue(err.contains("line 2: unknown command"));
+        assertNull(new Model(root).getExistingTags().findTag("sun"));
+        assertEquals(CommandLine.USAGE, run(
+                new File(root, "missing").getPath(), "scan\n"));
+    }
+}
@@ -0,0 +1,97 @@
+package controller;
+
+import model.BatchResult;
+import model.ImageFile;
+import model.Model;
+import model.Tag;
+import model.TagEdit;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TaggingServiceTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File root;
+
+    private TaggingService service;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root");
+        new File(root, "other").mkdir();
+        Files.createFile(new File(root, "beach.jpg").toPath());
+        Files.createFile(new File(root, "other/beach.png").toPath());
+        Files.createFile(new File(root, "other/dune.png").toPath());
+        service = new TaggingService(new Model(root));
+    }
+
+    @Test
+    public void testGetImageFileNormalizes() {
+        ImageFile beach = service.getImageFile(new File(root, "beach.jpg"));
+        assertNotNull(beach);
+        assertSame(beach, service.getImageFile(
+                new File(root, "other/../beach.jpg")));
+        assertSame(beach, service.getImageFile(
+                new File(new File(root, "."), "beach.jpg")));
+    }
+
+    @Test
+    public void testMoveFileClash() throws IOException {
+        ImageFile beach = service.getImageFile(new File(root, "beach.jpg"));
+        try {
+            service.moveFile(beach, new File(root, "other"));
+            fail("moved onto a file with the same original name");
+        } catch (TaggingException e) {
+            assertTrue(new File(root, "beach.jpg").exists());
+        }
+    }
+
+    @Test
+    public void testMoveFilesClash() throws IOException {
+        File dest = tempFolder.newFolder("dest");
+        List<ImageFile> both = Arrays.asList(
+                service.getImageFile(new File(root, "beach.jpg")),
+                service.getImageFile(new File(root, "other/beach.png")));
+        try {
+            service.moveFiles(both, dest);
+            fail("moved two files with the same original name");
+        } catch (TaggingException e) {
+            assertTrue(e.getMessage().startsWith("1 files would clash"));
+        }
+    }
+
+    @Test
+    public void testRemoveTags() {
+        Tag sun = service.findOrAddTag("sun");
+        service.editTags(service.getModel().getImageFiles(), TagEdit.ADD,
+                Collections.singletonList(sun));
+        assertEquals(3, service.filesWithTags(
+                Collections.singletonList(sun)).size());
+        BatchResult result = service.removeTags(
+                Collections.singletonList(sun));
+        assertFalse(result.hasFailures());
+        assertEquals(3, result.getChanged().size());
+        assertTrue(service.filesWithTags(
+                Collections.singletonList(sun)).isEmpty());
+        assertEquals(null,
+                service.getModel().getExistingTags().findTag("sun"));
+    }
+}
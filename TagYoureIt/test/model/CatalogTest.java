@@ -0,0 +1,121 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+
+public class CatalogTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Catalog catalog;
+
+    private ArrayList<ImageFile> imageFiles;
+
+    private ExistingTags existingTags;
+
+    @Before
+    public void setUp() throws IOException {
+        catalog = new Catalog(new File(tempFolder.getRoot(),
+                "catalog.tyi").toPath());
+        existingTags = new ExistingTags();
+        existingTags.addTag(new Tag("beach"));
+        existingTags.addTag(new Tag("sunset"));
+        imageFiles = new ArrayList<>();
+        imageFiles.add(new ImageFile(new File("/photos/a.jpg")));
+        imageFiles.add(new ImageFile(new File("/photos/2017/b @beach.png"),
+                "b", ".png", new ArrayList<>(Arrays.asList(new Tag("beach"))),
+                new ArrayList<>(Arrays.asList("b", "b @sunset"))));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        catalog.write(imageFiles, existingTags);
+        Catalog.Contents contents = catalog.read();
+        assertEquals(2, contents.imageFiles.size());
+        for (int i = 0; i < imageFiles.size(); i++) {
+            ImageFile expected = imageFiles.get(i);
+            ImageFile actual = contents.imageFiles.get(i);
+            assertEquals(expected.getFile(), actual.getFile());
+            assertEquals(expected.getOriginalName(), actual.getOriginalName());
+            assertEquals(expected.getFileExtension(),
+                    actual.getFileExtension());
+            assertEquals(expected.getCurrentTags(), actual.getCurrentTags());
+            assertEquals(expected.getPastImageNames(),
+                    actual.getPastImageNames());
+        }
+        assertEquals(existingTags.getExistingTags(),
+                contents.existingTags.getExistingTags());
+    }
+
+    @Test
+    public void testTagsAreShared() throws IOException {
+        catalog.write(imageFiles, existingTags);
+        Catalog.Contents contents = catalog.read();
+        assertSame(contents.existingTags.findTag("beach"),
+                contents.imageFiles.get(1).getCurrentTags().get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedCatalog() throws IOException {
+        catalog.write(imageFiles, existingTags);
+        try (RandomAccessFile file = new RandomAccessFile(
+                catalog.getPath().toFile(), "rw")) {
+            file.seek(40);
+            file.write(file.read() ^ 0xFF);
+        }
+        catalog.read();
+    }
+
+    @Test
+    public void testFileIds() throws IOException {
+        imageFiles.get(0).setId(7);
+        imageFiles.get(1).setId(1L << 40);
+        catalog.write(imageFiles, existingTags, 100);
+        Catalog.Contents contents = catalog.read();
+        assertEquals(7, contents.imageFiles.get(0).getId());
+        assertEquals(1L << 40, contents.imageFiles.get(1).getId());
+        assertEquals(100, contents.nextFileId);
+    }
+
+    @Test
+    public void testWriteWhileMapped() throws IOException {
+        catalog.write(imageFiles, existingTags);
+        Path first = catalog.getPath();
+        Catalog.Mapping mapping = catalog.map();
+        imageFiles.remove(0);
+        catalog.write(imageFiles, existingTags);
+        assertNotEquals(first, catalog.getPath());
+        assertEquals(2, mapping.size());
+        assertEquals(new File("/photos/a.jpg"), mapping.file(0));
+        Catalog reopened = new Catalog(new File(tempFolder.getRoot(),
+                "catalog.tyi").toPath());
+        assertEquals(1, reopened.read().imageFiles.size());
+        catalog.write(imageFiles, existingTags);
+        assertEquals(first, catalog.getPath());
+    }
+
+    @Test(expected = IOException.class)
+    public void testVersion1() throws IOException {
+        catalog.write(imageFiles, existingTags);
+        try (RandomAccessFile file = new RandomAccessFile(
+                catalog.getPath().toFile(), "rw")) {
+            file.seek(4);
+            file.writeInt(1);
+        }
+        catalog.read();
+    }
+}
@@ -0,0 +1,74 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ChangeEventTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private List<Object> events;
+
+    @Before
+    public void setUp() {
+        events = new ArrayList<>();
+    }
+
+    @Test
+    public void testMoveTo() throws IOException {
+        File file = tempFolder.newFile("a.jpg");
+        File dest = new File(tempFolder.newFolder("sub"), "a.jpg");
+        ImageFile imageFile = new ImageFile(file);
+        imageFile.addObserver((o, arg) -> events.add(arg));
+        imageFile.moveTo(dest);
+
+        assertEquals(1, events.size());
+        ChangeEvent event = (ChangeEvent) events.get(0);
+        assertEquals(ChangeEvent.Type.IMAGE_MOVED, event.getType());
+        assertSame(imageFile, event.getImageFile());
+        assertEquals(file, event.getOldFile());
+    }
+
+    @Test
+    public void testEditTags() throws IOException {
+        ImageFile imageFile = new ImageFile(tempFolder.newFile("a.jpg"));
+        imageFile.editTags(new ArrayList<>(Arrays.asList(new Tag("sun"))));
+        imageFile.addObserver((o, arg) -> events.add(arg));
+        imageFile.editTags(new ArrayList<>(Arrays.asList(new Tag("rain"))));
+
+        assertEquals(2, events.size());
+        assertEquals(ChangeEvent.Type.IMAGE_MOVED,
+                ((ChangeEvent) events.get(0)).getType());
+        ChangeEvent event = (ChangeEvent) events.get(1);
+        assertEquals(ChangeEvent.Type.TAGS_CHANGED, event.getType());
+        assertEquals(Arrays.asList(new Tag("sun")), event.getOldTags());
+    }
+
+    @Test
+    public void testExistingTags() {
+        ExistingTags existingTags = new ExistingTags();
+        existingTags.addObserver((o, arg) -> events.add(arg));
+        existingTags.addTag(new Tag("sun"));
+        existingTags.removeTag(new Tag("rain"));
+        existingTags.removeTag(new Tag("sun"));
+
+        assertEquals(2, events.size());
+        assertEquals(ChangeEvent.Type.TAG_ADDED,
+                ((ChangeEvent) events.get(0)).getType());
+        assertEquals(ChangeEvent.Type.TAG_REMOVED,
+                ((ChangeEvent) events.get(1)).getType());
+        assertEquals(new Tag("sun"), ((ChangeEvent) events.get(1)).getTag());
+    }
+}
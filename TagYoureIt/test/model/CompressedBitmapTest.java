@@ -0,0 +1,135 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CompressedBitmapTest {
+
+    private Random random;
+
+    @Before
+    public void setUp() {
+        random = new Random(42);
+    }
+
+    private int[] toArray(TreeSet<Integer> set) {
+        int[] values = new int[set.size()];
+        int i = 0;
+        for (int v : set) {
+            values[i++] = v;
+        }
+        return values;
+    }
+
+    private void fill(CompressedBitmap bitmap, TreeSet<Integer> set,
+                      int count, int bound) {
+        for (int i = 0; i < count; i++) {
+            int v = random.nextInt(bound);
+            assertEquals(set.add(v), bitmap.add(v));
+        }
+    }
+
+    @Test
+    public void testAddAndContains() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        assertTrue(bitmap.isEmpty());
+        assertTrue(bitmap.add(5));
+        assertFalse(bitmap.add(5));
+        assertTrue(bitmap.add(70000));
+        assertTrue(bitmap.contains(5));
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.contains(6));
+        assertEquals(2, bitmap.cardinality());
+        assertArrayEquals(new int[]{5, 70000}, bitmap.toArray());
+    }
+
+    @Test
+    public void testRemove() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        bitmap.add(1);
+        bitmap.add(200000);
+        assertTrue(bitmap.remove(200000));
+        assertFalse(bitmap.remove(200000));
+        assertTrue(bitmap.remove(1));
+        assertTrue(bitmap.isEmpty());
+    }
+
+    @Test
+    public void testDenseChunks() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        fill(bitmap, expected, 50000, 1 << 17);
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+        for (int i = 0; i < 40000; i++) {
+            int v = random.nextInt(1 << 17);
+            assertEquals(expected.remove(v), bitmap.remove(v));
+        }
+        assertArrayEquals(toArray(expected), bitmap.toArray());
+    }
+
+    @Test
+    public void testSetOperations() {
+        for (int bound : new int[]{1000, 1 << 18}) {
+            CompressedBitmap a = new CompressedBitmap();
+            CompressedBitmap b = new CompressedBitmap();
+            TreeSet<Integer> setA = new TreeSet<>();
+            TreeSet<Integer> setB = new TreeSet<>();
+            fill(a, setA, 30000, bound);
+            fill(b, setB, 3000, bound);
+
+            TreeSet<Integer> and = new TreeSet<>(setA);
+            and.retainAll(setB);
+            assertArrayEquals(toArray(and),
+                    CompressedBitmap.and(a, b).toArray());
+
+            TreeSet<Integer> or = new TreeSet<>(setA);
+            or.addAll(setB);
+            assertArrayEquals(toArray(or),
+                    CompressedBitmap.or(a, b).toArray());
+
+            TreeSet<Integer> andNot = new TreeSet<>(setA);
+            andNot.removeAll(setB);
+            assertArrayEquals(toArray(andNot),
+                    CompressedBitmap.andNot(a, b).toArray());
+            TreeSet<Integer> notAnd = new TreeSet<>(setB);
+            notAnd.removeAll(setA);
+            assertArrayEquals(toArray(notAnd),
+                    CompressedBitmap.andNot(b, a).toArray());
+        }
+    }
+
+    @Test
+    public void testOrMany() {
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 20; i++) {
+            CompressedBitmap bitmap = new CompressedBitmap();
+            TreeSet<Integer> set = new TreeSet<>();
+            fill(bitmap, set, i % 2 == 0 ? 100 : 10000, 1 << 18);
+            bitmaps.add(bitmap);
+            expected.addAll(set);
+        }
+        assertArrayEquals(toArray(expected),
+                CompressedBitmap.or(bitmaps).toArray());
+        assertTrue(CompressedBitmap.or(new ArrayList<>()).isEmpty());
+    }
+
+    @Test
+    public void testRange() {
+        assertEquals(0, CompressedBitmap.range(0).cardinality());
+        assertEquals(70000, CompressedBitmap.range(70000).cardinality());
+        CompressedBitmap range = CompressedBitmap.range(100);
+        assertTrue(range.contains(99));
+        assertFalse(range.contains(100));
+    }
+}
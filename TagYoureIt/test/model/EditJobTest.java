@@ -0,0 +1,167 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Observer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class EditJobTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File root;
+
+    private Model model;
+
+    private Path data;
+
+    private Tag sun;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root");
+        for (int i = 0; i < 10; i++) {
+            File dir = new File(root, "dir" + i % 2);
+            dir.mkdirs();
+            Files.createFile(new File(dir, "img" + i + ".jpg").toPath());
+        }
+        Files.createFile(new File(root, "other.jpg").toPath());
+        data = tempFolder.newFolder("data").toPath();
+        model = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+        sun = new Tag("sun");
+        List<ImageFile> images = new ArrayList<>(model.getImageFiles());
+        ImageFile other = model.getImageFile(new File(root, "other.jpg"));
+        images.remove(other);
+        model.editTags(images, TagEdit.ADD, Collections.singletonList(sun));
+        model.editTags(Collections.singletonList(other), TagEdit.ADD,
+                Collections.singletonList(new Tag("sea")));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        model.close();
+    }
+
+    @Test
+    public void testFindWithAnyTag() {
+        assertEquals(10, model.findWithAnyTag(
+                Collections.singletonList(sun)).size());
+        assertEquals(11, model.findWithAnyTag(Arrays.asList(sun,
+                new Tag("sea"))).size());
+    }
+
+    @Test
+    public void testRenameInParts() {
+        List<ImageFile> files = model.findWithAnyTag(
+                Collections.singletonList(sun));
+        Model.EditJob job = model.newEdit(files, TagEdit.REMOVE,
+                Collections.singletonList(sun));
+        assertEquals(10, job.size());
+        job.renameNext(4);
+        assertEquals(4, job.getRenamed());
+        // Renamed on disk, but not yet in the model
+        assertEquals(10, model.findWithAnyTag(
+                Collections.singletonList(sun)).size());
+        assertEquals(4, job.commit().getChanged().size());
+        assertEquals(6, model.findWithAnyTag(
+                Collections.singletonList(sun)).size());
+        assertFalse(job.isRenamed());
+        job.renameNext(100);
+        assertTrue(job.isRenamed());
+        BatchResult result = job.commit();
+        assertEquals(10, result.getChanged().size());
+        assertFalse(result.hasFailures());
+        assertEquals(0, model.findWithAnyTag(
+                Collections.singletonList(sun)).size());
+        assertTrue(new File(root, "dir0/img0.jpg").exists());
+    }
+
+    @Test
+    public void testFailedEditAddsNoTags() throws IOException {
+        Files.createFile(new File(root, "other @sea @sand.jpg").toPath());
+        ImageFile other = model.getImageFile(new File(root, "other @sea.jpg"));
+        BatchResult result = model.editTags(Collections.singletonList(other),
+                TagEdit.ADD, Collections.singletonList(new Tag("sand")));
+        assertTrue(result.hasFailures());
+        assertNull(model.getExistingTags().findTag("sand"));
+    }
+
+    @Test
+    public void testCommitWhenJournalFails() throws IOException {
+        List<ImageFile> files = model.findWithAnyTag(
+                Collections.singletonList(sun));
+        Model.EditJob job = model.newEdit(files, TagEdit.REMOVE,
+                Collections.singletonList(sun));
+        job.renameNext(100);
+        // Stop the journal from writing after the files are renamed
+        Journal journal = model.getJournal();
+        journal.close();
+        journal.logAddTag(new Tag("rain"));
+        try {
+            journal.sync();
+            fail("synced a closed journal");
+        } catch (IOException e) {
+            // Expected
+        }
+        BatchResult result = job.commit();
+        assertEquals(10, result.getFailures().size());
+        assertEquals(0, model.findWithAnyTag(
+                Collections.singletonList(sun)).size());
+        assertEquals(new File(root, "dir0/img0.jpg"),
+                files.get(0).getFile());
+
+        // The batch was closed, and the files are no longer being renamed
+        int[] notified = new int[1];
+        Observer observer = (o, arg) -> notified[0]++;
+        model.addObserver(observer);
+        model.applyChanges(Collections.singletonList(
+                new File(root, "dir0/img0.jpg").toPath()));
+        Files.createFile(new File(root, "dir0/new.jpg").toPath());
+        model.applyChanges(Collections.singletonList(
+                new File(root, "dir0/new.jpg").toPath()));
+        assertEquals(1, notified[0]);
+        assertEquals(12, model.getImageFiles().size());
+        try {
+            model.close();
+            fail("closed without reporting the failed journal");
+        } catch (IOException e) {
+            // Expected
+        }
+        model = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+    }
+
+    @Test
+    public void testWatcherIgnoresFilesBeingRenamed() {
+        ImageFile imageFile = model.getImageFile(
+                new File(root, "dir0/img0 @sun.jpg"));
+        Model.EditJob job = model.newEdit(
+                Collections.singletonList(imageFile), TagEdit.REMOVE,
+                Collections.singletonList(sun));
+        job.renameNext(1);
+        model.applyChanges(Arrays.asList(
+                new File(root, "dir0/img0 @sun.jpg").toPath(),
+                new File(root, "dir0/img0.jpg").toPath()));
+        assertEquals(11, model.getImageFiles().size());
+        job.commit();
+        assertEquals(11, model.getImageFiles().size());
+        assertEquals(new File(root, "dir0/img0.jpg"), imageFile.getFile());
+    }
+}
@@ -6,6 +6,8 @@ import org.junit.Test;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import static org.junit.Assert.assertEquals;
 
@@ -91,4 +93,44 @@ public class ExistingTagsTest {
         existingTags.removeTag(tag2);
         assertEquals(newList, existingTags.getExistingTags());
     }
+
+    @Test
+    public void testFindTagsStartingWith() {
+        existingTags.addTag(new Tag("summer"));
+        existingTags.addTag(new Tag("apple"));
+        existingTags.addTag(new Tag("sun"));
+        existingTags.addTag(new Tag("sunset"));
+        ArrayList<Tag> found = new ArrayList<>();
+        found.add(new Tag("sun"));
+        found.add(new Tag("sunset"));
+        assertEquals(found, existingTags.findTagsStartingWith("su", 10)
+                .subList(1, 3));
+        assertEquals(3, existingTags.findTagsStartingWith("s", 10).size());
+        assertEquals(2, existingTags.findTagsStartingWith("s", 2).size());
+        assertEquals(0, existingTags.findTagsStartingWith("z", 10).size());
+    }
+
+    @Test
+    public void testRemovedTagNotFound() {
+        existingTags.addTag(new Tag("sun"));
+        existingTags.removeTag(new Tag("sun"));
+        assertEquals(null, existingTags.findTag("sun"));
+        assertEquals(0, existingTags.findTagsStartingWith("s", 10).size());
+    }
+
+    @Test
+    public void testRemoveManyTags() {
+        existingTags.addTag(new Tag("sun"));
+        existingTags.addTag(new Tag("sea"));
+        existingTags.addTag(new Tag("sand"));
+        List<Object> notifications = new ArrayList<>();
+        existingTags.addObserver((o, arg) -> notifications.add(arg));
+        existingTags.removeTags(Arrays.asList(new Tag("sun"),
+                new Tag("sand"), new Tag("snow")));
+        assertEquals(1, notifications.size());
+        assertEquals(2, ((List<?>) notifications.get(0)).size());
+        ArrayList<Tag> left = new ArrayList<>();
+        left.add(new Tag("sea"));
+        assertEquals(left, existingTags.getExistingTags());
+    }
 }
@@ -0,0 +1,170 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HistoryStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path directory;
+
+    private HistoryStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = tempFolder.getRoot().toPath().resolve("history");
+        store = new HistoryStore(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+    }
+
+    private void rename(long fileId, String from, String to) {
+        store.append(fileId, new File(from), new File(to),
+                Collections.emptyList(), Collections.emptyList());
+    }
+
+    @Test
+    public void testForFile() throws IOException {
+        rename(1, "/a.jpg", "/a @x.jpg");
+        rename(2, "/b.jpg", "/b @x.jpg");
+        store.append(1, new File("/a @x.jpg"), new File("/a @y.jpg"),
+                Arrays.asList(new Tag("x")), Arrays.asList(new Tag("y")));
+
+        List<HistoryEntry> history = store.forFile(1);
+        assertEquals(2, history.size());
+        assertEquals(new File("/a.jpg"), history.get(0).getOldFile());
+        HistoryEntry last = history.get(1);
+        assertEquals(new File("/a @y.jpg"), last.getNewFile());
+        assertEquals(Arrays.asList(new Tag("y")), last.getAddedTags());
+        assertEquals(Arrays.asList(new Tag("x")), last.getRemovedTags());
+        assertTrue(store.forFile(3).isEmpty());
+    }
+
+    @Test
+    public void testBetween() throws IOException {
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < 10; i++) {
+            rename(i, "/" + i + ".jpg", "/" + i + " @x.jpg");
+        }
+        List<HistoryEntry> all = store.between(start, Long.MAX_VALUE);
+        assertEquals(10, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.get(i - 1).getTime() <= all.get(i).getTime());
+        }
+        assertTrue(store.between(0, start).isEmpty());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        rename(1, "/a.jpg", "/a @x.jpg");
+        rename(1, "/a @x.jpg", "/a.jpg");
+        store.close();
+        store = new HistoryStore(directory);
+        assertEquals(2, store.forFile(1).size());
+        rename(1, "/a.jpg", "/b.jpg");
+        assertEquals(3, store.forFile(1).size());
+    }
+
+    @Test
+    public void testTornEntry() throws IOException {
+        rename(1, "/a.jpg", "/a @x.jpg");
+        rename(1, "/a @x.jpg", "/a.jpg");
+        store.close();
+        File segment = directory.resolve("000001.seg").toFile();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+        store = new HistoryStore(directory);
+        assertEquals(1, store.forFile(1).size());
+        rename(1, "/a @x.jpg", "/c.jpg");
+        assertEquals(new File("/c.jpg"), store.forFile(1).get(1).getNewFile());
+    }
+
+    @Test
+    public void testImageFileHistory() throws IOException {
+        ImageFile imageFile = new ImageFile(tempFolder.newFile("a.jpg"));
+        imageFile.setId(5);
+        imageFile.setHistory(store);
+        imageFile.editTags(new ArrayList<>(Arrays.asList(new Tag("sun"))));
+        imageFile.moveTo(new File(tempFolder.newFolder("sub"),
+                imageFile.getFile().getName()));
+
+        List<HistoryEntry> history = imageFile.getHistory();
+        assertEquals(2, history.size());
+        assertEquals("a.jpg", history.get(0).getOldFile().getName());
+        assertEquals(Arrays.asList(new Tag("sun")),
+                history.get(0).getAddedTags());
+        assertTrue(history.get(1).getAddedTags().isEmpty());
+        assertEquals(5, history.get(1).getFileId());
+    }
+
+    @Test
+    public void testImportPastNames() throws IOException {
+        File directory = tempFolder.newFolder("images");
+        ImageFile imageFile = new ImageFile(
+                new File(directory, "a @sun @sea.jpg"), "a", ".jpg",
+                new ArrayList<>(Arrays.asList(new Tag("sun"),
+                        new Tag("sea"))),
+                new ArrayList<>(Arrays.asList("a", "a @sun")));
+        imageFile.setId(7);
+        imageFile.setHistory(store);
+        imageFile.importPastNames();
+
+        List<HistoryEntry> history = store.forFile(7);
+        assertEquals(2, history.size());
+        assertEquals(new File(directory, "a.jpg"),
+                history.get(0).getOldFile());
+        assertEquals(Arrays.asList(new Tag("sun")),
+                history.get(0).getAddedTags());
+        assertEquals(new File(directory, "a @sun @sea.jpg"),
+                history.get(1).getNewFile());
+        assertEquals(Arrays.asList(new Tag("sea")),
+                history.get(1).getAddedTags());
+        assertTrue(history.get(1).getRemovedTags().isEmpty());
+    }
+
+    @Test
+    public void testWriteFailure() throws IOException {
+        store.close();
+        rename(1, "/a.jpg", "/a @x.jpg");
+        try {
+            store.sync();
+            fail("synced to a closed segment");
+        } catch (IOException e) {
+            // Expected
+        }
+        // Appends do not throw, but drop their entries
+        long dropped = Metrics.counter("history.dropped").getCount();
+        rename(1, "/a @x.jpg", "/a.jpg");
+        assertEquals(dropped + 1,
+                Metrics.counter("history.dropped").getCount());
+        try {
+            store.close();
+            fail("closed without reporting the failed write");
+        } catch (IOException e) {
+            // Expected
+        }
+        store = new HistoryStore(directory);
+    }
+}
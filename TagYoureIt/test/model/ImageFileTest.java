@@ -6,8 +6,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -41,6 +45,21 @@ public class ImageFileTest {
         assertEquals(file, imageFile.getFile());
     }
 
+    @Test
+    public void testDeserializedInNoStore() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(imageFile);
+        }
+        ImageFile read;
+        try (ObjectInputStream in = new ObjectInputStream(
+                new ByteArrayInputStream(bytes.toByteArray()))) {
+            read = (ImageFile) in.readObject();
+        }
+        assertEquals(file, read.getFile());
+        assertEquals(-1, read.getStoreIndex());
+    }
+
     @Test
     public void testGetOriginalName() throws Exception {
         assertEquals("image1", imageFile.getOriginalName());
@@ -0,0 +1,61 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class ImageScannerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private List<Path> expected;
+
+    @Before
+    public void setUp() throws IOException {
+        expected = new ArrayList<>();
+        File sub = tempFolder.newFolder("b");
+        File subSub = tempFolder.newFolder("b", "c");
+        tempFolder.newFile("notes.txt");
+        expected.add(tempFolder.newFile("a.jpg").toPath());
+        expected.add(new File(sub, "d.PNG").toPath());
+        expected.add(new File(subSub, "e.gif").toPath());
+        for (Path path : expected) {
+            path.toFile().createNewFile();
+        }
+        new File(subSub, "f.doc").createNewFile();
+        expected.sort(null);
+    }
+
+    @Test
+    public void testSequentialScan() throws IOException {
+        ImageScanner scanner = new ImageScanner(ImageScanner.Mode.SEQUENTIAL);
+        assertEquals(expected, scanner.scan(tempFolder.getRoot().toPath()));
+        assertEquals(5, scanner.getFilesVisited());
+        assertEquals(3, scanner.getImagesFound());
+    }
+
+    @Test
+    public void testParallelScan() throws IOException {
+        ImageScanner scanner = new ImageScanner(ImageScanner.Mode.PARALLEL, 4);
+        assertEquals(expected, scanner.scan(tempFolder.getRoot().toPath()));
+        assertEquals(5, scanner.getFilesVisited());
+        assertEquals(3, scanner.getImagesFound());
+    }
+
+    @Test
+    public void testEmptyDirectory() throws IOException {
+        File empty = tempFolder.newFolder("empty");
+        ImageScanner scanner = new ImageScanner(ImageScanner.Mode.PARALLEL);
+        assertEquals(new ArrayList<Path>(), scanner.scan(empty.toPath()));
+    }
+}
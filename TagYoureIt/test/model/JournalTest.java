@@ -0,0 +1,134 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class JournalTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path path;
+
+    private Journal journal;
+
+    @Before
+    public void setUp() throws IOException {
+        path = new File(tempFolder.getRoot(), "catalog.journal").toPath();
+        journal = new Journal(path);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.close();
+    }
+
+    @Test
+    public void testReadRecords() throws IOException {
+        journal.logMove(new File("/a/x.jpg"), new File("/a/x @sun.jpg"));
+        journal.logTags(new File("/a/x @sun.jpg"),
+                Arrays.asList(new Tag("sun")));
+        journal.logAddTag(new Tag("sun"));
+        journal.logRemoveTag(new Tag("rain"));
+        journal.sync();
+
+        List<Journal.Record> records = journal.readRecords();
+        assertEquals(4, records.size());
+        assertEquals(Journal.MOVE, records.get(0).type);
+        assertArrayEquals(new String[]{"/a/x.jpg", "/a/x @sun.jpg"},
+                records.get(0).fields);
+        assertEquals(Journal.TAGS, records.get(1).type);
+        assertArrayEquals(new String[]{"/a/x @sun.jpg", "sun"},
+                records.get(1).fields);
+        assertEquals(Journal.ADD_TAG, records.get(2).type);
+        assertEquals(Journal.REMOVE_TAG, records.get(3).type);
+    }
+
+    @Test
+    public void testReset() throws IOException {
+        journal.logAddTag(new Tag("sun"));
+        journal.sync();
+        journal.reset();
+        assertEquals(0, journal.size());
+        assertEquals(0, journal.readRecords().size());
+    }
+
+    @Test
+    public void testIntentsKeptAcrossReset() throws IOException {
+        journal.logIntent(new File("/a/x.jpg"), new File("/b/x.jpg"));
+        journal.logIntent(new File("/a/y.jpg"), new File("/a/y @sun.jpg"),
+                Arrays.asList(new Tag("sun")));
+        journal.logAbort(new File("/a/x.jpg"), new File("/b/x.jpg"));
+        journal.reset();
+
+        List<Journal.Record> records = journal.readRecords();
+        assertEquals(1, records.size());
+        assertEquals(Journal.EDIT_INTENT, records.get(0).type);
+        assertArrayEquals(new String[]{"/a/y.jpg", "/a/y @sun.jpg", "sun"},
+                records.get(0).fields);
+
+        journal.logMove(new File("/a/y.jpg"), new File("/a/y @sun.jpg"));
+        journal.reset();
+        assertEquals(0, journal.readRecords().size());
+    }
+
+    @Test
+    public void testWriteFailure() throws IOException {
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        Journal failing = new Journal(channel);
+        channel.close();
+        failing.logAddTag(new Tag("sun"));
+        try {
+            failing.sync();
+            fail("synced to a closed channel");
+        } catch (IOException e) {
+            // Expected
+        }
+        try {
+            failing.logAddTag(new Tag("rain"));
+            fail("appended after a failed write");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+        try {
+            failing.close();
+            fail("closed without reporting the failed write");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testTornRecord() throws IOException {
+        journal.logAddTag(new Tag("sun"));
+        journal.logAddTag(new Tag("rain"));
+        journal.sync();
+        long length = path.toFile().length();
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(),
+                "rw")) {
+            file.setLength(length - 3);
+        }
+        List<Journal.Record> records = journal.readRecords();
+        assertEquals(1, records.size());
+        assertEquals("sun", records.get(0).fields[0]);
+        assertEquals(length / 2, path.toFile().length());
+    }
+}
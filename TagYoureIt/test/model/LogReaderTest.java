@@ -0,0 +1,82 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+public class LogReaderTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path path;
+
+    private LogReader reader;
+
+    @Before
+    public void setUp() throws IOException {
+        path = tempFolder.getRoot().toPath().resolve("renameLog.txt");
+        reader = new LogReader(path);
+    }
+
+    private void append(String text) throws IOException {
+        Files.write(path, text.getBytes(), StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        assertEquals(0, reader.refresh());
+    }
+
+    @Test
+    public void testTail() throws IOException {
+        append("one\r\ntwo\nthr");
+        assertEquals(2, reader.refresh());
+        assertEquals("one", reader.getLine(0));
+        assertEquals("two", reader.getLine(1));
+
+        append("ee\n\nfour\n");
+        assertEquals(5, reader.refresh());
+        assertEquals(Arrays.asList("three", "", "four"),
+                reader.getLines(2, 10));
+    }
+
+    @Test
+    public void testPages() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < LogReader.PAGE_SIZE * 3 + 5; i++) {
+            text.append("line ").append(i).append('\n');
+        }
+        append(text.toString());
+        assertEquals(LogReader.PAGE_SIZE * 3 + 5, reader.refresh());
+        assertEquals("line 0", reader.getLine(0));
+        assertEquals("line " + LogReader.PAGE_SIZE,
+                reader.getLine(LogReader.PAGE_SIZE));
+        assertEquals("line " + (LogReader.PAGE_SIZE * 3 + 4),
+                reader.getLine(LogReader.PAGE_SIZE * 3 + 4));
+
+        // The partly read last page grows with the file.
+        append("more\n");
+        reader.refresh();
+        assertEquals("more", reader.getLine(LogReader.PAGE_SIZE * 3 + 5));
+    }
+
+    @Test
+    public void testTruncated() throws IOException {
+        append("one\ntwo\n");
+        reader.refresh();
+        Files.write(path, "new\n".getBytes());
+        assertEquals(1, reader.refresh());
+        assertEquals("new", reader.getLine(0));
+    }
+}
@@ -0,0 +1,153 @@
+package model;
+
+import org.junit.After;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LogTest {
+
+    private static final Pattern ENTRY = Pattern.compile(
+            "\\[\\d\\d/\\d\\d/\\d{4} \\d\\d:\\d\\d:\\d\\d] - (.*)\n\n");
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File file;
+
+    private Log log;
+
+    @Before
+    public void setUp() throws IOException {
+        file = new File(tempFolder.getRoot(), "renameLog.txt");
+        log = new Log(file.getPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        log.close();
+    }
+
+    private List<String> messages() throws IOException {
+        String text = new String(Files.readAllBytes(file.toPath()));
+        List<String> messages = new ArrayList<>();
+        Matcher matcher = ENTRY.matcher(text);
+        int end = 0;
+        while (matcher.find() && matcher.start() == end) {
+            messages.add(matcher.group(1));
+            end = matcher.end();
+        }
+        assertEquals(text.length(), end);
+        return messages;
+    }
+
+    @Test
+    public void testFormat() throws IOException {
+        log.writeLog("Move file [a] to [b]");
+        log.writeLog("Move file [b] to [c]");
+        log.flush();
+        List<String> messages = messages();
+        assertEquals(2, messages.size());
+        assertEquals("Move file [a] to [b]", messages.get(0));
+        LogReader reader = log.getReader();
+        assertEquals(4, reader.refresh());
+        assertEquals("", reader.getLine(1));
+        assertTrue(reader.getLine(2).endsWith("] - Move file [b] to [c]"));
+    }
+
+    @Test
+    public void testManyWriters() throws Exception {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int id = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    log.writeLog(id + ":" + i);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.flush();
+        Set<String> messages = new HashSet<>(messages());
+        assertEquals(20000, messages.size());
+        assertTrue(messages.contains("3:4999"));
+    }
+
+    @Test
+    public void testSynchronous() throws IOException {
+        log.setDurability(Log.Durability.SYNCHRONOUS);
+        log.writeLog("durable");
+        assertEquals(1, messages().size());
+    }
+
+    @Test
+    public void testParseDurability() {
+        assertEquals(Log.Durability.SYNCHRONOUS,
+                Log.Durability.parse("synchronous"));
+        assertEquals(Log.Durability.FORCED, Log.Durability.parse("FORCED"));
+        assertEquals(Log.Durability.BUFFERED, Log.Durability.parse("fast"));
+    }
+
+    @Test
+    public void testWriteFailure() throws IOException {
+        File full = new File("/dev/full");
+        Assume.assumeTrue(full.exists());
+        Log failing = new Log(full.getPath(),
+                Log.Durability.SYNCHRONOUS);
+        try {
+            failing.writeLog("lost");
+            fail("wrote to a full device");
+        } catch (UncheckedIOException e) {
+            // Expected
+        }
+        failing.setDurability(Log.Durability.BUFFERED);
+        long dropped = Metrics.counter("log.dropped").getCount();
+        failing.writeLog("dropped");
+        assertEquals(dropped + 1,
+                Metrics.counter("log.dropped").getCount());
+        try {
+            failing.flush();
+            fail("flushed to a full device");
+        } catch (IOException e) {
+            // Expected
+        }
+        try {
+            failing.close();
+            fail("closed without reporting the failed write");
+        } catch (IOException e) {
+            // Expected
+        }
+    }
+
+    @Test
+    public void testAppends() throws IOException {
+        log.writeLog("first");
+        log.close();
+        log = new Log(file.getPath());
+        log.writeLog("second");
+        log.flush();
+        assertEquals(2, messages().size());
+    }
+}
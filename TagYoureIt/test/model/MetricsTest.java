@@ -0,0 +1,119 @@
+package model;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Test
+    public void testBuckets() {
+        for (long value : new long[]{0, 1, 7, 8, 15, 16, 1000, 123456789,
+                Long.MAX_VALUE}) {
+            int bucket = Histogram.bucket(value);
+            assertTrue(Histogram.lowerBound(bucket) <= value);
+            if (value < Long.MAX_VALUE) {
+                assertTrue(value < Histogram.lowerBound(bucket + 1));
+            }
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(1000000, histogram.getMax());
+        assertEquals(500500.0, histogram.getMean(), 0.001);
+        // Within the precision of a bucket.
+        long median = histogram.getPercentile(0.5);
+        assertTrue(median >= 500000 && median < 500000 * 9 / 8);
+        long p99 = histogram.getPercentile(0.99);
+        assertTrue(p99 >= 990000 && p99 <= 1000000);
+        assertEquals(1000000, histogram.getPercentile(1));
+    }
+
+    @Test
+    public void testConcurrentRecords() throws InterruptedException {
+        Counter counter = new Counter();
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                Random random = new Random();
+                for (int i = 0; i < 10000; i++) {
+                    counter.increment();
+                    histogram.record(random.nextInt(1 << 20));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000, counter.getCount());
+        assertEquals(40000, histogram.getCount());
+    }
+
+    @Test
+    public void testSnapshot() throws Exception {
+        Metrics.counter("test.counter").add(3);
+        Timer timer = Metrics.timer("test.timer");
+        assertSame(timer, Metrics.timer("test.timer"));
+        timer.stop(Timer.start() - 2000000);
+        Map<String, Number> snapshot = Metrics.snapshot();
+        assertEquals(3L, snapshot.get("test.counter"));
+        assertEquals(1L, snapshot.get("test.timer.count"));
+        assertTrue(snapshot.get("test.timer.max").doubleValue() >= 2);
+
+        File file = new File(tempFolder.getRoot(), "metrics.txt");
+        Metrics.writeSnapshot(file.toPath());
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertTrue(lines.get(0).startsWith("#"));
+        assertTrue(lines.contains("test.counter=3"));
+
+        System.setProperty("tagyoureit.metrics", file.getPath());
+        Metrics.start(tempFolder.getRoot().toPath());
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(3L, server.getAttribute(
+                    new ObjectName(Metrics.OBJECT_NAME), "test.counter"));
+        } finally {
+            Metrics.stop();
+            System.clearProperty("tagyoureit.metrics");
+        }
+    }
+
+    @Test
+    public void testSnapshotInDataDirectory() throws IOException {
+        File data = tempFolder.newFolder(".tagyoureit");
+        Metrics.start(data.toPath());
+        Metrics.stop();
+        assertTrue(new File(data, "metrics.txt").exists());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTypeClash() {
+        Metrics.counter("test.clash");
+        Metrics.timer("test.clash");
+    }
+}
@@ -0,0 +1,396 @@
+package model;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ModelTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File root;
+
+    private File other;
+
+    private Model model;
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root");
+        other = new File(root, "other");
+        other.mkdir();
+        Files.createFile(new File(root, "beach.jpg").toPath());
+        Files.createFile(new File(other, "dune.png").toPath());
+        model = new Model(root, ImageScanner.Mode.SEQUENTIAL,
+                tempFolder.newFolder("data").toPath());
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        model.close();
+    }
+
+    @Test
+    public void testHasOriginalName() {
+        assertTrue(model.hasOriginalName(root, "beach"));
+        assertTrue(model.hasOriginalName(other, "dune"));
+        assertFalse(model.hasOriginalName(other, "beach"));
+    }
+
+    @Test
+    public void testHasOriginalNameAfterEdits() throws IOException {
+        ImageFile beach = model.getImageFile(new File(root, "beach.jpg"));
+        model.editTags(Collections.singletonList(beach), TagEdit.ADD,
+                Collections.singletonList(new Tag("sun")));
+        assertTrue(model.hasOriginalName(root, "beach"));
+
+        beach.moveTo(new File(other, beach.getFile().getName()));
+        assertFalse(model.hasOriginalName(root, "beach"));
+        assertTrue(model.hasOriginalName(other, "beach"));
+        assertTrue(model.hasOriginalName(other, "dune"));
+    }
+
+    @Test
+    public void testMoveFiles() throws IOException {
+        File dest = tempFolder.newFolder("dest");
+        BatchResult result = model.moveFiles(model.getImageFiles(), dest);
+        assertFalse(result.hasFailures());
+        assertEquals(2, result.getChanged().size());
+        assertTrue(new File(dest, "beach.jpg").exists());
+        assertTrue(new File(dest, "dune.png").exists());
+        assertEquals(new File(dest, "beach.jpg"),
+                model.getImageFile(new File(dest, "beach.jpg")).getFile());
+        assertTrue(model.hasOriginalName(dest, "dune"));
+        assertFalse(model.hasOriginalName(other, "dune"));
+    }
+
+    @Test
+    public void testMoveFilesRollsBack() throws IOException {
+        File dest = tempFolder.newFolder("dest");
+        Files.createFile(new File(dest, "dune.png").toPath());
+        BatchResult result = model.moveFiles(model.getImageFiles(), dest);
+        assertEquals(1, result.getFailures().size());
+        assertTrue(result.getChanged().isEmpty());
+        assertTrue(new File(root, "beach.jpg").exists());
+        assertFalse(new File(dest, "beach.jpg").exists());
+        assertTrue(model.hasOriginalName(root, "beach"));
+        assertEquals(new File(root, "beach.jpg"),
+                model.getImageFile(new File(root, "beach.jpg")).getFile());
+    }
+
+    @Test
+    public void testMigrateFromSharedCatalog() throws IOException {
+        File rootB = tempFolder.newFolder("rootB");
+        Files.createFile(new File(rootB, "forest.jpg").toPath());
+        Path shared = tempFolder.newFolder("shared").toPath();
+        Model all = new Model(tempFolder.getRoot(),
+                ImageScanner.Mode.SEQUENTIAL, shared);
+        all.editTags(all.getImageFiles(), TagEdit.ADD,
+                Collections.singletonList(new Tag("sun")));
+        all.saveAll();
+        all.close();
+
+        Path data = tempFolder.newFolder("rootBData").toPath();
+        Model migrated = new Model(rootB, ImageScanner.Mode.SEQUENTIAL,
+                Model.CatalogMode.EAGER, data, shared);
+        try {
+            assertEquals(1, migrated.getImageFiles().size());
+            ImageFile forest = migrated.getImageFiles().get(0);
+            assertEquals("forest", forest.getOriginalName());
+            assertEquals(Collections.singletonList(new Tag("sun")),
+                    forest.getCurrentTags());
+            assertTrue(Files.exists(data.resolve("catalog.tyi")));
+        } finally {
+            migrated.close();
+        }
+    }
+
+    @Test
+    public void testDataDirectoryOfReadOnlyRoot() throws IOException {
+        Path home = tempFolder.newFolder("home").toPath();
+        assertEquals(root.toPath().resolve(Model.DATA_DIRECTORY),
+                Model.dataDirectoryFor(root, home));
+
+        // A root whose data directory cannot be created
+        File readOnly = tempFolder.newFolder("readOnly");
+        Files.createFile(new File(readOnly, "sea.jpg").toPath());
+        Files.createFile(readOnly.toPath().resolve(Model.DATA_DIRECTORY));
+        Path data = Model.dataDirectoryFor(readOnly, home);
+        assertTrue(data.startsWith(home));
+        assertEquals(data, Model.dataDirectoryFor(readOnly, home));
+        assertFalse(data.equals(Model.dataDirectoryFor(root, home)));
+        Model opened = new Model(readOnly, ImageScanner.Mode.SEQUENTIAL,
+                Model.CatalogMode.EAGER, data, null);
+        try {
+            opened.saveAll();
+            assertEquals(1, opened.getImageFiles().size());
+            assertTrue(Files.exists(data.resolve("catalog.tyi")));
+        } finally {
+            opened.close();
+        }
+    }
+
+    @Test
+    public void testDataDirectoryNotScanned() throws IOException {
+        Path data = root.toPath().resolve(Model.DATA_DIRECTORY);
+        Model opened = new Model(root, ImageScanner.Mode.SEQUENTIAL,
+                Model.CatalogMode.EAGER, data, null);
+        Files.createDirectories(data.resolve("thumbnails"));
+        Files.createFile(data.resolve("thumbnails").resolve("0.png"));
+        opened.close();
+        for (ImageScanner.Mode mode : ImageScanner.Mode.values()) {
+            opened = new Model(root, mode, Model.CatalogMode.EAGER, data,
+                    null);
+            try {
+                assertEquals(2, opened.getImageFiles().size());
+            } finally {
+                opened.close();
+            }
+        }
+    }
+
+    @Test
+    public void testLazyCatalog() throws IOException, ParseException {
+        Path data = tempFolder.newFolder("lazyData").toPath();
+        Model lazy = openLazy(data);
+        lazy.editTags(Collections.singletonList(
+                lazy.getImageFile(new File(root, "beach.jpg"))),
+                TagEdit.ADD, Collections.singletonList(new Tag("sun")));
+        lazy.saveAll();
+        lazy.close();
+
+        lazy = openLazy(data);
+        try {
+            assertEquals(0, lazy.getLiveCount());
+            assertEquals(2, lazy.getImageFiles().size());
+            assertTrue(lazy.hasOriginalName(root, "beach"));
+            assertEquals(1, lazy.search("sun").size());
+            assertEquals(0, lazy.getLiveCount());
+
+            ImageFile beach = lazy.search("sun").get(0);
+            assertEquals("beach", beach.getOriginalName());
+            assertEquals(Collections.singletonList(new Tag("sun")),
+                    beach.getCurrentTags());
+            assertSame(beach,
+                    lazy.getImageFile(new File(root, "beach @sun.jpg")));
+            assertTrue(lazy.getImageFiles().contains(beach));
+            assertEquals(1, lazy.getLiveCount());
+        } finally {
+            lazy.close();
+        }
+    }
+
+    @Test
+    public void testLazyEditsKeptUntilSaved() throws IOException {
+        Path data = tempFolder.newFolder("lazyData").toPath();
+        Model lazy = openLazy(data);
+        lazy.saveAll();
+        lazy.close();
+
+        lazy = openLazy(data);
+        try {
+            lazy.editTags(Collections.singletonList(
+                    lazy.getImageFile(new File(other, "dune.png"))),
+                    TagEdit.ADD, Collections.singletonList(new Tag("sand")));
+            System.gc();
+            ImageFile dune = lazy.getImageFile(
+                    new File(other, "dune @sand.png"));
+            assertNotNull(dune);
+            assertEquals(Collections.singletonList(new Tag("sand")),
+                    dune.getCurrentTags());
+            assertNotNull(lazy.getExistingTags().findTag("sand"));
+            lazy.saveAll();
+            assertNotNull(lazy.getImageFile(
+                    new File(other, "dune @sand.png")));
+        } finally {
+            lazy.close();
+        }
+    }
+
+    @Test
+    public void testLazyMoveFiles() throws IOException {
+        Path data = tempFolder.newFolder("lazyData").toPath();
+        File dest = tempFolder.newFolder("dest");
+        Model lazy = openLazy(data);
+        lazy.saveAll();
+        lazy.close();
+
+        lazy = openLazy(data);
+        try {
+            BatchResult result = lazy.moveFiles(lazy.getImageFiles(), dest);
+            assertFalse(result.hasFailures());
+            assertTrue(lazy.hasOriginalName(dest, "dune"));
+            assertFalse(lazy.hasOriginalName(other, "dune"));
+            assertTrue(lazy.underRoot(lazy.getImageFiles()).isEmpty());
+            lazy.saveAll();
+        } finally {
+            lazy.close();
+        }
+        lazy = openLazy(data);
+        try {
+            assertNotNull(lazy.getImageFile(new File(dest, "beach.jpg")));
+            assertEquals(0, lazy.underRoot(lazy.getImageFiles()).size());
+        } finally {
+            lazy.close();
+        }
+    }
+
+    @Test
+    public void testLazyListSplicing() throws IOException {
+        Path data = tempFolder.newFolder("spliceData").toPath();
+        Model lazy = openLazy(data);
+        lazy.saveAll();
+        lazy.close();
+
+        lazy = openLazy(data);
+        try {
+            ImageList all = (ImageList) lazy.getImageFiles();
+            File sea = new File(root, "sea.jpg");
+            Files.createFile(sea.toPath());
+            lazy.applyChanges(Collections.singletonList(sea.toPath()));
+            ImageFile added = lazy.getImageFile(sea);
+            ImageList spliced = all.with(added);
+            assertEquals(3, spliced.size());
+            assertSame(spliced, spliced.with(added));
+            assertEquals(2, spliced.indexOf(added));
+
+            Files.delete(sea.toPath());
+            lazy.applyChanges(Collections.singletonList(sea.toPath()));
+            ImageList kept = spliced.without(Collections.singletonList(added));
+            assertEquals(2, kept.size());
+            assertSame(kept, kept.without(
+                    Collections.singletonList(added)));
+            // None of the ImageFiles of the catalog was built
+            assertEquals(0, lazy.getLiveCount());
+        } finally {
+            lazy.close();
+        }
+    }
+
+    @Test
+    public void testImportPastNames() throws IOException {
+        Path data = tempFolder.newFolder("oldData").toPath();
+        Model opened = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+        opened.editTags(Collections.singletonList(opened.getImageFile(
+                new File(root, "beach.jpg"))), TagEdit.ADD,
+                Collections.singletonList(new Tag("sun")));
+        opened.saveAll();
+        opened.close();
+        // Data saved before there was a history store
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(
+                data.resolve("history"))) {
+            for (Path file : files) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(data.resolve("history"));
+
+        opened = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+        try {
+            List<HistoryEntry> history = opened.getImageFile(
+                    new File(root, "beach @sun.jpg")).getHistory();
+            assertEquals(1, history.size());
+            assertEquals(new File(root, "beach.jpg"),
+                    history.get(0).getOldFile());
+            assertEquals(Collections.singletonList(new Tag("sun")),
+                    history.get(0).getAddedTags());
+        } finally {
+            opened.close();
+        }
+    }
+
+    @Test
+    public void testParseCatalogMode() {
+        assertEquals(Model.CatalogMode.LAZY, Model.CatalogMode.parse("lazy"));
+        assertEquals(Model.CatalogMode.EAGER,
+                Model.CatalogMode.parse("EAGER"));
+        assertEquals(Model.CatalogMode.EAGER,
+                Model.CatalogMode.parse("lazzy"));
+    }
+
+    @Test
+    public void testReplayIntents() throws IOException {
+        Path data = tempFolder.newFolder("intentData").toPath();
+        Model opened = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+        opened.saveAll();
+        opened.close();
+
+        // A crash after the rename of beach, before its outcome was
+        // journaled, and before dune was moved
+        File beach = new File(root, "beach.jpg");
+        File tagged = new File(root, "beach @sun.jpg");
+        File dune = new File(other, "dune.png");
+        Journal journal = new Journal(data.resolve("catalog.journal"));
+        journal.logIntent(beach, tagged,
+                Collections.singletonList(new Tag("sun")));
+        journal.logIntent(dune, new File(root, "dune.png"));
+        journal.close();
+        Files.move(beach.toPath(), tagged.toPath());
+
+        opened = new Model(root, ImageScanner.Mode.SEQUENTIAL, data);
+        try {
+            ImageFile im = opened.getImageFile(tagged);
+            assertEquals("beach", im.getOriginalName());
+            assertEquals(Collections.singletonList(new Tag("sun")),
+                    im.getCurrentTags());
+            assertEquals(dune, opened.getImageFile(dune).getFile());
+        } finally {
+            opened.close();
+        }
+    }
+
+    @Test
+    public void testLazyFindUnderRoot() throws IOException {
+        Path data = tempFolder.newFolder("lazyData").toPath();
+        File dest = tempFolder.newFolder("dest");
+        Model lazy = openLazy(data);
+        lazy.editTags(lazy.getImageFiles(), TagEdit.ADD,
+                Collections.singletonList(new Tag("sun")));
+        lazy.moveFiles(Collections.singletonList(lazy.getImageFile(
+                new File(other, "dune @sun.png"))), dest);
+        lazy.saveAll();
+        lazy.close();
+
+        lazy = openLazy(data);
+        try {
+            List<ImageFile> found = lazy.underRoot(lazy.findWithAnyTag(
+                    Collections.singletonList(new Tag("sun"))));
+            assertEquals(1, found.size());
+            assertEquals(0, lazy.getLiveCount());
+            assertEquals(new File(root, "beach @sun.jpg"),
+                    found.get(0).getFile());
+        } finally {
+            lazy.close();
+        }
+    }
+
+    /**
+     * Opens a model of root that loads the catalog in data lazily.
+     *
+     * @param data the data directory of the model
+     * @return the model
+     * @throws IOException if the model could not be opened
+     */
+    private Model openLazy(Path data) throws IOException {
+        return new Model(root, ImageScanner.Mode.SEQUENTIAL,
+                Model.CatalogMode.LAZY, data, null);
+    }
+}
@@ -0,0 +1,39 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class TagDictionaryTest {
+
+    @Test
+    public void testIntern() {
+        int id = TagDictionary.intern("dictionary-sun");
+        assertEquals(id, TagDictionary.intern("dictionary-sun"));
+        assertEquals(id, TagDictionary.lookup("dictionary-sun"));
+        assertEquals("dictionary-sun", TagDictionary.tag(id).getTag());
+    }
+
+    @Test
+    public void testLookupUnknown() {
+        assertEquals(-1, TagDictionary.lookup("dictionary-unknown"));
+    }
+
+    @Test
+    public void testCanonical() {
+        assertSame(TagDictionary.canonical(new Tag("dictionary-rain")),
+                TagDictionary.canonical(new Tag("dictionary-rain")));
+    }
+
+    @Test
+    public void testIdsKeepOrder() {
+        int[] ids = TagDictionary.ids(Arrays.asList(new Tag("dictionary-b"),
+                new Tag("dictionary-a")));
+        assertArrayEquals(new int[]{TagDictionary.lookup("dictionary-b"),
+                TagDictionary.lookup("dictionary-a")}, ids);
+    }
+}
@@ -0,0 +1,33 @@
+package model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TagEditTest {
+
+    private final List<Tag> current = Arrays.asList(new Tag("sun"),
+            new Tag("beach"));
+
+    @Test
+    public void testAdd() {
+        assertEquals(Arrays.asList(new Tag("sun"), new Tag("beach"),
+                new Tag("dog")), TagEdit.ADD.apply(current,
+                Arrays.asList(new Tag("beach"), new Tag("dog"))));
+    }
+
+    @Test
+    public void testRemove() {
+        assertEquals(Arrays.asList(new Tag("beach")), TagEdit.REMOVE.apply(
+                current, Arrays.asList(new Tag("sun"), new Tag("dog"))));
+    }
+
+    @Test
+    public void testSet() {
+        assertEquals(Arrays.asList(new Tag("dog")), TagEdit.SET.apply(
+                current, Arrays.asList(new Tag("dog"))));
+    }
+}
@@ -0,0 +1,149 @@
+package model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TagQueryTest {
+
+    private TagIndex index;
+
+    private ImageFile beach;
+
+    private ImageFile blurryBeach;
+
+    private ImageFile hawaii;
+
+    @Before
+    public void setUp() {
+        index = new TagIndex();
+        beach = image("a", "hawaii", "beach");
+        blurryBeach = image("b", "hawaii", "beach", "blurry");
+        hawaii = image("c", "hawaii", "hotel");
+        index.add(beach);
+        index.add(blurryBeach);
+        index.add(hawaii);
+        index.add(image("d", "beachball"));
+    }
+
+    private static ImageFile image(String name, String... tags) {
+        ArrayList<Tag> tagList = new ArrayList<>();
+        for (String tag : tags) {
+            tagList.add(new Tag(tag));
+        }
+        return new ImageFile(new File(name + ".jpg"), name, ".jpg", tagList,
+                new ArrayList<>());
+    }
+
+    private ArrayList<ImageFile> find(String query) throws ParseException {
+        return index.find(TagQuery.parse(query));
+    }
+
+    @Test
+    public void testAndNot() throws ParseException {
+        assertEquals(Arrays.asList(beach),
+                find("hawaii AND beach AND NOT @blurry"));
+    }
+
+    @Test
+    public void testImplicitAnd() throws ParseException {
+        assertEquals(Arrays.asList(beach, blurryBeach),
+                find("beach hawaii"));
+    }
+
+    @Test
+    public void testOrAndParentheses() throws ParseException {
+        assertEquals(Arrays.asList(blurryBeach, hawaii),
+                find("hawaii AND (hotel OR blurry)"));
+        assertEquals(3, find("blurry OR hawaii").size());
+    }
+
+    @Test
+    public void testPrefix() throws ParseException {
+        assertEquals(3, find("beach*").size());
+        assertEquals(1, find("beach* AND NOT hawaii").size());
+    }
+
+    @Test
+    public void testNot() throws ParseException {
+        assertEquals(Arrays.asList(hawaii, index.find(
+                TagQuery.parse("beachball")).get(0)), find("NOT beach"));
+    }
+
+    @Test
+    public void testRemovedImage() throws ParseException {
+        index.remove(hawaii);
+        assertEquals(1, find("NOT beach").size());
+    }
+
+    @Test
+    public void testMatches() throws ParseException {
+        TagQuery query = TagQuery.parse("hawaii AND NOT (blurry OR hotel)");
+        assertTrue(query.matches(beach));
+        assertFalse(query.matches(blurryBeach));
+        assertFalse(query.matches(hawaii));
+    }
+
+    @Test
+    public void testQuotedSpaces() throws ParseException {
+        ImageFile house = image("e", "beach house", "hawaii");
+        index.add(house);
+        assertEquals(Arrays.asList(house), find("\"beach house\""));
+        assertEquals(Arrays.asList(house),
+                find("hawaii AND \"beach house\""));
+        assertEquals(Arrays.asList(beach, blurryBeach), find("beach"));
+    }
+
+    @Test
+    public void testQuotedParentheses() throws ParseException {
+        ImageFile trip = image("e", "hawaii (2019)");
+        index.add(trip);
+        assertEquals(Arrays.asList(trip), find("\"hawaii (2019)\""));
+        assertEquals(Arrays.asList(beach, blurryBeach, trip),
+                find("(\"hawaii (2019)\" OR beach)"));
+    }
+
+    @Test
+    public void testQuotedOperators() throws ParseException {
+        ImageFile and = image("e", "AND");
+        ImageFile or = image("f", "OR");
+        ImageFile not = image("g", "NOT");
+        index.add(and);
+        index.add(or);
+        index.add(not);
+        assertEquals(Arrays.asList(and), find("\"AND\""));
+        assertEquals(Arrays.asList(or, not), find("\"OR\" OR \"NOT\""));
+        assertEquals(Arrays.asList(and), find("NOT \"NOT\" AND \"AND\""));
+    }
+
+    @Test
+    public void testQuotedEscapes() throws ParseException {
+        ImageFile quoted = image("e", "say \"hi\"", "beach*");
+        index.add(quoted);
+        assertEquals(Arrays.asList(quoted), find("\"say \\\"hi\\\"\""));
+        assertEquals(Arrays.asList(quoted), find("\"beach*\""));
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnclosedQuote() throws ParseException {
+        TagQuery.parse("hawaii AND \"beach house");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testUnbalanced() throws ParseException {
+        TagQuery.parse("(hawaii OR beach");
+    }
+
+    @Test(expected = ParseException.class)
+    public void testDanglingOperator() throws ParseException {
+        TagQuery.parse("hawaii AND");
+    }
+}
@@ -0,0 +1,131 @@
+package view;
+
+import model.ImageFile;
+import model.Metrics;
+import model.Model;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ThumbnailCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private File root;
+
+    private Model model;
+
+    private Path cacheDirectory;
+
+    private ThumbnailCache cache;
+
+    @BeforeClass
+    public static void setUpClass() {
+        // Decode images without a graphics device
+        System.setProperty("prism.order", "sw");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        root = tempFolder.newFolder("root");
+        for (String name : new String[]{"a.png", "b.png", "c.png"}) {
+            ImageIO.write(new BufferedImage(40, 20,
+                    BufferedImage.TYPE_INT_RGB), "png", new File(root, name));
+        }
+        model = new Model(root);
+        cacheDirectory = tempFolder.newFolder("thumbnails").toPath();
+        cache = new ThumbnailCache(cacheDirectory);
+    }
+
+    private ImageFile image(String name) {
+        return model.getImageFile(new File(root, name));
+    }
+
+    private long count(String name) {
+        return Metrics.counter(name).getCount();
+    }
+
+    @Test
+    public void testKeyKeptAcrossRename() throws IOException {
+        ImageFile a = image("a.png");
+        Path before = cache.locate(a, 100);
+        a.moveTo(new File(tempFolder.newFolder("other"), "a @sun.png"));
+        assertEquals(before, cache.locate(a, 100));
+        assertNotEquals(before, cache.locate(a, 50));
+    }
+
+    @Test
+    public void testKeyChangesWithContents() throws IOException {
+        ImageFile a = image("a.png");
+        Path before = cache.locate(a, 100);
+        Files.setLastModifiedTime(a.getFile().toPath(),
+                FileTime.fromMillis(1000));
+        assertNotEquals(before, cache.locate(a, 100));
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException {
+        ImageFile a = image("a.png");
+        long hits = count("thumbnail.hits");
+        long misses = count("thumbnail.misses");
+        assertNotNull(cache.get(a, 10));
+        assertEquals(misses + 1, count("thumbnail.misses"));
+        assertTrue(Files.exists(cache.locate(a, 10)));
+        assertNotNull(cache.get(a, 10));
+        assertEquals(hits + 1, count("thumbnail.hits"));
+        assertEquals(misses + 1, count("thumbnail.misses"));
+    }
+
+    @Test
+    public void testOldVersionDeleted() throws IOException {
+        ImageFile a = image("a.png");
+        cache.get(a, 10);
+        Path old = cache.locate(a, 10);
+        Files.setLastModifiedTime(a.getFile().toPath(),
+                FileTime.fromMillis(1000));
+        cache.get(a, 10);
+        assertFalse(Files.exists(old));
+        assertTrue(Files.exists(cache.locate(a, 10)));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        ImageFile a = image("a.png");
+        ImageFile b = image("b.png");
+        ImageFile c = image("c.png");
+        cache.get(a, 10);
+        long size = Files.size(cache.locate(a, 10));
+        // Room for two thumbnails, but not three
+        cache = new ThumbnailCache(cacheDirectory, size * 14 / 5);
+        cache.get(b, 10);
+        Files.setLastModifiedTime(cache.locate(a, 10),
+                FileTime.fromMillis(System.currentTimeMillis() - 60000));
+        Files.setLastModifiedTime(cache.locate(b, 10),
+                FileTime.fromMillis(System.currentTimeMillis() - 120000));
+        // Using b makes a the least recently used
+        cache.get(b, 10);
+        long evictions = count("thumbnail.evictions");
+        cache.get(c, 10);
+        assertFalse(Files.exists(cache.locate(a, 10)));
+        assertTrue(Files.exists(cache.locate(b, 10)));
+        assertTrue(Files.exists(cache.locate(c, 10)));
+        assertEquals(evictions + 1, count("thumbnail.evictions"));
+    }
+}